@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import java.util.Random;
+
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Creates the synthetic images the benchmarks run against. Every image is
+ * filled from the same seed so that runs are comparable across pixel types,
+ * storage layouts and machines.
+ */
+final class BenchmarkImages {
+
+	// -- Constants --
+
+	/** Pixel type names usable as benchmark {@code @Param} values. */
+	static final String UINT8 = "uint8";
+	static final String UINT16 = "uint16";
+	static final String FLOAT32 = "float32";
+
+	/** Storage layout names usable as benchmark {@code @Param} values. */
+	static final String PLANAR = "planar";
+	static final String ARRAY = "array";
+	static final String CELL = "cell";
+
+	private static final long SEED = 0x1234abcdL;
+
+	// -- Constructor --
+
+	private BenchmarkImages() {
+		// prevent instantiation of utility class
+	}
+
+	// -- Utility methods --
+
+	/**
+	 * Creates a filled {@link Dataset} of the given pixel type and storage
+	 * layout.
+	 */
+	static Dataset create(final DatasetService service, final String layout,
+		final String pixelType, final long[] dims, final AxisType[] axes)
+	{
+		if (UINT8.equals(pixelType)) {
+			return create(service, layout, new UnsignedByteType(), dims, axes);
+		}
+		if (UINT16.equals(pixelType)) {
+			return create(service, layout, new UnsignedShortType(), dims, axes);
+		}
+		if (FLOAT32.equals(pixelType)) {
+			return create(service, layout, new FloatType(), dims, axes);
+		}
+		throw new IllegalArgumentException("Unknown pixel type: " + pixelType);
+	}
+
+	/**
+	 * Fills a {@link Dataset} with pseudorandom values. Integer data covers the
+	 * full range of its type; float data lies in [0,1).
+	 */
+	static void fill(final Dataset ds) {
+		final Random rng = new Random(SEED);
+		final boolean integer = ds.isInteger();
+		final double min = integer ? ds.getType().getMinValue() : 0;
+		final double range = integer ? ds.getType().getMaxValue() - min + 1 : 1;
+		for (final RealType<?> value : ds.getImgPlus()) {
+			final double v = min + rng.nextDouble() * range;
+			value.setReal(integer ? Math.floor(v) : v);
+		}
+		ds.update();
+	}
+
+	// -- Helper methods --
+
+	private static <T extends RealType<T> & NativeType<T>> Dataset create(
+		final DatasetService service, final String layout, final T type,
+		final long[] dims, final AxisType[] axes)
+	{
+		final ImgFactory<T> factory = factory(layout);
+		final Dataset ds = service.create(factory, type, dims, "benchmark", axes);
+		fill(ds);
+		return ds;
+	}
+
+	private static <T extends NativeType<T>> ImgFactory<T> factory(
+		final String layout)
+	{
+		if (PLANAR.equals(layout)) return new PlanarImgFactory<T>();
+		if (ARRAY.equals(layout)) return new ArrayImgFactory<T>();
+		if (CELL.equals(layout)) return new CellImgFactory<T>();
+		throw new IllegalArgumentException("Unknown storage layout: " + layout);
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.types.BigComplex;
+import imagej.data.types.DataType;
+import imagej.data.types.DataTypeService;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.NumericType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.Context;
+
+/**
+ * Measures {@link DataTypeService#cast} converting every pixel of an image
+ * into another type, as the Type commands do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DataTypeCastBenchmark {
+
+	@Param({ BenchmarkImages.UINT8, BenchmarkImages.UINT16,
+		BenchmarkImages.FLOAT32 })
+	public String pixelType;
+
+	@Param({ "256", "1024", "2048" })
+	public int size;
+
+	private Context context;
+	private DataTypeService dataTypeService;
+	private Dataset dataset;
+	private Img<FloatType> floats;
+	private Img<UnsignedShortType> shorts;
+	private final BigComplex tmp = new BigComplex();
+
+	@Setup
+	public void setup() {
+		context = new Context(DatasetService.class, DataTypeService.class);
+		dataTypeService = context.getService(DataTypeService.class);
+		final long[] dims = { size, size };
+		dataset =
+			BenchmarkImages.create(context.getService(DatasetService.class),
+				BenchmarkImages.PLANAR, pixelType, dims, new AxisType[] { Axes.X,
+					Axes.Y });
+		floats = new ArrayImgFactory<FloatType>().create(dims, new FloatType());
+		shorts =
+			new ArrayImgFactory<UnsignedShortType>().create(dims,
+				new UnsignedShortType());
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Benchmark
+	public Object castToFloat32() {
+		return castAll(floats);
+	}
+
+	@Benchmark
+	public Object castToUint16() {
+		return castAll(shorts);
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private <V extends NumericType<V> & NativeType<V>> Img<V> castAll(
+		final Img<V> output)
+	{
+		final Img input = dataset.getImgPlus();
+		return castAll(input, dataType(input.firstElement()), output);
+	}
+
+	private <U extends NumericType<U>, V extends NumericType<V> & NativeType<V>>
+		Img<V> castAll(final Img<U> input, final DataType<U> inType,
+			final Img<V> output)
+	{
+		final DataType<V> outType = dataType(output.firstElement());
+		final Cursor<U> in = input.cursor();
+		final Cursor<V> out = output.cursor();
+		while (in.hasNext()) {
+			dataTypeService.cast(inType, in.next(), outType, out.next(), tmp);
+		}
+		return output;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends NumericType<T>> DataType<T> dataType(final T type) {
+		final DataType<?> dataType = dataTypeService.getTypeByClass(type.getClass());
+		if (dataType == null) {
+			throw new IllegalArgumentException("No data type for " +
+				type.getClass().getName());
+		}
+		return (DataType<T>) dataType;
+	}
+
+}
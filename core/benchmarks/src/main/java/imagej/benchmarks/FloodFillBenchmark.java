@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.data.ChannelCollection;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.DrawingTool;
+import imagej.data.FloodFiller;
+import imagej.render.RenderingService;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.Context;
+
+/**
+ * Measures {@link FloodFiller#fill4} and {@link FloodFiller#fill8} flooding a
+ * whole uniform plane. Successive invocations alternate between two fill
+ * values so that every invocation repaints every pixel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FloodFillBenchmark {
+
+	@Param({ BenchmarkImages.UINT8, BenchmarkImages.UINT16,
+		BenchmarkImages.FLOAT32 })
+	public String pixelType;
+
+	@Param({ "256", "1024", "2048" })
+	public int size;
+
+	private Context context;
+	private DrawingTool tool;
+	private FloodFiller filler;
+	private ChannelCollection[] fillValues;
+	private long[] position;
+	private int invocation;
+
+	@Setup
+	public void setup() {
+		context = new Context(DatasetService.class, RenderingService.class);
+		final Dataset dataset =
+			BenchmarkImages.create(context.getService(DatasetService.class),
+				BenchmarkImages.PLANAR, pixelType, new long[] { size, size },
+				new AxisType[] { Axes.X, Axes.Y });
+		for (final RealType<?> value : dataset.getImgPlus()) {
+			value.setZero();
+		}
+		position = new long[dataset.numDimensions()];
+		tool =
+			new DrawingTool(dataset, context.getService(RenderingService.class));
+		tool.setUAxis(0);
+		tool.setVAxis(1);
+		tool.setLineWidth(1);
+		tool.setPosition(position);
+		filler = new FloodFiller(tool);
+		fillValues =
+			new ChannelCollection[] { new ChannelCollection(Arrays.asList(1.0)),
+				new ChannelCollection(Arrays.asList(2.0)) };
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Benchmark
+	public boolean fill4() {
+		tool.setChannels(nextFillValue());
+		return filler.fill4(size / 2, size / 2, position);
+	}
+
+	@Benchmark
+	public boolean fill8() {
+		tool.setChannels(nextFillValue());
+		return filler.fill8(size / 2, size / 2, position);
+	}
+
+	// -- Helper methods --
+
+	private ChannelCollection nextFillValue() {
+		return fillValues[invocation++ & 1];
+	}
+
+}
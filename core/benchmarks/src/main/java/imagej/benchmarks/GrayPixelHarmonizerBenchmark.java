@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.legacy.translate.GrayPixelHarmonizer;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.Context;
+
+/**
+ * Measures the {@link GrayPixelHarmonizer} copying gray pixels between a
+ * {@link Dataset} and an {@link ImagePlus} in both directions. Copying back
+ * an untouched legacy image is measured separately since it only needs to
+ * checksum the planes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GrayPixelHarmonizerBenchmark {
+
+	private static final int PLANES = 3;
+
+	@Param({ BenchmarkImages.UINT8, BenchmarkImages.UINT16,
+		BenchmarkImages.FLOAT32 })
+	public String pixelType;
+
+	@Param({ "256", "1024", "2048" })
+	public int size;
+
+	private Context context;
+	private Dataset dataset;
+	private ImagePlus imp;
+	private GrayPixelHarmonizer harmonizer;
+
+	@Setup
+	public void setup() {
+		context = new Context(DatasetService.class);
+		dataset =
+			BenchmarkImages.create(context.getService(DatasetService.class),
+				BenchmarkImages.PLANAR, pixelType, new long[] { size, size, PLANES },
+				new AxisType[] { Axes.X, Axes.Y, Axes.Z });
+		final ImageStack stack = new ImageStack(size, size);
+		for (int i = 0; i < PLANES; i++) {
+			stack.addSlice("" + (i + 1), processor());
+		}
+		imp = new ImagePlus("benchmark", stack);
+		harmonizer = new GrayPixelHarmonizer();
+		harmonizer.updateLegacyImage(dataset, imp);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Benchmark
+	public ImagePlus updateLegacyImage() {
+		harmonizer.updateLegacyImage(dataset, imp);
+		return imp;
+	}
+
+	@Benchmark
+	public Dataset updateDataset() {
+		harmonizer.forget(imp);
+		harmonizer.updateDataset(dataset, imp);
+		return dataset;
+	}
+
+	@Benchmark
+	public Dataset updateDatasetUnchanged() {
+		harmonizer.updateDataset(dataset, imp);
+		return dataset;
+	}
+
+	// -- Helper methods --
+
+	private ImageProcessor processor() {
+		if (BenchmarkImages.UINT8.equals(pixelType)) {
+			return new ByteProcessor(size, size);
+		}
+		if (BenchmarkImages.UINT16.equals(pixelType)) {
+			return new ShortProcessor(size, size);
+		}
+		return new FloatProcessor(size, size);
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.core.commands.correlate.Correlation3x3Operation;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.util.RealRect;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Measures the {@link imagej.core.commands.neigh.Neighborhood3x3Operation}
+ * behind Smooth, Sharpen, Find Edges and the Shadows commands, driven with
+ * the Smooth kernel. The image is refilled before each iteration so that
+ * repeated smoothing does not flatten it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class Neighborhood3x3Benchmark {
+
+	private static final double[] SMOOTH = { 1, 1, 1, 1, 1, 1, 1, 1, 1 };
+
+	@Param({ BenchmarkImages.UINT8, BenchmarkImages.UINT16,
+		BenchmarkImages.FLOAT32 })
+	public String pixelType;
+
+	@Param({ "256", "1024", "2048" })
+	public int size;
+
+	private Context context;
+	private Dataset dataset;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = new Context(DatasetService.class, ThreadService.class);
+		dataset =
+			BenchmarkImages.create(context.getService(DatasetService.class),
+				BenchmarkImages.PLANAR, pixelType, new long[] { size, size },
+				new AxisType[] { Axes.X, Axes.Y });
+	}
+
+	@Setup(Level.Iteration)
+	public void refill() {
+		BenchmarkImages.fill(dataset);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Benchmark
+	public Dataset smooth() {
+		new Correlation3x3Operation(dataset, new RealRect(), SMOOTH).run();
+		return dataset;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.benchmarks;
+
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.display.ColorTables;
+import imagej.data.display.SourceOptimizedCompositeXYProjector;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scijava.Context;
+
+/**
+ * Measures {@link SourceOptimizedCompositeXYProjector#map()}, the path that
+ * renders three channel, cell backed images to the screen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProjectorBenchmark {
+
+	private static final int CHANNELS = 3;
+
+	@Param({ BenchmarkImages.UINT8, BenchmarkImages.UINT16,
+		BenchmarkImages.FLOAT32 })
+	public String pixelType;
+
+	@Param({ "256", "1024", "2048" })
+	public int size;
+
+	@Param({ "true", "false" })
+	public boolean composite;
+
+	private Context context;
+	private SourceOptimizedCompositeXYProjector<?, ?, ?> projector;
+	private ARGBScreenImage screen;
+
+	@Setup
+	public void setup() {
+		context = new Context(DatasetService.class);
+		final Dataset dataset =
+			BenchmarkImages.create(context.getService(DatasetService.class),
+				BenchmarkImages.CELL, pixelType, new long[] { size, size, CHANNELS },
+				new AxisType[] { Axes.X, Axes.Y, Axes.CHANNEL });
+		screen = new ARGBScreenImage(size, size);
+		projector = projector(dataset, screen);
+		projector.setComposite(composite);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Benchmark
+	public Object map() {
+		projector.map();
+		return screen.getData();
+	}
+
+	// -- Helper methods --
+
+	private <T extends RealType<T>>
+		SourceOptimizedCompositeXYProjector<T, ImgPlus<T>, ARGBScreenImage>
+		projector(final Dataset ds, final ARGBScreenImage target)
+	{
+		@SuppressWarnings("unchecked")
+		final ImgPlus<T> img = (ImgPlus<T>) ds.getImgPlus();
+		final double min = ds.isInteger() ? ds.getType().getMinValue() : 0;
+		final double max = ds.isInteger() ? ds.getType().getMaxValue() : 1;
+		final ArrayList<Converter<T, ARGBType>> converters =
+			new ArrayList<Converter<T, ARGBType>>();
+		for (int c = 0; c < CHANNELS; c++) {
+			converters.add(new RealLUTConverter<T>(min, max, ColorTables
+				.getDefaultColorTable(c)));
+		}
+		return new SourceOptimizedCompositeXYProjector<T, ImgPlus<T>, ARGBScreenImage>(
+			img, target, converters, 2);
+	}
+
+}
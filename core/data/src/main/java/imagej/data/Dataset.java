@@ -169,6 +169,20 @@ public interface Dataset extends Data, ImgPlusMetadata, Interval {
 	@Override
 	void update();
 
+	/**
+	 * Informs interested parties that the sample values within the given region
+	 * have changed. This is a cheaper alternative to {@link #update()} when only
+	 * a small part of the data was modified, such as after painting a few
+	 * pixels: views can re-render just that region, and skip the work entirely
+	 * when the region lies on a plane they do not show.
+	 * 
+	 * @param dirtyRegion An interval in the dataset's dimensions which bounds all
+	 *          modified samples. If null, the whole dataset is considered
+	 *          modified, as with {@link #update()}.
+	 * @see imagej.data.event.DatasetUpdatedEvent#getDirtyRegion()
+	 */
+	void update(Interval dirtyRegion);
+
 	/**
 	 * {@inheritDoc}
 	 * 
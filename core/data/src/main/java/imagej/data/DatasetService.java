@@ -36,6 +36,7 @@
 package imagej.data;
 
 import imagej.data.display.ImageDisplay;
+import imagej.data.options.OptionsLargeImages;
 import imagej.service.ImageJService;
 
 import java.io.IOException;
@@ -165,9 +166,29 @@ <T extends RealType<T>> Dataset create(
 	 */
 	boolean canSave(String destination);
 
-	/** Loads a dataset from a source (such as a file on disk). */
+	/**
+	 * Loads a dataset from a source (such as a file on disk).
+	 * <p>
+	 * Files too large to comfortably fit in memory (see
+	 * {@link imagej.data.options.OptionsLargeImages}) are opened lazily, as with
+	 * {@link #open(String, boolean)}.
+	 * </p>
+	 */
 	Dataset open(String source) throws IOException;
 
+	/**
+	 * Loads a dataset from a source (such as a file on disk).
+	 * 
+	 * @param source The source to open.
+	 * @param lazy If true, the dataset is backed by a cell image which reads
+	 *          blocks of the source on demand and keeps recently used ones in a
+	 *          cache, so that sources larger than the available memory can be
+	 *          opened. The size of the cache is bounded by
+	 *          {@link OptionsLargeImages#getCellCacheSize()}. If false, all
+	 *          pixels are read into memory at once.
+	 */
+	Dataset open(String source, boolean lazy) throws IOException;
+
 	/** Reverts the given dataset to its original source. */
 	void revert(Dataset dataset) throws IOException;
 
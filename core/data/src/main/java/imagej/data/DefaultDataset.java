@@ -42,7 +42,7 @@
 import imagej.data.event.DatasetTypeChangedEvent;
 import imagej.data.event.DatasetUpdatedEvent;
 import imagej.data.types.DataTypeService;
-import net.imglib2.Cursor;
+import net.imglib2.Interval;
 import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RealPositionable;
@@ -352,6 +352,16 @@ public void update() {
 		update(false);
 	}
 
+	@Override
+	public void update(final Interval dirtyRegion) {
+		if (dirtyRegion == null) {
+			update(false);
+			return;
+		}
+		setDirty(true);
+		publish(new DatasetUpdatedEvent(this, dirtyRegion));
+	}
+
 	@Override
 	public void rebuild() {
 		setDirty(true);
@@ -616,18 +626,7 @@ else if (newPlane instanceof double[]) {
 	private void copyDataValues(final Img<? extends RealType<?>> input,
 		final Img<? extends RealType<?>> output)
 	{
-		final long[] position = new long[output.numDimensions()];
-		final Cursor<? extends RealType<?>> outputCursor =
-			output.localizingCursor();
-		final RandomAccess<? extends RealType<?>> inputAccessor =
-			input.randomAccess();
-		while (outputCursor.hasNext()) {
-			outputCursor.next();
-			outputCursor.localize(position);
-			inputAccessor.setPosition(position);
-			final double value = inputAccessor.get().getRealDouble();
-			outputCursor.get().setReal(value);
-		}
+		ImgCopier.copy(input, output);
 	}
 
 	private Object copyOfPlane(final int planeNum) {
@@ -640,6 +639,9 @@ private Object copyOfPlane(final int planeNum) {
 				"Can't create an in memory plane of " + (w * h) +
 					" entities (MAX = " + Integer.MAX_VALUE + ")");
 		}
+		// copy the plane in bulk when it is stored in a primitive array
+		final Object bulkCopy = ImgCopier.copyOfPlane(imgPlus, planeNum);
+		if (bulkCopy != null) return bulkCopy;
 		final Type<?> type = getType();
 		// might not be able to get a copy of native data
 		if (!(type instanceof NativeType<?>)) return null;
@@ -669,13 +671,13 @@ private Object copyOfPlane(final int planeNum) {
 		input.setPosition(inputPos);
 		output.setPosition(outputPos);
 		final RealType<?> inputRef = input.get();
+		// NB: Both samples have the same type; copy without a double round trip.
 		final RealType<?> outputRef = output.get();
 		final int maxX = (int) (w - 1);
 		final int maxY = (int) (h - 1);
 		for (int y = 0; y <= maxY; y++) {
 			for (int x = 0; x <= maxX; x++) {
-				final double value = inputRef.getRealDouble();
-				outputRef.setReal(value);
+				set(outputRef, inputRef);
 				if (x != maxX) {
 					input.move(1, 0);
 					output.move(1, 0);
@@ -693,6 +695,11 @@ private Object copyOfPlane(final int planeNum) {
 		return store.getCurrentStorageArray();
 	}
 
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void set(final RealType<?> target, final RealType<?> source) {
+		((Type) target).set(source);
+	}
+
 	/** Makes an image that has same type, container, and dimensions as refImage. */
 	private static <T extends RealType<T>> ImgPlus<T> createBlankCopy(
 		final ImgPlus<T> img)
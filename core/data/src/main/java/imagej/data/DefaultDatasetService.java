@@ -37,7 +37,9 @@
 
 import imagej.data.display.DataView;
 import imagej.data.display.ImageDisplay;
+import imagej.data.options.OptionsLargeImages;
 import imagej.data.types.DataTypeService;
+import imagej.options.OptionsService;
 import io.scif.FormatException;
 import io.scif.img.ImgIOException;
 import io.scif.img.ImgOpener;
@@ -45,6 +47,7 @@
 import io.scif.img.ImgOptions.CheckMode;
 import io.scif.img.ImgOptions.ImgMode;
 import io.scif.img.ImgSaver;
+import io.scif.img.cell.cache.CacheService;
 import io.scif.services.FormatService;
 
 import java.io.File;
@@ -105,6 +108,12 @@ public final class DefaultDatasetService extends AbstractService implements
 	@Parameter
 	private DataTypeService dataTypeService;
 
+	@Parameter(required = false)
+	private OptionsService optionsService;
+
+	@Parameter(required = false)
+	private CacheService<?> cacheService;
+
 	// -- DatasetService methods --
 
 	@Override
@@ -236,6 +245,14 @@ public boolean canSave(final String destination) {
 
 	@Override
 	public Dataset open(final String source) throws IOException {
+		return open(source, isLarge(source));
+	}
+
+	@Override
+	public Dataset open(final String source, final boolean lazy)
+		throws IOException
+	{
+		if (lazy) configureCellCache();
 		final ImgOpener imageOpener = new ImgOpener(getContext());
 		// Restore this when NativeType can be eliminated from this class decl.
 		// TODO BDZ 7-17-12 Lowering reliance on NativeType. This cast is safe but
@@ -248,7 +265,7 @@ public Dataset open(final String source) throws IOException {
 				new ImgOptions().setIndex(0)
 												.setCheckMode(CheckMode.DEEP)
 												.setComputeMinMax(false)
-												.setImgModes(ImgMode.PLANAR);
+												.setImgModes(lazy ? ImgMode.CELL : ImgMode.PLANAR);
 		try {
 			@SuppressWarnings("rawtypes")
 			final ImgPlus imgPlus = imageOpener.openImg(source, options);
@@ -297,6 +314,35 @@ public void save(final Dataset dataset, final String destination)
 
 	// -- Helper methods --
 
+	/**
+	 * Gets whether the given source is a file large enough to be opened lazily:
+	 * larger than the configured threshold, or than half the maximum heap.
+	 */
+	private boolean isLarge(final String source) {
+		final OptionsLargeImages options =
+			optionsService == null ? null : optionsService
+				.getOptions(OptionsLargeImages.class);
+		if (options != null && !options.isLazyOpening()) return false;
+		final long threshold =
+			options == null ? OptionsLargeImages.DEFAULT_LAZY_THRESHOLD : options
+				.getLazyThreshold();
+		final long length = new File(source).length();
+		return length > threshold * 1024 * 1024 ||
+			length > Runtime.getRuntime().maxMemory() / 2;
+	}
+
+	/** Bounds SCIFIO's cell cache by the configured cell cache size. */
+	private void configureCellCache() {
+		if (cacheService == null) return;
+		final OptionsLargeImages options =
+			optionsService == null ? null : optionsService
+				.getOptions(OptionsLargeImages.class);
+		final long size =
+			options == null ? OptionsLargeImages.DEFAULT_CELL_CACHE_SIZE : options
+				.getCellCacheSize();
+		cacheService.setMaxBytesOnDisk(size * 1024 * 1024);
+	}
+
 	private void invalidParams(final int bitsPerPixel,
 		final boolean signed, final boolean floating)
 	{
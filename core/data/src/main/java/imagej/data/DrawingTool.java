@@ -40,6 +40,8 @@
 import imagej.render.TextRenderer.FontFamily;
 import imagej.render.TextRenderer.FontStyle;
 import imagej.render.TextRenderer.TextJustification;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
 import net.imglib2.type.numeric.RealType;
@@ -73,6 +75,8 @@ public class DrawingTool {
 	private long maxU, maxV;
 	private ChannelCollection channels;
 	private double intensity;
+	private boolean dirty;
+	private long dirtyMinU, dirtyMinV, dirtyMaxU, dirtyMaxV;
 
 	private TextRenderer textRenderer;
 
@@ -289,6 +293,49 @@ public void drawPixel(final long u, final long v) {
 			}
 		}
 		dataset.setDirty(true);
+		if (!dirty) {
+			dirty = true;
+			dirtyMinU = dirtyMaxU = u;
+			dirtyMinV = dirtyMaxV = v;
+		}
+		else {
+			if (u < dirtyMinU) dirtyMinU = u;
+			if (u > dirtyMaxU) dirtyMaxU = u;
+			if (v < dirtyMinV) dirtyMinV = v;
+			if (v > dirtyMaxV) dirtyMaxV = v;
+		}
+	}
+
+	/**
+	 * Gets the region of the dataset modified since construction or the last
+	 * call to {@link #clearDirtyRegion()}, suitable for passing to
+	 * {@link Dataset#update(Interval)}. Returns null if nothing has been drawn.
+	 */
+	public Interval getDirtyRegion() {
+		if (!dirty) return null;
+		final long[] min = new long[accessor.numDimensions()];
+		final long[] max = new long[accessor.numDimensions()];
+		getPosition(min);
+		getPosition(max);
+		min[uAxis] = dirtyMinU;
+		max[uAxis] = dirtyMaxU;
+		min[vAxis] = dirtyMinV;
+		max[vAxis] = dirtyMaxV;
+		if (channelAxis != -1) {
+			if (preferredChannel >= 0) {
+				min[channelAxis] = max[channelAxis] = preferredChannel;
+			}
+			else {
+				min[channelAxis] = 0;
+				max[channelAxis] = dataset.dimension(channelAxis) - 1;
+			}
+		}
+		return new FinalInterval(min, max);
+	}
+
+	/** Forgets the region modified so far. */
+	public void clearDirtyRegion() {
+		dirty = false;
 	}
 
 	/**
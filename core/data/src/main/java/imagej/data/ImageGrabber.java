@@ -36,6 +36,7 @@
 package imagej.data;
 
 import imagej.data.display.DatasetView;
+import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.display.screenimage.awt.ARGBScreenImage;
 import net.imglib2.meta.Axes;
@@ -66,15 +67,18 @@ public ImageGrabber(DatasetService service) {
 	 * method uses the provided String name for the output {@link Dataset}.
 	 */
 	public Dataset grab(DatasetView view, String outputName) {
-		ARGBScreenImage screenImage = view.getScreenImage();
 		long[] dims = new long[3];
-		screenImage.dimensions(dims);  // fill X count & Y count
+		dims[0] = view.getData().dimension(0);  // fill X count
+		dims[1] = view.getData().dimension(1);  // fill Y count
 		dims[2] = 3;  // fill CHANNEL count
 		if (dims[0] * dims[1] > Integer.MAX_VALUE)
 			throw new IllegalArgumentException("image is too big to fit into memory");
 		int xSize = (int) dims[0];
 		int ySize = (int) dims[1];
-		int[] argbPixels = view.getScreenImage().getData();
+		// NB: a tiled view has no full plane screen image, so render the plane
+		ARGBScreenImage screenImage =
+				view.renderScreenImage(new FinalInterval(xSize, ySize));
+		int[] argbPixels = screenImage.getData();
 		Dataset dataset = 
 				service.create(new UnsignedByteType(), dims, outputName,
 												new AxisType[]{Axes.X, Axes.Y, Axes.CHANNEL});
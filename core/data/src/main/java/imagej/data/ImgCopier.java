@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import java.lang.reflect.Array;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Copies sample values between {@link Img}s as fast as their storage allows.
+ * <p>
+ * When both images have the same pixel type and are backed by primitive arrays
+ * (see {@link PrimitiveStorage}), whole planes or rows are moved with
+ * {@link System#arraycopy}; this works between {@link PlanarImg}s and
+ * {@link net.imglib2.img.array.ArrayImg}s in any combination. When the types
+ * match but the storage differs, samples are copied with {@link Type#set}, by
+ * synchronized cursors if both images iterate in the same order. Only images of
+ * different types go through {@code double} values.
+ * </p>
+ */
+public class ImgCopier {
+
+	private final Img<? extends RealType<?>> input;
+	private final Img<? extends RealType<?>> output;
+
+	/** Plane arrays of the input and output, or null if unavailable. */
+	private final Object[] inPlanes, outPlanes;
+
+	private final boolean sameType;
+	private final int planeSize;
+	/** Width of the XY planes, which both images share on the primitive path. */
+	private final int width;
+
+	/**
+	 * Creates a copier from one image to another. The planes of both images are
+	 * looked up once, so the copier should not outlive changes to the planes of
+	 * either image (e.g. via {@link Dataset#setPlane}).
+	 */
+	public ImgCopier(final Img<? extends RealType<?>> input,
+		final Img<? extends RealType<?>> output)
+	{
+		this.input = input;
+		this.output = output;
+		sameType =
+			input.firstElement().getClass() == output.firstElement().getClass();
+		final long inPlaneSize = PrimitiveStorage.planeSize(input);
+		final boolean primitive =
+			sameType && sameXY(input, output) && inPlaneSize <= Integer.MAX_VALUE;
+		inPlanes = primitive ? PrimitiveStorage.getPlanes(input) : null;
+		outPlanes = primitive ? PrimitiveStorage.getPlanes(output) : null;
+		planeSize = (int) inPlaneSize;
+		width = (int) input.dimension(0);
+	}
+
+	// -- ImgCopier methods --
+
+	/**
+	 * Copies all samples of one image into another of the same dimensions.
+	 */
+	public static void copy(final Img<? extends RealType<?>> input,
+		final Img<? extends RealType<?>> output)
+	{
+		new ImgCopier(input, output).copyAll();
+	}
+
+	/**
+	 * Returns a copy of the primitive array holding the given XY plane of an
+	 * image, or null if the image is not backed by primitive arrays.
+	 */
+	public static Object copyOfPlane(final Img<?> img, final int planeIndex) {
+		final Object[] planes = PrimitiveStorage.getPlanes(img);
+		if (planes == null) return null;
+		final long planeSize = PrimitiveStorage.planeSize(img);
+		if (planeSize > Integer.MAX_VALUE) return null;
+		final int size = (int) planeSize;
+		final Object source;
+		final int offset;
+		if (planes.length == 1) {
+			// array image: all planes share one array
+			source = planes[0];
+			offset = planeIndex * size;
+		}
+		else {
+			source = planes[planeIndex];
+			offset = 0;
+		}
+		final Object copy =
+			Array.newInstance(source.getClass().getComponentType(), size);
+		System.arraycopy(source, offset, copy, 0, size);
+		return copy;
+	}
+
+	/** Copies all samples of the input image into the output image. */
+	public void copyAll() {
+		if (isPrimitive()) {
+			final int planeCount = PrimitiveStorage.planeCount(input);
+			for (int p = 0; p < planeCount; p++) {
+				System.arraycopy(plane(inPlanes, p), offset(inPlanes, p), plane(
+					outPlanes, p), offset(outPlanes, p), planeSize);
+			}
+		}
+		else if (sameType) copyTyped();
+		else copyReal();
+	}
+
+	/**
+	 * Copies a run of samples along the X axis.
+	 * 
+	 * @param inPos Position of the first sample in the input image.
+	 * @param outPos Position of the first sample in the output image.
+	 * @param length Number of samples to copy.
+	 */
+	public void copyRun(final long[] inPos, final long[] outPos,
+		final int length)
+	{
+		if (isPrimitive()) {
+			final int inPlane = PrimitiveStorage.planeIndex(input, inPos);
+			final int outPlane = PrimitiveStorage.planeIndex(output, outPos);
+			final int inOffset = offset(inPlanes, inPlane) + rowOffset(inPos);
+			final int outOffset = offset(outPlanes, outPlane) + rowOffset(outPos);
+			System.arraycopy(plane(inPlanes, inPlane), inOffset, plane(outPlanes,
+				outPlane), outOffset, length);
+			return;
+		}
+		final RandomAccess<? extends RealType<?>> in = input.randomAccess();
+		final RandomAccess<? extends RealType<?>> out = output.randomAccess();
+		in.setPosition(inPos);
+		out.setPosition(outPos);
+		for (int i = 0; i < length; i++) {
+			if (sameType) set(out.get(), in.get());
+			else out.get().setReal(in.get().getRealDouble());
+			in.fwd(0);
+			out.fwd(0);
+		}
+	}
+
+	// -- Helper methods --
+
+	private boolean isPrimitive() {
+		return inPlanes != null && outPlanes != null;
+	}
+
+	/**
+	 * Returns true if both images have the same X and Y dimensions, so that a
+	 * position has the same offset within the planes of either image.
+	 */
+	private static boolean sameXY(final Img<?> a, final Img<?> b) {
+		final int numDims = Math.min(2, a.numDimensions());
+		if (numDims != Math.min(2, b.numDimensions())) return false;
+		for (int d = 0; d < numDims; d++) {
+			if (a.dimension(d) != b.dimension(d)) return false;
+		}
+		return true;
+	}
+
+	/** Gets the array holding a plane. */
+	private Object plane(final Object[] planes, final int planeIndex) {
+		return planes.length == 1 ? planes[0] : planes[planeIndex];
+	}
+
+	/** Gets the offset of a plane within the array returned by plane(). */
+	private int offset(final Object[] planes, final int planeIndex) {
+		return planes.length == 1 ? planeIndex * planeSize : 0;
+	}
+
+	/** Gets the offset of a position within its plane. */
+	private int rowOffset(final long[] pos) {
+		final long y = pos.length > 1 ? pos[1] : 0;
+		return (int) (y * width + pos[0]);
+	}
+
+	/** Copies samples of the same type, avoiding any double conversion. */
+	private void copyTyped() {
+		// NB: Compare the underlying images; ImgPlus wrappers never match.
+		final Img<?> inImg = PrimitiveStorage.storageImg(input);
+		final Img<?> outImg = PrimitiveStorage.storageImg(output);
+		if (inImg.equalIterationOrder(outImg)) {
+			final Cursor<? extends RealType<?>> in = input.cursor();
+			final Cursor<? extends RealType<?>> out = output.cursor();
+			while (out.hasNext()) {
+				set(out.next(), in.next());
+			}
+			return;
+		}
+		final Cursor<? extends RealType<?>> out = output.localizingCursor();
+		final RandomAccess<? extends RealType<?>> in = input.randomAccess();
+		while (out.hasNext()) {
+			out.fwd();
+			in.setPosition(out);
+			set(out.get(), in.get());
+		}
+	}
+
+	/** Copies samples of differing types through their double values. */
+	private void copyReal() {
+		final Cursor<? extends RealType<?>> out = output.localizingCursor();
+		final RandomAccess<? extends RealType<?>> in = input.randomAccess();
+		while (out.hasNext()) {
+			out.fwd();
+			in.setPosition(out);
+			out.get().setReal(in.get().getRealDouble());
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void set(final RealType<?> target, final RealType<?> source) {
+		((Type) target).set(source);
+	}
+
+}
@@ -0,0 +1,294 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.IntervalView;
+
+/**
+ * Utility methods for reaching the primitive arrays (byte[], short[], int[],
+ * long[], float[] and double[]) that back {@link ArrayImg}s and
+ * {@link PlanarImg}s. Algorithms can use them to work directly upon the
+ * storage rather than going through a cursor or random access per pixel.
+ * <p>
+ * Only types that store exactly one pixel per array element are considered
+ * primitive here. Bit packed types such as BitType or Unsigned12BitType are
+ * not, even though they are backed by long[] storage.
+ * </p>
+ */
+public final class PrimitiveStorage {
+
+	private PrimitiveStorage() {
+		// prevent instantiation of utility class
+	}
+
+	/**
+	 * Returns true if the given type stores one pixel per primitive array
+	 * element.
+	 */
+	public static boolean isPrimitiveType(final Object type) {
+		final Class<?> c = type.getClass();
+		return c == ByteType.class || c == UnsignedByteType.class ||
+			c == ShortType.class || c == UnsignedShortType.class ||
+			c == IntType.class || c == UnsignedIntType.class ||
+			c == LongType.class || c == FloatType.class || c == DoubleType.class;
+	}
+
+	/**
+	 * Returns true if the given primitive type is an unsigned integer type whose
+	 * array elements must be masked to recover the pixel value.
+	 */
+	public static boolean isUnsigned(final Object type) {
+		final Class<?> c = type.getClass();
+		return c == UnsignedByteType.class || c == UnsignedShortType.class ||
+			c == UnsignedIntType.class;
+	}
+
+	/**
+	 * Returns the {@link Img} that actually stores the data of the given image,
+	 * looking through an {@link ImgPlus} wrapper if needed.
+	 */
+	public static Img<?> storageImg(final Img<?> img) {
+		if (img instanceof ImgPlus) return ((ImgPlus<?>) img).getImg();
+		return img;
+	}
+
+	/**
+	 * Returns the primitive storage array of every plane of an image, in plane
+	 * index order. An {@link ArrayImg} is reported as a single plane. Returns
+	 * null if the image is not backed by primitive arrays.
+	 */
+	public static Object[] getPlanes(final Img<?> img) {
+		final Img<?> storage = storageImg(img);
+		if (!isPrimitiveType(storage.firstElement())) return null;
+		return storageArrays(storage);
+	}
+
+	/**
+	 * Returns the words of every plane of a {@link BitType} image, in plane index
+	 * order. Pixel i of a plane is bit {@code i & 63} of word {@code i >>> 6}. An
+	 * {@link ArrayImg} is reported as a single plane. Returns null if the image
+	 * is not an array or planar image of BitType.
+	 */
+	public static long[][] getBitPlanes(final Img<?> img) {
+		final Img<?> storage = storageImg(img);
+		if (!(storage.firstElement() instanceof BitType)) return null;
+		final Object[] arrays = storageArrays(storage);
+		if (arrays == null) return null;
+		final long[][] planes = new long[arrays.length][];
+		for (int i = 0; i < arrays.length; i++) {
+			if (!(arrays[i] instanceof long[])) return null;
+			planes[i] = (long[]) arrays[i];
+		}
+		return planes;
+	}
+
+	/**
+	 * Returns the primitive storage arrays that together hold exactly the
+	 * samples of the given interval, or null if that is not possible. This
+	 * succeeds for whole {@link ArrayImg}s and {@link PlanarImg}s (optionally
+	 * wrapped in an {@link ImgPlus}) and for {@link IntervalView}s of planar
+	 * images that span entire XY planes.
+	 */
+	public static List<Object> getArrays(final IterableInterval<?> interval) {
+		final Img<?> img = sourceImg(interval);
+		if (img == null) return null;
+		final Object[] planes = getPlanes(img);
+		if (planes == null) return null;
+		final int[] indices = planeIndices(img, interval);
+		if (indices == null) return null;
+		final List<Object> arrays = new ArrayList<Object>();
+		if (planes.length == 1) {
+			// a single array: must be covered entirely
+			if (indices.length != planeCount(img)) return null;
+			arrays.add(planes[0]);
+			return arrays;
+		}
+		for (final int index : indices) {
+			arrays.add(planes[index]);
+		}
+		return arrays;
+	}
+
+	/**
+	 * Returns the {@link Img} whose samples the given interval iterates, looking
+	 * through any {@link IntervalView}s. Returns null if the interval is not an
+	 * Img or a view of one.
+	 */
+	public static Img<?> sourceImg(final IterableInterval<?> interval) {
+		Object source = interval;
+		while (source instanceof IntervalView) {
+			source = ((IntervalView<?>) source).getSource();
+		}
+		if (!(source instanceof Img)) return null;
+		final Img<?> img = (Img<?>) source;
+		if (img.numDimensions() != interval.numDimensions()) return null;
+		return img;
+	}
+
+	/**
+	 * Returns the indices of the XY planes of an image that together make up
+	 * exactly the given interval, or null if the interval does not consist of
+	 * entire XY planes.
+	 */
+	public static int[] planeIndices(final Img<?> img, final Interval interval) {
+		final int numDims = img.numDimensions();
+		final long[] min = new long[numDims];
+		final long[] max = new long[numDims];
+		interval.min(min);
+		interval.max(max);
+		for (int d = 0; d < Math.min(2, numDims); d++) {
+			if (min[d] != img.min(d) || max[d] != img.max(d)) return null;
+		}
+		long count = 1;
+		for (int d = 2; d < numDims; d++) {
+			if (min[d] < img.min(d) || max[d] > img.max(d)) return null;
+			count *= max[d] - min[d] + 1;
+		}
+		final int[] indices = new int[(int) count];
+		final long[] pos = min.clone();
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = planeIndex(img, pos);
+			for (int d = 2; d < numDims; d++) {
+				if (pos[d] < max[d]) {
+					pos[d]++;
+					break;
+				}
+				pos[d] = min[d];
+			}
+		}
+		return indices;
+	}
+
+	/** Returns the number of XY planes in the given image. */
+	public static int planeCount(final Img<?> img) {
+		long count = 1;
+		for (int d = 2; d < img.numDimensions(); d++) {
+			count *= img.dimension(d);
+		}
+		return (int) count;
+	}
+
+	/**
+	 * Returns the number of pixels in one XY plane of the given image.
+	 */
+	public static long planeSize(final Img<?> img) {
+		long size = 1;
+		for (int d = 0; d < Math.min(2, img.numDimensions()); d++) {
+			size *= img.dimension(d);
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the index of the plane containing the given position within a
+	 * planar image. Dimension 2 varies fastest, as in {@link PlanarImg}.
+	 */
+	public static int planeIndex(final Img<?> img, final long[] pos) {
+		long index = 0;
+		long stride = 1;
+		for (int d = 2; d < img.numDimensions(); d++) {
+			index += (pos[d] - img.min(d)) * stride;
+			stride *= img.dimension(d);
+		}
+		return (int) index;
+	}
+
+	/**
+	 * Fills in the position of the origin of the given plane of a planar image.
+	 * This is the inverse of {@link #planeIndex(Img, long[])}.
+	 */
+	public static void planePosition(final Img<?> img, final int planeIndex,
+		final long[] pos)
+	{
+		long index = planeIndex;
+		for (int d = 0; d < Math.min(2, img.numDimensions()); d++) {
+			pos[d] = img.min(d);
+		}
+		for (int d = 2; d < img.numDimensions(); d++) {
+			final long dim = img.dimension(d);
+			pos[d] = img.min(d) + index % dim;
+			index /= dim;
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Returns the storage array of every plane of an array or planar image, or
+	 * null if the image is stored some other way.
+	 */
+	private static Object[] storageArrays(final Img<?> storage) {
+		if (storage instanceof ArrayImg) {
+			final Object access = ((ArrayImg<?, ?>) storage).update(null);
+			if (!(access instanceof ArrayDataAccess)) return null;
+			return new Object[] { ((ArrayDataAccess<?>) access)
+				.getCurrentStorageArray() };
+		}
+		if (storage instanceof PlanarAccess) {
+			final PlanarAccess<?> planarAccess = (PlanarAccess<?>) storage;
+			final int planeCount = planeCount(storage);
+			final Object[] planes = new Object[planeCount];
+			for (int i = 0; i < planeCount; i++) {
+				final Object access = planarAccess.getPlane(i);
+				if (!(access instanceof ArrayDataAccess)) return null;
+				planes[i] = ((ArrayDataAccess<?>) access).getCurrentStorageArray();
+			}
+			return planes;
+		}
+		return null;
+	}
+}
@@ -35,6 +35,8 @@
 
 package imagej.data.autoscale;
 
+import imagej.data.measure.PlaneStatistics;
+import imagej.data.measure.PlaneStatisticsService;
 import imagej.data.minmax.MinMaxMethod;
 
 import java.util.List;
@@ -60,9 +62,20 @@
 	@Parameter
 	private PluginService pluginService;
 
+	@Parameter(required = false)
+	private PlaneStatisticsService planeStatisticsService;
+
 	@Override
 	public DataRange getRange(final IterableInterval<T> interval)
 	{
+		// use the cached plane ranges if the interval is made of whole planes
+		final PlaneStatistics stats =
+			planeStatisticsService == null ? null : planeStatisticsService
+				.getStatistics(interval, false);
+		if (stats != null) {
+			return range(interval, stats.getMin(), stats.getMax());
+		}
+
 		@SuppressWarnings("rawtypes")
 		final List<MinMaxMethod> methods =
 			pluginService.createInstancesOfType(MinMaxMethod.class);
@@ -70,9 +83,15 @@ public DataRange getRange(final IterableInterval<T> interval)
 		final MinMaxMethod<T> minmax = methods.get(0);
 		minmax.initialize(interval);
 		minmax.process();
-		double min = minmax.getMin().getRealDouble();
-		double max = minmax.getMax().getRealDouble();
+		return range(interval, minmax.getMin().getRealDouble(), minmax.getMax()
+			.getRealDouble());
+	}
+
+	// -- helpers --
 
+	private DataRange range(final IterableInterval<T> interval, double min,
+		double max)
+	{
 		// NB - never return a display range of zero
 		if (min == max) {
 			final T theType = interval.firstElement();
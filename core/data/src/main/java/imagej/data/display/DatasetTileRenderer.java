@@ -0,0 +1,523 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import imagej.util.IntCoords;
+import imagej.util.RealCoords;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * Renders the current XY plane of a {@link DatasetView} in fixed-size tiles,
+ * projecting only those tiles which intersect the viewport of an
+ * {@link ImageCanvas}.
+ * <p>
+ * When the canvas is zoomed out, tiles are rendered at a reduced resolution
+ * (sampling every 2nd, 4th, 8th, ... data pixel) so the number of projected
+ * pixels stays proportional to the viewport rather than to the plane.
+ * Rendered tiles are kept in a bounded least-recently-used cache, keyed by the
+ * plane position, the display range and color table of each channel, the
+ * sampling step and the tile index. Panning back and forth or flipping between
+ * previously viewed planes therefore does not project anything again.
+ * </p>
+ * <p>
+ * The pixels are composited the same way {@link CompositeXYProjector} does.
+ * </p>
+ */
+public class DatasetTileRenderer {
+
+	/** Default width and height of a tile, in screen pixels. */
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	/** Default maximum number of tiles held in the cache. */
+	public static final int DEFAULT_MAX_TILES = 128;
+
+	private final DatasetView view;
+
+	private final List<RealLUTConverter<? extends RealType<?>>> converters;
+
+	private final ThreadService threadService;
+
+	private final int tileSize;
+
+	private final Map<TileKey, ScreenTile> cache;
+
+	/**
+	 * Creates a tile renderer for the given view.
+	 * 
+	 * @param view The view whose current plane is rendered.
+	 * @param converters The per-channel converters of the view; their display
+	 *          ranges and color tables are captured each time tiles are rendered.
+	 * @param threadService Service used to render missing tiles in parallel, or
+	 *          null to render them on the calling thread.
+	 */
+	public DatasetTileRenderer(final DatasetView view,
+		final List<RealLUTConverter<? extends RealType<?>>> converters,
+		final ThreadService threadService)
+	{
+		this(view, converters, threadService, DEFAULT_TILE_SIZE,
+			DEFAULT_MAX_TILES);
+	}
+
+	public DatasetTileRenderer(final DatasetView view,
+		final List<RealLUTConverter<? extends RealType<?>>> converters,
+		final ThreadService threadService, final int tileSize, final int maxTiles)
+	{
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+		}
+		if (maxTiles < 1) {
+			throw new IllegalArgumentException("Invalid tile count: " + maxTiles);
+		}
+		this.view = view;
+		this.converters = converters;
+		this.threadService = threadService;
+		this.tileSize = tileSize;
+		cache = new LinkedHashMap<TileKey, ScreenTile>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(
+				final Map.Entry<TileKey, ScreenTile> eldest)
+			{
+				return size() > maxTiles;
+			}
+		};
+	}
+
+	// -- DatasetTileRenderer methods --
+
+	/** Gets the width and height of a tile, in screen pixels. */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Gets the tiles of the current plane which are visible in the viewport of
+	 * the given canvas, rendering those which are not already cached.
+	 * 
+	 * @return The visible tiles, in row-major order; empty if the viewport lies
+	 *         entirely outside of the plane.
+	 */
+	public List<ScreenTile> render(final ImageCanvas canvas) {
+		final ImgPlus<? extends RealType<?>> img = view.getData().getImgPlus();
+		final long width = img.dimension(0);
+		final long height = img.dimension(1);
+
+		final RealCoords topLeft = canvas.panelToDataCoords(new IntCoords(0, 0));
+		final RealCoords bottomRight =
+			canvas.panelToDataCoords(new IntCoords(canvas.getViewportWidth(), canvas
+				.getViewportHeight()));
+		final long minX = Math.max(0, (long) Math.floor(topLeft.x));
+		final long minY = Math.max(0, (long) Math.floor(topLeft.y));
+		final long maxX = Math.min(width, (long) Math.ceil(bottomRight.x)) - 1;
+		final long maxY = Math.min(height, (long) Math.ceil(bottomRight.y)) - 1;
+		final List<ScreenTile> tiles = new ArrayList<ScreenTile>();
+		if (minX > maxX || minY > maxY) return tiles;
+
+		final int step = step(canvas.getZoomFactor());
+		final long span = (long) tileSize * step;
+		final RenderState state = new RenderState();
+
+		final List<TileKey> keys = new ArrayList<TileKey>();
+		final List<TileKey> missing = new ArrayList<TileKey>();
+		synchronized (cache) {
+			for (long ty = minY / span; ty <= maxY / span; ty++) {
+				for (long tx = minX / span; tx <= maxX / span; tx++) {
+					final TileKey key = new TileKey(state, step, tx, ty);
+					keys.add(key);
+					if (!cache.containsKey(key)) missing.add(key);
+				}
+			}
+		}
+
+		final List<ScreenTile> rendered = render(img, missing);
+		final Map<TileKey, ScreenTile> fresh =
+			new LinkedHashMap<TileKey, ScreenTile>();
+		synchronized (cache) {
+			for (int i = 0; i < missing.size(); i++) {
+				cache.put(missing.get(i), rendered.get(i));
+				fresh.put(missing.get(i), rendered.get(i));
+			}
+			for (final TileKey key : keys) {
+				// NB: A tile may have been evicted again if the viewport holds more
+				// tiles than the cache; fall back to the freshly rendered copy.
+				ScreenTile tile = cache.get(key);
+				if (tile == null) tile = fresh.get(key);
+				if (tile != null) tiles.add(tile);
+			}
+		}
+		return tiles;
+	}
+
+	/**
+	 * Projects a rectangle of the current plane at full resolution into an ARGB
+	 * raster laid out like the plane, such as the pixels of a full plane
+	 * {@link ARGBScreenImage}.
+	 * 
+	 * @param region The region to project; only its X and Y extents are used,
+	 *          and they are clipped to the plane.
+	 * @param pixels The target raster; the sample at (x, y) is written to index
+	 *          {@code y * stride + x}.
+	 * @param stride The number of raster elements per row.
+	 */
+	public void render(final Interval region, final int[] pixels,
+		final int stride)
+	{
+		final ImgPlus<? extends RealType<?>> img = view.getData().getImgPlus();
+		final long x0 = Math.max(0, region.min(0));
+		final long y0 = Math.max(0, region.min(1));
+		final long x1 = Math.min(img.dimension(0) - 1, region.max(0));
+		final long y1 = Math.min(img.dimension(1) - 1, region.max(1));
+		if (x0 > x1 || y0 > y1) return;
+		project(img, new RenderState(), x0, y0, (int) (x1 - x0 + 1),
+			(int) (y1 - y0 + 1), 1, pixels, (int) (y0 * stride + x0), stride);
+	}
+
+	/**
+	 * Projects a rectangle of the current plane at full resolution into a new
+	 * ARGB image the size of the rectangle. Parts of the rectangle outside of the
+	 * plane are left blank.
+	 * 
+	 * @param region The region to project; only its X and Y extents are used.
+	 */
+	public ARGBScreenImage render(final Interval region) {
+		final long width = region.dimension(0);
+		final long height = region.dimension(1);
+		if (width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Region is too big to render: " +
+				width + "x" + height);
+		}
+		final ARGBScreenImage image =
+			new ARGBScreenImage((int) width, (int) height);
+		final ImgPlus<? extends RealType<?>> img = view.getData().getImgPlus();
+		final long x0 = Math.max(0, region.min(0));
+		final long y0 = Math.max(0, region.min(1));
+		final long x1 = Math.min(img.dimension(0) - 1, region.max(0));
+		final long y1 = Math.min(img.dimension(1) - 1, region.max(1));
+		if (x0 > x1 || y0 > y1) return image;
+		final int offset =
+			(int) ((y0 - region.min(1)) * width + (x0 - region.min(0)));
+		project(img, new RenderState(), x0, y0, (int) (x1 - x0 + 1),
+			(int) (y1 - y0 + 1), 1, image.getData(), offset, (int) width);
+		return image;
+	}
+
+	/** Discards all cached tiles, e.g. because the underlying data changed. */
+	public void invalidate() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Discards the cached tiles which overlap the X and Y extents of the given
+	 * region, at any plane position and resolution.
+	 */
+	public void invalidate(final Interval region) {
+		synchronized (cache) {
+			final Iterator<TileKey> iter = cache.keySet().iterator();
+			while (iter.hasNext()) {
+				final TileKey key = iter.next();
+				final long span = (long) tileSize * key.step;
+				final long x0 = key.tx * span, y0 = key.ty * span;
+				if (x0 > region.max(0) || x0 + span <= region.min(0)) continue;
+				if (y0 > region.max(1) || y0 + span <= region.min(1)) continue;
+				iter.remove();
+			}
+		}
+	}
+
+	/** Gets the number of tiles currently held in the cache. */
+	public int getCachedTileCount() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Gets the sampling step for the given zoom factor: the largest power of two
+	 * not exceeding the number of data pixels per screen pixel.
+	 */
+	private int step(final double zoomFactor) {
+		int step = 1;
+		while (step < (1 << 20) && 2 * step * zoomFactor <= 1) {
+			step *= 2;
+		}
+		return step;
+	}
+
+	private List<ScreenTile> render(final ImgPlus<? extends RealType<?>> img,
+		final List<TileKey> keys)
+	{
+		final List<ScreenTile> tiles = new ArrayList<ScreenTile>(keys.size());
+		if (threadService == null || keys.size() < 2) {
+			for (final TileKey key : keys) {
+				tiles.add(renderTile(img, key));
+			}
+			return tiles;
+		}
+		final List<Future<ScreenTile>> futures =
+			new ArrayList<Future<ScreenTile>>(keys.size());
+		for (final TileKey key : keys) {
+			futures.add(threadService.run(new Callable<ScreenTile>() {
+
+				@Override
+				public ScreenTile call() {
+					return renderTile(img, key);
+				}
+			}));
+		}
+		for (final Future<ScreenTile> future : futures) {
+			try {
+				tiles.add(future.get());
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return tiles;
+	}
+
+	private ScreenTile renderTile(final ImgPlus<? extends RealType<?>> img,
+		final TileKey key)
+	{
+		final int step = key.step;
+		final long span = (long) tileSize * step;
+		final long x0 = key.tx * span;
+		final long y0 = key.ty * span;
+		final long dataWidth = Math.min(span, img.dimension(0) - x0);
+		final long dataHeight = Math.min(span, img.dimension(1) - y0);
+		final int w = (int) ((dataWidth + step - 1) / step);
+		final int h = (int) ((dataHeight + step - 1) / step);
+		final ARGBScreenImage image = new ARGBScreenImage(w, h);
+		project(img, key.state, x0, y0, w, h, step, image.getData(), 0, w);
+		return new ScreenTile(x0, y0, dataWidth, dataHeight, step, image);
+	}
+
+	/**
+	 * Projects {@code w} by {@code h} samples, taken every {@code step} pixels
+	 * starting at data coordinates ({@code x0}, {@code y0}), into the given
+	 * raster.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void project(final ImgPlus<? extends RealType<?>> img,
+		final RenderState state, final long x0, final long y0, final int w,
+		final int h, final int step, final int[] pixels, final int offset,
+		final int stride)
+	{
+		// determine which channels contribute to the pixels
+		final int chIndex = state.channelDimIndex;
+		final int[] channels;
+		if (chIndex < 0) channels = new int[] { 0 };
+		else if (state.composite) {
+			channels = new int[(int) img.dimension(chIndex)];
+			for (int c = 0; c < channels.length; c++) {
+				channels[c] = c;
+			}
+		}
+		else channels = new int[] { (int) state.position[chIndex] };
+
+		// NB: Use private converters so that concurrent changes to the view's
+		// display ranges cannot leak into a tile cached under the old key.
+		final RealLUTConverter[] convs = new RealLUTConverter[channels.length];
+		for (int i = 0; i < channels.length; i++) {
+			final int c = channels[i];
+			convs[i] =
+				new RealLUTConverter(state.mins[c], state.maxs[c], state.luts[c]);
+		}
+
+		final RandomAccess<? extends RealType<?>> access = img.randomAccess();
+		access.setPosition(state.position);
+		final ARGBType argb = new ARGBType();
+		for (int y = 0; y < h; y++) {
+			access.setPosition(y0 + (long) y * step, 1);
+			int index = offset + y * stride;
+			for (int x = 0; x < w; x++) {
+				access.setPosition(x0 + (long) x * step, 0);
+				if (convs.length == 1) {
+					if (chIndex >= 0) access.setPosition(channels[0], chIndex);
+					convs[0].convert(access.get(), argb);
+					pixels[index++] = argb.get();
+					continue;
+				}
+				// NB: Composite as CompositeXYProjector does, alpha included.
+				int a = 0, r = 0, g = 0, b = 0;
+				for (int i = 0; i < convs.length; i++) {
+					access.setPosition(channels[i], chIndex);
+					convs[i].convert(access.get(), argb);
+					final int v = argb.get();
+					a += ARGBType.alpha(v);
+					r += ARGBType.red(v);
+					g += ARGBType.green(v);
+					b += ARGBType.blue(v);
+				}
+				if (a > 255) a = 255;
+				if (r > 255) r = 255;
+				if (g > 255) g = 255;
+				if (b > 255) b = 255;
+				pixels[index++] = ARGBType.rgba(r, g, b, a);
+			}
+		}
+	}
+
+	// -- Helper classes --
+
+	/** Snapshot of everything besides the tile index that affects rendering. */
+	private class RenderState {
+
+		private final long[] position;
+		private final int channelDimIndex;
+		private final boolean composite;
+		private final double[] mins, maxs;
+		private final ColorTable[] luts;
+		private final int hash;
+
+		public RenderState() {
+			final CompositeXYProjector<? extends RealType<?>> projector =
+				view.getProjector();
+			position = new long[projector.numDimensions()];
+			for (int d = 2; d < position.length; d++) {
+				position[d] = projector.getLongPosition(d);
+			}
+			channelDimIndex = view.getCompositeDimIndex();
+			composite = channelDimIndex >= 0 && projector.isComposite();
+			// NB: All channels contribute to a composite tile.
+			if (composite) position[channelDimIndex] = 0;
+			final int channelCount = converters.size();
+			mins = new double[channelCount];
+			maxs = new double[channelCount];
+			luts = new ColorTable[channelCount];
+			for (int c = 0; c < channelCount; c++) {
+				final RealLUTConverter<? extends RealType<?>> converter =
+					converters.get(c);
+				mins[c] = converter.getMin();
+				maxs[c] = converter.getMax();
+				luts[c] = converter.getLUT();
+			}
+			int h = Arrays.hashCode(position);
+			h = 31 * h + (composite ? 1 : 0);
+			h = 31 * h + Arrays.hashCode(mins);
+			h = 31 * h + Arrays.hashCode(maxs);
+			for (final ColorTable lut : luts) {
+				h = 31 * h + System.identityHashCode(lut);
+			}
+			hash = h;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof RenderState)) return false;
+			final RenderState other = (RenderState) o;
+			if (composite != other.composite) return false;
+			if (!Arrays.equals(position, other.position)) return false;
+			if (!Arrays.equals(mins, other.mins)) return false;
+			if (!Arrays.equals(maxs, other.maxs)) return false;
+			if (luts.length != other.luts.length) return false;
+			// NB: Color tables are compared by identity; they are not modified
+			// once assigned to a channel.
+			for (int c = 0; c < luts.length; c++) {
+				if (luts[c] != other.luts[c]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/** Cache key of a single tile. */
+	private static class TileKey {
+
+		private final RenderState state;
+		private final int step;
+		private final long tx, ty;
+
+		public TileKey(final RenderState state, final int step, final long tx,
+			final long ty)
+		{
+			this.state = state;
+			this.step = step;
+			this.tx = tx;
+			this.ty = ty;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof TileKey)) return false;
+			final TileKey other = (TileKey) o;
+			return step == other.step && tx == other.tx && ty == other.ty &&
+				state.equals(other.state);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = state.hashCode();
+			h = 31 * h + step;
+			h = 31 * h + (int) (tx ^ (tx >>> 32));
+			h = 31 * h + (int) (ty ^ (ty >>> 32));
+			return h;
+		}
+	}
+
+}
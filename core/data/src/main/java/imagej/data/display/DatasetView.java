@@ -42,6 +42,7 @@
 
 import java.util.List;
 
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.algorithm.stats.ComputeMinMax;
 import net.imglib2.display.ColorTable;
@@ -59,8 +60,49 @@
  */
 public interface DatasetView extends DataView {
 
+	/**
+	 * Gets the rendered pixels of the current XY plane.
+	 * <p>
+	 * NB: In tiled mode (see {@link #isTiled()}) the whole plane is never
+	 * rendered at once and the returned image is only a placeholder; use
+	 * {@link #getTiles(ImageCanvas)} or {@link #renderScreenImage(Interval)}
+	 * instead.
+	 * </p>
+	 */
 	ARGBScreenImage getScreenImage();
 
+	/**
+	 * Gets the rendered pixels of a rectangle of the current XY plane, at full
+	 * resolution, whether or not the view is tiled.
+	 * 
+	 * @param region The rectangle to render; only its X and Y extents are used.
+	 *          Parts outside of the plane are left blank.
+	 * @return A new image the size of the rectangle.
+	 */
+	ARGBScreenImage renderScreenImage(Interval region);
+
+	/**
+	 * Gets whether the view renders its current XY plane on demand, in tiles
+	 * covering only the visible part of the plane, rather than as a single
+	 * screen image.
+	 */
+	boolean isTiled();
+
+	/**
+	 * Switches tiled rendering on or off. By default, planes above a size
+	 * threshold are rendered in tiles and smaller planes are not.
+	 */
+	void setTiled(boolean tiled);
+
+	/**
+	 * Gets the rendered tiles of the current XY plane which intersect the
+	 * viewport of the given canvas, at a resolution suited to its zoom level.
+	 * 
+	 * @return The visible tiles, or an empty list if the view is not in tiled
+	 *         mode.
+	 */
+	List<ScreenTile> getTiles(ImageCanvas canvas);
+
 	int getCompositeDimIndex();
 
 	CompositeXYProjector<? extends RealType<?>> getProjector();
@@ -53,6 +53,7 @@
 import java.util.List;
 
 import net.imglib2.Binning;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.RealLUTConverter;
 import net.imglib2.display.ColorTable;
@@ -84,6 +85,12 @@
 public class DefaultDatasetView extends AbstractDataView implements DatasetView
 {
 
+	/**
+	 * Number of pixels in an XY plane above which the view switches to tiled
+	 * rendering, unless told otherwise via {@link #setTiled(boolean)}.
+	 */
+	public static final long TILED_PLANE_SIZE = 8192L * 8192L;
+
 	@Parameter
 	private AutoscaleService autoscaleService;
 
@@ -106,6 +113,18 @@ public class DefaultDatasetView extends AbstractDataView implements DatasetView
 
 	private CompositeXYProjector<? extends RealType<?>> projector;
 
+	/** Whether tiled rendering was explicitly requested; null when automatic. */
+	private Boolean tiledSetting;
+
+	/** Whether the current plane is rendered in tiles. */
+	private boolean tiled;
+
+	/**
+	 * Renderer of the visible tiles in tiled mode, and of dirty regions of the
+	 * screen image otherwise.
+	 */
+	private DatasetTileRenderer renderer;
+
 	private final ArrayList<RealLUTConverter<? extends RealType<?>>> converters =
 		new ArrayList<RealLUTConverter<? extends RealType<?>>>();
 
@@ -122,6 +141,49 @@ public ARGBScreenImage getScreenImage() {
 		return screenImage;
 	}
 
+	@Override
+	public ARGBScreenImage renderScreenImage(final Interval region) {
+		if (isInitialized() && tiled) return renderer.render(region);
+		// copy the pixels from the screen image, which holds the whole plane
+		final long width = region.dimension(0);
+		final long height = region.dimension(1);
+		final ARGBScreenImage image =
+			new ARGBScreenImage((int) width, (int) height);
+		if (!isInitialized()) return image;
+		final int planeWidth = (int) screenImage.dimension(0);
+		final int planeHeight = (int) screenImage.dimension(1);
+		final long x0 = Math.max(0, region.min(0));
+		final long x1 = Math.min(planeWidth - 1, region.max(0));
+		if (x0 > x1) return image;
+		final int[] src = screenImage.getData();
+		final int[] dest = image.getData();
+		for (long y = Math.max(0, region.min(1)); y <= Math.min(planeHeight - 1,
+			region.max(1)); y++)
+		{
+			System.arraycopy(src, (int) (y * planeWidth + x0), dest,
+				(int) ((y - region.min(1)) * width + x0 - region.min(0)),
+				(int) (x1 - x0 + 1));
+		}
+		return image;
+	}
+
+	@Override
+	public boolean isTiled() {
+		return tiled;
+	}
+
+	@Override
+	public void setTiled(final boolean tiled) {
+		tiledSetting = tiled;
+		if (isInitialized() && isTiled() != tiled) rebuild();
+	}
+
+	@Override
+	public List<ScreenTile> getTiles(final ImageCanvas canvas) {
+		if (!isInitialized() || !tiled) return Collections.emptyList();
+		return renderer.render(canvas);
+	}
+
 	@Override
 	public int getCompositeDimIndex() {
 		return channelDimIndex;
@@ -346,12 +408,12 @@ public Dataset getData() {
 
 	@Override
 	public int getPreferredWidth() {
-		return getScreenImage().image().getWidth(null);
+		return (int) getData().dimension(0);
 	}
 
 	@Override
 	public int getPreferredHeight() {
-		return getScreenImage().image().getHeight(null);
+		return (int) getData().dimension(1);
 	}
 
 	@Override
@@ -376,9 +438,19 @@ public synchronized void rebuild() {
 			resetColorTables(false);
 		}
 
-		final int width = (int) img.dimension(0);
-		final int height = (int) img.dimension(1);
-		screenImage = new ARGBScreenImage(width, height);
+		final long width = img.dimension(0);
+		final long height = img.dimension(1);
+		tiled =
+			tiledSetting == null ? width * height > TILED_PLANE_SIZE : tiledSetting;
+		if (tiled) {
+			// NB: The projector still tracks the plane position, but renders only
+			// a single pixel; the actual pixels come from the tile renderer.
+			screenImage = new ARGBScreenImage(1, 1);
+		}
+		else {
+			screenImage = new ARGBScreenImage((int) width, (int) height);
+		}
+		renderer = new DatasetTileRenderer(this, converters, threadService);
 
 		initializeView(isComposite());
 		updateLUTs();
@@ -466,7 +538,25 @@ protected void onEvent(final DatasetUpdatedEvent event) {
 		}
 		if (getData() == event.getObject()) {
 			if (event.isMetaDataOnly()) return;
-			projector.map();
+			final Interval region = event.getDirtyRegion();
+			if (region == null) {
+				if (tiled) renderer.invalidate();
+				projector.map();
+				return;
+			}
+			// NB: Cached tiles of other planes may be stale too.
+			if (tiled) renderer.invalidate(region);
+			if (!event.affectsPlane(getPlanePositionArray(), compositeDimIndex())) {
+				return; // change is not on the displayed plane
+			}
+			if (!tiled) {
+				// NB: Composite the region just as map() would the whole plane.
+				if (projector instanceof PrimitiveCompositeXYProjector) {
+					((PrimitiveCompositeXYProjector<?>) projector).map(region);
+				}
+				else projector.map();
+			}
+			update();
 		}
 	}
 
@@ -480,6 +570,20 @@ private boolean isComposite() {
 		return getData().getCompositeChannelCount() > 1 || getData().isRGBMerged();
 	}
 
+	/** Gets the current position of the view, in the data's dimensions. */
+	private long[] getPlanePositionArray() {
+		final long[] pos = new long[projector.numDimensions()];
+		for (int d = 2; d < pos.length; d++) {
+			pos[d] = projector.getLongPosition(d);
+		}
+		return pos;
+	}
+
+	/** Gets the dimension composited into each screen pixel, or -1 if none. */
+	private int compositeDimIndex() {
+		return projector.isComposite() ? channelDimIndex : -1;
+	}
+
 	private boolean isInitialized() {
 		return projector != null;
 	}
@@ -510,6 +614,11 @@ private void initializeView(final boolean composite) {
 				new SourceOptimizedCompositeXYProjector(getData().getImgPlus(),
 					screenImage, converters, channelDimIndex);
 		}
+		else if (PrimitiveCompositeXYProjector.isSupported(img)) {
+			projector =
+				new PrimitiveCompositeXYProjector(getData().getImgPlus(), screenImage,
+					converters, channelDimIndex, threadService);
+		}
 		else {
 			projector =
 				new CompositeXYProjector(getData().getImgPlus(), screenImage,
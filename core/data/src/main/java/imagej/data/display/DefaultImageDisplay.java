@@ -40,6 +40,7 @@
 import imagej.data.display.event.AxisPositionEvent;
 import imagej.data.event.DataRestructuredEvent;
 import imagej.data.event.DataUpdatedEvent;
+import imagej.data.event.DatasetUpdatedEvent;
 import imagej.data.lut.LUTService;
 import imagej.display.AbstractDisplay;
 import imagej.display.Display;
@@ -625,6 +626,10 @@ public void run() {
 
 	@EventHandler
 	protected void onEvent(final DataUpdatedEvent event) {
+		// NB: Views re-render partial updates themselves; a full display update
+		// would re-project the whole plane.
+		if (event instanceof DatasetUpdatedEvent &&
+			((DatasetUpdatedEvent) event).getDirtyRegion() != null) return;
 		for (final DataView view : this) {
 			if (event.getObject() == view.getData()) {
 				// BDZ removed 2013-03-15: update() updates all views. Addresses #1220.
@@ -0,0 +1,374 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import imagej.data.PrimitiveStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Interval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.ColorTable;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.PlanarAccess;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * As {@link CompositeXYProjector}, but specialized for unsigned 8-bit and
+ * 16-bit data stored in a planar or array image.
+ * <p>
+ * Rather than converting each sample through a {@link Converter}, the
+ * projector tabulates, once per {@link #map()}, the color of every possible
+ * sample value for each composited channel. It then reads the channel planes
+ * straight from their primitive arrays and writes the composited colors
+ * straight into the pixel buffer of the target {@link ARGBScreenImage}, with
+ * the rows of the plane split among several threads.
+ * </p>
+ * <p>
+ * The tables are built by running the channel's {@link RealLUTConverter} over
+ * all values of the type, so the result is identical to that of
+ * {@link CompositeXYProjector}. They are rebuilt only when the display range or
+ * color table of the channel changes. If the converters are not
+ * {@link RealLUTConverter}s, or the target does not match the plane size, the
+ * projector falls back to the generic implementation.
+ * </p>
+ * 
+ * @see CompositeXYProjector for the code upon which this class was based.
+ */
+public class PrimitiveCompositeXYProjector<A extends RealType<A>> extends
+	CompositeXYProjector<A>
+{
+
+	/** Minimum number of pixels processed by each thread. */
+	private static final int MIN_PIXELS_PER_TASK = 65536;
+
+	private final ImgPlus<A> source;
+
+	private final ARGBScreenImage target;
+
+	private final ArrayList<Converter<A, ARGBType>> converters;
+
+	private final int dimIndex;
+
+	private final ThreadService threadService;
+
+	/** Per-channel color tables, indexed by sample value. */
+	private final List<ChannelTable> tables = new ArrayList<ChannelTable>();
+
+	public PrimitiveCompositeXYProjector(final ImgPlus<A> source,
+		final ARGBScreenImage target,
+		final ArrayList<Converter<A, ARGBType>> converters, final int dimIndex,
+		final ThreadService threadService)
+	{
+		super(source, target, converters, dimIndex);
+		this.source = source;
+		this.target = target;
+		this.converters = converters;
+		this.dimIndex = dimIndex;
+		this.threadService = threadService;
+	}
+
+	// -- PrimitiveCompositeXYProjector methods --
+
+	/**
+	 * Returns true if the given image is an unsigned 8-bit or 16-bit planar or
+	 * array image, which this projector can read directly.
+	 */
+	public static boolean isSupported(final ImgPlus<?> img) {
+		if (img.numDimensions() < 2) return false;
+		final Img<?> storage = PrimitiveStorage.storageImg(img);
+		if (!(storage instanceof ArrayImg) && !(storage instanceof PlanarAccess)) {
+			return false;
+		}
+		final Class<?> c = storage.firstElement().getClass();
+		return c == UnsignedByteType.class || c == UnsignedShortType.class;
+	}
+
+	/**
+	 * Composites only the given rectangle of the current plane into the target,
+	 * leaving the rest of the target untouched. The pixels written are the same
+	 * as those written by {@link #map()}.
+	 * 
+	 * @param region The region to map; only its X and Y extents are used, and
+	 *          they are clipped to the plane.
+	 */
+	public void map(final Interval region) {
+		final long width = source.dimension(0);
+		final long height = source.dimension(1);
+		final long x0 = Math.max(0, region.min(0));
+		final long y0 = Math.max(0, region.min(1));
+		final long x1 = Math.min(width - 1, region.max(0));
+		final long y1 = Math.min(height - 1, region.max(1));
+		if (x0 > x1 || y0 > y1) return;
+		map((int) x0, (int) y0, (int) (x1 + 1), (int) (y1 + 1));
+	}
+
+	// -- Projector methods --
+
+	@Override
+	public void map() {
+		map(0, 0, (int) source.dimension(0), (int) source.dimension(1));
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Composites columns {@code x0} to {@code x1} and rows {@code y0} to
+	 * {@code y1} (exclusive) of the current plane.
+	 */
+	private void map(final int x0, final int y0, final int x1, final int y1) {
+		final int width = (int) source.dimension(0);
+		final int height = (int) source.dimension(1);
+		if (target.dimension(0) != width || target.dimension(1) != height) {
+			super.map();
+			return;
+		}
+
+		// determine the composited channels and their converters
+		final long[] channels;
+		final Converter<A, ARGBType>[] convs;
+		if (dimIndex < 0) {
+			channels = new long[] { 0 };
+			@SuppressWarnings("unchecked")
+			final Converter<A, ARGBType>[] single = new Converter[] { converters.get(0) };
+			convs = single;
+		}
+		else {
+			final int size = updateCurrentArrays();
+			channels = new long[size];
+			System.arraycopy(currentPositions, 0, channels, 0, size);
+			convs = currentConverters;
+		}
+
+		// gather the plane arrays and LUTs of the composited channels
+		final Object[] planes = PrimitiveStorage.getPlanes(source);
+		if (planes == null) {
+			super.map();
+			return;
+		}
+		final int planeSize = width * height;
+		final long[] pos = position.clone();
+		final Object[] arrays = new Object[channels.length];
+		final int[] offsets = new int[channels.length];
+		final int[][] luts = new int[channels.length][];
+		for (int i = 0; i < channels.length; i++) {
+			if (!(convs[i] instanceof RealLUTConverter)) {
+				super.map();
+				return;
+			}
+			if (dimIndex >= 0) pos[dimIndex] = channels[i];
+			final int planeIndex = PrimitiveStorage.planeIndex(source, pos);
+			if (planes.length == 1) {
+				// array image: all planes share one array
+				arrays[i] = planes[0];
+				offsets[i] = planeIndex * planeSize;
+			}
+			else arrays[i] = planes[planeIndex];
+			luts[i] = table(i, (RealLUTConverter<?>) convs[i]);
+		}
+
+		final int[] pixels = target.getData();
+		final int rows = y1 - y0;
+		final int tasks =
+			threadService == null ? 1 : Math.max(1, Math.min(Runtime.getRuntime()
+				.availableProcessors(), rows * (x1 - x0) / MIN_PIXELS_PER_TASK));
+		if (tasks == 1) {
+			mapRows(arrays, offsets, luts, pixels, width, x0, x1, y0, y1);
+			return;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		final int rowsPerTask = (rows + tasks - 1) / tasks;
+		for (int y = y0; y < y1; y += rowsPerTask) {
+			final int start = y;
+			final int end = Math.min(y1, y + rowsPerTask);
+			futures.add(threadService.run(new Runnable() {
+
+				@Override
+				public void run() {
+					mapRows(arrays, offsets, luts, pixels, width, x0, x1, start, end);
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Composites columns {@code x0} to {@code x1} of rows {@code y0} to
+	 * {@code y1} (exclusive).
+	 */
+	private void mapRows(final Object[] arrays, final int[] offsets,
+		final int[][] luts, final int[] pixels, final int width, final int x0,
+		final int x1, final int y0, final int y1)
+	{
+		if (x0 == 0 && x1 == width) {
+			// whole rows are contiguous in the plane
+			mapSpan(arrays, offsets, luts, pixels, y0 * width, y1 * width);
+			return;
+		}
+		for (int y = y0; y < y1; y++) {
+			mapSpan(arrays, offsets, luts, pixels, y * width + x0, y * width + x1);
+		}
+	}
+
+	/** Composites plane indices {@code start} to {@code end} (exclusive). */
+	private void mapSpan(final Object[] arrays, final int[] offsets,
+		final int[][] luts, final int[] pixels, final int start, final int end)
+	{
+		if (arrays.length == 1) {
+			// no compositing needed: a straight table lookup per pixel
+			final int[] lut = luts[0];
+			final int offset = offsets[0];
+			if (arrays[0] instanceof byte[]) {
+				final byte[] data = (byte[]) arrays[0];
+				for (int i = start; i < end; i++) {
+					pixels[i] = lut[data[offset + i] & 0xff];
+				}
+			}
+			else {
+				final short[] data = (short[]) arrays[0];
+				for (int i = start; i < end; i++) {
+					pixels[i] = lut[data[offset + i] & 0xffff];
+				}
+			}
+			return;
+		}
+		final int count = end - start;
+		final int[] a = new int[count], r = new int[count];
+		final int[] g = new int[count], b = new int[count];
+		for (int c = 0; c < arrays.length; c++) {
+			final int[] lut = luts[c];
+			final int offset = offsets[c] + start;
+			if (arrays[c] instanceof byte[]) {
+				final byte[] data = (byte[]) arrays[c];
+				for (int i = 0; i < count; i++) {
+					final int v = lut[data[offset + i] & 0xff];
+					a[i] += (v >> 24) & 0xff;
+					r[i] += (v >> 16) & 0xff;
+					g[i] += (v >> 8) & 0xff;
+					b[i] += v & 0xff;
+				}
+			}
+			else {
+				final short[] data = (short[]) arrays[c];
+				for (int i = 0; i < count; i++) {
+					final int v = lut[data[offset + i] & 0xffff];
+					a[i] += (v >> 24) & 0xff;
+					r[i] += (v >> 16) & 0xff;
+					g[i] += (v >> 8) & 0xff;
+					b[i] += v & 0xff;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			final int av = a[i] > 255 ? 255 : a[i];
+			final int rv = r[i] > 255 ? 255 : r[i];
+			final int gv = g[i] > 255 ? 255 : g[i];
+			final int bv = b[i] > 255 ? 255 : b[i];
+			pixels[start + i] = ARGBType.rgba(rv, gv, bv, av);
+		}
+	}
+
+	/**
+	 * Gets the color table of the given composited channel slot, rebuilding it
+	 * if the converter's range or color table changed since last time.
+	 */
+	private int[] table(final int slot, final RealLUTConverter<?> converter) {
+		while (tables.size() <= slot) {
+			tables.add(new ChannelTable());
+		}
+		final ChannelTable table = tables.get(slot);
+		if (table.values == null || table.min != converter.getMin() ||
+			table.max != converter.getMax() || table.lut != converter.getLUT())
+		{
+			table.min = converter.getMin();
+			table.max = converter.getMax();
+			table.lut = converter.getLUT();
+			table.values = tabulate(converter);
+		}
+		return table.values;
+	}
+
+	/** Runs the converter over every value of the source type. */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private int[] tabulate(final RealLUTConverter converter) {
+		final RealType<?> type =
+			source.firstElement() instanceof UnsignedByteType
+				? new UnsignedByteType() : new UnsignedShortType();
+		final int count = (int) type.getMaxValue() + 1;
+		final int[] values = new int[count];
+		final ARGBType argb = new ARGBType();
+		for (int v = 0; v < count; v++) {
+			type.setReal(v);
+			converter.convert(type, argb);
+			values[v] = argb.get();
+		}
+		return values;
+	}
+
+	// -- Helper classes --
+
+	/** A color table along with the settings it was computed from. */
+	private static class ChannelTable {
+
+		private double min, max;
+		private ColorTable lut;
+		private int[] values;
+	}
+
+}
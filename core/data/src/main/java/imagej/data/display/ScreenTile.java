@@ -0,0 +1,100 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+
+/**
+ * A rendered rectangular piece of the current XY plane of a
+ * {@link DatasetView}, as produced by a {@link DatasetTileRenderer}.
+ * <p>
+ * A tile covers the data region starting at ({@link #getX()}, {@link #getY()})
+ * and spanning {@link #getDataWidth()} by {@link #getDataHeight()} pixels. Each
+ * screen pixel of the tile samples every {@link #getStep()}-th data pixel, so
+ * that tiles rendered for low zoom levels stay small.
+ * </p>
+ */
+public final class ScreenTile {
+
+	private final long x, y;
+	private final long dataWidth, dataHeight;
+	private final int step;
+	private final ARGBScreenImage image;
+
+	public ScreenTile(final long x, final long y, final long dataWidth,
+		final long dataHeight, final int step, final ARGBScreenImage image)
+	{
+		this.x = x;
+		this.y = y;
+		this.dataWidth = dataWidth;
+		this.dataHeight = dataHeight;
+		this.step = step;
+		this.image = image;
+	}
+
+	// -- ScreenTile methods --
+
+	/** Gets the X coordinate of the tile's top left corner, in data space. */
+	public long getX() {
+		return x;
+	}
+
+	/** Gets the Y coordinate of the tile's top left corner, in data space. */
+	public long getY() {
+		return y;
+	}
+
+	/** Gets the width of the region covered by the tile, in data space. */
+	public long getDataWidth() {
+		return dataWidth;
+	}
+
+	/** Gets the height of the region covered by the tile, in data space. */
+	public long getDataHeight() {
+		return dataHeight;
+	}
+
+	/** Gets the number of data pixels per screen pixel, along each axis. */
+	public int getStep() {
+		return step;
+	}
+
+	/** Gets the rendered pixels of the tile. */
+	public ARGBScreenImage getImage() {
+		return image;
+	}
+
+}
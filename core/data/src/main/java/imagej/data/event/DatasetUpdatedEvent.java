@@ -37,6 +37,8 @@
 
 import imagej.data.Dataset;
 
+import net.imglib2.Interval;
+
 /**
  * An event indicating a {@link Dataset}'s data has been updated. This means
  * that sample values may have changed, but the dimensional structure is the
@@ -44,6 +46,14 @@
  * <p>
  * This event is typically fired as part of a call to {@link Dataset#update()}.
  * </p>
+ * <p>
+ * When only part of the data changed, the event can carry a <em>dirty
+ * region</em> (see {@link Dataset#update(Interval)}): an interval in the
+ * dataset's own dimensions bounding the modified samples. Its X and Y extents
+ * give the affected rectangle, and its extents along the remaining axes give
+ * the position of the affected plane(s). Listeners may then restrict their work
+ * to that region, or skip it entirely if they do not show those planes.
+ * </p>
  * 
  * @author Curtis Rueden
  */
@@ -51,11 +61,21 @@ public class DatasetUpdatedEvent extends DataUpdatedEvent {
 
 	private final Dataset dataset;
 	private final boolean metadataOnly;
+	private final Interval dirtyRegion;
 
 	public DatasetUpdatedEvent(final Dataset dataset, boolean metadataOnly) {
 		super(dataset);
 		this.dataset = dataset;
 		this.metadataOnly = metadataOnly;
+		this.dirtyRegion = null;
+	}
+
+	public DatasetUpdatedEvent(final Dataset dataset, final Interval dirtyRegion)
+	{
+		super(dataset);
+		this.dataset = dataset;
+		this.metadataOnly = false;
+		this.dirtyRegion = dirtyRegion;
 	}
 
 	// -- ObjectEvent methods --
@@ -68,4 +88,32 @@ public Dataset getObject() {
 	public boolean isMetaDataOnly() {
 		return metadataOnly;
 	}
+
+	/**
+	 * Gets the region of the dataset whose samples changed, or null if any part
+	 * of the dataset may have changed.
+	 */
+	public Interval getDirtyRegion() {
+		return dirtyRegion;
+	}
+
+	/**
+	 * Gets whether the changes reported by this event may affect the plane at
+	 * the given position.
+	 * 
+	 * @param position The position of the plane, in the dataset's dimensions;
+	 *          the X and Y coordinates are ignored.
+	 * @param ignoredDim A dimension whose coordinate is ignored as well (such as
+	 *          the channel dimension of a composite view), or -1.
+	 */
+	public boolean affectsPlane(final long[] position, final int ignoredDim) {
+		if (metadataOnly) return false;
+		if (dirtyRegion == null) return true;
+		for (int d = 2; d < dirtyRegion.numDimensions(); d++) {
+			if (d == ignoredDim) continue;
+			if (position[d] < dirtyRegion.min(d)) return false;
+			if (position[d] > dirtyRegion.max(d)) return false;
+		}
+		return true;
+	}
 }
@@ -125,6 +125,25 @@ public void calcStats(double[] data) {
 		sn1 = Math.sqrt(s2n1);
 	}
 	
+	/**
+	 * Records the statistics of a sample whose moments have already been
+	 * gathered by a {@link StatisticsAccumulator}. Unlike
+	 * {@link #calcStats(double[])} this does not require the sample values to be
+	 * held in memory.
+	 * 
+	 * @param acc
+	 * The accumulated moments of the sample.
+	 */
+	public void calcStats(StatisticsAccumulator acc) {
+		long n = acc.getCount();
+		xbar = (n == 0) ? 0 : acc.get(Statistic.ARITHMETIC_MEAN);
+		double sum = (n == 0) ? 0 : acc.get(Statistic.SUM_OF_SQUARED_DEVIATIONS);
+		s2n = (n <= 0) ? 0 : sum / n;
+		s2n1 = (n <= 1) ? 0 : sum / (n-1);
+		sn = Math.sqrt(s2n);
+		sn1 = Math.sqrt(s2n1);
+	}
+	
 	/** Creates a new BasicStats object */
 	public BasicStats create() { return new BasicStats(); }
 }
@@ -68,7 +68,7 @@
 
 	private final Function<long[], T> otherFunc;
 	private final T tmp;
-	private double[] data;
+	private final StatisticsAccumulator acc;
 	private PointSet lastPointSet;
 	private PointSetIterator iter;
 
@@ -84,7 +84,7 @@
 	public BasicStatsFunction(final Function<long[], T> func, final T tmp) {
 		this.otherFunc = func;
 		this.tmp = tmp.createVariable();
-		this.data = null;
+		this.acc = new StatisticsAccumulator();
 		this.lastPointSet = null;
 		this.iter = null;
 	}
@@ -98,19 +98,19 @@ public BasicStatsFunction(final Function<long[], T> func, final T tmp) {
 	@Override
 	public void compute(final PointSet input, final BasicStats output) {
 		if (iter == null || lastPointSet != input) {
-			// TODO - use an Img<DoubleType> to break limitations
-			data = new double[(int) input.size()];
 			iter = input.iterator();
 		}
 		else iter.reset();
 		lastPointSet = input;
-		int i = 0;
+		// NB - stream the samples rather than buffering them so that the size of
+		// the input region is not limited by the size of an array
+		acc.reset();
 		while (iter.hasNext()) {
 			final long[] coord = iter.next();
 			otherFunc.compute(coord, tmp);
-			data[i++] = tmp.getRealDouble();
+			acc.add(tmp.getRealDouble());
 		}
-		output.calcStats(data);
+		output.calcStats(acc);
 	}
 
 	/**
@@ -0,0 +1,309 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import imagej.data.Dataset;
+import imagej.data.PrimitiveStorage;
+import imagej.data.event.DatasetDeletedEvent;
+import imagej.data.event.DatasetRestructuredEvent;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.data.minmax.PrimitiveMinMax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.IterableInterval;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+import org.scijava.event.EventHandler;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Default implementation of {@link PlaneStatisticsService}. Statistics are
+ * cached per image, one slot per XY plane. Missing planes are computed in
+ * parallel when several are requested at once. The ranges of primitive array
+ * backed planes are found by scanning the arrays directly.
+ */
+@Plugin(type = Service.class)
+public class DefaultPlaneStatisticsService extends AbstractService implements
+	PlaneStatisticsService
+{
+
+	// -- Parameters --
+
+	@Parameter
+	private ThreadService threadService;
+
+	// -- instance variables --
+
+	/** Cached statistics of each plane, keyed by the image holding the data. */
+	private final Map<Img<?>, PlaneStatistics[]> cache =
+		new WeakHashMap<Img<?>, PlaneStatistics[]>();
+
+	// -- PlaneStatisticsService methods --
+
+	@Override
+	public PlaneStatistics getPlaneStatistics(final Dataset ds,
+		final int planeIndex, final boolean withHistogram)
+	{
+		return planeStatistics(ds.getImgPlus(), new int[] { planeIndex },
+			withHistogram).get(0);
+	}
+
+	@Override
+	public PlaneStatistics getStatistics(final Dataset ds,
+		final boolean withHistogram)
+	{
+		final Img<? extends RealType<?>> img = ds.getImgPlus();
+		final int[] planes = new int[PrimitiveStorage.planeCount(img)];
+		for (int i = 0; i < planes.length; i++) {
+			planes[i] = i;
+		}
+		return PlaneStatistics.merge(planeStatistics(img, planes, withHistogram));
+	}
+
+	@Override
+	public PlaneStatistics getStatistics(
+		final IterableInterval<? extends RealType<?>> interval,
+		final boolean withHistogram)
+	{
+		final Img<?> source = PrimitiveStorage.sourceImg(interval);
+		if (source == null) return null;
+		if (!(source.firstElement() instanceof RealType)) return null;
+		@SuppressWarnings("unchecked")
+		final Img<? extends RealType<?>> img =
+			(Img<? extends RealType<?>>) source;
+		final int[] planes = PrimitiveStorage.planeIndices(img, interval);
+		if (planes == null) return null;
+		return PlaneStatistics.merge(planeStatistics(img, planes, withHistogram));
+	}
+
+	@Override
+	public void invalidate(final Dataset ds) {
+		synchronized (cache) {
+			cache.remove(ds.getImgPlus());
+		}
+	}
+
+	// -- Event handlers --
+
+	@EventHandler
+	protected void onEvent(final DatasetUpdatedEvent event) {
+		if (event.isMetaDataOnly()) return;
+		final Interval region = event.getDirtyRegion();
+		if (region == null) invalidate(event.getObject());
+		else invalidate(event.getObject(), region);
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetRestructuredEvent event) {
+		invalidate(event.getObject());
+	}
+
+	@EventHandler
+	protected void onEvent(final DatasetDeletedEvent event) {
+		invalidate(event.getObject());
+	}
+
+	// -- Helper methods --
+
+	/** Discards the cached statistics of the planes overlapping a region. */
+	private void invalidate(final Dataset ds, final Interval region) {
+		final Img<?> img = ds.getImgPlus();
+		synchronized (cache) {
+			final PlaneStatistics[] entry = cache.get(img);
+			if (entry == null) return;
+			final long[] pos = new long[img.numDimensions()];
+			for (int plane = 0; plane < entry.length; plane++) {
+				if (entry[plane] == null) continue;
+				PrimitiveStorage.planePosition(img, plane, pos);
+				if (overlaps(pos, region)) entry[plane] = null;
+			}
+		}
+	}
+
+	/** Whether the plane at the given position overlaps the given region. */
+	private boolean overlaps(final long[] planePos, final Interval region) {
+		for (int d = 2; d < planePos.length; d++) {
+			if (planePos[d] < region.min(d) || planePos[d] > region.max(d)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the statistics of the given planes of an image, computing (in
+	 * parallel) those that are not cached yet.
+	 */
+	private List<PlaneStatistics> planeStatistics(
+		final Img<? extends RealType<?>> img, final int[] planes,
+		final boolean withHistogram)
+	{
+		final PlaneStatistics[] entry = entry(img);
+		final List<Integer> missing = new ArrayList<Integer>();
+		for (final int plane : planes) {
+			final PlaneStatistics stats = entry[plane];
+			if (stats == null || (withHistogram && !stats.hasHistogram())) {
+				missing.add(plane);
+			}
+		}
+		if (!missing.isEmpty()) compute(img, entry, missing, withHistogram);
+		final List<PlaneStatistics> result = new ArrayList<PlaneStatistics>();
+		for (final int plane : planes) {
+			result.add(entry[plane]);
+		}
+		return result;
+	}
+
+	/** Returns the cache slots of an image, creating them if needed. */
+	private PlaneStatistics[] entry(final Img<?> img) {
+		synchronized (cache) {
+			PlaneStatistics[] entry = cache.get(img);
+			final int planeCount = PrimitiveStorage.planeCount(img);
+			if (entry == null || entry.length != planeCount) {
+				entry = new PlaneStatistics[planeCount];
+				cache.put(img, entry);
+			}
+			return entry;
+		}
+	}
+
+	/** Computes the statistics of several planes using a pool of workers. */
+	private void compute(final Img<? extends RealType<?>> img,
+		final PlaneStatistics[] entry, final List<Integer> planes,
+		final boolean withHistogram)
+	{
+		final Object[] arrays = PrimitiveStorage.getPlanes(img);
+		final boolean planar = arrays != null && arrays.length == entry.length;
+		final boolean unsigned =
+			planar && PrimitiveStorage.isUnsigned(img.firstElement());
+		final int workers =
+			Math.min(planes.size(), Runtime.getRuntime().availableProcessors());
+		final AtomicInteger next = new AtomicInteger(0);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int w = 0; w < workers; w++) {
+			futures.add(threadService.run(new Callable<Object>() {
+
+				@Override
+				public Object call() {
+					int i;
+					while ((i = next.getAndIncrement()) < planes.size()) {
+						final int plane = planes.get(i);
+						entry[plane] =
+							compute(img, plane, planar ? arrays[plane] : null, unsigned,
+								withHistogram);
+					}
+					return null;
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(
+					"Plane statistics calculation interrupted", e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException("Error calculating plane statistics",
+					e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Computes the statistics of one plane. If the primitive array holding the
+	 * plane is given its range is found by scanning the array directly.
+	 */
+	private PlaneStatistics compute(final Img<? extends RealType<?>> img,
+		final int plane, final Object array, final boolean unsigned,
+		final boolean withHistogram)
+	{
+		final IterableInterval<? extends RealType<?>> samples = plane(img, plane);
+		final double[] minMax =
+			{ Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		if (array == null || !PrimitiveMinMax.scan(array, unsigned, minMax)) {
+			final Cursor<? extends RealType<?>> cursor = samples.cursor();
+			while (cursor.hasNext()) {
+				final double value = cursor.next().getRealDouble();
+				if (value < minMax[0]) minMax[0] = value;
+				if (value > minMax[1]) minMax[1] = value;
+			}
+		}
+		final long count = samples.size();
+		if (count == 0) return new PlaneStatistics(0, 0, 0, null);
+		if (!withHistogram) {
+			return new PlaneStatistics(minMax[0], minMax[1], count, null);
+		}
+		final long[] histogram = new long[PlaneStatistics.BIN_COUNT];
+		final Cursor<? extends RealType<?>> cursor = samples.cursor();
+		while (cursor.hasNext()) {
+			final double value = cursor.next().getRealDouble();
+			histogram[PlaneStatistics.bin(value, minMax[0], minMax[1])]++;
+		}
+		return new PlaneStatistics(minMax[0], minMax[1], count, histogram);
+	}
+
+	/** Returns the samples of one XY plane of an image. */
+	private IterableInterval<? extends RealType<?>> plane(
+		final Img<? extends RealType<?>> img, final int plane)
+	{
+		if (img.numDimensions() <= 2) return img;
+		final long[] min = new long[img.numDimensions()];
+		final long[] max = new long[img.numDimensions()];
+		PrimitiveStorage.planePosition(img, plane, min);
+		for (int d = 0; d < max.length; d++) {
+			max[d] = d < 2 ? img.max(d) : min[d];
+		}
+		return Views.flatIterable(Views.interval(img, min, max));
+	}
+}
@@ -36,8 +36,26 @@
 package imagej.data.measure;
 
 import imagej.data.Dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.IterableInterval;
+import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
+import net.imglib2.meta.ImgPlus;
 import net.imglib2.meta.IntervalUtils;
+import net.imglib2.multithreading.Chunk;
+import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.ops.function.Function;
 import net.imglib2.ops.function.real.RealAlphaTrimmedMeanFunction;
 import net.imglib2.ops.function.real.RealArithmeticMeanFunction;
@@ -67,24 +85,27 @@
 import net.imglib2.ops.function.real.RealWeightedSumFunction;
 import net.imglib2.ops.pointset.HyperVolumePointSet;
 import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.view.Views;
 
+import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.AbstractService;
 import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
 
 // TODO - make MeasurementService smarter. Compute values without always
-// revisiting the pixels. This current impl goes over pixels once for each
-// measurement. I will mock something up soon. BDZ
+// revisiting the pixels. The single statistic methods here go over the pixels
+// once for each measurement. measureAll() batches the non-parameterized
+// statistics into a single pass.
 
 // TODO - this service is limited to only the kinds of stats it knows. It can't
 // measure a user provided statistic. This can be done by calling the
 // MeasurementService more directly.
-// Also this service calcs one measure at a time. Our future MeasurementService
-// should be able to batch them together. It also might be nice to be able to
-// specify to this service gather min,var,stdev,median in an array of output
-// doubles.
+// Also the parameterized measures (trimmed means, weighted sums, etc.) are
+// still calculated one at a time.
 
 // TODO - see what IJ1 calculates and provide such methods here and in OPS
 
@@ -100,8 +121,16 @@ public class DefaultStatisticsService extends AbstractService implements
 	StatisticsService
 {
 
+	// -- constants --
+
+	/** The smallest number of samples worth handing to a separate thread. */
+	private static final long MIN_CHUNK_SIZE = 65536;
+
 	// -- Parameters --
 
+	@Parameter
+	private ThreadService threadService;
+
 	// later
 	// @Parameter
 	// private MeasurementService mSrv;
@@ -112,6 +141,9 @@ public class DefaultStatisticsService extends AbstractService implements
 	public double alphaTrimmedMean(final Dataset ds, final PointSet region,
 		final double alpha)
 	{
+		if (IntegerHistogram.isSupported(ds.getType())) {
+			return histogram(ds, region).alphaTrimmedMean(alpha);
+		}
 		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
 		final Function<PointSet, DoubleType> func =
 			new RealAlphaTrimmedMeanFunction<DoubleType>(imgFunc, alpha);
@@ -192,6 +224,9 @@ public double maximum(final Dataset ds) {
 
 	@Override
 	public double median(final Dataset ds, final PointSet region) {
+		if (IntegerHistogram.isSupported(ds.getType())) {
+			return histogram(ds, region).median();
+		}
 		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
 		final Function<PointSet, DoubleType> func =
 			new RealMedianFunction<DoubleType>(imgFunc);
@@ -403,6 +438,9 @@ public double sumOfSquaredDeviations(final Dataset ds) {
 
 	@Override
 	public double trimmedMean(Dataset ds, PointSet region, int halfTrimSize) {
+		if (IntegerHistogram.isSupported(ds.getType())) {
+			return histogram(ds, region).trimmedMean(halfTrimSize);
+		}
 		final Function<long[], DoubleType> imgFunc = imgFunc(ds);
 		final Function<PointSet, DoubleType> func =
 			new RealTrimmedMeanFunction<DoubleType>(imgFunc, halfTrimSize);
@@ -434,6 +472,42 @@ public double weightedSum(final Dataset ds, final PointSet region,
 		return measure(func, region);
 	}
 
+	@Override
+	public Map<Statistic, Double> measureAll(final Dataset ds,
+		final PointSet region, final EnumSet<Statistic> stats)
+	{
+		final StatisticsAccumulator acc = new StatisticsAccumulator();
+		IntegerHistogram histogram = null;
+		double[] values = null;
+		if (IntegerHistogram.isSupported(ds.getType())) {
+			// one cheap pass to count values; all stats are derived from the counts
+			histogram = histogram(ds, region);
+			histogram.accumulate(acc);
+		}
+		else {
+			if (Statistic.anyOrderStatistic(stats)) values = valueBuffer(region);
+			acc.merge(accumulate(ds, region, values));
+			if (values != null) Arrays.sort(values);
+		}
+		final Map<Statistic, Double> results =
+			new EnumMap<Statistic, Double>(Statistic.class);
+		for (final Statistic stat : stats) {
+			if (stat == Statistic.MEDIAN) {
+				results.put(stat, histogram != null ? histogram.median()
+					: median(values));
+			}
+			else results.put(stat, acc.get(stat));
+		}
+		return results;
+	}
+
+	@Override
+	public Map<Statistic, Double> measureAll(final Dataset ds,
+		final EnumSet<Statistic> stats)
+	{
+		return measureAll(ds, allOf(ds), stats);
+	}
+
 	@Override
 	public PointSet allOf(final Dataset ds) {
 		return new HyperVolumePointSet(IntervalUtils.getDims(ds));
@@ -455,4 +529,183 @@ private double measure(final Function<PointSet, DoubleType> func,
 		return output.getRealDouble();
 	}
 
+	/**
+	 * Returns the samples of a hyper-rectangular region as an iterable interval.
+	 * When the region covers the whole Dataset the Img is iterated directly in
+	 * its native (fastest) order.
+	 */
+	private IterableInterval<? extends RealType<?>> samples(final Dataset ds,
+		final PointSet region)
+	{
+		final ImgPlus<? extends RealType<?>> img = ds.getImgPlus();
+		final long[] min = new long[region.numDimensions()];
+		final long[] max = new long[region.numDimensions()];
+		region.min(min);
+		region.max(max);
+		boolean wholeImage = true;
+		for (int d = 0; d < min.length; d++) {
+			if (min[d] != img.min(d) || max[d] != img.max(d)) wholeImage = false;
+		}
+		if (wholeImage) return img;
+		return Views.flatIterable(Views.interval(img, min, max));
+	}
+
+	/**
+	 * Accumulates the moments of a region. Each thread fills its own partial
+	 * accumulator (and its own slice of the optional value buffer) and the
+	 * partial results are merged at the end.
+	 */
+	private StatisticsAccumulator accumulate(final Dataset ds,
+		final PointSet region, final double[] values)
+	{
+		final StatisticsAccumulator acc = new StatisticsAccumulator();
+		if (!(region instanceof HyperVolumePointSet)) {
+			final RandomAccess<? extends RealType<?>> accessor =
+				ds.getImgPlus().randomAccess();
+			final PointSetIterator iter = region.iterator();
+			int i = 0;
+			while (iter.hasNext()) {
+				accessor.setPosition(iter.next());
+				final double value = accessor.get().getRealDouble();
+				acc.add(value);
+				if (values != null) values[i++] = value;
+			}
+			return acc;
+		}
+		final List<StatisticsAccumulator> partials =
+			inChunks(samples(ds, region), new ChunkTask<StatisticsAccumulator>() {
+
+				@Override
+				public StatisticsAccumulator run(
+					final Cursor<? extends RealType<?>> cursor, final long startPos,
+					final long loopSize)
+				{
+					final StatisticsAccumulator partial = new StatisticsAccumulator();
+					int i = (int) startPos;
+					for (long j = 0; j < loopSize; j++) {
+						final double value = cursor.next().getRealDouble();
+						partial.add(value);
+						if (values != null) values[i++] = value;
+					}
+					return partial;
+				}
+			});
+		for (final StatisticsAccumulator partial : partials) {
+			acc.merge(partial);
+		}
+		return acc;
+	}
+
+	/**
+	 * Counts the values of a region of a bounded integer {@link Dataset}. Each
+	 * thread fills its own partial histogram and the partial histograms are
+	 * merged at the end.
+	 */
+	private IntegerHistogram histogram(final Dataset ds, final PointSet region) {
+		final RealType<?> type = ds.getType();
+		final IntegerHistogram histogram = new IntegerHistogram(type);
+		if (!(region instanceof HyperVolumePointSet)) {
+			final RandomAccess<? extends RealType<?>> accessor =
+				ds.getImgPlus().randomAccess();
+			final PointSetIterator iter = region.iterator();
+			while (iter.hasNext()) {
+				accessor.setPosition(iter.next());
+				histogram.add((long) accessor.get().getRealDouble());
+			}
+			return histogram;
+		}
+		final List<IntegerHistogram> partials =
+			inChunks(samples(ds, region), new ChunkTask<IntegerHistogram>() {
+
+				@Override
+				public IntegerHistogram run(
+					final Cursor<? extends RealType<?>> cursor, final long startPos,
+					final long loopSize)
+				{
+					final IntegerHistogram partial = new IntegerHistogram(type);
+					for (long j = 0; j < loopSize; j++) {
+						partial.add((long) cursor.next().getRealDouble());
+					}
+					return partial;
+				}
+			});
+		for (final IntegerHistogram partial : partials) {
+			histogram.merge(partial);
+		}
+		return histogram;
+	}
+
+	/** A unit of work done upon a contiguous chunk of an iterable interval. */
+	private interface ChunkTask<R> {
+
+		/**
+		 * Processes loopSize samples from the given cursor, which has already been
+		 * moved to startPos.
+		 */
+		R run(Cursor<? extends RealType<?>> cursor, long startPos, long loopSize);
+	}
+
+	/**
+	 * Splits an iterable interval into contiguous chunks, runs a task on each
+	 * chunk in parallel and returns the results in chunk order.
+	 */
+	private <R> List<R> inChunks(
+		final IterableInterval<? extends RealType<?>> samples,
+		final ChunkTask<R> task)
+	{
+		final long size = samples.size();
+		final int numThreads =
+			(int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+				size / MIN_CHUNK_SIZE));
+		final Vector<Chunk> chunks =
+			SimpleMultiThreading.divideIntoChunks(size, numThreads);
+		final List<Future<R>> futures = new ArrayList<Future<R>>();
+		for (final Chunk chunk : chunks) {
+			futures.add(threadService.run(new Callable<R>() {
+
+				@Override
+				public R call() {
+					final Cursor<? extends RealType<?>> cursor = samples.cursor();
+					cursor.jumpFwd(chunk.getStartPosition());
+					return task.run(cursor, chunk.getStartPosition(), chunk
+						.getLoopSize());
+				}
+			}));
+		}
+		final List<R> results = new ArrayList<R>();
+		for (final Future<R> future : futures) {
+			try {
+				results.add(future.get());
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException("Statistics calculation interrupted",
+					e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException("Error calculating statistics", e
+					.getCause());
+			}
+		}
+		return results;
+	}
+
+	/** Allocates the single buffer shared by all order statistics. */
+	private double[] valueBuffer(final PointSet region) {
+		final long size = region.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+				"Can't compute order statistics of a region of " + size +
+					" samples (MAX = " + Integer.MAX_VALUE + ")");
+		}
+		return new double[(int) size];
+	}
+
+	/** Returns the median of an already sorted array of values. */
+	private double median(final double[] sortedValues) {
+		final int n = sortedValues.length;
+		if (n == 0) return Double.NaN;
+		if (n % 2 == 1) return sortedValues[n / 2];
+		return (sortedValues[n / 2 - 1] + sortedValues[n / 2]) / 2;
+	}
+
 }
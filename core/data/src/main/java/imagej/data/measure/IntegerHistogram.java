@@ -0,0 +1,229 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import net.imglib2.type.numeric.IntegerType;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A histogram with one bin per possible value of a bounded integer type (such
+ * as 8, 12 or 16 bit data). It can answer order statistics (median,
+ * percentiles, trimmed means) exactly without storing or sorting the samples
+ * themselves. Memory use is proportional to 2^bits rather than to the number
+ * of samples. Partial histograms filled independently can be combined with
+ * {@link #merge(IntegerHistogram)}.
+ */
+public class IntegerHistogram {
+
+	// -- constants --
+
+	/** The largest bit depth for which a histogram will be built. */
+	public static final int MAX_BITS = 16;
+
+	// -- instance variables --
+
+	private final long minValue;
+	private final long[] counts;
+	private long total;
+
+	// -- constructors --
+
+	/**
+	 * Creates a histogram that can count all the integer values between the
+	 * given bounds (inclusive).
+	 */
+	public IntegerHistogram(final long minValue, final long maxValue) {
+		final long binCount = maxValue - minValue + 1;
+		if (binCount <= 0 || binCount > (1L << MAX_BITS)) {
+			throw new IllegalArgumentException("Can't create a histogram of " +
+				binCount + " bins (MAX = " + (1L << MAX_BITS) + ")");
+		}
+		this.minValue = minValue;
+		this.counts = new long[(int) binCount];
+		this.total = 0;
+	}
+
+	/** Creates a histogram that can count all the values of the given type. */
+	public IntegerHistogram(final RealType<?> type) {
+		this((long) type.getMinValue(), (long) type.getMaxValue());
+	}
+
+	// -- static methods --
+
+	/**
+	 * Returns true if the given type is an integer type of few enough bits that a
+	 * value histogram can be used in place of a sorted sample buffer.
+	 */
+	public static boolean isSupported(final RealType<?> type) {
+		return type instanceof IntegerType && type.getBitsPerPixel() <= MAX_BITS;
+	}
+
+	// -- IntegerHistogram methods --
+
+	/** Counts one sample. */
+	public void add(final long value) {
+		counts[(int) (value - minValue)]++;
+		total++;
+	}
+
+	/** Adds the counts of another histogram with the same bounds to this one. */
+	public void merge(final IntegerHistogram other) {
+		if (other.minValue != minValue || other.counts.length != counts.length) {
+			throw new IllegalArgumentException("Histogram bounds do not match");
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+	}
+
+	/** Returns the number of samples counted so far. */
+	public long getCount() {
+		return total;
+	}
+
+	/** Returns the smallest value this histogram can count. */
+	public long getMinValue() {
+		return minValue;
+	}
+
+	/** Returns the largest value this histogram can count. */
+	public long getMaxValue() {
+		return minValue + counts.length - 1;
+	}
+
+	/** Returns the number of samples counted with the given value. */
+	public long frequency(final long value) {
+		return counts[(int) (value - minValue)];
+	}
+
+	/**
+	 * Returns the value that would be at the given (zero-based) index if all the
+	 * counted samples were sorted.
+	 */
+	public long valueAtRank(final long rank) {
+		if (rank < 0 || rank >= total) {
+			throw new IllegalArgumentException("Rank " + rank +
+				" out of range (count = " + total + ")");
+		}
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen > rank) return minValue + i;
+		}
+		// unreachable when counts and total agree
+		return getMaxValue();
+	}
+
+	/**
+	 * Returns the p-th quantile (0 <= p <= 1) of the counted samples,
+	 * interpolating linearly between the two closest ranks. Returns NaN if no
+	 * samples have been counted.
+	 */
+	public double quantile(final double p) {
+		if (p < 0 || p > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1");
+		}
+		if (total == 0) return Double.NaN;
+		final double position = p * (total - 1);
+		final long lo = (long) Math.floor(position);
+		final long hi = (long) Math.ceil(position);
+		final long loValue = valueAtRank(lo);
+		if (hi == lo) return loValue;
+		final long hiValue = valueAtRank(hi);
+		return loValue + (position - lo) * (hiValue - loValue);
+	}
+
+	/**
+	 * Returns the p-th percentile (0 <= p <= 100) of the counted samples.
+	 */
+	public double percentile(final double p) {
+		return quantile(p / 100);
+	}
+
+	/**
+	 * Returns the median of the counted samples. For an even number of samples
+	 * this is the average of the two middle values.
+	 */
+	public double median() {
+		return quantile(0.5);
+	}
+
+	/**
+	 * Returns the mean of the counted samples after discarding the given number
+	 * of samples from each end of the sorted order. Returns NaN if no samples
+	 * remain.
+	 */
+	public double trimmedMean(final long halfTrimSize) {
+		final long first = halfTrimSize;
+		final long last = total - halfTrimSize - 1;
+		if (halfTrimSize < 0 || first > last) return Double.NaN;
+		double sum = 0;
+		long rank = 0;
+		for (int i = 0; i < counts.length && rank <= last; i++) {
+			final long count = counts[i];
+			if (count == 0) continue;
+			final long lo = Math.max(rank, first);
+			final long hi = Math.min(rank + count - 1, last);
+			if (hi >= lo) sum += (double) (minValue + i) * (hi - lo + 1);
+			rank += count;
+		}
+		return sum / (last - first + 1);
+	}
+
+	/**
+	 * Returns the mean of the counted samples after discarding the given
+	 * proportion (0 <= alpha < 0.5) of samples from each end of the sorted order.
+	 * The number of samples discarded from each end is rounded down, as in
+	 * {@link net.imglib2.ops.function.real.RealAlphaTrimmedMeanFunction}.
+	 */
+	public double alphaTrimmedMean(final double alpha) {
+		if (alpha < 0 || alpha >= 0.5) {
+			throw new IllegalArgumentException("Alpha must be >= 0 and < 0.5");
+		}
+		return trimmedMean((long) (alpha * total));
+	}
+
+	/**
+	 * Feeds the counted samples into a {@link StatisticsAccumulator} so that the
+	 * moment-based statistics can be computed without revisiting the data.
+	 */
+	public void accumulate(final StatisticsAccumulator acc) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) acc.add(minValue + i, counts[i]);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import java.util.List;
+
+/**
+ * The cached summary of the values of one or more XY planes of an image: their
+ * range, their count and (optionally) a coarse histogram spanning that range.
+ * Instances are produced by the {@link PlaneStatisticsService}.
+ */
+public class PlaneStatistics {
+
+	// -- constants --
+
+	/** The number of bins in the coarse histogram. */
+	public static final int BIN_COUNT = 1024;
+
+	// -- instance variables --
+
+	private final double min;
+	private final double max;
+	private final long count;
+	private final long[] histogram;
+
+	// -- constructor --
+
+	/**
+	 * Creates a set of plane statistics.
+	 * 
+	 * @param min The minimum value
+	 * @param max The maximum value
+	 * @param count The number of values
+	 * @param histogram The counts of values in {@link #BIN_COUNT} equal bins
+	 *          spanning [min, max], or null if no histogram was computed
+	 */
+	public PlaneStatistics(final double min, final double max, final long count,
+		final long[] histogram)
+	{
+		this.min = min;
+		this.max = max;
+		this.count = count;
+		this.histogram = histogram;
+	}
+
+	// -- PlaneStatistics methods --
+
+	/** Returns the minimum value. */
+	public double getMin() {
+		return min;
+	}
+
+	/** Returns the maximum value. */
+	public double getMax() {
+		return max;
+	}
+
+	/** Returns the number of values. */
+	public long getCount() {
+		return count;
+	}
+
+	/** Returns true if a coarse histogram is available. */
+	public boolean hasHistogram() {
+		return histogram != null;
+	}
+
+	/** Returns the number of values in the given histogram bin. */
+	public long frequency(final int bin) {
+		return histogram[bin];
+	}
+
+	/** Returns the smallest value that falls within the given bin. */
+	public double getBinLowerBound(final int bin) {
+		return min + bin * binWidth();
+	}
+
+	/** Returns the largest value that falls within the given bin. */
+	public double getBinUpperBound(final int bin) {
+		return min + (bin + 1) * binWidth();
+	}
+
+	/** Returns the histogram bin that the given value falls within. */
+	public int bin(final double value) {
+		return bin(value, min, max);
+	}
+
+	// -- static methods --
+
+	/**
+	 * Returns the index of the bin a value falls within for a histogram of
+	 * {@link #BIN_COUNT} bins spanning [min, max].
+	 */
+	public static int bin(final double value, final double min, final double max)
+	{
+		if (max <= min) return 0;
+		final int bin = (int) ((value - min) / (max - min) * BIN_COUNT);
+		if (bin < 0) return 0;
+		if (bin >= BIN_COUNT) return BIN_COUNT - 1;
+		return bin;
+	}
+
+	/**
+	 * Combines the statistics of several planes into one. If the planes have
+	 * different ranges their histograms are resampled into the combined range,
+	 * so the combined histogram is approximate. It only has a histogram if all
+	 * the inputs do.
+	 */
+	public static PlaneStatistics merge(final List<PlaneStatistics> stats) {
+		if (stats.size() == 1) return stats.get(0);
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		long count = 0;
+		boolean withHistogram = true;
+		for (final PlaneStatistics s : stats) {
+			if (s.count == 0) continue;
+			if (s.min < min) min = s.min;
+			if (s.max > max) max = s.max;
+			count += s.count;
+			if (s.histogram == null) withHistogram = false;
+		}
+		if (count == 0) return new PlaneStatistics(0, 0, 0, new long[BIN_COUNT]);
+		long[] histogram = null;
+		if (withHistogram) {
+			histogram = new long[BIN_COUNT];
+			for (final PlaneStatistics s : stats) {
+				if (s.count == 0) continue;
+				if (s.min == min && s.max == max) {
+					for (int i = 0; i < BIN_COUNT; i++) {
+						histogram[i] += s.histogram[i];
+					}
+				}
+				else {
+					for (int i = 0; i < BIN_COUNT; i++) {
+						if (s.histogram[i] == 0) continue;
+						final double center =
+							(s.getBinLowerBound(i) + s.getBinUpperBound(i)) / 2;
+						histogram[bin(center, min, max)] += s.histogram[i];
+					}
+				}
+			}
+		}
+		return new PlaneStatistics(min, max, count, histogram);
+	}
+
+	// -- helpers --
+
+	private double binWidth() {
+		return (max - min) / BIN_COUNT;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import imagej.data.Dataset;
+import imagej.service.ImageJService;
+import net.imglib2.IterableInterval;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A service that caches {@link PlaneStatistics} (range and coarse histogram)
+ * of each XY plane of an image. The statistics of a plane are computed lazily
+ * the first time they are requested and are kept until the owning
+ * {@link Dataset} reports a change to its data. This lets autoscaling and
+ * histogram code flip between planes without rescanning pixels.
+ */
+public interface PlaneStatisticsService extends ImageJService {
+
+	/**
+	 * Returns the statistics of one XY plane of a {@link Dataset}.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param planeIndex The index of the plane (as in {@link Dataset#getPlane})
+	 * @param withHistogram True if the coarse histogram is needed as well as the
+	 *          range
+	 */
+	PlaneStatistics getPlaneStatistics(Dataset ds, int planeIndex,
+		boolean withHistogram);
+
+	/**
+	 * Returns the combined statistics of all the XY planes of a {@link Dataset}.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param withHistogram True if the coarse histogram is needed as well as the
+	 *          range
+	 */
+	PlaneStatistics getStatistics(Dataset ds, boolean withHistogram);
+
+	/**
+	 * Returns the combined statistics of an interval if it consists of entire XY
+	 * planes of an image (or of a view of one). Returns null otherwise, in which
+	 * case the caller must compute the statistics itself.
+	 * 
+	 * @param interval The interval to measure
+	 * @param withHistogram True if the coarse histogram is needed as well as the
+	 *          range
+	 */
+	PlaneStatistics getStatistics(
+		IterableInterval<? extends RealType<?>> interval, boolean withHistogram);
+
+	/** Discards all cached statistics of a {@link Dataset}. */
+	void invalidate(Dataset ds);
+
+}
@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import java.util.EnumSet;
+
+/**
+ * The statistics that can be computed together in a single pass over a region
+ * of a {@link imagej.data.Dataset} via
+ * {@link StatisticsService#measureAll(imagej.data.Dataset, net.imglib2.ops.pointset.PointSet, EnumSet)}
+ * .
+ */
+public enum Statistic {
+	ARITHMETIC_MEAN("Mean"),
+	GEOMETRIC_MEAN("Geometric mean"),
+	HARMONIC_MEAN("Harmonic mean"),
+	MAXIMUM("Max"),
+	MEDIAN("Median", true),
+	MIDPOINT("Midpoint"),
+	MINIMUM("Min"),
+	POPULATION_KURTOSIS("Population kurtosis"),
+	POPULATION_KURTOSIS_EXCESS("Population kurtosis excess"),
+	POPULATION_SKEW("Population skew"),
+	POPULATION_STD_DEV("Population std dev"),
+	POPULATION_VARIANCE("Population variance"),
+	PRODUCT("Product"),
+	SAMPLE_KURTOSIS("Sample kurtosis"),
+	SAMPLE_KURTOSIS_EXCESS("Sample kurtosis excess"),
+	SAMPLE_SKEW("Sample skew"),
+	SAMPLE_STD_DEV("Sample std dev"),
+	SAMPLE_VARIANCE("Sample variance"),
+	SUM("Sum"),
+	SUM_OF_SQUARED_DEVIATIONS("Sum of squared deviations");
+
+	private final String label;
+	private final boolean orderStatistic;
+
+	private Statistic(final String label) {
+		this(label, false);
+	}
+
+	private Statistic(final String label, final boolean orderStatistic) {
+		this.label = label;
+		this.orderStatistic = orderStatistic;
+	}
+
+	// -- Statistic methods --
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Returns true if this statistic depends upon the ordering of the samples
+	 * (such as the median) and thus cannot be computed from running moments
+	 * alone.
+	 */
+	public boolean isOrderStatistic() {
+		return orderStatistic;
+	}
+
+	/** Returns true if any of the given statistics is an order statistic. */
+	public static boolean anyOrderStatistic(final EnumSet<Statistic> stats) {
+		for (final Statistic stat : stats) {
+			if (stat.isOrderStatistic()) return true;
+		}
+		return false;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return label;
+	}
+
+}
@@ -0,0 +1,257 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+/**
+ * Accumulates running moments of a stream of samples so that all of the
+ * moment-based {@link Statistic}s can be computed from a single pass over the
+ * data. Partial accumulators that were filled independently (for instance by
+ * different threads working on different chunks of a region) can be combined
+ * with {@link #merge(StatisticsAccumulator)}.
+ * <p>
+ * The update and merge formulas are the numerically stable ones described by
+ * Terriberry and by Pebay ("Formulas for Robust, One-Pass Parallel Computation
+ * of Covariances and Arbitrary-Order Statistical Moments", 2008).
+ * </p>
+ */
+public class StatisticsAccumulator {
+
+	// -- instance variables --
+
+	private long n;
+	private double mean;
+	private double m2;
+	private double m3;
+	private double m4;
+	private double min;
+	private double max;
+	private double sum;
+	private double sumOfLogs;
+	private double sumOfReciprocals;
+	private double product;
+
+	// -- constructor --
+
+	/** Creates an empty accumulator. */
+	public StatisticsAccumulator() {
+		reset();
+	}
+
+	// -- StatisticsAccumulator methods --
+
+	/** Discards all accumulated samples. */
+	public void reset() {
+		n = 0;
+		mean = 0;
+		m2 = 0;
+		m3 = 0;
+		m4 = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+		sum = 0;
+		sumOfLogs = 0;
+		sumOfReciprocals = 0;
+		product = 1;
+	}
+
+	/** Adds a sample to the accumulated statistics. */
+	public void add(final double value) {
+		final long n1 = n;
+		n++;
+		final double delta = value - mean;
+		final double deltaN = delta / n;
+		final double deltaN2 = deltaN * deltaN;
+		final double term1 = delta * deltaN * n1;
+		mean += deltaN;
+		m4 +=
+			term1 * deltaN2 * ((double) n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 *
+				deltaN * m3;
+		m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+		m2 += term1;
+		if (value < min) min = value;
+		if (value > max) max = value;
+		sum += value;
+		sumOfLogs += Math.log(value);
+		sumOfReciprocals += 1 / value;
+		product *= value;
+	}
+
+	/**
+	 * Adds the same sample value a number of times. This is useful when the
+	 * samples come from a histogram rather than from the data directly.
+	 */
+	public void add(final double value, final long count) {
+		if (count <= 0) return;
+		final StatisticsAccumulator other = new StatisticsAccumulator();
+		other.n = count;
+		other.mean = value;
+		other.min = value;
+		other.max = value;
+		other.sum = value * count;
+		other.sumOfLogs = Math.log(value) * count;
+		other.sumOfReciprocals = count / value;
+		other.product = Math.pow(value, count);
+		merge(other);
+	}
+
+	/**
+	 * Combines the samples accumulated by another accumulator into this one. The
+	 * other accumulator is left unchanged.
+	 */
+	public void merge(final StatisticsAccumulator other) {
+		if (other.n == 0) return;
+		if (n == 0) {
+			copyFrom(other);
+			return;
+		}
+		final double na = n;
+		final double nb = other.n;
+		final double nn = na + nb;
+		final double delta = other.mean - mean;
+		final double delta2 = delta * delta;
+		final double delta3 = delta2 * delta;
+		final double delta4 = delta2 * delta2;
+		final double newM2 = m2 + other.m2 + delta2 * na * nb / nn;
+		final double newM3 =
+			m3 + other.m3 + delta3 * na * nb * (na - nb) / (nn * nn) + 3 * delta *
+				(na * other.m2 - nb * m2) / nn;
+		final double newM4 =
+			m4 + other.m4 + delta4 * na * nb * (na * na - na * nb + nb * nb) /
+				(nn * nn * nn) + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) /
+				(nn * nn) + 4 * delta * (na * other.m3 - nb * m3) / nn;
+		mean += delta * nb / nn;
+		m2 = newM2;
+		m3 = newM3;
+		m4 = newM4;
+		n += other.n;
+		if (other.min < min) min = other.min;
+		if (other.max > max) max = other.max;
+		sum += other.sum;
+		sumOfLogs += other.sumOfLogs;
+		sumOfReciprocals += other.sumOfReciprocals;
+		product *= other.product;
+	}
+
+	/** Returns the number of samples accumulated so far. */
+	public long getCount() {
+		return n;
+	}
+
+	/**
+	 * Returns the value of a moment-based {@link Statistic} for the samples
+	 * accumulated so far. Returns NaN if no samples have been accumulated.
+	 * 
+	 * @throws IllegalArgumentException if the statistic is an order statistic
+	 */
+	public double get(final Statistic stat) {
+		if (stat.isOrderStatistic()) {
+			throw new IllegalArgumentException("Cannot compute " + stat +
+				" from running moments");
+		}
+		if (n == 0) return Double.NaN;
+		switch (stat) {
+			case ARITHMETIC_MEAN:
+				return mean;
+			case GEOMETRIC_MEAN:
+				return Math.exp(sumOfLogs / n);
+			case HARMONIC_MEAN:
+				return n / sumOfReciprocals;
+			case MAXIMUM:
+				return max;
+			case MIDPOINT:
+				return (min + max) / 2;
+			case MINIMUM:
+				return min;
+			case POPULATION_KURTOSIS:
+				return populationKurtosis();
+			case POPULATION_KURTOSIS_EXCESS:
+				return populationKurtosis() - 3;
+			case POPULATION_SKEW:
+				return populationSkew();
+			case POPULATION_STD_DEV:
+				return Math.sqrt(m2 / n);
+			case POPULATION_VARIANCE:
+				return m2 / n;
+			case PRODUCT:
+				return product;
+			case SAMPLE_KURTOSIS:
+				return sampleKurtosisExcess() + 3;
+			case SAMPLE_KURTOSIS_EXCESS:
+				return sampleKurtosisExcess();
+			case SAMPLE_SKEW:
+				return populationSkew() * Math.sqrt((double) n * (n - 1)) / (n - 2);
+			case SAMPLE_STD_DEV:
+				return Math.sqrt(m2 / (n - 1));
+			case SAMPLE_VARIANCE:
+				return m2 / (n - 1);
+			case SUM:
+				return sum;
+			case SUM_OF_SQUARED_DEVIATIONS:
+				return m2;
+			default:
+				throw new IllegalArgumentException("Unknown statistic: " + stat);
+		}
+	}
+
+	// -- helpers --
+
+	private double populationSkew() {
+		return Math.sqrt(n) * m3 / Math.pow(m2, 1.5);
+	}
+
+	private double populationKurtosis() {
+		return n * m4 / (m2 * m2);
+	}
+
+	private double sampleKurtosisExcess() {
+		final double excess = populationKurtosis() - 3;
+		return (n - 1.0) / ((n - 2.0) * (n - 3.0)) * ((n + 1) * excess + 6);
+	}
+
+	private void copyFrom(final StatisticsAccumulator other) {
+		n = other.n;
+		mean = other.mean;
+		m2 = other.m2;
+		m3 = other.m3;
+		m4 = other.m4;
+		min = other.min;
+		max = other.max;
+		sum = other.sum;
+		sumOfLogs = other.sumOfLogs;
+		sumOfReciprocals = other.sumOfReciprocals;
+		product = other.product;
+	}
+}
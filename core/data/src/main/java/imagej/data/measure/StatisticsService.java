@@ -37,19 +37,22 @@
 
 import imagej.data.Dataset;
 import imagej.service.ImageJService;
+
+import java.util.EnumSet;
+import java.util.Map;
+
 import net.imglib2.ops.pointset.PointSet;
 
 // TODO - make MeasurementService smarter. Compute values without always
-// revisiting the pixels. This current impl goes over pixels once for each
-// measurement. I will mock something up soon. BDZ
+// revisiting the pixels. The single statistic methods here go over the pixels
+// once for each measurement. measureAll() batches the non-parameterized
+// statistics into a single pass.
 
 // TODO - this service is limited to only the kinds of stats it knows. It can't
 // measure a user provided statistic. This can be done by calling the
 // MeasurementService more directly.
-// Also this service calcs one measure at a time. Our future MeasurementService
-// should be able to batch them together. It also might be nice to be able to
-// specify to this service gather min,var,stdev,median in an array of output
-// doubles.
+// Also the parameterized measures (trimmed means, weighted sums, etc.) are
+// still calculated one at a time.
 
 // TODO - see what IJ1 calculates and provide such methods here and in OPS
 
@@ -535,6 +538,32 @@ public interface StatisticsService extends ImageJService {
 	 */
 	double weightedSum(Dataset ds, PointSet region, double[] weights);
 
+	/**
+	 * Computes a set of {@link Statistic}s of the values within a
+	 * {@link PointSet} region of a {@link Dataset}. Unlike the single statistic
+	 * methods of this service the pixels are visited only once no matter how
+	 * many statistics are requested. Hyper-rectangular regions are processed in
+	 * parallel.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param region The PointSet region upon which to calculate
+	 * @param stats The statistics to calculate
+	 * @return A map from each requested statistic to its measured value
+	 */
+	Map<Statistic, Double> measureAll(Dataset ds, PointSet region,
+		EnumSet<Statistic> stats);
+
+	/**
+	 * Computes a set of {@link Statistic}s of the values of a {@link Dataset}.
+	 * The pixels are visited only once no matter how many statistics are
+	 * requested.
+	 * 
+	 * @param ds The Dataset to measure
+	 * @param stats The statistics to calculate
+	 * @return A map from each requested statistic to its measured value
+	 */
+	Map<Statistic, Double> measureAll(Dataset ds, EnumSet<Statistic> stats);
+
 	/**
 	 * A convenience function for defining a {@link PointSet} that encompasses all
 	 * the points within a {@link Dataset}.
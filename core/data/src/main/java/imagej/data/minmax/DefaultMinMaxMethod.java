@@ -35,7 +35,15 @@
 
 package imagej.data.minmax;
 
+import imagej.data.PrimitiveStorage;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.imglib2.Cursor;
@@ -45,6 +53,8 @@
 import net.imglib2.multithreading.Chunk;
 import net.imglib2.multithreading.SimpleMultiThreading;
 import net.imglib2.type.Type;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.LongType;
 import net.imglib2.util.Util;
 import net.imglib2.view.Views;
 
@@ -56,6 +66,14 @@
 /**
  * A {@link MinMaxMethod} implementation that forks
  * {@link net.imglib2.algorithm.stats.ComputeMinMax}.
+ * <p>
+ * Images backed by primitive arrays (see {@link PrimitiveStorage}) are scanned
+ * directly, one plane at a time. All other images, and {@link LongType} images
+ * whose values a double cannot always hold exactly, are scanned through
+ * cursors in contiguous chunks. Either way the units of work are shared among
+ * a fixed number of worker threads and progress is reported per unit rather
+ * than per pixel.
+ * </p>
  * 
  * @author Mark Hiner
  */
@@ -68,6 +86,9 @@
 
 	private final int MAX_UPDATES = 100;
 
+	/** The smallest number of pixels worth treating as a unit of work. */
+	private final long MIN_CHUNK_SIZE = 65536;
+
 	// -- Fields --
 
 	@Parameter
@@ -76,12 +97,14 @@
 	@Parameter(required = false)
 	private StatusService statusService;
 
-	// Number of positions processed
-	private long progress = -1l;
-	// Limit how many times to send status updates
+	// Number of work units processed
+	private AtomicInteger progress;
+
+	// Number of work units in total
+	private int unitCount;
 
 	// Last reported percentage
-	private int reported = -1;
+	private volatile int reported = -1;
 
 	private long imageSize;
 	private IterableInterval<T> image;
@@ -96,7 +119,7 @@
 
 	@Override
 	public void initialize(final Img<T> img, final T min, final T max) {
-		initialize(img, min, max);
+		initialize((IterableInterval<T>) img, min, max);
 	}
 
 	@Override
@@ -114,12 +137,12 @@ public void initialize(final IterableInterval<T> interval, final T min,
 	public void initialize(final RandomAccessibleInterval<T> interval,
 		final T min, final T max)
 	{
-		initialize(interval, min, max);
+		initialize(Views.iterable(interval), min, max);
 	}
 
 	@Override
 	public void initialize(final Img<T> img) {
-		initialize(img);
+		initialize((IterableInterval<T>) img);
 	}
 
 	@Override
@@ -151,51 +174,16 @@ public boolean process() {
 		final long startTime = System.currentTimeMillis();
 
 		imageSize = image.size();
+		progress = new AtomicInteger(0);
+		reported = -1;
 
-		report();
-
-		final AtomicInteger ai = new AtomicInteger(0);
-		final Thread[] threads = SimpleMultiThreading.newThreads(getNumThreads());
-
-		final Vector<Chunk> threadChunks =
-			SimpleMultiThreading.divideIntoChunks(imageSize, numThreads);
-		final Vector<T> minValues = new Vector<T>();
-		final Vector<T> maxValues = new Vector<T>();
-
-		for (int ithread = 0; ithread < threads.length; ++ithread) {
-			minValues.add(image.firstElement().createVariable());
-			maxValues.add(image.firstElement().createVariable());
-
-			threads[ithread] = threadService.newThread(new Runnable() {
-
-				@Override
-				public void run() {
-					// Thread ID
-					final int myNumber = ai.getAndIncrement();
-
-					// get chunk of pixels to process
-					final Chunk myChunk = threadChunks.get(myNumber);
-
-					// compute min and max
-					compute(myChunk.getStartPosition(), myChunk.getLoopSize(), minValues
-						.get(myNumber), maxValues.get(myNumber));
-
-				}
-			});
-		}
-
-		SimpleMultiThreading.startAndJoin(threads);
-
-		// compute overall min and max
-		min.set(minValues.get(0));
-		max.set(maxValues.get(0));
+		final T type = image.firstElement();
+		final List<Object> arrays =
+			PrimitiveStorage.isPrimitiveType(type) && type instanceof RealType &&
+				!(type instanceof LongType) ? PrimitiveStorage.getArrays(image) : null;
 
-		for (int i = 0; i < threads.length; ++i) {
-			T value = minValues.get(i);
-			if (Util.min(min, value) == value) min.set(value);
-
-			value = maxValues.get(i);
-			if (Util.max(max, value) == value) max.set(value);
+		if (arrays == null || arrays.isEmpty() || !processArrays(arrays)) {
+			processChunks();
 		}
 
 		processingTime = System.currentTimeMillis() - startTime;
@@ -230,8 +218,6 @@ protected void compute(final long startPos, final long loopSize, final T min,
 			if (Util.min(min, value) == value) min.set(value);
 
 			if (Util.max(max, value) == value) max.set(value);
-
-			report();
 		}
 	}
 
@@ -279,20 +265,136 @@ private void init() {
 		initialized = true;
 	}
 
-	// Reports the current progress
+	/**
+	 * Scans primitive storage arrays (typically one per plane) directly. Each
+	 * worker keeps its own running {min, max} pair.
+	 * 
+	 * @return false if {@link PrimitiveMinMax} cannot scan the arrays, in which
+	 *         case min and max are left untouched
+	 */
+	private boolean processArrays(final List<Object> arrays) {
+		final boolean unsigned = PrimitiveStorage.isUnsigned(image.firstElement());
+		unitCount = arrays.size();
+		final AtomicInteger nextUnit = new AtomicInteger(0);
+		final AtomicBoolean unsupported = new AtomicBoolean();
+		final List<Future<double[]>> futures = new ArrayList<Future<double[]>>();
+		for (int t = 0; t < workerCount(); t++) {
+			futures.add(threadService.run(new Callable<double[]>() {
+
+				@Override
+				public double[] call() {
+					final double[] minMax =
+						{ Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+					int unit;
+					while ((unit = nextUnit.getAndIncrement()) < unitCount) {
+						if (!PrimitiveMinMax.scan(arrays.get(unit), unsigned, minMax)) {
+							unsupported.set(true);
+							break;
+						}
+						report();
+					}
+					return minMax;
+				}
+			}));
+		}
+		final double[] result =
+			{ Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (final Future<double[]> future : futures) {
+			final double[] minMax = waitFor(future);
+			if (minMax[0] < result[0]) result[0] = minMax[0];
+			if (minMax[1] > result[1]) result[1] = minMax[1];
+		}
+		if (unsupported.get()) {
+			// start over, reporting the progress of the chunks instead
+			progress.set(0);
+			reported = -1;
+			return false;
+		}
+		((RealType<?>) min).setReal(result[0]);
+		((RealType<?>) max).setReal(result[1]);
+		return true;
+	}
+
+	/**
+	 * Scans the image through cursors, in contiguous chunks. Each worker keeps
+	 * its own running min and max.
+	 */
+	private void processChunks() {
+		unitCount =
+			(int) Math.max(1, Math.min(MAX_UPDATES, imageSize / MIN_CHUNK_SIZE));
+		final Vector<Chunk> chunks =
+			SimpleMultiThreading.divideIntoChunks(imageSize, unitCount);
+		final AtomicInteger nextUnit = new AtomicInteger(0);
+		final List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>();
+		for (int t = 0; t < workerCount(); t++) {
+			futures.add(threadService.run(new Callable<List<T>>() {
+
+				@Override
+				public List<T> call() {
+					final T workerMin = image.firstElement().copy();
+					final T workerMax = workerMin.copy();
+					final T chunkMin = workerMin.createVariable();
+					final T chunkMax = workerMin.createVariable();
+					int unit;
+					while ((unit = nextUnit.getAndIncrement()) < chunks.size()) {
+						final Chunk chunk = chunks.get(unit);
+						compute(chunk.getStartPosition(), chunk.getLoopSize(), chunkMin,
+							chunkMax);
+						if (Util.min(workerMin, chunkMin) == chunkMin) workerMin.set(chunkMin);
+						if (Util.max(workerMax, chunkMax) == chunkMax) workerMax.set(chunkMax);
+						report();
+					}
+					final List<T> minMax = new ArrayList<T>();
+					minMax.add(workerMin);
+					minMax.add(workerMax);
+					return minMax;
+				}
+			}));
+		}
+
+		// compute overall min and max
+		min.set(image.firstElement());
+		max.set(image.firstElement());
+
+		for (final Future<List<T>> future : futures) {
+			final List<T> minMax = waitFor(future);
+			T value = minMax.get(0);
+			if (Util.min(min, value) == value) min.set(value);
+
+			value = minMax.get(1);
+			if (Util.max(max, value) == value) max.set(value);
+		}
+	}
+
+	/** Returns the number of worker threads to use for the current units. */
+	private int workerCount() {
+		return Math.max(1, Math.min(getNumThreads(), unitCount));
+	}
+
+	private <R> R waitFor(final Future<R> future) {
+		try {
+			return future.get();
+		}
+		catch (final InterruptedException e) {
+			throw new IllegalStateException("Computing min/max interrupted", e);
+		}
+		catch (final ExecutionException e) {
+			throw new IllegalStateException("Error computing min/max", e.getCause());
+		}
+	}
+
+	// Reports the current progress, once per completed unit of work
 	private void report() {
 		if (statusService == null) return; // nothing to report to, please move along
-		progress++;
-		final double percentWork = ((double) progress / imageSize) * MAX_UPDATES;
+		final int done = progress.incrementAndGet();
+		final int percentWork = (int) ((double) done / unitCount * MAX_UPDATES);
 
 		if (percentWork > reported) {
 			synchronized (this) {
 				// NB: check twice in case another thread has already reported the
 				// status.
-				// We do this to avoid executing a synchronized block for each pixel
-				// analyzed.
 				if (percentWork > reported) {
-					reported++;
+					reported = percentWork;
 					statusService.showStatus(reported, MAX_UPDATES,
 						"Computing min/max...");
 				}
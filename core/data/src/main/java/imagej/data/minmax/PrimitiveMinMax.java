@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.minmax;
+
+/**
+ * Computes the minimum and maximum of primitive storage arrays directly,
+ * without going through imglib2 types. Used by {@link DefaultMinMaxMethod} for
+ * images backed by primitive arrays.
+ */
+public final class PrimitiveMinMax {
+
+	private PrimitiveMinMax() {
+		// prevent instantiation of utility class
+	}
+
+	/**
+	 * Scans a byte[], short[], int[], long[], float[] or double[] array and
+	 * widens the given {min, max} pair to include all of its values. Values of a
+	 * long[] array beyond 2^53 are rounded to the nearest double; use
+	 * {@link #scan(long[], long[])} where the exact range matters.
+	 * 
+	 * @param array The primitive storage array
+	 * @param unsigned True if integer elements hold unsigned values
+	 * @param minMax A two element array holding the running {min, max}
+	 * @return false if the array is of an unsupported kind
+	 */
+	public static boolean scan(final Object array, final boolean unsigned,
+		final double[] minMax)
+	{
+		if (array instanceof byte[]) {
+			final byte[] a = (byte[]) array;
+			if (a.length == 0) return true;
+			int lo, hi;
+			if (unsigned) {
+				lo = hi = a[0] & 0xff;
+				for (int i = 1; i < a.length; i++) {
+					final int v = a[i] & 0xff;
+					if (v < lo) lo = v;
+					else if (v > hi) hi = v;
+				}
+			}
+			else {
+				lo = hi = a[0];
+				for (int i = 1; i < a.length; i++) {
+					final int v = a[i];
+					if (v < lo) lo = v;
+					else if (v > hi) hi = v;
+				}
+			}
+			update(minMax, lo, hi);
+			return true;
+		}
+		if (array instanceof short[]) {
+			final short[] a = (short[]) array;
+			if (a.length == 0) return true;
+			int lo, hi;
+			if (unsigned) {
+				lo = hi = a[0] & 0xffff;
+				for (int i = 1; i < a.length; i++) {
+					final int v = a[i] & 0xffff;
+					if (v < lo) lo = v;
+					else if (v > hi) hi = v;
+				}
+			}
+			else {
+				lo = hi = a[0];
+				for (int i = 1; i < a.length; i++) {
+					final int v = a[i];
+					if (v < lo) lo = v;
+					else if (v > hi) hi = v;
+				}
+			}
+			update(minMax, lo, hi);
+			return true;
+		}
+		if (array instanceof int[]) {
+			final int[] a = (int[]) array;
+			if (a.length == 0) return true;
+			long lo, hi;
+			if (unsigned) {
+				lo = hi = a[0] & 0xffffffffL;
+				for (int i = 1; i < a.length; i++) {
+					final long v = a[i] & 0xffffffffL;
+					if (v < lo) lo = v;
+					else if (v > hi) hi = v;
+				}
+			}
+			else {
+				lo = hi = a[0];
+				for (int i = 1; i < a.length; i++) {
+					final int v = a[i];
+					if (v < lo) lo = v;
+					else if (v > hi) hi = v;
+				}
+			}
+			update(minMax, lo, hi);
+			return true;
+		}
+		if (array instanceof long[]) {
+			final long[] a = (long[]) array;
+			if (a.length == 0) return true;
+			final long[] range = { a[0], a[0] };
+			scan(a, range);
+			update(minMax, range[0], range[1]);
+			return true;
+		}
+		if (array instanceof float[]) {
+			final float[] a = (float[]) array;
+			if (a.length == 0) return true;
+			float lo = a[0], hi = a[0];
+			for (int i = 1; i < a.length; i++) {
+				final float v = a[i];
+				if (v < lo) lo = v;
+				else if (v > hi) hi = v;
+			}
+			update(minMax, lo, hi);
+			return true;
+		}
+		if (array instanceof double[]) {
+			final double[] a = (double[]) array;
+			if (a.length == 0) return true;
+			double lo = a[0], hi = a[0];
+			for (int i = 1; i < a.length; i++) {
+				final double v = a[i];
+				if (v < lo) lo = v;
+				else if (v > hi) hi = v;
+			}
+			update(minMax, lo, hi);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Scans a long[] array and widens the given {min, max} pair to include all
+	 * of its values.
+	 * 
+	 * @param array The primitive storage array
+	 * @param minMax A two element array holding the running {min, max}
+	 */
+	public static void scan(final long[] array, final long[] minMax) {
+		long lo = minMax[0], hi = minMax[1];
+		for (int i = 0; i < array.length; i++) {
+			final long v = array[i];
+			if (v < lo) lo = v;
+			if (v > hi) hi = v;
+		}
+		minMax[0] = lo;
+		minMax[1] = hi;
+	}
+
+	// -- Helper methods --
+
+	private static void update(final double[] minMax, final double lo,
+		final double hi)
+	{
+		if (lo < minMax[0]) minMax[0] = lo;
+		if (hi > minMax[1]) minMax[1] = hi;
+	}
+}
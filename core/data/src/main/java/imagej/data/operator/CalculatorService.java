@@ -85,4 +85,29 @@ public interface CalculatorService extends SingletonService<CalculatorOp<?, ?>>
 	<U extends RealType<U>, V extends RealType<V>> Img<DoubleType> combine(
 		Img<U> img1, Img<V> img2, CalculatorOp<U, V> op);
 
+	/**
+	 * Combines two input {@link Img}s pixel by pixel using a given
+	 * {@link CalculatorOp}, writing each result straight into the given output
+	 * {@link Img}. No intermediate image is allocated, and the work is split
+	 * across threads. The output may be one of the inputs, in which case the
+	 * combination happens in place.
+	 * 
+	 * @param img1 data input Img 1
+	 * @param img2 data input Img 2
+	 * @param op The CalculatorOp algorithm used to combine the two inputs
+	 * @param output The Img receiving the combined data. It must be at least as
+	 *          large as the region of overlap between the two inputs.
+	 * @throws IllegalArgumentException if the inputs differ in dimensionality or
+	 *           the output does not cover their region of overlap
+	 */
+	<U extends RealType<U>, V extends RealType<V>> void combine(Img<U> img1,
+		Img<V> img2, CalculatorOp<U, V> op, Img<? extends RealType<?>> output);
+
+	/**
+	 * Returns the dimensions of the region of overlap between two {@link Img}s.
+	 * 
+	 * @throws IllegalArgumentException if the Imgs differ in dimensionality
+	 */
+	long[] overlap(Img<?> img1, Img<?> img2);
+
 }
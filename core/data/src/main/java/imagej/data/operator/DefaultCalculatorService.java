@@ -40,16 +40,21 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgFactory;
-import net.imglib2.ops.img.ImageCombiner;
+import net.imglib2.ops.operation.BinaryOperation;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.DoubleType;
 
 import org.scijava.plugin.AbstractSingletonService;
+import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
 
 /**
  * Default service for managing available {@link CalculatorOp}s.
@@ -61,6 +66,14 @@ public class DefaultCalculatorService extends
 	AbstractSingletonService<CalculatorOp<?, ?>> implements CalculatorService
 {
 
+	/** Minimum number of pixels worth handing to a separate thread. */
+	private static final long MIN_PIXELS_PER_TASK = 64 * 1024;
+
+	// -- Parameters --
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	// -- instance variables --
 
 	private Map<String, CalculatorOp<?, ?>> operators;
@@ -88,8 +101,83 @@ public List<String> getOperatorNames() {
 		combine(final Img<U> img1, final Img<V> img2, final CalculatorOp<U, V> op)
 	{
 		// TODO - limited by ArrayImg size constraints
-		return ImageCombiner.applyOp(op, img1, img2,
-			new ArrayImgFactory<DoubleType>(), new DoubleType());
+		final Img<DoubleType> output =
+			new ArrayImgFactory<DoubleType>().create(overlap(img1, img2),
+				new DoubleType());
+		combine(img1, img2, op, output);
+		return output;
+	}
+
+	@Override
+	public <U extends RealType<U>, V extends RealType<V>> void combine(
+		final Img<U> img1, final Img<V> img2, final CalculatorOp<U, V> op,
+		final Img<? extends RealType<?>> output)
+	{
+		final long[] span = overlap(img1, img2);
+		if (output.numDimensions() != span.length) {
+			throw new IllegalArgumentException(
+				"Output image does not match the dimensionality of the inputs");
+		}
+		for (int d = 0; d < span.length; d++) {
+			if (output.dimension(d) < span[d]) {
+				throw new IllegalArgumentException(
+					"Output image does not cover the overlap of the inputs");
+			}
+		}
+		if (span.length == 0) return;
+
+		// one row is a line of pixels along the first dimension
+		long rows = 1;
+		for (int d = 1; d < span.length; d++) {
+			rows *= span[d];
+		}
+		if (rows == 0 || span[0] == 0) return;
+
+		final long cpus = Runtime.getRuntime().availableProcessors();
+		final long tasks =
+			threadService == null ? 1 : Math.max(1, Math.min(Math.min(cpus, rows),
+				rows * span[0] / MIN_PIXELS_PER_TASK));
+		if (tasks == 1) {
+			combineRows(img1, img2, op, output, span, 0, rows);
+			return;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		final long rowsPerTask = (rows + tasks - 1) / tasks;
+		for (long r = 0; r < rows; r += rowsPerTask) {
+			final long r0 = r;
+			final long r1 = Math.min(rows, r + rowsPerTask);
+			futures.add(threadService.run(new Runnable() {
+
+				@Override
+				public void run() {
+					combineRows(img1, img2, op, output, span, r0, r1);
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	@Override
+	public long[] overlap(final Img<?> img1, final Img<?> img2) {
+		if (img1.numDimensions() != img2.numDimensions()) {
+			throw new IllegalArgumentException(
+				"Input images do not have the same number of dimensions");
+		}
+		final long[] span = new long[img1.numDimensions()];
+		for (int d = 0; d < span.length; d++) {
+			span[d] = Math.min(img1.dimension(d), img2.dimension(d));
+		}
+		return span;
 	}
 
 	// -- PTService methods --
@@ -112,6 +200,42 @@ private void buildDataStructures() {
 		}
 	}
 
+	/**
+	 * Combines rows {@code r0} (inclusive) to {@code r1} (exclusive) of the
+	 * overlap region. Each call works on its own copy of the operation, so rows
+	 * can be combined concurrently.
+	 */
+	private <U extends RealType<U>, V extends RealType<V>> void combineRows(
+		final Img<U> img1, final Img<V> img2, final CalculatorOp<U, V> op,
+		final Img<? extends RealType<?>> output, final long[] span,
+		final long r0, final long r1)
+	{
+		final RandomAccess<U> in1 = img1.randomAccess();
+		final RandomAccess<V> in2 = img2.randomAccess();
+		final RandomAccess<? extends RealType<?>> out = output.randomAccess();
+		final BinaryOperation<U, V, DoubleType> operation = op.copy();
+		final DoubleType value = new DoubleType();
+		final long[] pos = new long[span.length];
+		for (long r = r0; r < r1; r++) {
+			long index = r;
+			for (int d = 1; d < span.length; d++) {
+				pos[d] = index % span[d];
+				index /= span[d];
+			}
+			pos[0] = 0;
+			in1.setPosition(pos);
+			in2.setPosition(pos);
+			out.setPosition(pos);
+			for (long x = 0; x < span[0]; x++) {
+				operation.compute(in1.get(), in2.get(), value);
+				out.get().setReal(value.getRealDouble());
+				in1.fwd(0);
+				in2.fwd(0);
+				out.fwd(0);
+			}
+		}
+	}
+
 	private Map<String, CalculatorOp<?, ?>> operators() {
 		if (operators == null) buildDataStructures();
 		return operators;
@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.options;
+
+import imagej.data.DatasetService;
+import imagej.menu.MenuConstants;
+import imagej.options.OptionsPlugin;
+
+import org.scijava.plugin.Menu;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+
+/**
+ * Runs the Edit::Options::Large Images dialog.
+ * <p>
+ * These options control when {@link DatasetService#open(String)} opens a file
+ * lazily, i.e. as a cell image whose blocks are read on demand rather than all
+ * at once.
+ * </p>
+ * <p>
+ * Cells of a lazily opened image are held in memory through soft references.
+ * Cells dropped under memory pressure are kept in SCIFIO's cell cache on disk,
+ * whose size is bounded by the cell cache size option, so that they can be
+ * read back without parsing the file again.
+ * </p>
+ */
+@Plugin(type = OptionsPlugin.class, menu = {
+	@Menu(label = MenuConstants.EDIT_LABEL, weight = MenuConstants.EDIT_WEIGHT,
+		mnemonic = MenuConstants.EDIT_MNEMONIC),
+	@Menu(label = "Options", mnemonic = 'o'),
+	@Menu(label = "Large Images...", weight = 18) })
+public class OptionsLargeImages extends OptionsPlugin {
+
+	/** Default size (in MB) above which files are opened lazily. */
+	public static final int DEFAULT_LAZY_THRESHOLD = 1024;
+
+	/** Default size (in MB) of the cell cache of lazily opened files. */
+	public static final int DEFAULT_CELL_CACHE_SIZE = 4096;
+
+	// -- instance variables that are Parameters --
+
+	@Parameter(label = "Open large files lazily")
+	private boolean lazyOpening = true;
+
+	@Parameter(label = "Lazy opening threshold (MB)", min = "1")
+	private int lazyThreshold = DEFAULT_LAZY_THRESHOLD;
+
+	@Parameter(label = "Cell cache size (MB)", min = "1")
+	private int cellCacheSize = DEFAULT_CELL_CACHE_SIZE;
+
+	// -- OptionsLargeImages methods --
+
+	/** Returns true if large files should be opened lazily. */
+	public boolean isLazyOpening() {
+		return lazyOpening;
+	}
+
+	/** Returns the file size (in MB) above which files are opened lazily. */
+	public int getLazyThreshold() {
+		return lazyThreshold;
+	}
+
+	/** Returns the maximum size (in MB) of the cell cache. */
+	public int getCellCacheSize() {
+		return cellCacheSize;
+	}
+
+	public void setLazyOpening(final boolean lazyOpening) {
+		this.lazyOpening = lazyOpening;
+	}
+
+	public void setLazyThreshold(final int lazyThreshold) {
+		this.lazyThreshold = lazyThreshold;
+	}
+
+	public void setCellCacheSize(final int cellCacheSize) {
+		this.cellCacheSize = cellCacheSize;
+	}
+
+}
@@ -36,10 +36,19 @@
 package imagej.data.overlay;
 
 import imagej.data.Dataset;
+import imagej.data.PrimitiveStorage;
 import imagej.data.event.DatasetRestructuredEvent;
+import imagej.data.event.DatasetUpdatedEvent;
 import imagej.display.Displayable;
 import imagej.util.ColorRGB;
 import imagej.util.Colors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.RandomAccess;
 import net.imglib2.meta.AxisType;
 import net.imglib2.meta.CalibratedAxis;
 import net.imglib2.meta.ImgPlus;
@@ -59,6 +68,7 @@
 
 import org.scijava.Context;
 import org.scijava.event.EventHandler;
+import org.scijava.thread.ThreadService;
 
 /**
  * A {@link ThresholdOverlay} is an {@link Overlay} that represents the set of
@@ -69,6 +79,23 @@
 public class ThresholdOverlay extends AbstractOverlay
 {
 
+	// -- constants --
+
+	/** Class of points whose values are less than the threshold range. */
+	public static final byte CLASS_LESS = 0;
+
+	/** Class of points whose values are within the threshold range. */
+	public static final byte CLASS_WITHIN = 1;
+
+	/** Class of points whose values are greater than the threshold range. */
+	public static final byte CLASS_GREATER = 2;
+
+	/** Class of points whose values are NaN. */
+	public static final byte CLASS_NAN = 3;
+
+	/** Minimum number of points worth classifying on a separate thread. */
+	private static final int MIN_POINTS_PER_TASK = 64 * 1024;
+
 	// -- instance variables --
 
 	private final Dataset dataset;
@@ -89,6 +116,12 @@ public class ThresholdOverlay extends AbstractOverlay
 	private ColorRGB colorGreater;
 	private String defaultName;
 
+	// the most recently classified plane region
+	private byte[] classes;
+	private long[] classesPosition;
+	private int classesX, classesY, classesWidth, classesHeight;
+	private byte[] classLUT;
+
 	// -- ThresholdOverlay methods --
 
 	/**
@@ -156,6 +189,7 @@ public void setRange(double min, double max) {
 		pointsLess.setCondition(conditionLess);
 		pointsWithin.setCondition(conditionWithin);
 		pointsOutside.setCondition(conditionOutside);
+		if (changed) invalidateClasses();
 		setDefaultName(changed);
 	}
 
@@ -336,6 +370,90 @@ public int classify(long[] point) {
 		return 0;
 	}
 
+	/**
+	 * Classifies a rectangular region of one XY plane of the underlying data, as
+	 * {@link #classify(long[])} would classify each of its points. The result
+	 * holds one of {@link #CLASS_LESS}, {@link #CLASS_WITHIN},
+	 * {@link #CLASS_GREATER} or {@link #CLASS_NAN} per point, in row order.
+	 * <p>
+	 * Integer data is classified through a table of every possible value. The
+	 * rows are split across threads. The result is cached until the range, the
+	 * data or the requested region changes, so callers must not modify it.
+	 * </p>
+	 * 
+	 * @param position Position of the plane; only dimensions 2 and up are used
+	 */
+	public synchronized byte[] classifyPlane(final long[] position,
+		final int x, final int y, final int width, final int height)
+	{
+		if (classes != null && classesX == x && classesY == y &&
+			classesWidth == width && classesHeight == height &&
+			samePlane(position, classesPosition))
+		{
+			return classes;
+		}
+		final long[] origin = position.clone();
+		origin[0] = x;
+		final ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
+		final Object[] planes = PrimitiveStorage.getPlanes(imgPlus);
+		final byte[] lut = classLUT(planes, imgPlus);
+		Object plane = null;
+		int offset = 0;
+		if (lut != null) {
+			final int planeIndex = PrimitiveStorage.planeIndex(imgPlus, origin);
+			if (planes.length == 1) {
+				// array image: all planes share one array
+				plane = planes[0];
+				offset = planeIndex * (int) PrimitiveStorage.planeSize(imgPlus);
+			}
+			else plane = planes[planeIndex];
+		}
+		final Object data = plane;
+		final int planeOffset = offset;
+		final byte[] result = new byte[width * height];
+		final int tasks = classifyTasks(width, height);
+		if (tasks == 1) {
+			classifyRows(origin, y, 0, height, width, data, planeOffset, lut,
+				result);
+		}
+		else {
+			final ThreadService threadService =
+				getContext().getService(ThreadService.class);
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			final int rowsPerTask = (height + tasks - 1) / tasks;
+			for (int r = 0; r < height; r += rowsPerTask) {
+				final int r0 = r;
+				final int r1 = Math.min(height, r + rowsPerTask);
+				futures.add(threadService.run(new Runnable() {
+
+					@Override
+					public void run() {
+						classifyRows(origin, y, r0, r1, width, data, planeOffset, lut,
+							result);
+					}
+				}));
+			}
+			for (final Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (final InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				catch (final ExecutionException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		classes = result;
+		classesPosition = origin;
+		classesX = x;
+		classesY = y;
+		classesWidth = width;
+		classesHeight = height;
+		return result;
+	}
+
 	// -- Overlay methods --
 
 	@Override
@@ -422,8 +540,111 @@ protected void onEvent(DatasetRestructuredEvent evt) {
 		}
 	}
 
+	@EventHandler
+	protected void onEvent(DatasetUpdatedEvent evt) {
+		if (evt.getObject() == dataset) invalidateClasses();
+	}
+
 	// -- helpers --
 
+	private synchronized void invalidateClasses() {
+		classes = null;
+		classLUT = null;
+	}
+
+	private boolean samePlane(long[] pos1, long[] pos2) {
+		for (int i = 2; i < pos1.length; i++) {
+			if (pos1[i] != pos2[i]) return false;
+		}
+		return true;
+	}
+
+	private int classifyTasks(int width, int height) {
+		if (getContext() == null) return 1;
+		if (getContext().getService(ThreadService.class) == null) return 1;
+		final long points = (long) width * height;
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		return (int) Math.max(1, Math.min(Math.min(cpus, height), points /
+			MIN_POINTS_PER_TASK));
+	}
+
+	// Classifies rows r0 (inclusive) to r1 (exclusive) of a region whose top
+	// left corner is at origin[0], y. Rows of 8 and 16 bit primitive planes are
+	// read from the plane array and go through the class lookup table. Any other
+	// data (plane == null) is read via a RandomAccess.
+
+	private void classifyRows(long[] origin, int y, int r0, int r1, int width,
+		Object plane, int planeOffset, byte[] lut, byte[] result)
+	{
+		final ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
+		final double min = getRangeMin();
+		final double max = getRangeMax();
+		final long[] pos = origin.clone();
+		final RandomAccess<? extends RealType<?>> access =
+			lut == null ? imgPlus.randomAccess() : null;
+		final int bias = lut == null ? 0 : lut.length / 2;
+		final int dataWidth = (int) imgPlus.dimension(0);
+		for (int r = r0; r < r1; r++) {
+			final int rowStart = r * width;
+			final int start = planeOffset + (y + r) * dataWidth + (int) pos[0];
+			if (plane instanceof byte[]) {
+				final byte[] data = (byte[]) plane;
+				for (int i = 0; i < width; i++) {
+					result[rowStart + i] = lut[(data[start + i] + bias) & 0xff];
+				}
+			}
+			else if (plane instanceof short[]) {
+				final short[] data = (short[]) plane;
+				for (int i = 0; i < width; i++) {
+					result[rowStart + i] = lut[(data[start + i] + bias) & 0xffff];
+				}
+			}
+			else {
+				pos[1] = y + r;
+				access.setPosition(pos);
+				for (int i = 0; i < width; i++) {
+					result[rowStart + i] =
+						classOf(access.get().getRealDouble(), min, max);
+					access.fwd(0);
+				}
+			}
+		}
+	}
+
+	// Returns the table giving the class of every raw value of 8 or 16 bit
+	// primitive data, or null for any other kind of data. Index i holds the raw
+	// value (i - bins/2), read as signed or unsigned as the type dictates.
+
+	private byte[] classLUT(Object[] planes,
+		ImgPlus<? extends RealType<?>> imgPlus)
+	{
+		if (planes == null) return null;
+		final int bins;
+		if (planes[0] instanceof byte[]) bins = 1 << 8;
+		else if (planes[0] instanceof short[]) bins = 1 << 16;
+		else return null;
+		if (classLUT != null && classLUT.length == bins) return classLUT;
+		final boolean unsigned =
+			PrimitiveStorage.isUnsigned(imgPlus.firstElement());
+		final double min = getRangeMin();
+		final double max = getRangeMax();
+		final byte[] lut = new byte[bins];
+		for (int i = 0; i < bins; i++) {
+			final int raw = i - bins / 2;
+			final int value = unsigned && raw < 0 ? raw + bins : raw;
+			lut[i] = classOf(value, min, max);
+		}
+		classLUT = lut;
+		return lut;
+	}
+
+	private byte classOf(double value, double min, double max) {
+		if (Double.isNaN(value)) return CLASS_NAN;
+		if (value < min) return CLASS_LESS;
+		if (value > max) return CLASS_GREATER;
+		return CLASS_WITHIN;
+	}
+
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private void init(double min, double max) {
 		ImgPlus<? extends RealType<?>> imgPlus = dataset.getImgPlus();
@@ -468,6 +689,7 @@ private void reinit() {
 		pointsGreater.setCondition(conditionGreater);
 		pointsOutside.setCondition(conditionOutside);
 		// regionAdapter does not need any changes
+		invalidateClasses();
 		setDefaultName(false);
 	}
 
@@ -37,6 +37,7 @@
 
 import imagej.data.Dataset;
 import imagej.data.DatasetService;
+import imagej.data.ImgCopier;
 import imagej.data.display.DatasetView;
 import imagej.data.display.ImageDisplay;
 import imagej.data.display.ImageDisplayService;
@@ -48,7 +49,6 @@
 import java.util.ArrayList;
 import java.util.List;
 
-import net.imglib2.RandomAccess;
 import net.imglib2.display.ColorTable;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
@@ -213,6 +213,20 @@ private ImageDisplay createOutputImage(final SamplingDefinition def) {
 		return (ImageDisplay) displayService.createDisplay(name, output);
 	}
 
+	/**
+	 * Returns true if the given position directly follows, along X, a run of
+	 * the given length which starts at the given position.
+	 */
+	private boolean extendsRun(final long[] runStart, final long[] pos,
+		final int runLength)
+	{
+		if (pos[0] != runStart[0] + runLength) return false;
+		for (int d = 1; d < pos.length; d++) {
+			if (pos[d] != runStart[d]) return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Copies all associated data from a SamplingDefinition to an output image.
 	 */
@@ -226,33 +240,42 @@ private void copyData(final SamplingDefinition def,
 		final Dataset output = (Dataset) outputImage.getActiveView().getData();
 		final long[] inputDims = IntervalUtils.getDims(input);
 		final long[] outputDims = IntervalUtils.getDims(output);
-		final RandomAccess<? extends RealType<?>> inputAccessor =
-			input.getImgPlus().randomAccess();
-		final RandomAccess<? extends RealType<?>> outputAccessor =
-			output.getImgPlus().randomAccess();
+		final ImgCopier copier =
+			new ImgCopier(input.getImgPlus(), output.getImgPlus());
+		// NB: Consecutive positions along X are gathered into runs, which are
+		// then copied in bulk.
+		long[] runInputPos = null;
+		long[] runOutputPos = null;
+		int runLength = 0;
 		while (iter1.hasNext() && iter2.hasNext()) {
 
 			// determine data positions within datasets
 			final long[] inputPos = iter1.next();
 			final long[] outputPos = iter2.next();
-			inputAccessor.setPosition(inputPos);
-			outputAccessor.setPosition(outputPos);
-
-			// copy value
-			final double value = inputAccessor.get().getRealDouble();
-			outputAccessor.get().setReal(value);
-
-			// TODO - notice there is a lot of inefficiency following here.
-			// We are setting color tables once per pixel in image and do a lot of
-			// calculation to figure out what table. This should be done once per
-			// plane.
-			
+
+			// extend the current run if possible
+			if (runLength > 0 && extendsRun(runInputPos, inputPos, runLength) &&
+				extendsRun(runOutputPos, outputPos, runLength))
+			{
+				runLength++;
+				continue;
+			}
+
+			// copy values of the finished run
+			if (runLength > 0) copier.copyRun(runInputPos, runOutputPos, runLength);
+			runInputPos = inputPos.clone();
+			runOutputPos = outputPos.clone();
+			runLength = 1;
+
 			// keep dataset color tables in sync
+			// NB: a run never leaves its plane, so once per run suffices.
 			final int inputPlaneNumber = planeNum(inputDims, inputPos);
 			final ColorTable lut = input.getColorTable(inputPlaneNumber);
 			final int outputPlaneNumber = planeNum(outputDims, outputPos);
 			output.setColorTable(lut, outputPlaneNumber);
 		}
+		if (runLength > 0) copier.copyRun(runInputPos, runOutputPos, runLength);
+
 		// TODO - enable this code
 		// List<Overlay> overlays = overlayService.getOverlays(def.getDisplay());
 		// attachOverlays(def.getDisplay(), outputImage, overlays);
@@ -0,0 +1,175 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.data.options.OptionsLargeImages;
+import imagej.options.OptionsService;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests lazy opening of large files by {@link DatasetService}.
+ */
+public class DatasetServiceTest {
+
+	/** Just over 1 MB of 8-bit pixels. */
+	private static final long[] DIMS = { 1100, 1000 };
+
+	private Context context;
+	private DatasetService datasetService;
+	private OptionsLargeImages options;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		context = new Context();
+		datasetService = context.getService(DatasetService.class);
+		options =
+			context.getService(OptionsService.class).getOptions(
+				OptionsLargeImages.class);
+		options.setLazyOpening(true);
+		options.setLazyThreshold(OptionsLargeImages.DEFAULT_LAZY_THRESHOLD);
+		options.setCellCacheSize(OptionsLargeImages.DEFAULT_CELL_CACHE_SIZE);
+
+		file = File.createTempFile("lazy", ".tif");
+		file.delete();
+		file.deleteOnExit();
+		final Dataset dataset =
+			datasetService.create(DIMS, "lazy", new AxisType[] { Axes.X, Axes.Y },
+				8, false, false);
+		final Cursor<? extends RealType<?>> cursor =
+			dataset.getImgPlus().localizingCursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			cursor.get().setReal(
+				(cursor.getLongPosition(0) * 7 + cursor.getLongPosition(1) * 3) % 256);
+		}
+		datasetService.save(dataset, file.getAbsolutePath());
+		assertTrue(file.length() > 1024 * 1024);
+		assertTrue(file.length() < 2 * 1024 * 1024);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		context.dispose();
+	}
+
+	@Test
+	public void testAboveThresholdOpensLazily() throws IOException {
+		options.setLazyThreshold(1);
+		assertTrue(isCellImg(datasetService.open(file.getAbsolutePath())));
+	}
+
+	@Test
+	public void testBelowThresholdOpensEagerly() throws IOException {
+		options.setLazyThreshold(2);
+		assertFalse(isCellImg(datasetService.open(file.getAbsolutePath())));
+	}
+
+	@Test
+	public void testLazyOpeningDisabled() throws IOException {
+		options.setLazyThreshold(1);
+		options.setLazyOpening(false);
+		assertFalse(isCellImg(datasetService.open(file.getAbsolutePath())));
+	}
+
+	@Test
+	public void testLazyMatchesEager() throws IOException {
+		final Dataset lazy = datasetService.open(file.getAbsolutePath(), true);
+		final Dataset eager = datasetService.open(file.getAbsolutePath(), false);
+		assertTrue(isCellImg(lazy));
+		assertFalse(isCellImg(eager));
+		assertEquals(eager.numDimensions(), lazy.numDimensions());
+		for (int d = 0; d < eager.numDimensions(); d++) {
+			assertEquals(eager.dimension(d), lazy.dimension(d));
+		}
+		assertSameValues(eager.getImgPlus(), lazy.getImgPlus());
+	}
+
+	@Test
+	public void testSmallCellCache() throws IOException {
+		// NB: A cache smaller than the image forces cells to be read again.
+		options.setCellCacheSize(1);
+		final Dataset lazy = datasetService.open(file.getAbsolutePath(), true);
+		final Dataset eager = datasetService.open(file.getAbsolutePath(), false);
+		assertTrue(isCellImg(lazy));
+		assertSameValues(eager.getImgPlus(), lazy.getImgPlus());
+		assertSameValues(eager.getImgPlus(), lazy.getImgPlus());
+	}
+
+	// -- Helper methods --
+
+	private boolean isCellImg(final Dataset dataset) {
+		return dataset.getImgPlus().getImg() instanceof AbstractCellImg;
+	}
+
+	private void assertSameValues(final Img<? extends RealType<?>> expected,
+		final Img<? extends RealType<?>> actual)
+	{
+		final double[] e = new double[(int) expected.size()];
+		final double[] a = new double[(int) actual.size()];
+		final Cursor<? extends RealType<?>> cursor = expected.localizingCursor();
+		final RandomAccess<? extends RealType<?>> access = actual.randomAccess();
+		int i = 0;
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			e[i] = cursor.get().getRealDouble();
+			a[i++] = access.get().getRealDouble();
+		}
+		assertArrayEquals(e, a, 0);
+	}
+
+}
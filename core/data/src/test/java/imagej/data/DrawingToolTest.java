@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import imagej.render.RenderingService;
+import net.imglib2.Interval;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests the dirty region tracking of {@link DrawingTool}.
+ */
+public class DrawingToolTest {
+
+	private final Context context = new Context(DatasetService.class,
+		RenderingService.class);
+
+	@Test
+	public void testNothingDrawn() {
+		assertNull(createTool().getDirtyRegion());
+	}
+
+	@Test
+	public void testPixels() {
+		final DrawingTool tool = createTool();
+		tool.setPosition(new long[] { 0, 0, 0, 2 });
+		tool.drawPixel(3, 4);
+		tool.drawPixel(10, 2);
+		tool.drawPixel(7, 9);
+		// all channels of the current plane
+		assertRegion(new long[] { 3, 2, 0, 2 }, new long[] { 10, 9, 1, 2 }, tool
+			.getDirtyRegion());
+	}
+
+	@Test
+	public void testPreferredChannel() {
+		final DrawingTool tool = createTool();
+		tool.setPreferredChannel(1);
+		tool.drawPixel(5, 6);
+		assertRegion(new long[] { 5, 6, 1, 0 }, new long[] { 5, 6, 1, 0 }, tool
+			.getDirtyRegion());
+	}
+
+	@Test
+	public void testClipping() {
+		final DrawingTool tool = createTool();
+		tool.fillRect(-5, -5, 8, 8);
+		tool.fillRect(18, 12, 10, 10);
+		assertRegion(new long[] { 0, 0, 0, 0 }, new long[] { 19, 14, 1, 0 }, tool
+			.getDirtyRegion());
+
+		tool.clearDirtyRegion();
+		tool.drawPixel(-1, 3);
+		tool.drawPixel(20, 3);
+		assertNull(tool.getDirtyRegion());
+	}
+
+	@Test
+	public void testClear() {
+		final DrawingTool tool = createTool();
+		tool.drawLine(1, 1, 8, 5);
+		tool.clearDirtyRegion();
+		assertNull(tool.getDirtyRegion());
+		tool.setLineWidth(3);
+		tool.drawDot(10, 10);
+		assertRegion(new long[] { 9, 9, 0, 0 }, new long[] { 11, 11, 1, 0 }, tool
+			.getDirtyRegion());
+	}
+
+	// -- Helper methods --
+
+	private DrawingTool createTool() {
+		final Dataset dataset =
+			context.getService(DatasetService.class).create(new UnsignedByteType(),
+				new long[] { 20, 15, 2, 3 }, "test", new AxisType[] { Axes.X, Axes.Y,
+					Axes.CHANNEL, Axes.Z });
+		return new DrawingTool(dataset, context
+			.getService(RenderingService.class));
+	}
+
+	private void assertRegion(final long[] min, final long[] max,
+		final Interval region)
+	{
+		final long[] actualMin = new long[region.numDimensions()];
+		final long[] actualMax = new long[region.numDimensions()];
+		region.min(actualMin);
+		region.max(actualMax);
+		assertArrayEquals(min, actualMin);
+		assertArrayEquals(max, actualMax);
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ImgCopier}.
+ */
+public class ImgCopierTest {
+
+	private static final long[] DIMS = { 13, 7, 3, 2 };
+
+	@Test
+	public void testPlanarToArray() {
+		final Img<UnsignedShortType> input = planar();
+		final Img<UnsignedShortType> output =
+			new ArrayImgFactory<UnsignedShortType>().create(DIMS,
+				new UnsignedShortType());
+		ImgCopier.copy(input, output);
+		assertSameValues(input, output);
+	}
+
+	@Test
+	public void testPlanarToCell() {
+		final Img<UnsignedShortType> input = planar();
+		final Img<UnsignedShortType> output =
+			new CellImgFactory<UnsignedShortType>(5).create(DIMS,
+				new UnsignedShortType());
+		ImgCopier.copy(input, output);
+		assertSameValues(input, output);
+	}
+
+	@Test
+	public void testDifferentTypes() {
+		final Img<UnsignedShortType> input = planar();
+		final Img<FloatType> output =
+			new PlanarImgFactory<FloatType>().create(DIMS, new FloatType());
+		ImgCopier.copy(input, output);
+		assertSameValues(input, output);
+	}
+
+	@Test
+	public void testCopyOfPlane() {
+		final Img<UnsignedShortType> input = planar();
+		final short[] plane = (short[]) ImgCopier.copyOfPlane(input, 4);
+		assertEquals(DIMS[0] * DIMS[1], plane.length);
+		final RandomAccess<UnsignedShortType> access = input.randomAccess();
+		// plane 4 is at channel 1, time 1
+		access.setPosition(new long[] { 0, 0, 1, 1 });
+		for (int y = 0; y < DIMS[1]; y++) {
+			for (int x = 0; x < DIMS[0]; x++) {
+				access.setPosition(x, 0);
+				access.setPosition(y, 1);
+				final int index = (int) (y * DIMS[0] + x);
+				assertEquals(access.get().get(), plane[index] & 0xffff);
+			}
+		}
+	}
+
+	@Test
+	public void testCopyRun() {
+		final Img<UnsignedShortType> input = planar();
+		final Img<UnsignedShortType> output =
+			new ArrayImgFactory<UnsignedShortType>().create(DIMS,
+				new UnsignedShortType());
+		new ImgCopier(input, output).copyRun(new long[] { 2, 3, 1, 0 },
+			new long[] { 5, 1, 2, 1 }, 6);
+		final RandomAccess<UnsignedShortType> in = input.randomAccess();
+		final RandomAccess<UnsignedShortType> out = output.randomAccess();
+		in.setPosition(new long[] { 2, 3, 1, 0 });
+		out.setPosition(new long[] { 5, 1, 2, 1 });
+		for (int i = 0; i < 6; i++) {
+			assertEquals(in.get().get(), out.get().get());
+			in.fwd(0);
+			out.fwd(0);
+		}
+		// everything else is untouched
+		out.setPosition(new long[] { 4, 1, 2, 1 });
+		assertEquals(0, out.get().get());
+		out.setPosition(new long[] { 11, 1, 2, 1 });
+		assertEquals(0, out.get().get());
+	}
+
+	@Test
+	public void testCopyRunDifferentWidths() {
+		final long[] inDims = { 13, 7 };
+		final long[] outDims = { 7, 13 };
+		final Img<UnsignedShortType> input = planar(inDims);
+		final Img<UnsignedShortType> output =
+			new PlanarImgFactory<UnsignedShortType>().create(outDims,
+				new UnsignedShortType());
+		new ImgCopier(input, output).copyRun(new long[] { 2, 3 }, new long[] {
+			1, 10 }, 5);
+		final RandomAccess<UnsignedShortType> in = input.randomAccess();
+		final RandomAccess<UnsignedShortType> out = output.randomAccess();
+		in.setPosition(new long[] { 2, 3 });
+		out.setPosition(new long[] { 1, 10 });
+		for (int i = 0; i < 5; i++) {
+			assertEquals(in.get().get(), out.get().get());
+			in.fwd(0);
+			out.fwd(0);
+		}
+		// no other sample of the output is written
+		int written = 0;
+		for (final UnsignedShortType t : output) {
+			if (t.get() != 0) written++;
+		}
+		assertEquals(5, written);
+	}
+
+	// -- Helper methods --
+
+	private Img<UnsignedShortType> planar() {
+		return planar(DIMS);
+	}
+
+	private Img<UnsignedShortType> planar(final long[] dims) {
+		final Img<UnsignedShortType> img =
+			new PlanarImgFactory<UnsignedShortType>().create(dims,
+				new UnsignedShortType());
+		int i = 1;
+		for (final UnsignedShortType t : img) {
+			t.set((i++ * 31) % 65536);
+		}
+		return img;
+	}
+
+	private void assertSameValues(final Img<? extends RealType<?>> expected,
+		final Img<? extends RealType<?>> actual)
+	{
+		final double[] e = new double[(int) expected.size()];
+		final double[] a = new double[(int) actual.size()];
+		final Cursor<? extends RealType<?>> cursor = expected.localizingCursor();
+		final RandomAccess<? extends RealType<?>> access = actual.randomAccess();
+		int i = 0;
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			e[i] = cursor.get().getRealDouble();
+			a[i++] = access.get().getRealDouble();
+		}
+		assertArrayEquals(e, a, 0);
+	}
+
+}
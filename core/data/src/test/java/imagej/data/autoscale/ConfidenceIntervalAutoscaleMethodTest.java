@@ -36,10 +36,13 @@
 package imagej.data.autoscale;
 
 import static org.junit.Assert.assertEquals;
+import imagej.data.measure.PlaneStatisticsService;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
 
 import org.junit.Test;
 import org.scijava.Context;
@@ -65,6 +68,25 @@ public void test() {
 		assertEquals(97, range.getMax(), 0);
 	}
 
+	@Test
+	public void testPlaneStatisticsDoNotChangeRange() {
+		// the cached coarse plane histograms must not replace the exact binning
+		Img<RealType> img = getPlanarImg();
+		Context plain = new Context(AutoscaleService.class);
+		Context cached =
+			new Context(AutoscaleService.class, PlaneStatisticsService.class);
+		DataRange expected =
+			plain.getService(AutoscaleService.class).getAutoscaleMethod(
+				"Confidence Interval").getRange(img);
+		DataRange actual =
+			cached.getService(AutoscaleService.class).getAutoscaleMethod(
+				"Confidence Interval").getRange(img);
+		assertEquals(expected.getMin(), actual.getMin(), 0);
+		assertEquals(expected.getMax(), actual.getMax(), 0);
+		plain.dispose();
+		cached.dispose();
+	}
+
 	private Img<RealType> getImg() {
 		Img<ByteType> img = ArrayImgs.bytes(100);
 		byte i = 0;
@@ -72,4 +94,14 @@ private Img<RealType> getImg() {
 			b.set(i++);
 		return (Img<RealType>) (Img) img;
 	}
+
+	private Img<RealType> getPlanarImg() {
+		Img<UnsignedShortType> img =
+			new PlanarImgFactory<UnsignedShortType>().create(
+				new long[] { 50, 40, 3 }, new UnsignedShortType());
+		int i = 0;
+		for (UnsignedShortType t : img)
+			t.set((i++ * 37) % 4001);
+		return (Img<RealType>) (Img) img;
+	}
 }
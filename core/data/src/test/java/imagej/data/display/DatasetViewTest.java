@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.autoscale.AutoscaleService;
+
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.display.ColorTable8;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Unit tests for {@link DefaultDatasetView}.
+ */
+public class DatasetViewTest {
+
+	private final Context context = new Context(ImageDisplayService.class,
+		DatasetService.class, AutoscaleService.class, ThreadService.class);
+
+	@Test
+	public void testRenderScreenImageTiledAndUntiled() {
+		final DatasetView view = createView();
+		assertFalse(view.isTiled());
+		final Interval[] regions =
+			{ new FinalInterval(300, 200),
+				new FinalInterval(new long[] { 17, 33 }, new long[] { 140, 90 }),
+				// partly outside of the plane
+				new FinalInterval(new long[] { -5, 180 }, new long[] { 20, 210 }) };
+		final int[][] untiled = new int[regions.length][];
+		for (int i = 0; i < regions.length; i++) {
+			final ARGBScreenImage image = view.renderScreenImage(regions[i]);
+			assertEquals(regions[i].dimension(0), image.dimension(0));
+			assertEquals(regions[i].dimension(1), image.dimension(1));
+			untiled[i] = image.getData().clone();
+		}
+		// the screen image of an untiled view holds the whole plane
+		assertArrayEquals(view.getScreenImage().getData(), untiled[0]);
+
+		view.setTiled(true);
+		assertTrue(view.isTiled());
+		for (int i = 0; i < regions.length; i++) {
+			assertArrayEquals(untiled[i], view.renderScreenImage(regions[i])
+				.getData());
+		}
+	}
+
+	@Test
+	public void testPartialUpdateCompositesLikeMap() {
+		final DatasetView view =
+			createView(new long[] { 300, 200, 2 }, new AxisType[] { Axes.X, Axes.Y,
+				Axes.CHANNEL });
+		view.setColorMode(ColorMode.COMPOSITE);
+		// NB: Translucent tables, so that composited alpha differs from 255.
+		view.setColorTable(translucent(0), 0);
+		view.setColorTable(translucent(1), 1);
+		view.getProjector().map();
+		final int[] before = view.getScreenImage().getData().clone();
+
+		// change a rectangle of both channels, and report just that rectangle
+		final Dataset dataset = view.getData();
+		final RandomAccess<? extends RealType<?>> access =
+			dataset.getImgPlus().randomAccess();
+		for (int c = 0; c < 2; c++) {
+			access.setPosition(c, 2);
+			for (int y = 20; y < 60; y++) {
+				access.setPosition(y, 1);
+				for (int x = 10; x < 50; x++) {
+					access.setPosition(x, 0);
+					access.get().setReal(255 - (x + y + 50 * c) % 256);
+				}
+			}
+		}
+		dataset.update(new FinalInterval(new long[] { 10, 20, 0 }, new long[] {
+			49, 59, 1 }));
+		final int[] partial = view.getScreenImage().getData().clone();
+		assertFalse(Arrays.equals(before, partial));
+		assertEquals(100, ARGBType.alpha(partial[30 * 300 + 20]));
+
+		// the partial render must match a full one
+		view.getProjector().map();
+		assertArrayEquals(view.getScreenImage().getData(), partial);
+
+		// and so must the tiles
+		view.setTiled(true);
+		assertArrayEquals(partial, view.renderScreenImage(
+			new FinalInterval(300, 200)).getData());
+	}
+
+	// -- Helper methods --
+
+	private DatasetView createView() {
+		return createView(new long[] { 300, 200 }, new AxisType[] { Axes.X,
+			Axes.Y });
+	}
+
+	private DatasetView createView(final long[] dims, final AxisType[] axes) {
+		final Dataset dataset =
+			context.getService(DatasetService.class).create(new UnsignedByteType(),
+				dims, "test", axes);
+		final Cursor<? extends RealType<?>> cursor =
+			dataset.getImgPlus().localizingCursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			cursor.get().setReal((cursor.getIntPosition(0) * 7 + cursor
+				.getIntPosition(1) * 3) % 256);
+		}
+		final DatasetView view =
+			(DatasetView) context.getService(ImageDisplayService.class)
+				.createDataView(dataset);
+		view.rebuild();
+		return view;
+	}
+
+	/** Gets a gray ramp in one color component, with constant alpha of 50. */
+	private ColorTable8 translucent(final int component) {
+		final byte[][] values = new byte[4][256];
+		for (int i = 0; i < 256; i++) {
+			values[component][i] = (byte) i;
+			values[3][i] = 50;
+		}
+		return new ColorTable8(values);
+	}
+
+}
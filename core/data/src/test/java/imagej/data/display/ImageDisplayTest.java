@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.autoscale.AutoscaleService;
+import imagej.data.display.event.DataViewUpdatedEvent;
+import imagej.data.event.DatasetUpdatedEvent;
+import imagej.display.event.DisplayUpdatedEvent;
+import net.imglib2.FinalInterval;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.event.EventHandler;
+import org.scijava.event.EventService;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests how {@link DefaultImageDisplay} and its {@link DatasetView} respond to
+ * updates of the displayed dataset.
+ */
+public class ImageDisplayTest {
+
+	private final Context context = new Context(ImageDisplayService.class,
+		DatasetService.class, AutoscaleService.class, ThreadService.class,
+		EventService.class);
+
+	private int displayUpdates, viewUpdates;
+
+	private final Object listener = new Object() {
+
+		@EventHandler
+		protected void onEvent(final DisplayUpdatedEvent e) {
+			displayUpdates++;
+		}
+
+		@EventHandler
+		protected void onEvent(final DataViewUpdatedEvent e) {
+			viewUpdates++;
+		}
+	};
+
+	@Test
+	public void testFullUpdate() {
+		final Dataset dataset = createDisplay();
+		dataset.update();
+		assertEquals(1, displayUpdates);
+	}
+
+	@Test
+	public void testPartialUpdate() {
+		final Dataset dataset = createDisplay();
+		// the displayed plane: the view re-renders it, the display does nothing
+		dataset.update(new FinalInterval(new long[] { 2, 3, 0 }, new long[] { 5,
+			7, 0 }));
+		assertEquals(0, displayUpdates);
+		assertEquals(1, viewUpdates);
+		// another plane: nothing to redraw at all
+		dataset.update(new FinalInterval(new long[] { 2, 3, 2 }, new long[] { 5,
+			7, 2 }));
+		assertEquals(0, displayUpdates);
+		assertEquals(1, viewUpdates);
+	}
+
+	@Test
+	public void testMetadataUpdate() {
+		final Dataset dataset = createDisplay();
+		context.getService(EventService.class).publish(
+			new DatasetUpdatedEvent(dataset, true));
+		assertEquals(1, displayUpdates);
+		assertEquals(0, viewUpdates);
+	}
+
+	// -- Helper methods --
+
+	/** Displays a new dataset, then starts counting update events. */
+	private Dataset createDisplay() {
+		final Dataset dataset =
+			context.getService(DatasetService.class).create(new UnsignedByteType(),
+				new long[] { 20, 15, 3 }, "test", new AxisType[] { Axes.X, Axes.Y,
+					Axes.Z });
+		final ImageDisplay display = new DefaultImageDisplay();
+		display.setContext(context);
+		display.display(dataset);
+		context.getService(EventService.class).subscribe(listener);
+		displayUpdates = viewUpdates = 0;
+		return dataset;
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.display;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PrimitiveCompositeXYProjector}.
+ */
+public class PrimitiveCompositeXYProjectorTest {
+
+	private static final long[] DIMS = { 37, 23, 3, 2 };
+
+	@Test
+	public void testPlanarUnsignedByte() {
+		final Img<UnsignedByteType> img =
+			new PlanarImgFactory<UnsignedByteType>().create(DIMS,
+				new UnsignedByteType());
+		assertSameAsGeneric(new ImgPlus<UnsignedByteType>(img), 0, 200);
+	}
+
+	@Test
+	public void testArrayUnsignedShort() {
+		final Img<UnsignedShortType> img =
+			new ArrayImgFactory<UnsignedShortType>().create(DIMS,
+				new UnsignedShortType());
+		assertSameAsGeneric(new ImgPlus<UnsignedShortType>(img), 100, 40000);
+	}
+
+	@Test
+	public void testMapRegion() {
+		final ImgPlus<UnsignedByteType> img =
+			new ImgPlus<UnsignedByteType>(new PlanarImgFactory<UnsignedByteType>()
+				.create(DIMS, new UnsignedByteType()));
+		long i = 0;
+		for (final UnsignedByteType t : img) {
+			t.setReal((i++ * 7919) % 256);
+		}
+		final int w = (int) DIMS[0], h = (int) DIMS[1];
+		for (final boolean composite : new boolean[] { true, false }) {
+			final ARGBScreenImage expected = new ARGBScreenImage(w, h);
+			map(new PrimitiveCompositeXYProjector<UnsignedByteType>(img, expected,
+				converters(img, 0, 200), 2, null), composite);
+
+			final ARGBScreenImage actual = new ARGBScreenImage(w, h);
+			final PrimitiveCompositeXYProjector<UnsignedByteType> projector =
+				new PrimitiveCompositeXYProjector<UnsignedByteType>(img, actual,
+					converters(img, 0, 200), 2, null);
+			projector.setComposite(composite);
+			projector.setPosition(1, 2);
+			projector.setPosition(1, 3);
+			// partly outside of the plane
+			final Interval region =
+				new FinalInterval(new long[] { 5, -3, 0, 0 }, new long[] { 50, 11, 0,
+					0 });
+			projector.map(region);
+
+			final int[] e = expected.getData(), a = actual.getData();
+			for (int y = 0; y < h; y++) {
+				for (int x = 0; x < w; x++) {
+					final boolean inside = x >= 5 && y <= 11;
+					assertEquals(inside ? e[y * w + x] : 0, a[y * w + x]);
+				}
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Fills the image with a pattern, then compares the output of both
+	 * projectors in composite and single channel modes.
+	 */
+	private <T extends RealType<T>> void assertSameAsGeneric(
+		final ImgPlus<T> img, final double min, final double max)
+	{
+		final long range = (long) img.firstElement().getMaxValue() + 1;
+		long i = 0;
+		for (final T t : img) {
+			t.setReal((i++ * 7919) % range);
+		}
+		final int w = (int) DIMS[0], h = (int) DIMS[1];
+		for (final boolean composite : new boolean[] { true, false }) {
+			final ARGBScreenImage expected = new ARGBScreenImage(w, h);
+			final CompositeXYProjector<T> generic =
+				new CompositeXYProjector<T>(img, expected, converters(img, min, max),
+					2);
+			map(generic, composite);
+
+			final ARGBScreenImage actual = new ARGBScreenImage(w, h);
+			final PrimitiveCompositeXYProjector<T> fast =
+				new PrimitiveCompositeXYProjector<T>(img, actual, converters(img,
+					min, max), 2, null);
+			map(fast, composite);
+
+			assertArrayEquals(expected.getData(), actual.getData());
+		}
+	}
+
+	private void map(final CompositeXYProjector<?> projector,
+		final boolean composite)
+	{
+		projector.setComposite(composite);
+		projector.setPosition(1, 2);
+		projector.setPosition(1, 3);
+		projector.map();
+	}
+
+	private <T extends RealType<T>> ArrayList<Converter<T, ARGBType>>
+		converters(final ImgPlus<T> img, final double min, final double max)
+	{
+		final ArrayList<Converter<T, ARGBType>> converters =
+			new ArrayList<Converter<T, ARGBType>>();
+		for (int c = 0; c < img.dimension(2); c++) {
+			converters.add(new RealLUTConverter<T>(min, max, ColorTables
+				.getDefaultColorTable(c)));
+		}
+		return converters;
+	}
+
+}
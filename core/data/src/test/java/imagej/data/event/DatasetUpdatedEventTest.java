@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.event.EventHandler;
+import org.scijava.event.EventService;
+
+/**
+ * Unit tests for {@link DatasetUpdatedEvent}.
+ */
+public class DatasetUpdatedEventTest {
+
+	private final Context context = new Context(DatasetService.class,
+		EventService.class);
+
+	@Test
+	public void testMetadataOnly() {
+		final DatasetUpdatedEvent event =
+			new DatasetUpdatedEvent(createDataset(), true);
+		assertNull(event.getDirtyRegion());
+		assertFalse(event.affectsPlane(new long[] { 0, 0, 0, 0 }, -1));
+	}
+
+	@Test
+	public void testWholeDataset() {
+		final DatasetUpdatedEvent event =
+			new DatasetUpdatedEvent(createDataset(), false);
+		assertNull(event.getDirtyRegion());
+		assertTrue(event.affectsPlane(new long[] { 0, 0, 0, 0 }, -1));
+		assertTrue(event.affectsPlane(new long[] { 0, 0, 2, 4 }, 2));
+	}
+
+	@Test
+	public void testDirtyRegion() {
+		final Interval region =
+			new FinalInterval(new long[] { 3, 4, 1, 2 }, new long[] { 5, 6, 1, 3 });
+		final DatasetUpdatedEvent event =
+			new DatasetUpdatedEvent(createDataset(), region);
+		assertFalse(event.isMetaDataOnly());
+		assertSame(region, event.getDirtyRegion());
+
+		assertTrue(event.affectsPlane(new long[] { 0, 0, 1, 2 }, -1));
+		assertTrue(event.affectsPlane(new long[] { 0, 0, 1, 3 }, -1));
+		// X and Y are ignored
+		assertTrue(event.affectsPlane(new long[] { 9, 9, 1, 3 }, -1));
+		// another channel or Z position
+		assertFalse(event.affectsPlane(new long[] { 0, 0, 0, 2 }, -1));
+		assertFalse(event.affectsPlane(new long[] { 0, 0, 2, 2 }, -1));
+		assertFalse(event.affectsPlane(new long[] { 0, 0, 1, 1 }, -1));
+		assertFalse(event.affectsPlane(new long[] { 0, 0, 1, 4 }, -1));
+		// a composited channel dimension is ignored, but Z is not
+		assertTrue(event.affectsPlane(new long[] { 0, 0, 0, 2 }, 2));
+		assertFalse(event.affectsPlane(new long[] { 0, 0, 0, 4 }, 2));
+	}
+
+	@Test
+	public void testDatasetUpdate() {
+		final List<DatasetUpdatedEvent> events =
+			new ArrayList<DatasetUpdatedEvent>();
+		final Object listener = new Object() {
+
+			@EventHandler
+			protected void onEvent(final DatasetUpdatedEvent e) {
+				events.add(e);
+			}
+		};
+		context.getService(EventService.class).subscribe(listener);
+
+		final Dataset dataset = createDataset();
+		final Interval region =
+			new FinalInterval(new long[] { 0, 0, 0, 1 }, new long[] { 9, 7, 2, 1 });
+		dataset.update(region);
+		dataset.update(null);
+		dataset.update();
+
+		assertEquals(3, events.size());
+		assertSame(dataset, events.get(0).getObject());
+		assertSame(region, events.get(0).getDirtyRegion());
+		assertNull(events.get(1).getDirtyRegion());
+		assertFalse(events.get(1).isMetaDataOnly());
+		assertNull(events.get(2).getDirtyRegion());
+	}
+
+	// -- Helper methods --
+
+	private Dataset createDataset() {
+		return context.getService(DatasetService.class).create(
+			new UnsignedByteType(), new long[] { 10, 8, 3, 5 }, "test",
+			new AxisType[] { Axes.X, Axes.Y, Axes.CHANNEL, Axes.Z });
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.ops.function.Function;
+import net.imglib2.ops.function.real.RealAlphaTrimmedMeanFunction;
+import net.imglib2.ops.function.real.RealImageFunction;
+import net.imglib2.ops.function.real.RealMedianFunction;
+import net.imglib2.ops.function.real.RealTrimmedMeanFunction;
+import net.imglib2.ops.pointset.HyperVolumePointSet;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link IntegerHistogram}.
+ */
+public class IntegerHistogramTest {
+
+	@Test
+	public void testSupportedTypes() {
+		assertTrue(IntegerHistogram.isSupported(new ByteType()));
+		assertTrue(IntegerHistogram.isSupported(new UnsignedShortType()));
+		assertFalse(IntegerHistogram.isSupported(new IntType()));
+		assertFalse(IntegerHistogram.isSupported(new FloatType()));
+	}
+
+	@Test
+	public void testOrderStatisticsMatchSortedValues() {
+		final int n = 1001;
+		final long[] values = new long[n];
+		final IntegerHistogram hist = new IntegerHistogram(new ByteType());
+		for (int i = 0; i < n; i++) {
+			values[i] = ((i * 31) % 256) - 128;
+			hist.add(values[i]);
+		}
+		Arrays.sort(values);
+		assertEquals(n, hist.getCount());
+		assertEquals(values[n / 2], hist.median(), 0);
+		assertEquals(values[0], hist.quantile(0), 0);
+		assertEquals(values[n - 1], hist.quantile(1), 0);
+		assertEquals(values[250], hist.percentile(25), 0);
+
+		final int trim = 100;
+		double sum = 0;
+		for (int i = trim; i < n - trim; i++) {
+			sum += values[i];
+		}
+		assertEquals(sum / (n - 2 * trim), hist.trimmedMean(trim), 1e-9);
+	}
+
+	@Test
+	public void testEvenCountMedianAveragesMiddleValues() {
+		final IntegerHistogram hist = new IntegerHistogram(0, 10);
+		hist.add(1);
+		hist.add(2);
+		hist.add(7);
+		hist.add(9);
+		assertEquals(4.5, hist.median(), 0);
+	}
+
+	@Test
+	public void testMerge() {
+		final IntegerHistogram a = new IntegerHistogram(0, 255);
+		final IntegerHistogram b = new IntegerHistogram(0, 255);
+		a.add(3);
+		a.add(3);
+		b.add(3);
+		b.add(200);
+		a.merge(b);
+		assertEquals(4, a.getCount());
+		assertEquals(3, a.frequency(3));
+		assertEquals(1, a.frequency(200));
+		final StatisticsAccumulator acc = new StatisticsAccumulator();
+		a.accumulate(acc);
+		assertEquals(209, acc.get(Statistic.SUM), 0);
+		assertEquals(200, acc.get(Statistic.MAXIMUM), 0);
+	}
+
+	@Test
+	public void testOddCountMatchesOpsFunctions() {
+		assertMatchesOpsFunctions(1001);
+	}
+
+	@Test
+	public void testEvenCountMatchesOpsFunctions() {
+		assertMatchesOpsFunctions(1000);
+	}
+
+	// -- helpers --
+
+	/**
+	 * Compares the order statistics of a histogram with those of the
+	 * imglib2-ops functions that {@link DefaultStatisticsService} used before.
+	 * The alpha values are chosen so that alpha times the sample count has a
+	 * fractional part, to pin down how the trim count is rounded.
+	 */
+	private void assertMatchesOpsFunctions(final int n) {
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(n);
+		final IntegerHistogram hist = new IntegerHistogram(new UnsignedByteType());
+		int i = 0;
+		for (final UnsignedByteType t : img) {
+			t.set((i * 7919 + i * i) % 251);
+			hist.add(t.get());
+			i++;
+		}
+		final Function<long[], DoubleType> imgFunc =
+			new RealImageFunction<UnsignedByteType, DoubleType>(img,
+				new DoubleType());
+		final PointSet region = new HyperVolumePointSet(new long[] { n });
+		final DoubleType output = new DoubleType();
+
+		new RealMedianFunction<DoubleType>(imgFunc).compute(region, output);
+		assertEquals(output.getRealDouble(), hist.median(), 1e-9);
+
+		for (final int halfTrimSize : new int[] { 0, 1, 37, n / 2 - 1 }) {
+			new RealTrimmedMeanFunction<DoubleType>(imgFunc, halfTrimSize).compute(
+				region, output);
+			assertEquals("halfTrimSize " + halfTrimSize, output.getRealDouble(),
+				hist.trimmedMean(halfTrimSize), 1e-9);
+		}
+
+		for (final double alpha : new double[] { 0, 0.05, 0.2555, 0.4999 }) {
+			new RealAlphaTrimmedMeanFunction<DoubleType>(imgFunc, alpha).compute(
+				region, output);
+			assertEquals("alpha " + alpha, output.getRealDouble(), hist
+				.alphaTrimmedMean(alpha), 1e-9);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.event.DatasetDeletedEvent;
+import imagej.data.event.DatasetRestructuredEvent;
+import imagej.data.event.DatasetUpdatedEvent;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.event.EventService;
+
+/**
+ * Tests the caching and invalidation of {@link DefaultPlaneStatisticsService}.
+ */
+public class PlaneStatisticsServiceTest {
+
+	private static final long[] DIMS = { 5, 4, 3 };
+
+	private Context context;
+	private PlaneStatisticsService service;
+	private EventService eventService;
+	private Dataset ds;
+
+	@Before
+	public void setUp() {
+		context =
+			new Context(PlaneStatisticsService.class, DatasetService.class,
+				EventService.class);
+		service = context.getService(PlaneStatisticsService.class);
+		eventService = context.getService(EventService.class);
+		ds =
+			context.getService(DatasetService.class).create(DIMS, "test",
+				new AxisType[] { Axes.X, Axes.Y, Axes.Z }, 16, false, false);
+		int i = 0;
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal(i++);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testValues() {
+		final PlaneStatistics stats = service.getPlaneStatistics(ds, 1, true);
+		assertEquals(20, stats.getMin(), 0);
+		assertEquals(39, stats.getMax(), 0);
+		assertEquals(20, stats.getCount());
+		final PlaneStatistics all = service.getStatistics(ds, false);
+		assertEquals(0, all.getMin(), 0);
+		assertEquals(59, all.getMax(), 0);
+		assertEquals(60, all.getCount());
+	}
+
+	@Test
+	public void testReuse() {
+		final PlaneStatistics stats = service.getPlaneStatistics(ds, 1, false);
+		assertSame(stats, service.getPlaneStatistics(ds, 1, false));
+		// a cached range without histogram is replaced once a histogram is needed
+		final PlaneStatistics withHistogram =
+			service.getPlaneStatistics(ds, 1, true);
+		assertNotSame(stats, withHistogram);
+		assertSame(withHistogram, service.getPlaneStatistics(ds, 1, true));
+		assertSame(withHistogram, service.getPlaneStatistics(ds, 1, false));
+	}
+
+	@Test
+	public void testUpdated() {
+		final PlaneStatistics[] before = cacheAll();
+		setValue(2, 3, 0, 1000);
+		eventService.publish(new DatasetUpdatedEvent(ds, false));
+		for (int p = 0; p < before.length; p++) {
+			assertNotSame(before[p], service.getPlaneStatistics(ds, p, false));
+		}
+		assertEquals(1000, service.getPlaneStatistics(ds, 0, false).getMax(), 0);
+	}
+
+	@Test
+	public void testMetadataOnlyUpdate() {
+		final PlaneStatistics[] before = cacheAll();
+		eventService.publish(new DatasetUpdatedEvent(ds, true));
+		for (int p = 0; p < before.length; p++) {
+			assertSame(before[p], service.getPlaneStatistics(ds, p, false));
+		}
+	}
+
+	@Test
+	public void testPartialUpdate() {
+		final PlaneStatistics[] before = cacheAll();
+		setValue(1, 1, 1, 1000);
+		eventService.publish(new DatasetUpdatedEvent(ds, new FinalInterval(
+			new long[] { 1, 1, 1 }, new long[] { 1, 1, 1 })));
+		assertSame(before[0], service.getPlaneStatistics(ds, 0, false));
+		assertNotSame(before[1], service.getPlaneStatistics(ds, 1, false));
+		assertSame(before[2], service.getPlaneStatistics(ds, 2, false));
+		assertEquals(1000, service.getPlaneStatistics(ds, 1, false).getMax(), 0);
+	}
+
+	@Test
+	public void testRestructured() {
+		final PlaneStatistics[] before = cacheAll();
+		eventService.publish(new DatasetRestructuredEvent(ds));
+		for (int p = 0; p < before.length; p++) {
+			assertNotSame(before[p], service.getPlaneStatistics(ds, p, false));
+		}
+	}
+
+	@Test
+	public void testDeleted() {
+		final PlaneStatistics[] before = cacheAll();
+		eventService.publish(new DatasetDeletedEvent(ds));
+		for (int p = 0; p < before.length; p++) {
+			assertNotSame(before[p], service.getPlaneStatistics(ds, p, false));
+		}
+	}
+
+	// -- Helper methods --
+
+	private PlaneStatistics[] cacheAll() {
+		final PlaneStatistics[] stats = new PlaneStatistics[(int) DIMS[2]];
+		for (int p = 0; p < stats.length; p++) {
+			stats[p] = service.getPlaneStatistics(ds, p, false);
+			assertSame(stats[p], service.getPlaneStatistics(ds, p, false));
+		}
+		return stats;
+	}
+
+	private void setValue(final long x, final long y, final long z,
+		final double value)
+	{
+		final RandomAccess<? extends RealType<?>> access =
+			ds.getImgPlus().randomAccess();
+		access.setPosition(new long[] { x, y, z });
+		access.get().setReal(value);
+	}
+
+}
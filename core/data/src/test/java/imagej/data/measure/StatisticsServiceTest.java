@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.measure;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.ops.pointset.HyperVolumePointSet;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Unit tests for {@link StatisticsService#measureAll}.
+ */
+public class StatisticsServiceTest {
+
+	private final Context context = new Context(StatisticsService.class,
+		DatasetService.class);
+
+	private final StatisticsService statService = context
+		.getService(StatisticsService.class);
+
+	@Test
+	public void testMeasureAllMatchesSingleMeasures() {
+		final Dataset ds = createDataset();
+		final EnumSet<Statistic> stats = EnumSet.allOf(Statistic.class);
+		final Map<Statistic, Double> results = statService.measureAll(ds, stats);
+		assertEquals(stats.size(), results.size());
+		final double tol = 1e-6;
+		assertEquals(statService.arithmeticMean(ds), results
+			.get(Statistic.ARITHMETIC_MEAN), tol);
+		assertEquals(statService.minimum(ds), results.get(Statistic.MINIMUM), tol);
+		assertEquals(statService.maximum(ds), results.get(Statistic.MAXIMUM), tol);
+		assertEquals(statService.midpoint(ds), results.get(Statistic.MIDPOINT),
+			tol);
+		assertEquals(statService.median(ds), results.get(Statistic.MEDIAN), tol);
+		assertEquals(statService.sum(ds), results.get(Statistic.SUM), tol);
+		assertEquals(statService.populationVariance(ds), results
+			.get(Statistic.POPULATION_VARIANCE), tol);
+		assertEquals(statService.sampleVariance(ds), results
+			.get(Statistic.SAMPLE_VARIANCE), tol);
+		assertEquals(statService.sumOfSquaredDeviations(ds), results
+			.get(Statistic.SUM_OF_SQUARED_DEVIATIONS), 1e-3);
+		assertEquals(statService.populationSkew(ds), results
+			.get(Statistic.POPULATION_SKEW), tol);
+		assertEquals(statService.populationKurtosis(ds), results
+			.get(Statistic.POPULATION_KURTOSIS), tol);
+	}
+
+	@Test
+	public void testMeasureAllMatchesHigherMoments() {
+		// strictly positive samples, so the geometric and harmonic means are
+		// not trivially zero
+		final Dataset ds = createDataset(1);
+		final EnumSet<Statistic> stats =
+			EnumSet.of(Statistic.SAMPLE_SKEW, Statistic.SAMPLE_KURTOSIS,
+				Statistic.SAMPLE_KURTOSIS_EXCESS, Statistic.POPULATION_KURTOSIS_EXCESS,
+				Statistic.GEOMETRIC_MEAN, Statistic.HARMONIC_MEAN);
+		final Map<Statistic, Double> results = statService.measureAll(ds, stats);
+		assertEquals(stats.size(), results.size());
+		final double tol = 1e-6;
+		assertEquals(statService.sampleSkew(ds), results
+			.get(Statistic.SAMPLE_SKEW), tol);
+		assertEquals(statService.sampleKurtosis(ds), results
+			.get(Statistic.SAMPLE_KURTOSIS), tol);
+		assertEquals(statService.sampleKurtosisExcess(ds), results
+			.get(Statistic.SAMPLE_KURTOSIS_EXCESS), tol);
+		assertEquals(statService.populationKurtosisExcess(ds), results
+			.get(Statistic.POPULATION_KURTOSIS_EXCESS), tol);
+		assertEquals(statService.geometricMean(ds), results
+			.get(Statistic.GEOMETRIC_MEAN), tol);
+		assertEquals(statService.harmonicMean(ds), results
+			.get(Statistic.HARMONIC_MEAN), tol);
+	}
+
+	@Test
+	public void testMeasureAllOfSubregion() {
+		final Dataset ds = createDataset();
+		final PointSet region =
+			new HyperVolumePointSet(new long[] { 10, 20 }, new long[] { 99, 29 });
+		final Map<Statistic, Double> results =
+			statService.measureAll(ds, region, EnumSet.of(Statistic.ARITHMETIC_MEAN,
+				Statistic.MEDIAN, Statistic.SAMPLE_STD_DEV));
+		assertEquals(3, results.size());
+		assertEquals(statService.arithmeticMean(ds, region), results
+			.get(Statistic.ARITHMETIC_MEAN), 1e-6);
+		assertEquals(statService.median(ds, region), results.get(Statistic.MEDIAN),
+			1e-6);
+		assertEquals(statService.sampleStdDev(ds, region), results
+			.get(Statistic.SAMPLE_STD_DEV), 1e-6);
+	}
+
+	@Test
+	public void testMergedAccumulatorsMatchSerialAccumulator() {
+		final StatisticsAccumulator serial = new StatisticsAccumulator();
+		final StatisticsAccumulator part1 = new StatisticsAccumulator();
+		final StatisticsAccumulator part2 = new StatisticsAccumulator();
+		for (int i = 1; i <= 1000; i++) {
+			final double value = (i * 37) % 101 + 0.5;
+			serial.add(value);
+			if (i < 300) part1.add(value);
+			else part2.add(value);
+		}
+		part1.merge(part2);
+		assertEquals(serial.getCount(), part1.getCount());
+		for (final Statistic stat : Statistic.values()) {
+			if (stat.isOrderStatistic() || stat == Statistic.PRODUCT) continue;
+			final double expected = serial.get(stat);
+			assertEquals(stat.getLabel(), expected, part1.get(stat), Math
+				.abs(expected) * 1e-9);
+		}
+	}
+
+	// -- helpers --
+
+	private Dataset createDataset() {
+		return createDataset(0);
+	}
+
+	private Dataset createDataset(final int offset) {
+		final Img<UnsignedShortType> img = ArrayImgs.unsignedShorts(512, 300);
+		int i = 0;
+		for (final UnsignedShortType t : img) {
+			t.set((i * 7919) % 4093 + offset);
+			i++;
+		}
+		final DatasetService datasetService =
+			context.getService(DatasetService.class);
+		return datasetService.create(new ImgPlus<UnsignedShortType>(img));
+	}
+}
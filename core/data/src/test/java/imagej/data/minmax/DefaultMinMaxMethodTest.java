@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.minmax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.plugin.PluginService;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Unit tests for {@link DefaultMinMaxMethod} and {@link PrimitiveMinMax}.
+ */
+public class DefaultMinMaxMethodTest {
+
+	private final Context context = new Context(ThreadService.class,
+		PluginService.class);
+
+	@Test
+	public void testLongType() {
+		// beyond 2^53, where a double can no longer tell neighbors apart
+		final long lo = -(1L << 60) - 1;
+		final long hi = (1L << 60) + 1;
+		final Img<LongType> img = ArrayImgs.longs(100, 50);
+		long i = 0;
+		for (final LongType t : img) {
+			t.set(i++ % 7);
+		}
+		final RandomAccess<LongType> access = img.randomAccess();
+		access.setPosition(new long[] { 3, 0 });
+		access.get().set(lo);
+		access.setPosition(new long[] { 42, 17 });
+		access.get().set(hi);
+
+		final MinMaxMethod<LongType> method = minMaxMethod();
+		method.initialize(img);
+		assertTrue(method.process());
+		assertEquals(lo, method.getMin().get());
+		assertEquals(hi, method.getMax().get());
+	}
+
+	@Test
+	public void testPlanarUnsignedShortType() {
+		final Img<UnsignedShortType> img =
+			new PlanarImgFactory<UnsignedShortType>().create(new long[] { 64, 32, 5 },
+				new UnsignedShortType());
+		int i = 0;
+		for (final UnsignedShortType t : img) {
+			t.set(1000 + (i++ * 7919) % 60000);
+		}
+		final MinMaxMethod<UnsignedShortType> method = minMaxMethod();
+		method.initialize(img);
+		assertTrue(method.process());
+		int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+		for (final UnsignedShortType t : img) {
+			min = Math.min(min, t.get());
+			max = Math.max(max, t.get());
+		}
+		assertEquals(min, method.getMin().get());
+		assertEquals(max, method.getMax().get());
+	}
+
+	@Test
+	public void testScanLongs() {
+		final long[] array = { 5, -3, 1L << 62, 7 };
+		final double[] minMax =
+			{ Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		assertTrue(PrimitiveMinMax.scan(array, false, minMax));
+		assertEquals(-3, minMax[0], 0);
+		assertEquals(Math.pow(2, 62), minMax[1], 0);
+
+		final long[] exact = { Long.MAX_VALUE, Long.MIN_VALUE };
+		PrimitiveMinMax.scan(array, exact);
+		assertEquals(-3, exact[0]);
+		assertEquals(1L << 62, exact[1]);
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private <T extends Type<T> & Comparable<T>> MinMaxMethod<T> minMaxMethod()
+	{
+		final List<MinMaxMethod> methods =
+			context.getService(PluginService.class).createInstancesOfType(
+				MinMaxMethod.class);
+		for (final MinMaxMethod method : methods) {
+			if (method instanceof DefaultMinMaxMethod) return method;
+		}
+		throw new IllegalStateException("No DefaultMinMaxMethod");
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.operator;
+
+import static org.junit.Assert.assertEquals;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Unit tests for {@link CalculatorService#combine}.
+ */
+public class CalculatorServiceTest {
+
+	private final Context context = new Context(CalculatorService.class);
+
+	private final CalculatorService calcService = context
+		.getService(CalculatorService.class);
+
+	private final CalculatorOp<UnsignedShortType, UnsignedShortType> add =
+		new OpAdd<UnsignedShortType, UnsignedShortType>();
+
+	@Test
+	public void testStreamingMatchesDoubleResult() {
+		final Img<UnsignedShortType> img1 = create(new long[] { 600, 500, 3 }, 1);
+		final Img<UnsignedShortType> img2 = create(new long[] { 550, 520, 3 }, 2);
+		final Img<DoubleType> expected = calcService.combine(img1, img2, add);
+		assertEquals(550, expected.dimension(0));
+		assertEquals(500, expected.dimension(1));
+
+		final Img<UnsignedShortType> output =
+			new PlanarImgFactory<UnsignedShortType>().create(calcService.overlap(
+				img1, img2), new UnsignedShortType());
+		calcService.combine(img1, img2, add, output);
+		assertSameValues(expected, output);
+	}
+
+	@Test
+	public void testInPlace() {
+		final Img<UnsignedShortType> img1 = create(new long[] { 300, 400, 2 }, 1);
+		final Img<UnsignedShortType> img2 = create(new long[] { 300, 400, 2 }, 3);
+		final Img<DoubleType> expected = calcService.combine(img1, img2, add);
+		calcService.combine(img1, img2, add, img1);
+		assertSameValues(expected, img1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutputTooSmall() {
+		final Img<UnsignedShortType> img1 = create(new long[] { 30, 40 }, 1);
+		final Img<UnsignedShortType> img2 = create(new long[] { 30, 40 }, 2);
+		final Img<UnsignedShortType> output = create(new long[] { 30, 39 }, 0);
+		calcService.combine(img1, img2, add, output);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDimensionalityMismatch() {
+		calcService.overlap(create(new long[] { 3, 4 }, 1), create(new long[] { 3,
+			4, 5 }, 1));
+	}
+
+	// -- Helper methods --
+
+	private Img<UnsignedShortType> create(final long[] dims, final int seed) {
+		final Img<UnsignedShortType> img =
+			new ArrayImgFactory<UnsignedShortType>().create(dims,
+				new UnsignedShortType());
+		int i = 0;
+		for (final UnsignedShortType t : img) {
+			t.set((i++ * seed) % 30000);
+		}
+		return img;
+	}
+
+	private void assertSameValues(final Img<DoubleType> expected,
+		final Img<UnsignedShortType> actual)
+	{
+		final Cursor<DoubleType> cursor = expected.localizingCursor();
+		final RandomAccess<UnsignedShortType> access = actual.randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			assertEquals(cursor.get().get(), access.get().getRealDouble(), 0);
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.data.overlay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link ThresholdOverlay#classifyPlane}.
+ */
+public class ThresholdOverlayTest {
+
+	private static final AxisType[] AXES = { Axes.X, Axes.Y, Axes.Z };
+
+	private final Context context = new Context(DatasetService.class,
+		ThreadService.class);
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testUnsigned16BitEdges() {
+		final double[] values = { 0, 1, 2, 99, 100, 101, 65533, 65534, 65535 };
+		final Dataset ds = dataset(new long[] { 9, 5, 2 }, 16, false, values);
+		assertClassified(ds, 0, 65535);
+		assertClassified(ds, 1, 65534);
+		assertClassified(ds, 100, 100);
+		assertClassified(ds, 99.5, 100.5);
+		assertClassified(ds, -10, 70000);
+		assertClassified(ds, 65535, 65535);
+	}
+
+	@Test
+	public void testSigned16BitEdges() {
+		final double[] values = { -32768, -32767, -1, 0, 1, 32766, 32767 };
+		final Dataset ds = dataset(new long[] { 7, 4, 2 }, 16, true, values);
+		assertClassified(ds, -32768, 32767);
+		assertClassified(ds, -32767, 32766);
+		assertClassified(ds, 0, 0);
+		assertClassified(ds, -0.5, 0.5);
+	}
+
+	@Test
+	public void testUnsigned8Bit() {
+		final double[] values = { 0, 1, 127, 128, 254, 255 };
+		final Dataset ds = dataset(new long[] { 11, 6, 3 }, 8, false, values);
+		assertClassified(ds, 0, 255);
+		assertClassified(ds, 1, 254);
+		assertClassified(ds, 128, 127);
+	}
+
+	@Test
+	public void testFloat() {
+		final double[] values = { Double.NaN, -1.5, 0, 2.25, 1e9 };
+		final Dataset ds = dataset(new long[] { 10, 7, 2 }, 32, true, values);
+		assertClassified(ds, -1.5, 2.25);
+		assertClassified(ds, 0, 0);
+	}
+
+	@Test
+	public void testParallel() {
+		// enough rows to be classified by several threads
+		final double[] values = { 0, 17, 1000, 40000, 65535 };
+		final Dataset ds = dataset(new long[] { 600, 300 }, 16, false, values);
+		assertClassified(ds, 17, 40000);
+	}
+
+	@Test
+	public void testCache() {
+		final double[] values = { 0, 1, 100, 65534, 65535 };
+		final Dataset ds = dataset(new long[] { 9, 5, 2 }, 16, false, values);
+		final ThresholdOverlay overlay =
+			new ThresholdOverlay(context, ds, 1, 65534);
+		final long[] pos = { 0, 0, 1 };
+		final byte[] classes = overlay.classifyPlane(pos, 1, 1, 7, 3);
+		assertSame(classes, overlay.classifyPlane(pos, 1, 1, 7, 3));
+		assertRegion(ds, overlay, pos, 1, 1, 7, 3);
+
+		// a new range must not reuse the classes, or the table, of the old one
+		overlay.setRange(100, 100);
+		assertNotSame(classes, overlay.classifyPlane(pos, 1, 1, 7, 3));
+		assertRegion(ds, overlay, pos, 1, 1, 7, 3);
+		overlay.setRange(0, 65535);
+		assertRegion(ds, overlay, pos, 1, 1, 7, 3);
+
+		// nor must new data
+		overlay.setRange(1, 65535);
+		assertRegion(ds, overlay, pos, 1, 1, 7, 3);
+		final RandomAccess<? extends RealType<?>> access =
+			ds.getImgPlus().randomAccess();
+		access.setPosition(pos);
+		for (int y = 1; y < 4; y++) {
+			access.setPosition(y, 1);
+			for (int x = 1; x < 8; x++) {
+				access.setPosition(x, 0);
+				access.get().setReal(0);
+			}
+		}
+		ds.update();
+		assertRegion(ds, overlay, pos, 1, 1, 7, 3);
+
+		// nor a different plane or region
+		assertRegion(ds, overlay, new long[] { 0, 0, 0 }, 1, 1, 7, 3);
+		assertRegion(ds, overlay, pos, 0, 0, 9, 5);
+	}
+
+	// -- Helper methods --
+
+	private Dataset dataset(final long[] dims, final int bitsPerPixel,
+		final boolean signed, final double[] values)
+	{
+		final AxisType[] axes = new AxisType[dims.length];
+		System.arraycopy(AXES, 0, axes, 0, dims.length);
+		final Dataset ds =
+			context.getService(DatasetService.class).create(dims, "test", axes,
+				bitsPerPixel, signed, bitsPerPixel == 32);
+		int i = 0;
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal(values[(i++ * 7) % values.length]);
+		}
+		return ds;
+	}
+
+	/** Checks whole and partial regions of every plane. */
+	private void assertClassified(final Dataset ds, final double min,
+		final double max)
+	{
+		final ThresholdOverlay overlay = new ThresholdOverlay(context, ds, min, max);
+		final int w = (int) ds.dimension(0), h = (int) ds.dimension(1);
+		final long planes = ds.numDimensions() > 2 ? ds.dimension(2) : 1;
+		for (long z = 0; z < planes; z++) {
+			final long[] pos = new long[ds.numDimensions()];
+			if (pos.length > 2) pos[2] = z;
+			assertRegion(ds, overlay, pos, 0, 0, w, h);
+			assertRegion(ds, overlay, pos, 1, 2, w - 2, h - 3);
+		}
+	}
+
+	/** Compares a classified region with the rule applied to each point. */
+	private void assertRegion(final Dataset ds, final ThresholdOverlay overlay,
+		final long[] position, final int x, final int y, final int width,
+		final int height)
+	{
+		final byte[] classes =
+			overlay.classifyPlane(position, x, y, width, height);
+		assertEquals(width * height, classes.length);
+		final RandomAccess<? extends RealType<?>> access =
+			ds.getImgPlus().randomAccess();
+		final long[] point = position.clone();
+		for (int r = 0; r < height; r++) {
+			for (int c = 0; c < width; c++) {
+				point[0] = x + c;
+				point[1] = y + r;
+				access.setPosition(point);
+				final double value = access.get().getRealDouble();
+				final byte expected;
+				if (Double.isNaN(value)) expected = ThresholdOverlay.CLASS_NAN;
+				else if (value < overlay.getRangeMin()) {
+					expected = ThresholdOverlay.CLASS_LESS;
+				}
+				else if (value > overlay.getRangeMax()) {
+					expected = ThresholdOverlay.CLASS_GREATER;
+				}
+				else expected = ThresholdOverlay.CLASS_WITHIN;
+				assertEquals("value " + value, expected, classes[r * width + c]);
+				assertEquals(expected, classOf(overlay.classify(point)));
+			}
+		}
+	}
+
+	/** Maps a result of {@link ThresholdOverlay#classify} to a class. */
+	private byte classOf(final int classification) {
+		if (classification == Integer.MAX_VALUE) {
+			return ThresholdOverlay.CLASS_NAN;
+		}
+		if (classification < 0) return ThresholdOverlay.CLASS_LESS;
+		if (classification > 0) return ThresholdOverlay.CLASS_GREATER;
+		return ThresholdOverlay.CLASS_WITHIN;
+	}
+
+}
@@ -39,6 +39,10 @@
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 import imagej.data.Dataset;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import net.imglib2.RandomAccess;
 import net.imglib2.meta.Axes;
 import net.imglib2.meta.AxisType;
@@ -63,6 +67,10 @@ public class GrayPixelHarmonizer implements DataHarmonizer {
 	private double[] savedPlane;
 	private int savedPos;
 
+	// checksums of each ImagePlus' planes as of their last harmonization
+	private final Map<ImagePlus, long[]> checksums =
+		new WeakHashMap<ImagePlus, long[]>();
+
 	// -- public api --
 
 	// NOTE: to propagate a VirtualStack's first plane pixel changes we save it
@@ -81,13 +89,25 @@ public void savePlane(int pos, double[] plane) {
 		savedPlane = plane;
 	}
 
+	/**
+	 * Discards the plane checksums recorded for an {@link ImagePlus}. Must be
+	 * called whenever the ImagePlus and its {@link Dataset} are synchronized by
+	 * some means other than this harmonizer, so that a later
+	 * {@link #updateDataset} copies every plane.
+	 */
+	public void forget(final ImagePlus imp) {
+		checksums.remove(imp);
+	}
+
 	/**
 	 * Assigns the data values of a {@link Dataset} from a paired
 	 * {@link ImagePlus}. Assumes the Dataset and ImagePlus have compatible
-	 * dimensions and that the data planes are not directly mapped. Gets values
-	 * via {@link ImageProcessor}::getf(). In cases where there is a narrowing of
-	 * data into modern ImageJ types the data is range clamped. Does not change
-	 * the Dataset's metadata.
+	 * dimensions and that the data planes are not directly mapped. Copies a row
+	 * at a time, getting values via {@link ImageProcessor}::getf(int). In cases
+	 * where there is a narrowing of data into modern ImageJ types the data is
+	 * range clamped. Planes whose pixels are unchanged since the last
+	 * harmonization of the ImagePlus are skipped. Does not change the Dataset's
+	 * metadata.
 	 */
 	@Override
 	public void updateDataset(final Dataset ds, final ImagePlus imp) {
@@ -109,6 +129,13 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		final int tSize = imp.getNFrames();
 		final int cSize = imp.getNChannels();
 		final ImageStack stack = imp.getStack();
+		long[] sums = checksums.get(imp);
+		final boolean tracked = (sums != null) && (sums.length == stack.getSize());
+		if (!tracked) {
+			sums = new long[stack.getSize()];
+			checksums.put(imp, sums);
+		}
+		boolean changes = false;
 		int planeNum = 1;
 		final long[] pos = new long[dims.length];
 		int slice = imp.getCurrentSlice();
@@ -118,25 +145,28 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 				if (zIndex >= 0) pos[zIndex] = z;
 				for (int c = 0; c < cSize; c++) {
 					LegacyUtils.fillChannelIndices(dims, axes, c, pos);
-					ImageProcessor proc = stack.getProcessor(planeNum++);
+					final ImageProcessor proc = stack.getProcessor(planeNum++);
 					// TEMP HACK THAT FIXES VIRT STACK PROB BUT SLOW
 					// imp.setPosition(planeNum - 1);
-					for (int x = 0; x < xSize; x++) {
-						if (xIndex >= 0) pos[xIndex] = x;
-						for (int y = 0; y < ySize; y++) {
-							if (yIndex >= 0) pos[yIndex] = y;
-							accessor.setPosition(pos);
-							// NOTE: to propagate a VirtualStack's first plane pixel changes
-							// we save it early in the harmonization process and refer to it
-							// later. This code is part of that process
-							double value;
-							if (savedPos == planeNum - 1) {
-								int index = xSize * y + x;
-								value = savedPlane[index];
-							}
-							else {
-								value = proc.getf(x, y);
-							}
+					// NOTE: to propagate a VirtualStack's first plane pixel changes
+					// we save it early in the harmonization process and refer to it
+					// later. This code is part of that process
+					final double[] saved = (savedPos == planeNum - 1) ? savedPlane : null;
+					// skip planes the legacy side has not touched
+					final long sum = LegacyUtils.pixelChecksum(proc.getPixels());
+					if (tracked && saved == null && sums[planeNum - 1] == sum) continue;
+					sums[planeNum - 1] = sum;
+					changes = true;
+					// walk each row once: position at its start and step along X
+					if (xIndex >= 0) pos[xIndex] = 0;
+					for (int y = 0; y < ySize; y++) {
+						if (yIndex >= 0) pos[yIndex] = y;
+						accessor.setPosition(pos);
+						final int rowStart = xSize * y;
+						for (int x = 0; x < xSize; x++) {
+							if (x > 0 && xIndex >= 0) accessor.fwd(xIndex);
+							final int index = rowStart + x;
+							double value = (saved != null) ? saved[index] : proc.getf(index);
 							if (signed16BitData) value -= 32768.0;
 							if (value < typeMin) value = typeMin;
 							else if (value > typeMax) value = typeMax;
@@ -151,17 +181,19 @@ public void updateDataset(final Dataset ds, final ImagePlus imp) {
 		// to correct plane's values
 		stack.getProcessor(slice);
 
-		ds.update();
+		if (changes) ds.update();
 	}
 
 	/**
 	 * Assigns the data values of an {@link ImagePlus} from a paired
 	 * {@link Dataset}. Assumes the Dataset and ImagePlus are not directly mapped.
 	 * It is possible that multiple modern ImageJ axes are encoded as a single set
-	 * of channels in the ImagePlus. Sets values via {@link ImageProcessor}
-	 * ::setf(). Some special case code is in place to assure that BitType images
-	 * go to legacy ImageJ as 0/255 value images. Does not change the ImagePlus'
-	 * metadata.
+	 * of channels in the ImagePlus. Copies a row at a time, setting values via
+	 * {@link ImageProcessor}::setf(int, float). Some special case code is in
+	 * place to assure that BitType images go to legacy ImageJ as 0/255 value
+	 * images. Records a checksum of each plane so a later
+	 * {@link #updateDataset} can skip the planes that did not change. Does not
+	 * change the ImagePlus' metadata.
 	 */
 	@Override
 	public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
@@ -182,6 +214,7 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 		final int tSize = imp.getNFrames();
 		final int cSize = imp.getNChannels();
 		final ImageStack stack = imp.getStack();
+		final long[] sums = new long[stack.getSize()];
 		int planeNum = 1;
 		final long[] pos = new long[dims.length];
 		int slice = imp.getCurrentSlice();
@@ -194,20 +227,25 @@ public void updateLegacyImage(final Dataset ds, final ImagePlus imp) {
 					final ImageProcessor proc = stack.getProcessor(planeNum++);
 					// TEMP HACK THAT FIXES VIRT STACK PROB BUT SLOW
 					// imp.setPosition(planeNum - 1);
-					for (int x = 0; x < xSize; x++) {
-						if (xIndex >= 0) pos[xIndex] = x;
-						for (int y = 0; y < ySize; y++) {
-							if (yIndex >= 0) pos[yIndex] = y;
-							accessor.setPosition(pos);
+					// walk each row once: position at its start and step along X
+					if (xIndex >= 0) pos[xIndex] = 0;
+					for (int y = 0; y < ySize; y++) {
+						if (yIndex >= 0) pos[yIndex] = y;
+						accessor.setPosition(pos);
+						final int rowStart = xSize * y;
+						for (int x = 0; x < xSize; x++) {
+							if (x > 0 && xIndex >= 0) accessor.fwd(xIndex);
 							double value = accessor.get().getRealDouble();
 							if (signed16BitData) value += 32768.0;
 							else if (bitData) if (value > 0) value = 255;
-							proc.setf(x, y, (float)value);
+							proc.setf(rowStart + x, (float) value);
 						}
 					}
+					sums[planeNum - 2] = LegacyUtils.pixelChecksum(proc.getPixels());
 				}
 			}
 		}
+		checksums.put(imp, sums);
 		// NOTE: the stack.getProcessor() calls that have been called so far have
 		// changed the current plane's pixels for virtual stacks. So reset pixels
 		// to correct plane's values
@@ -114,6 +114,8 @@ public Harmonizer(final LegacyService legacyService,
 		updateLegacyImage(final ImageDisplay display, final ImagePlus imp)
 	{
 		final Dataset ds = imageDisplayService.getActiveDataset(display);
+		// NB - only the gray pixel path records plane checksums
+		grayPixelHarmonizer.forget(imp);
 		/*
 		boolean binaryTypeChange = false;
 		if (imp.getBitDepth() == 8) {
@@ -199,15 +201,19 @@ public void updateDisplay(final ImageDisplay display, final ImagePlus imp) {
 		}
 		*/
 		if ((typeChanged) || (!dimensionsCompatible(ds, imp))) {
+			grayPixelHarmonizer.forget(imp);
 			rebuildDatasetData(ds, imp);
 		}
 		else { // ImagePlus type and shape unchanged
 			if (imp.getType() == ImagePlus.COLOR_RGB) {
+				grayPixelHarmonizer.forget(imp);
 				colorPixelHarmonizer.updateDataset(ds, imp);
 			}
 			else if (LegacyUtils.datasetIsIJ1Compatible(ds)) {
+				grayPixelHarmonizer.forget(imp);
 				planeHarmonizer.updateDataset(ds, imp);
 			}
+			// NB - only copies planes changed since the last updateLegacyImage()
 			else grayPixelHarmonizer.updateDataset(ds, imp);
 		}
 		metadataHarmonizer.updateDataset(ds, imp);
@@ -359,6 +359,34 @@ static long calcIJ1ChannelPos(long[] dims, AxisType[] axes, long[] pos) {
 		return ij1Pos;
 	}
 	
+	/**
+	 * Returns a 64-bit checksum of a legacy ImageJ pixel array (byte[], short[],
+	 * int[] or float[]). Used to detect which planes of an {@link ImagePlus}
+	 * changed between harmonizations without copying them. Returns 0 for any
+	 * other kind of object.
+	 */
+	static long pixelChecksum(final Object pixels) {
+		long sum = 0xcbf29ce484222325L;
+		if (pixels instanceof byte[]) {
+			for (final byte v : (byte[]) pixels)
+				sum = (sum ^ v) * 0x100000001b3L;
+		}
+		else if (pixels instanceof short[]) {
+			for (final short v : (short[]) pixels)
+				sum = (sum ^ v) * 0x100000001b3L;
+		}
+		else if (pixels instanceof int[]) {
+			for (final int v : (int[]) pixels)
+				sum = (sum ^ v) * 0x100000001b3L;
+		}
+		else if (pixels instanceof float[]) {
+			for (final float v : (float[]) pixels)
+				sum = (sum ^ Float.floatToRawIntBits(v)) * 0x100000001b3L;
+		}
+		else return 0;
+		return sum;
+	}
+
 	// -- private helper methods --
 
 	/**
@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.legacy.translate;
+
+import static org.junit.Assert.assertEquals;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Unit tests for {@link GrayPixelHarmonizer}.
+ */
+public class GrayPixelHarmonizerTest {
+
+	private Context context = new Context(DatasetService.class);
+
+	@Test
+	public void testRoundTripSigned16Bit() {
+		final DatasetService service = context.getService(DatasetService.class);
+		final Dataset ds =
+			service.create(new long[] { 3, 2, 2 }, "test", new AxisType[] { Axes.X,
+				Axes.Y, Axes.Z }, 16, true, false);
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		for (int z = 0; z < 2; z++) {
+			for (int y = 0; y < 2; y++) {
+				for (int x = 0; x < 3; x++) {
+					accessor.setPosition(new long[] { x, y, z });
+					accessor.get().setReal(value(x, y, z) - 100);
+				}
+			}
+		}
+
+		final ImageStack stack = new ImageStack(3, 2);
+		stack.addSlice("1", new ShortProcessor(3, 2));
+		stack.addSlice("2", new ShortProcessor(3, 2));
+		final ImagePlus imp = new ImagePlus("test", stack);
+
+		final GrayPixelHarmonizer harmonizer = new GrayPixelHarmonizer();
+		harmonizer.updateLegacyImage(ds, imp);
+		for (int z = 0; z < 2; z++) {
+			final ImageProcessor proc = imp.getStack().getProcessor(z + 1);
+			for (int y = 0; y < 2; y++) {
+				for (int x = 0; x < 3; x++) {
+					assertEquals(value(x, y, z) - 100 + 32768, proc.get(x, y));
+				}
+			}
+		}
+
+		for (int z = 0; z < 2; z++) {
+			final ImageProcessor proc = imp.getStack().getProcessor(z + 1);
+			for (int y = 0; y < 2; y++) {
+				for (int x = 0; x < 3; x++) {
+					proc.set(x, y, value(x, y, z) + 32768);
+				}
+			}
+		}
+		harmonizer.updateDataset(ds, imp);
+		for (int z = 0; z < 2; z++) {
+			for (int y = 0; y < 2; y++) {
+				for (int x = 0; x < 3; x++) {
+					accessor.setPosition(new long[] { x, y, z });
+					assertEquals(value(x, y, z), accessor.get().getRealDouble(), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOnlyChangedPlanesCopied() {
+		final DatasetService service = context.getService(DatasetService.class);
+		final Dataset ds =
+			service.create(new long[] { 3, 2, 2 }, "test", new AxisType[] { Axes.X,
+				Axes.Y, Axes.Z }, 16, true, false);
+		final ImageStack stack = new ImageStack(3, 2);
+		stack.addSlice("1", new ShortProcessor(3, 2));
+		stack.addSlice("2", new ShortProcessor(3, 2));
+		final ImagePlus imp = new ImagePlus("test", stack);
+
+		final GrayPixelHarmonizer harmonizer = new GrayPixelHarmonizer();
+		harmonizer.updateLegacyImage(ds, imp);
+
+		// change the Dataset behind the harmonizer's back
+		final RandomAccess<? extends RealType<?>> accessor =
+			ds.getImgPlus().randomAccess();
+		accessor.setPosition(new long[] { 0, 0, 0 });
+		accessor.get().setReal(7);
+		accessor.setPosition(new long[] { 0, 0, 1 });
+		accessor.get().setReal(7);
+
+		// only touch the second legacy plane
+		imp.getStack().getProcessor(2).set(1, 1, 32768 + 9);
+		harmonizer.updateDataset(ds, imp);
+
+		accessor.setPosition(new long[] { 0, 0, 0 });
+		assertEquals(7, accessor.get().getRealDouble(), 0);
+		accessor.setPosition(new long[] { 0, 0, 1 });
+		assertEquals(0, accessor.get().getRealDouble(), 0);
+		accessor.setPosition(new long[] { 1, 1, 1 });
+		assertEquals(9, accessor.get().getRealDouble(), 0);
+
+		// untracked planes are always copied
+		harmonizer.forget(imp);
+		harmonizer.updateDataset(ds, imp);
+		accessor.setPosition(new long[] { 0, 0, 0 });
+		assertEquals(0, accessor.get().getRealDouble(), 0);
+	}
+
+	// -- helpers --
+
+	private int value(final int x, final int y, final int z) {
+		return 100 * z + 10 * y + x;
+	}
+}
@@ -37,6 +37,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import ij.ImagePlus;
 import ij.ImageStack;
 import ij.process.ByteProcessor;
@@ -118,4 +119,17 @@ public void testRasterization() {
 		}
 	}
 
+	@Test
+	public void testPixelChecksum() {
+		final short[] a = new short[] { 1, 2, 3, 4 };
+		final short[] b = new short[] { 1, 2, 3, 4 };
+		assertEquals(LegacyUtils.pixelChecksum(a), LegacyUtils.pixelChecksum(b));
+		b[2] = 5;
+		assertTrue(LegacyUtils.pixelChecksum(a) != LegacyUtils.pixelChecksum(b));
+		final float[] f = new float[] { 0, 1 };
+		final long sum = LegacyUtils.pixelChecksum(f);
+		f[0] = -0f;
+		assertTrue(sum != LegacyUtils.pixelChecksum(f));
+		assertEquals(0, LegacyUtils.pixelChecksum("not pixels"));
+	}
 }
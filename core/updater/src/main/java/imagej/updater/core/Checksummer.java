@@ -51,6 +51,7 @@
 import java.io.Writer;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -61,10 +62,20 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipException;
 
 /**
  * A class to checksum and timestamp all the files shown in the Updater's UI.
+ * <p>
+ * The files are hashed on a small pool of worker threads; the results are
+ * still processed, and progress reported, in queue order on the calling
+ * thread.
+ * </p>
  * 
  * @author Johannes Schindelin
  * @author Yap Chin Kiet
@@ -76,12 +87,30 @@ public class Checksummer extends AbstractProgressable {
 	private Map<String, FileObject.Version> cachedChecksums;
 	private boolean isWindows; // time tax for Redmont
 	private Map<String, List<StringAndFile>> queue;
+	private int threads;
+
+	// Hashing is mostly waiting for the disk, so do not go beyond this
+	private final static int MAX_THREADS = 8;
 
 	public Checksummer(final FilesCollection files, final Progress progress) {
 		this.files = files;
 		if (progress != null) addProgress(progress);
 		setTitle("Checksummer");
 		isWindows = Util.getPlatform().startsWith("win");
+		threads =
+			Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Sets the number of files to hash concurrently. A value of 1 hashes the
+	 * files one after another on the calling thread.
+	 */
+	public void setThreads(final int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public int getThreads() {
+		return threads;
 	}
 
 	protected static class StringAndFile {
@@ -90,6 +119,7 @@ protected static class StringAndFile {
 		private File file;
 		public long timestamp;
 		public String checksum;
+		protected Future<Digests> digests;
 
 		protected StringAndFile(final String path, final File file) {
 			this.path = path;
@@ -173,8 +203,15 @@ protected void handle(final String unversioned) {
 			addItem(pair.path);
 
 			if (pair.file.exists()) try {
-				pair.timestamp = Util.getTimestamp(pair.file);
-				pair.checksum = getDigest(pair.path, pair.file, pair.timestamp);
+				if (pair.digests != null) {
+					final Digests digests = getDigests(pair.digests);
+					pair.timestamp = digests.timestamp;
+					pair.checksum = record(pair.path, digests);
+				}
+				else {
+					pair.timestamp = Util.getTimestamp(pair.file);
+					pair.checksum = getDigest(pair.path, pair.file, pair.timestamp);
+				}
 			}
 			catch (final ZipException e) {
 				files.log.error("Problem digesting " + pair.file);
@@ -373,16 +410,64 @@ protected void handle(final StringAndFile pair) {
 
 	protected void handleQueue() {
 		total = 0;
+		int count = 0;
 		for (final String unversioned : queue.keySet())
-			for (final StringAndFile pair : queue.get(unversioned))
+			for (final StringAndFile pair : queue.get(unversioned)) {
 				total += (int) pair.file.length();
+				count++;
+			}
 		counter = 0;
-		for (final String unversioned : queue.keySet())
-			handle(unversioned);
+		final ExecutorService executor =
+			threads > 1 && count > 1 ? Executors.newFixedThreadPool(Math.min(
+				threads, count)) : null;
+		try {
+			if (executor != null) submitAll(executor);
+			for (final String unversioned : queue.keySet())
+				handle(unversioned);
+		}
+		finally {
+			if (executor != null) executor.shutdownNow();
+		}
 		done();
 		writeCachedChecksums();
 	}
 
+	/**
+	 * Starts hashing all the queued files. The workers consult a snapshot of
+	 * the cached checksums, since the calling thread updates the cache while
+	 * they run.
+	 */
+	protected void submitAll(final ExecutorService executor) {
+		if (cachedChecksums == null) readCachedChecksums();
+		final Map<String, FileObject.Version> snapshot =
+			new HashMap<String, FileObject.Version>(cachedChecksums);
+		for (final String unversioned : queue.keySet())
+			for (final StringAndFile pair : queue.get(unversioned)) {
+				if (!pair.file.exists()) continue;
+				pair.digests = executor.submit(new Callable<Digests>() {
+
+					@Override
+					public Digests call() throws Exception {
+						return digest(pair.path, pair.file, Util
+							.getTimestamp(pair.file), snapshot);
+					}
+				});
+			}
+	}
+
+	protected static Digests getDigests(final Future<Digests> future)
+		throws Exception
+	{
+		try {
+			return future.get();
+		}
+		catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) throw (Exception) cause;
+			throw e;
+		}
+	}
+
 	public void updateFromLocal(final List<String> files) {
 		queue = new LinkedHashMap<String, List<StringAndFile>>();
 		for (final String file : files)
@@ -528,26 +613,77 @@ protected String getDigest(final String path, final File file,
 		ZipException
 	{
 		if (cachedChecksums == null) readCachedChecksums();
-		FileObject.Version version = cachedChecksums.get(path);
-		if (version == null || timestamp != version.timestamp) {
-			final String checksum = path.equals("plugins/Fiji_Updater.jar") ?
-				Util.getJarDigest(file, false, false, false) :
-				Util.getDigest(path, file);
-			version = new FileObject.Version(checksum, timestamp);
-			cachedChecksums.put(path, version);
+		return record(path, digest(path, file, timestamp, cachedChecksums));
+	}
+
+	/**
+	 * The checksums of one file, as far as they were not cached already.
+	 */
+	protected static class Digests {
+
+		public final long timestamp;
+		public final String checksum;
+		/** The obsolete checksums of a .jar file, or null if known already. */
+		public final List<String> obsoletes;
+
+		public Digests(final long timestamp, final String checksum,
+			final List<String> obsoletes)
+		{
+			this.timestamp = timestamp;
+			this.checksum = checksum;
+			this.obsoletes = obsoletes;
 		}
-		if (!cachedChecksums.containsKey(":" + version.checksum)) {
-			final List<String> obsoletes = Util.getObsoleteDigests(path, file);
-			if (obsoletes != null) {
-				final StringBuilder builder = new StringBuilder();
-				for (final String obsolete : obsoletes) {
-					if (builder.length() > 0) builder.append(':');
-					builder.append(obsolete);
-				}
-				cachedChecksums.put(":" + version.checksum, new FileObject.Version(
-					builder.toString(), timestamp));
+	}
+
+	/**
+	 * Calculates whatever checksums of a file the given cache lacks. The cache is
+	 * only read, so this may run on any thread as long as nobody modifies the
+	 * cache meanwhile.
+	 */
+	protected static Digests digest(final String path, final File file,
+		final long timestamp, final Map<String, FileObject.Version> cache)
+		throws IOException, NoSuchAlgorithmException, ZipException
+	{
+		final FileObject.Version version = cache.get(path);
+		String checksum =
+			version == null || timestamp != version.timestamp ? null
+				: version.checksum;
+		List<String> obsoletes = null;
+		if (path.endsWith(".jar") &&
+			(checksum == null || !cache.containsKey(":" + checksum)))
+		{
+			// one pass over the .jar yields all the variants
+			final String[] digests = Util.getJarDigests(file);
+			if (checksum == null) {
+				checksum =
+					path.equals("plugins/Fiji_Updater.jar") ? digests[digests.length - 1]
+						: digests[0];
 			}
+			obsoletes = Arrays.asList(digests).subList(1, digests.length);
+		}
+		else if (checksum == null) {
+			checksum = Util.getDigest(path, file);
+		}
+		return new Digests(timestamp, checksum, obsoletes);
+	}
+
+	/**
+	 * Stores the checksums of a file in the cache.
+	 * 
+	 * @return the checksum of the file
+	 */
+	protected String record(final String path, final Digests digests) {
+		final FileObject.Version version = cachedChecksums.get(path);
+		if (version == null || digests.timestamp != version.timestamp) {
+			cachedChecksums.put(path, new FileObject.Version(digests.checksum,
+				digests.timestamp));
+		}
+		if (digests.obsoletes != null &&
+			!cachedChecksums.containsKey(":" + digests.checksum))
+		{
+			cachedChecksums.put(":" + digests.checksum, new FileObject.Version(Util
+				.join(":", digests.obsoletes), digests.timestamp));
 		}
-		return version.checksum;
+		return digests.checksum;
 	}
 }
@@ -328,6 +328,7 @@ public void resolve() {
 				checksummer.updateFromLocal(Collections.singletonList(file
 					.getFilename()));
 				files.updateDependencies(file);
+				files.flushDependencyAnalysis();
 			}
 		});
 	}
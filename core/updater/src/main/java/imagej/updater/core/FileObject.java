@@ -50,6 +50,7 @@
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 
 import org.scijava.util.FileUtils;
@@ -171,6 +172,13 @@ public Action getNoAction() {
 		}
 	}
 
+	/**
+	 * Counts the changes to any {@link FileObject}'s status, action, update
+	 * site, checksum or platforms; {@link FilesCollection} rebuilds its indexes
+	 * when this count moved since it last looked.
+	 */
+	private static final AtomicLong modifications = new AtomicLong();
+
 	protected Map<String, FileObject> overriddenUpdateSites = new HashMap<String, FileObject>();
 	private Status status;
 	private Action action;
@@ -228,6 +236,7 @@ public void merge(final FileObject upstream) {
 			current = upstream.current;
 			status = upstream.status;
 			action = upstream.action;
+			modified();
 		}
 		else {
 			final Version other = upstream.current;
@@ -247,6 +256,7 @@ public void completeMetadataFrom(final FileObject other) {
 		if (authors == null || authors.size() == 0) authors = other.authors;
 		if (platforms == null || platforms.size() == 0) platforms = other.platforms;
 		if (categories == null || categories.size() == 0) categories = other.categories;
+		modified();
 	}
 
 	public boolean hasPreviousVersion(final String checksum) {
@@ -274,6 +284,7 @@ void setVersion(final String checksum, final long timestamp) {
 		if (current != null) previous.add(current);
 		current = new Version(checksum, timestamp);
 		current.filename = filename;
+		modified();
 	}
 
 	public void setLocalVersion(final String filename, final String checksum, final long timestamp) {
@@ -354,6 +365,7 @@ public void addPlatform(String platform) {
 		if ("linux".equals(platform)) platforms.add("linux32");
 		else if (platform != null && !platform.trim().equals("")) platforms.add(platform
 			.trim());
+		modified();
 	}
 
 	public Iterable<String> getPlatforms() {
@@ -397,6 +409,7 @@ else if (dep.overrides != obsoleted) {
 		map.clear();
 		for (final String string : list)
 			map.add(string.trim());
+		if (map == platforms) modified();
 	}
 
 	public Iterable<String> getCategories() {
@@ -413,8 +426,23 @@ public void addPreviousVersion(final String checksum, final long timestamp, fina
 		if (!previous.contains(version)) previous.add(version);
 	}
 
+	/**
+	 * Moves this file to another update site.
+	 * <p>
+	 * Prefer this to assigning {@link #updateSite} directly, so that the
+	 * {@link FilesCollection}s holding this file notice the change.
+	 * </p>
+	 * 
+	 * @param updateSite the name of the new update site, or null
+	 */
+	public void setUpdateSite(final String updateSite) {
+		this.updateSite = updateSite;
+		modified();
+	}
+
 	public void setNoAction() {
 		action = status.getNoAction();
+		modified();
 	}
 
 	public void setAction(final FilesCollection files, final Action action) {
@@ -442,6 +470,7 @@ public void setAction(final FilesCollection files, final Action action) {
 			originalUpdateSite = null;
 		}
 		this.action = action;
+		modified();
 	}
 
 	public boolean setFirstValidAction(final FilesCollection files,
@@ -464,6 +493,7 @@ public void markUploaded() {
 			status = Status.INSTALLED;
 			localChecksum = current.checksum;
 			localTimestamp = current.timestamp;
+			modified();
 		}
 		else if (isObsolete() || status == Status.UPDATEABLE) {
 			/* force re-upload */
@@ -497,6 +527,7 @@ public void markRemoved(final FilesCollection files) {
 		addPreviousVersion(current.checksum, current.timestamp, current.filename);
 		setStatus(Status.OBSOLETE_UNINSTALLED);
 		current = null;
+		modified();
 
 		if (overriding != null) {
 			for (final Map.Entry<String, FileObject> entry : overriddenUpdateSites.entrySet()) {
@@ -509,6 +540,21 @@ public void markRemoved(final FilesCollection files) {
 		}
 	}
 
+	/**
+	 * Returns the number of changes to indexed properties of any file so far.
+	 */
+	static long getModificationCount() {
+		return modifications.get();
+	}
+
+	/**
+	 * Records that the status, action, update site, checksum or platforms of
+	 * this file changed.
+	 */
+	protected void modified() {
+		modifications.incrementAndGet();
+	}
+
 	public String getLocalFilename(boolean forDisplay) {
 		if (localFilename == null || localFilename.equals(filename)) return filename;
 		if (!forDisplay) return localFilename;
@@ -58,8 +58,11 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -96,6 +99,8 @@ public class FilesCollection extends LinkedHashMap<String, FileObject>
 	private DependencyAnalyzer dependencyAnalyzer;
 	public final Util util;
 
+	private transient Index index;
+
 	/**
 	 * This constructor takes the imagejRoot primarily for testing purposes.
 	 * 
@@ -148,7 +153,7 @@ public void renameUpdateSite(final String oldName, final String newName) {
 
 		// handle all files
 		for (final FileObject file : this)
-			if (oldName.equals(file.updateSite)) file.updateSite = newName;
+			if (oldName.equals(file.updateSite)) file.setUpdateSite(newName);
 
 		// preserve order
 		final Map<String, UpdateSite> oldMap = updateSites;
@@ -169,7 +174,7 @@ public void removeUpdateSite(final String name) {
 			}
 			else {
 				file.setStatus(Status.LOCAL_ONLY);
-				file.updateSite = null;
+				file.setUpdateSite(null);
 			}
 		}
 		updateSites.remove(name);
@@ -394,7 +399,7 @@ public FilesCollection clone(final Iterable<FileObject> iterable) {
 	}
 
 	public Iterable<FileObject> toUploadOrRemove() {
-		return filter(or(is(Action.UPLOAD), is(Action.REMOVE)));
+		return withAction(Action.UPLOAD, Action.REMOVE);
 	}
 
 	public Iterable<FileObject> toUpload() {
@@ -402,7 +407,7 @@ public Iterable<FileObject> toUpload() {
 	}
 
 	public Iterable<FileObject> toUpload(final boolean includeMetadataChanges) {
-		if (!includeMetadataChanges) return filter(is(Action.UPLOAD));
+		if (!includeMetadataChanges) return withAction(Action.UPLOAD);
 		return filter(or(is(Action.UPLOAD), new Filter() {
 
 			@Override
@@ -413,49 +418,55 @@ public boolean matches(final FileObject file) {
 	}
 
 	public Iterable<FileObject> toUpload(final String updateSite) {
-		return filter(and(is(Action.UPLOAD), isUpdateSite(updateSite)));
+		return filter(isUpdateSite(updateSite), withAction(Action.UPLOAD));
 	}
 
 	public Iterable<FileObject> toUninstall() {
-		return filter(is(Action.UNINSTALL));
+		return withAction(Action.UNINSTALL);
 	}
 
 	public Iterable<FileObject> toRemove() {
-		return filter(is(Action.REMOVE));
+		return withAction(Action.REMOVE);
 	}
 
 	public Iterable<FileObject> toUpdate() {
-		return filter(is(Action.UPDATE));
+		return withAction(Action.UPDATE);
 	}
 
 	public Iterable<FileObject> upToDate() {
-		return filter(is(Action.INSTALLED));
+		return withAction(Action.INSTALLED);
 	}
 
 	public Iterable<FileObject> toInstall() {
-		return filter(is(Action.INSTALL));
+		return withAction(Action.INSTALL);
 	}
 
 	public Iterable<FileObject> toInstallOrUpdate() {
-		return filter(oneOf(Action.INSTALL, Action.UPDATE));
+		return withAction(Action.INSTALL, Action.UPDATE);
 	}
 
 	public Iterable<FileObject> notHidden() {
-		return filter(and(not(is(Status.OBSOLETE_UNINSTALLED)), doesPlatformMatch()));
+		return lookup(new Lookup() {
+
+			@Override
+			public List<FileObject> get(final Index index) {
+				final List<FileObject> candidates =
+					hasUploadableSites() ? index.all() : index.updateablePlatform();
+				return index.without(candidates, Status.OBSOLETE_UNINSTALLED);
+			}
+		});
 	}
 
 	public Iterable<FileObject> uninstalled() {
-		return filter(is(Status.NOT_INSTALLED));
+		return withStatus(Status.NOT_INSTALLED);
 	}
 
 	public Iterable<FileObject> installed() {
-		return filter(not(oneOf(Status.LOCAL_ONLY,
-			Status.NOT_INSTALLED)));
+		return withoutStatus(Status.LOCAL_ONLY, Status.NOT_INSTALLED);
 	}
 
 	public Iterable<FileObject> locallyModified() {
-		return filter(oneOf(Status.MODIFIED,
-			Status.OBSOLETE_MODIFIED));
+		return withStatus(Status.MODIFIED, Status.OBSOLETE_MODIFIED);
 	}
 
 	public Iterable<FileObject> forUpdateSite(final String name) {
@@ -466,7 +477,13 @@ public Iterable<FileObject> forUpdateSite(final String name, boolean includeObso
 		Filter filter = and(doesPlatformMatch(), isUpdateSite(name));
 		if (!includeObsoletes) {
 			filter = and(not(is(Status.OBSOLETE_UNINSTALLED)), filter);
-			return filter(filter);
+			return filter(filter, lookup(new Lookup() {
+
+				@Override
+				public List<FileObject> get(final Index index) {
+					return index.forUpdateSite(name);
+				}
+			}));
 		}
 		// make sure that overridden records are kept
 		List<FileObject> result = new ArrayList<FileObject>();
@@ -483,11 +500,11 @@ public Iterable<FileObject> forUpdateSite(final String name, boolean includeObso
 	}
 
 	public Iterable<FileObject> managedFiles() {
-		return filter(not(is(Status.LOCAL_ONLY)));
+		return withoutStatus(Status.LOCAL_ONLY);
 	}
 
 	public Iterable<FileObject> localOnly() {
-		return filter(is(Status.LOCAL_ONLY));
+		return withStatus(Status.LOCAL_ONLY);
 	}
 
 	public Iterable<FileObject> shownByDefault() {
@@ -498,7 +515,14 @@ public Iterable<FileObject> shownByDefault() {
 		final Status[] oneOf =
 			{ Status.UPDATEABLE, Status.NEW, Status.OBSOLETE,
 				Status.OBSOLETE_MODIFIED };
-		return filter(or(oneOf(oneOf), is(Action.INSTALL)));
+		return lookup(new Lookup() {
+
+			@Override
+			public List<FileObject> get(final Index index) {
+				return index.union(index.withStatus(oneOf), index
+					.withAction(Action.INSTALL));
+			}
+		});
 	}
 
 	public Iterable<FileObject> uploadable() {
@@ -508,15 +532,15 @@ public Iterable<FileObject> uploadable() {
 			public boolean matches(final FileObject file) {
 				return file.isUploadable(FilesCollection.this);
 			}
-		});
+		}, withoutStatus(Status.INSTALLED));
 	}
 
 	public Iterable<FileObject> changes() {
-		return filter(new Filter() {
+		return lookup(new Lookup() {
 
 			@Override
-			public boolean matches(final FileObject file) {
-				return file.getAction() != file.getStatus().getNoAction();
+			public List<FileObject> get(final Index index) {
+				return index.changes;
 			}
 		});
 	}
@@ -743,9 +767,8 @@ public Iterable<FileObject> filter(final Filter filter) {
 	public FileObject
 		getFileFromDigest(final String filename, final String digest)
 	{
-		for (final FileObject file : this)
-			if (file.getFilename().equals(filename) &&
-				file.getChecksum().equals(digest)) return file;
+		for (final FileObject file : index().withChecksum(digest))
+			if (file.getFilename().equals(filename)) return file;
 		return null;
 	}
 
@@ -768,6 +791,14 @@ public void updateDependencies(final FileObject file) {
 			file.addDependency(dependency, prefix(dependency));
 	}
 
+	/**
+	 * Writes what the dependency analysis cached so far to disk, so that later
+	 * sessions need not analyze unchanged .jar files again.
+	 */
+	public void flushDependencyAnalysis() {
+		if (dependencyAnalyzer != null) dependencyAnalyzer.flush();
+	}
+
 	public boolean has(final Filter filter) {
 		for (final FileObject file : this)
 			if (filter.matches(file)) return true;
@@ -775,11 +806,11 @@ public boolean has(final Filter filter) {
 	}
 
 	public boolean hasChanges() {
-		return has(not(isNoAction()));
+		return !index().changes.isEmpty();
 	}
 
 	public boolean hasUploadOrRemove() {
-		return has(oneOf(Action.UPLOAD, Action.REMOVE));
+		return !index().withAction(Action.UPLOAD, Action.REMOVE).isEmpty();
 	}
 
 	public boolean hasForcableUpdates() {
@@ -793,9 +824,15 @@ public Iterable<FileObject> updateable(final boolean evenForcedOnes) {
 
 			@Override
 			public boolean matches(final FileObject file) {
-				return file.isUpdateable(evenForcedOnes) && file.isUpdateablePlatform(FilesCollection.this);
+				return file.isUpdateable(evenForcedOnes);
 			}
-		});
+		}, lookup(new Lookup() {
+
+			@Override
+			public List<FileObject> get(final Index index) {
+				return index.updateablePlatform();
+			}
+		}));
 	}
 
 	public void markForUpdate(final boolean evenForcedUpdates) {
@@ -992,6 +1029,7 @@ public FileObject get(@SuppressWarnings("unused") final int index) {
 	}
 
 	public void add(final FileObject file) {
+		index = null;
 		super.put(file.getFilename(true), file);
 	}
 
@@ -1007,11 +1045,18 @@ public FileObject put(final String key, final FileObject file) {
 
 	@Override
 	public FileObject remove(final Object file) {
+		index = null;
 		if (file instanceof FileObject) super.remove(((FileObject) file).getFilename(true));
 		if (file instanceof String) return super.remove(FileObject.getFilename((String)file, true));
 		return null;
 	}
 
+	@Override
+	public void clear() {
+		index = null;
+		super.clear();
+	}
+
 	@Override
 	public Iterator<FileObject> iterator() {
 		final Iterator<Map.Entry<String, FileObject>> iterator = entrySet().iterator();
@@ -1122,4 +1167,252 @@ public Collection<String> getProtocols(Iterable<FileObject> selected) {
 		}
 		return protocols;
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Answers a query from the secondary indexes.
+	 * <p>
+	 * The lookup is performed every time the result is iterated, so the result
+	 * reflects the state of the files at that time, just like {@link #filter}.
+	 * </p>
+	 */
+	private Iterable<FileObject> lookup(final Lookup lookup) {
+		return new Iterable<FileObject>() {
+
+			@Override
+			public Iterator<FileObject> iterator() {
+				return Collections.unmodifiableList(lookup.get(index())).iterator();
+			}
+		};
+	}
+
+	private Iterable<FileObject> withAction(final Action... actions) {
+		return lookup(new Lookup() {
+
+			@Override
+			public List<FileObject> get(final Index index) {
+				return index.withAction(actions);
+			}
+		});
+	}
+
+	private Iterable<FileObject> withStatus(final Status... states) {
+		return lookup(new Lookup() {
+
+			@Override
+			public List<FileObject> get(final Index index) {
+				return index.withStatus(states);
+			}
+		});
+	}
+
+	private Iterable<FileObject> withoutStatus(final Status... states) {
+		return lookup(new Lookup() {
+
+			@Override
+			public List<FileObject> get(final Index index) {
+				return index.without(index.all(), states);
+			}
+		});
+	}
+
+	/**
+	 * Returns the secondary indexes, rebuilding them if this collection or any
+	 * {@link FileObject} changed since they were built.
+	 */
+	private Index index() {
+		final long stamp = FileObject.getModificationCount();
+		if (index == null || index.stamp != stamp || !index.isFor(this)) {
+			index = new Index(stamp);
+		}
+		return index;
+	}
+
+	// -- Helper classes --
+
+	private interface Lookup {
+
+		List<FileObject> get(Index index);
+	}
+
+	/**
+	 * Secondary indexes of the files by status, action, update site, checksum
+	 * and platform.
+	 * <p>
+	 * The index is built in a single pass over the collection and replaced
+	 * wholesale when it goes stale; its lists are never modified afterwards, so
+	 * they can be handed out while the files change.
+	 * </p>
+	 */
+	private class Index {
+
+		private final long stamp;
+		private final Map<FileObject, Integer> order =
+			new IdentityHashMap<FileObject, Integer>();
+		private final List<FileObject> all = new ArrayList<FileObject>();
+		private final Map<Status, List<FileObject>> byStatus =
+			new EnumMap<Status, List<FileObject>>(Status.class);
+		private final Map<Action, List<FileObject>> byAction =
+			new EnumMap<Action, List<FileObject>>(Action.class);
+		private final Map<String, List<FileObject>> byUpdateSite =
+			new HashMap<String, List<FileObject>>();
+		private final Map<String, List<FileObject>> byChecksum =
+			new HashMap<String, List<FileObject>>();
+		// files without any platform are filed under null
+		private final Map<String, List<FileObject>> byPlatform =
+			new HashMap<String, List<FileObject>>();
+		private final List<FileObject> changes = new ArrayList<FileObject>();
+		private Set<String> updateablePlatforms;
+		private List<FileObject> updateablePlatform;
+
+		private Index(final long stamp) {
+			this.stamp = stamp;
+			for (final FileObject file : FilesCollection.this) {
+				order.put(file, all.size());
+				all.add(file);
+				put(byStatus, file.getStatus(), file);
+				put(byAction, file.getAction(), file);
+				put(byUpdateSite, file.updateSite, file);
+				final String checksum = file.getChecksum();
+				if (checksum != null) put(byChecksum, checksum, file);
+				boolean hasPlatform = false;
+				for (final String platform : file.getPlatforms()) {
+					put(byPlatform, platform, file);
+					hasPlatform = true;
+				}
+				if (!hasPlatform) put(byPlatform, null, file);
+				if (file.actionSpecified()) changes.add(file);
+			}
+		}
+
+		private boolean isFor(final FilesCollection files) {
+			return files == FilesCollection.this;
+		}
+
+		private List<FileObject> all() {
+			return all;
+		}
+
+		private List<FileObject> withStatus(final Status... states) {
+			final List<List<FileObject>> lists = new ArrayList<List<FileObject>>();
+			for (final Status status : states)
+				lists.add(get(byStatus, status));
+			return union(lists);
+		}
+
+		private List<FileObject> withAction(final Action... actions) {
+			final List<List<FileObject>> lists = new ArrayList<List<FileObject>>();
+			for (final Action action : actions)
+				lists.add(get(byAction, action));
+			return union(lists);
+		}
+
+		private List<FileObject> forUpdateSite(final String name) {
+			return get(byUpdateSite, name);
+		}
+
+		private List<FileObject> withChecksum(final String checksum) {
+			return get(byChecksum, checksum);
+		}
+
+		/**
+		 * Returns the files that are platform-independent or that are for at
+		 * least one of the platforms this ImageJ can update.
+		 */
+		private List<FileObject> updateablePlatform() {
+			// the updateable platforms can be changed without touching any file
+			final Set<String> platforms = new HashSet<String>();
+			for (final String platform : byPlatform.keySet()) {
+				if (platform == null || util.isUpdateablePlatform(platform)) {
+					platforms.add(platform);
+				}
+			}
+			if (!platforms.equals(updateablePlatforms)) {
+				final List<List<FileObject>> lists = new ArrayList<List<FileObject>>();
+				for (final String platform : platforms)
+					lists.add(byPlatform.get(platform));
+				updateablePlatform = union(lists);
+				updateablePlatforms = platforms;
+			}
+			return updateablePlatform;
+		}
+
+		/** Returns the given files except those having one of the states. */
+		private List<FileObject> without(final List<FileObject> files,
+			final Status... states)
+		{
+			int excluded = 0;
+			for (final Status status : states)
+				excluded += get(byStatus, status).size();
+			if (excluded == 0) return files;
+			final Set<Status> set = EnumSet.noneOf(Status.class);
+			set.addAll(Arrays.asList(states));
+			final List<FileObject> result = new ArrayList<FileObject>();
+			for (final FileObject file : files)
+				if (!set.contains(file.getStatus())) result.add(file);
+			return result;
+		}
+
+		private List<FileObject> union(final List<FileObject> a,
+			final List<FileObject> b)
+		{
+			final List<List<FileObject>> lists = new ArrayList<List<FileObject>>();
+			lists.add(a);
+			lists.add(b);
+			return union(lists);
+		}
+
+		/**
+		 * Merges the given lists, dropping duplicates and keeping the order of
+		 * the collection.
+		 */
+		private List<FileObject> union(final List<List<FileObject>> lists) {
+			List<FileObject> single = null;
+			int count = 0;
+			for (final List<FileObject> list : lists) {
+				if (list.isEmpty()) continue;
+				single = list;
+				count++;
+			}
+			if (count == 0) return Collections.emptyList();
+			if (count == 1) return single;
+
+			final Set<FileObject> seen =
+				Collections.newSetFromMap(new IdentityHashMap<FileObject, Boolean>());
+			final List<FileObject> result = new ArrayList<FileObject>();
+			for (final List<FileObject> list : lists) {
+				for (final FileObject file : list)
+					if (seen.add(file)) result.add(file);
+			}
+			Collections.sort(result, new Comparator<FileObject>() {
+
+				@Override
+				public int compare(final FileObject a, final FileObject b) {
+					return order.get(a) - order.get(b);
+				}
+			});
+			return result;
+		}
+
+		private <K> List<FileObject> get(final Map<K, List<FileObject>> map,
+			final K key)
+		{
+			final List<FileObject> list = map.get(key);
+			if (list == null) return Collections.emptyList();
+			return list;
+		}
+
+		private <K> void put(final Map<K, List<FileObject>> map, final K key,
+			final FileObject file)
+		{
+			List<FileObject> list = map.get(key);
+			if (list == null) {
+				list = new ArrayList<FileObject>();
+				map.put(key, list);
+			}
+			list.add(file);
+		}
+	}
+
 }
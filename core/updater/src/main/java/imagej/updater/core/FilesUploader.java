@@ -211,6 +211,7 @@ public void upload(final Progress progress) throws Exception {
 			throw new RuntimeException("Unresolved upload conflicts!\n\n"
 				+ Util.join("\n", conflicts));
 		}
+		files.flushDependencyAnalysis();
 		uploader.addProgress(progress);
 		uploader.addProgress(new VerifyTimestamp());
 
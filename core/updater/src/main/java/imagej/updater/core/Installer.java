@@ -46,15 +46,26 @@
 import imagej.updater.util.UpdaterUserInterface;
 import imagej.updater.util.Util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 /**
  * A class that updates local files from all available update sites.
+ * <p>
+ * Files are downloaded from all sites at once, with at most
+ * {@link #getParallelism()} concurrent downloads per site, and checksummed
+ * while they arrive.
+ * </p>
  * 
  * @author Johannes Schindelin
  */
@@ -62,12 +73,18 @@ public class Installer extends Downloader {
 
 	private FilesCollection files;
 
+	/** The default number of concurrent downloads per update site. */
+	public final static int DEFAULT_PARALLELISM = 3;
+
+	/** .jar files larger than this are verified from disk, not from memory. */
+	protected final static long MAX_BUFFERED_JAR_SIZE = 32 * 1024 * 1024;
+
 	public Installer(final FilesCollection files, final Progress progress) {
 		super(progress, files.util);
 		this.files = files;
 		if (progress != null)
 			addProgress(progress);
-		addProgress(new VerifyFiles());
+		setParallelism(DEFAULT_PARALLELISM);
 	}
 
 	class Download implements Downloadable {
@@ -75,6 +92,7 @@ class Download implements Downloadable {
 		protected FileObject file;
 		protected String url;
 		protected File destination;
+		protected StreamingDigest digest;
 
 		Download(final FileObject file, final String url, final File destination) {
 			this.file = file;
@@ -101,6 +119,111 @@ public String getURL() {
 		public long getFilesize() {
 			return file.filesize;
 		}
+
+		/**
+		 * Returns the checksums calculated while downloading, or null if they
+		 * are not available.
+		 */
+		protected List<String> getStreamedDigests() {
+			if (digest == null) return null;
+			try {
+				return digest.getDigests();
+			}
+			catch (final IOException e) {
+				files.log.debug(e);
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Checksums a download while it arrives. Plain files are digested on the
+	 * fly. The checksums of .jar files depend on their sorted entries, so .jar
+	 * files are kept in memory instead, unless they are too large.
+	 */
+	protected static class StreamingDigest extends OutputStream {
+
+		private final MessageDigest digest;
+		private final ByteArrayOutputStream jar;
+		private List<String> digests;
+
+		public StreamingDigest(final String path, final long filesize)
+			throws IOException, NoSuchAlgorithmException
+		{
+			if (!path.endsWith(".jar")) {
+				digest = Util.getDigest();
+				digest.update(path.getBytes("ASCII"));
+				jar = null;
+			}
+			else {
+				digest = null;
+				jar =
+					filesize <= MAX_BUFFERED_JAR_SIZE ? new ByteArrayOutputStream(
+						(int) Math.max(0, filesize)) : null;
+			}
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			if (digest != null) digest.update((byte) b);
+			else if (jar != null) jar.write(b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len)
+			throws IOException
+		{
+			if (digest != null) digest.update(b, off, len);
+			else if (jar != null) jar.write(b, off, len);
+		}
+
+		/**
+		 * Returns the current checksum followed by any obsolete ones, or null if
+		 * the file was too large to be checksummed in memory.
+		 */
+		public synchronized List<String> getDigests() throws IOException {
+			if (digests == null) {
+				if (digest != null) digests =
+					Collections.singletonList(Util.toHex(digest.digest()));
+				else if (jar != null) digests =
+					Arrays.asList(Util.getJarDigests(jar.toByteArray()));
+			}
+			return digests;
+		}
+	}
+
+	@Override
+	protected String getSite(final Downloadable current) {
+		if (current instanceof Download) return ((Download) current).file.updateSite;
+		return super.getSite(current);
+	}
+
+	@Override
+	protected OutputStream createVerifier(final Downloadable current) {
+		if (!(current instanceof Download)) return null;
+		final Download download = (Download) current;
+		try {
+			download.digest =
+				new StreamingDigest(download.file.getFilename(), download.file.filesize);
+		}
+		catch (final Exception e) {
+			files.log.debug(e);
+			download.digest = null;
+		}
+		return download.digest;
+	}
+
+	@Override
+	protected boolean isValid(final Downloadable current) {
+		if (!(current instanceof Download)) return true;
+		final Download download = (Download) current;
+		final List<String> digests = download.getStreamedDigests();
+		return digests == null || digests.contains(download.file.getChecksum());
+	}
+
+	@Override
+	protected void completed(final Downloadable current) {
+		if (current instanceof Download) verify((Download) current);
 	}
 
 	public synchronized void start() throws IOException {
@@ -262,29 +385,6 @@ public boolean matches(final FileObject file) {
 		}
 	}
 
-	class VerifyFiles implements Progress {
-
-		@Override
-		public void itemDone(final Object item) {
-			verify((Download) item);
-		}
-
-		@Override
-		public void setTitle(final String title) {}
-
-		@Override
-		public void setCount(final int count, final int total) {}
-
-		@Override
-		public void addItem(final Object item) {}
-
-		@Override
-		public void setItemCount(final int count, final int total) {}
-
-		@Override
-		public void done() {}
-	}
-
 	public void verify(final Download download) {
 		final File destination = download.getDestination();
 		final long size = download.getFilesize();
@@ -296,7 +396,10 @@ public void verify(final Download download) {
 		final FileObject file = download.file;
 		final String digest = download.file.getChecksum();
 		String actualDigest;
-		try {
+		final List<String> streamed = download.getStreamedDigests();
+		if (streamed != null && streamed.contains(digest)) actualDigest = digest;
+		else try {
+			// no streamed checksum, or it did not match: check the file itself
 			actualDigest = Util.getDigest(file.getFilename(), destination);
 			if (!digest.equals(actualDigest)) {
 				List<String> obsoletes = Util.getObsoleteDigests(file.getFilename(), destination);
@@ -351,7 +454,11 @@ protected void moveUpdatedIntoPlace(final File sourceDirectory,
 				moveUpdatedIntoPlace(file, targetFile);
 			}
 			else if (file.isFile()) {
-				if (file.length() == 0) {
+				if (file.getName().endsWith(".part")) {
+					// left over from an interrupted download
+					deleteOrThrowException(file);
+				}
+				else if (file.length() == 0) {
 					if (targetFile.exists()) deleteOrThrowException(targetFile);
 					deleteOrThrowException(file);
 				}
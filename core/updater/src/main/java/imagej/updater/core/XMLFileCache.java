@@ -0,0 +1,376 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.core;
+
+import imagej.updater.core.FileObject.Status;
+import imagej.updater.core.FileObject.Version;
+import imagej.updater.util.Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A local, binary snapshot of the parsed index of each update site.
+ * <p>
+ * Parsing the XML index of a large update site takes a while. The
+ * {@link XMLFileDownloader} therefore stores the parsed files together with
+ * the <i>Last-Modified</i>, <i>ETag</i> and <i>Content-Length</i> headers of
+ * the index, and loads the files from the snapshot as long as the update site
+ * reports that the index did not change.
+ * </p>
+ */
+public class XMLFileCache {
+
+	public final static String CACHE_DIRECTORY = ".update-site-cache";
+
+	// bump when the format changes
+	private final static int MAGIC = 0x494a5853, VERSION = 2;
+
+	private final File directory;
+
+	public XMLFileCache(final FilesCollection files) {
+		directory = files.prefix(CACHE_DIRECTORY);
+	}
+
+	/**
+	 * Looks up the snapshot of an index.
+	 * 
+	 * @param url the URL of the index
+	 * @return the snapshot, or null if there is none
+	 */
+	public Snapshot getSnapshot(final String url) {
+		final File file = getFile(url);
+		if (!file.exists()) return null;
+		try {
+			final DataInputStream in = open(file);
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION ||
+					!url.equals(in.readUTF())) return null;
+				return new Snapshot(file, url, in.readLong(), readString(in), in
+					.readLong());
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (final IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the freshly parsed files of an index.
+	 * <p>
+	 * This must be called before the files are added to a
+	 * {@link FilesCollection}, as that modifies them.
+	 * </p>
+	 * 
+	 * @param url the URL of the index
+	 * @param lastModified the <i>Last-Modified</i> header of the index, as Unix
+	 *          epoch, or 0
+	 * @param eTag the <i>ETag</i> header of the index, or null
+	 * @param contentLength the <i>Content-Length</i> header of the index, or -1
+	 * @param files the parsed files
+	 * @throws IOException
+	 */
+	public void write(final String url, final long lastModified,
+		final String eTag, final long contentLength, final List<FileObject> files)
+		throws IOException
+	{
+		final File file = getFile(url);
+		if (lastModified == 0 && eTag == null) {
+			// we could never tell whether the snapshot is current
+			file.delete();
+			return;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException(
+			"Could not make directory " + directory);
+		final File tmp = new File(file.getPath() + ".tmp");
+		final DataOutputStream out =
+			new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(url);
+			out.writeLong(lastModified);
+			writeString(out, eTag);
+			out.writeLong(contentLength);
+			out.writeInt(files.size());
+			for (final FileObject object : files)
+				write(out, object);
+		}
+		finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) throw new IOException(
+			"Could not replace " + file);
+		if (!tmp.renameTo(file)) throw new IOException("Could not write " + file);
+	}
+
+	/**
+	 * The header of a snapshot; the files are read only when needed.
+	 */
+	public static class Snapshot {
+
+		private final File file;
+		private final String url;
+		private final long lastModified;
+		private final String eTag;
+		private final long contentLength;
+
+		private Snapshot(final File file, final String url,
+			final long lastModified, final String eTag, final long contentLength)
+		{
+			this.file = file;
+			this.url = url;
+			this.lastModified = lastModified;
+			this.eTag = eTag;
+			this.contentLength = contentLength;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public long getContentLength() {
+			return contentLength;
+		}
+
+		/**
+		 * Tells whether the index reported by a server is the one in the
+		 * snapshot.
+		 * <p>
+		 * Without <i>ETag</i>s, the <i>Last-Modified</i> headers need to agree.
+		 * As they only have a resolution of one second, so do the lengths of the
+		 * index, to catch an index that was rewritten within the same second.
+		 * </p>
+		 * 
+		 * @param lastModified the <i>Last-Modified</i> header, or 0
+		 * @param eTag the <i>ETag</i> header, or null
+		 * @param contentLength the <i>Content-Length</i> header, or -1
+		 */
+		public boolean matches(final long lastModified, final String eTag,
+			final long contentLength)
+		{
+			if (eTag != null && this.eTag != null) return eTag.equals(this.eTag);
+			return lastModified != 0 && lastModified == this.lastModified &&
+				contentLength == this.contentLength;
+		}
+
+		/**
+		 * Reads the files of the snapshot.
+		 * 
+		 * @param updateSite the name of the update site
+		 * @return new {@link FileObject}s, just as if the index had been parsed
+		 * @throws IOException if the snapshot is damaged
+		 */
+		public List<FileObject> read(final String updateSite) throws IOException {
+			final DataInputStream in = open(file);
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION ||
+					!url.equals(in.readUTF())) throw new IOException("Not a snapshot of " +
+					url + ": " + file);
+				in.readLong();
+				readString(in);
+				in.readLong();
+				final int count = in.readInt();
+				final List<FileObject> result = new ArrayList<FileObject>(count);
+				for (int i = 0; i < count; i++)
+					result.add(XMLFileCache.read(in, updateSite));
+				return result;
+			}
+			finally {
+				in.close();
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private File getFile(final String url) {
+		try {
+			final MessageDigest digest = Util.getDigest();
+			digest.update(url.getBytes("UTF-8"));
+			return new File(directory, Util.toHex(digest.digest()));
+		}
+		catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static DataInputStream open(final File file) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(
+			file)));
+	}
+
+	private static void write(final DataOutputStream out, final FileObject file)
+		throws IOException
+	{
+		writeString(out, file.filename);
+		out.writeBoolean(file.executable);
+		out.writeLong(file.filesize);
+		out.writeBoolean(file.current != null);
+		if (file.current != null) write(out, file.current);
+		out.writeInt(file.previous.size());
+		for (final Version version : file.previous)
+			write(out, version);
+		final List<Dependency> dependencies = new ArrayList<Dependency>();
+		for (final Dependency dependency : file.getDependencies())
+			dependencies.add(dependency);
+		out.writeInt(dependencies.size());
+		for (final Dependency dependency : dependencies) {
+			writeString(out, dependency.filename);
+			out.writeLong(dependency.timestamp);
+			out.writeBoolean(dependency.overrides);
+		}
+		writeString(out, file.description);
+		writeStrings(out, file.getAuthors());
+		writeStrings(out, file.getPlatforms());
+		writeStrings(out, file.getCategories());
+		writeStrings(out, file.getLinks());
+	}
+
+	private static FileObject read(final DataInputStream in,
+		final String updateSite) throws IOException
+	{
+		final FileObject file =
+			new FileObject(updateSite, readString(in), -1, null, 0,
+				Status.NOT_INSTALLED);
+		file.executable = in.readBoolean();
+		file.filesize = in.readLong();
+		if (in.readBoolean()) {
+			final Version current = readVersion(in);
+			file.setVersion(current.checksum, current.timestamp);
+			file.current.filename = current.filename;
+		}
+		for (int count = in.readInt(); count > 0; count--) {
+			final Version version = readVersion(in);
+			file.addPreviousVersion(version.checksum, version.timestamp,
+				version.filename);
+		}
+		for (int count = in.readInt(); count > 0; count--) {
+			file.addDependency(readString(in), in.readLong(), in.readBoolean());
+		}
+		file.description = readString(in);
+		for (final String author : readStrings(in))
+			file.addAuthor(author);
+		for (final String platform : readStrings(in))
+			file.addPlatform(platform);
+		for (final String category : readStrings(in))
+			file.addCategory(category);
+		for (final String link : readStrings(in))
+			file.addLink(link);
+		return file;
+	}
+
+	private static void write(final DataOutputStream out, final Version version)
+		throws IOException
+	{
+		writeString(out, version.checksum);
+		out.writeLong(version.timestamp);
+		writeString(out, version.filename);
+	}
+
+	private static Version readVersion(final DataInputStream in)
+		throws IOException
+	{
+		final Version version = new Version(readString(in), in.readLong());
+		version.filename = readString(in);
+		return version;
+	}
+
+	private static void writeStrings(final DataOutputStream out,
+		final Iterable<String> strings) throws IOException
+	{
+		final List<String> list = new ArrayList<String>();
+		for (final String string : strings)
+			list.add(string);
+		out.writeInt(list.size());
+		for (final String string : list)
+			writeString(out, string);
+	}
+
+	private static List<String> readStrings(final DataInputStream in)
+		throws IOException
+	{
+		final int count = in.readInt();
+		final List<String> result = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++)
+			result.add(readString(in));
+		return result;
+	}
+
+	// writeUTF() is limited to 64kB, which a description might exceed
+	private static void writeString(final DataOutputStream out,
+		final String string) throws IOException
+	{
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = string.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final DataInputStream in)
+		throws IOException
+	{
+		final int length = in.readInt();
+		if (length < 0) return null;
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+}
@@ -36,27 +36,51 @@
 package imagej.updater.core;
 
 import imagej.updater.util.AbstractProgressable;
+import imagej.updater.util.UpdateCanceledException;
 import imagej.updater.util.Util;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Directly in charge of downloading and saving start-up files (i.e.: XML file
  * and related).
+ * <p>
+ * The indexes of the update sites are fetched and parsed concurrently, but
+ * added to the collection one after the other, in the order of the update
+ * sites. An index that did not change since the last time is loaded from its
+ * {@link XMLFileCache} snapshot instead of being downloaded and parsed again.
+ * </p>
  * 
  * @author Johannes Schindelin
  */
 public class XMLFileDownloader extends AbstractProgressable {
 
+	// how often to update the progress while waiting for an index
+	private final static long PROGRESS_INTERVAL = 100; // ms
+
 	private FilesCollection files;
 	private Collection<String> updateSites;
 	private String warnings;
+	private int threads =
+		Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
 
 	public XMLFileDownloader(final FilesCollection files) {
 		this(files, files.getUpdateSiteNames(false));
@@ -78,35 +102,49 @@ public void start(boolean closeProgressAtEnd) {
 		if (updateSites == null || updateSites.size() == 0) return;
 		setTitle("Updating the index of available files");
 		final XMLFileReader reader = new XMLFileReader(files);
-		final int current = 0, total = updateSites.size();
+		final XMLFileCache cache = new XMLFileCache(files);
+		final int total = updateSites.size();
 		warnings = "";
+
+		final ExecutorService executor =
+			Executors.newFixedThreadPool(Math.min(threads, total));
+		final List<Index> indexes = new ArrayList<Index>();
 		for (final String name : updateSites) {
-			final UpdateSite updateSite = files.getUpdateSite(name, true);
-			final String title =
-				"Updating from " + (name.equals("") ? "main" : name) + " site: " + updateSite.getURL();
-			addItem(title);
-			setCount(current, total);
-			try {
-				final URLConnection connection =
-					files.util.openConnection(new URL(updateSite.getURL() + Util.XML_COMPRESSED));
-				final long lastModified = connection.getLastModified();
-				final int fileSize = connection.getContentLength();
-				final InputStream in =
-					getInputStream(new GZIPInputStream(connection.getInputStream()),
-						fileSize);
-				reader.read(name, in, updateSite.getTimestamp());
-				in.close();
-				updateSite.setLastModified(lastModified);
-			}
-			catch (final Exception e) {
-				if (e instanceof FileNotFoundException) {
-					// it was deleted
-					updateSite.setLastModified(0);
+			final Index index = new Index(files.getUpdateSite(name, true), cache);
+			index.future = executor.submit(index);
+			indexes.add(index);
+		}
+		executor.shutdown();
+
+		try {
+			int current = 0;
+			for (final Index index : indexes) {
+				final UpdateSite updateSite = index.site;
+				final String name = updateSite.getName();
+				final String title =
+					"Updating from " + (name.equals("") ? "main" : name) + " site: " + updateSite.getURL();
+				addItem(title);
+				setCount(current++, total);
+				try {
+					reader.read(name, waitFor(index), updateSite.getTimestamp());
+					updateSite.setLastModified(index.lastModified);
+				}
+				catch (final UpdateCanceledException e) {
+					throw e;
 				}
-				files.log.error(e);
-				warnings += "Could not update from site '" + name + "': " + e;
+				catch (final Exception e) {
+					if (e instanceof FileNotFoundException) {
+						// it was deleted
+						updateSite.setLastModified(0);
+					}
+					files.log.error(e);
+					warnings += "Could not update from site '" + name + "': " + e;
+				}
+				itemDone(title);
 			}
-			itemDone(title);
+		}
+		finally {
+			executor.shutdownNow();
 		}
 		if (closeProgressAtEnd) {
 			done();
@@ -114,6 +152,20 @@ public void start(boolean closeProgressAtEnd) {
 		warnings += reader.getWarnings();
 	}
 
+	/**
+	 * Sets how many update sites are fetched and parsed at the same time.
+	 * 
+	 * @param threads the number of threads
+	 */
+	public void setThreads(final int threads) {
+		if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+		this.threads = threads;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
 	public String getWarnings() {
 		return warnings;
 	}
@@ -158,4 +210,139 @@ public void close() throws IOException {
 			}
 		};
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * Waits for an index to be fetched, reporting the progress in the
+	 * meantime; the {@link imagej.updater.util.Progress} listeners are only
+	 * called from this thread.
+	 */
+	private List<FileObject> waitFor(final Index index) throws Exception {
+		for (;;) {
+			try {
+				return index.future.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+			catch (final TimeoutException e) {
+				setItemCount(index.count.get(), index.size);
+			}
+			catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Exception) throw (Exception) cause;
+				if (cause instanceof Error) throw (Error) cause;
+				throw e;
+			}
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Fetches the index of one update site, or loads it from the snapshot if it
+	 * did not change.
+	 */
+	private class Index implements Callable<List<FileObject>> {
+
+		private final UpdateSite site;
+		private final XMLFileCache cache;
+		private final AtomicInteger count = new AtomicInteger();
+		private Future<List<FileObject>> future;
+		private volatile int size = -1;
+		private volatile long lastModified;
+
+		private Index(final UpdateSite site, final XMLFileCache cache) {
+			this.site = site;
+			this.cache = cache;
+		}
+
+		@Override
+		public List<FileObject> call() throws Exception {
+			final String url = site.getURL() + Util.XML_COMPRESSED;
+			final XMLFileCache.Snapshot snapshot = cache.getSnapshot(url);
+			if (snapshot != null) {
+				final URLConnection connection =
+					files.util.openConnection(new URL(url));
+				if (snapshot.getLastModified() != 0) connection
+					.setIfModifiedSince(snapshot.getLastModified());
+				if (snapshot.getETag() != null) connection.setRequestProperty(
+					"If-None-Match", snapshot.getETag());
+				final long lastModified = connection.getLastModified();
+				final String eTag = connection.getHeaderField("ETag");
+				final long contentLength = connection.getContentLength();
+				final boolean notModified =
+					connection instanceof HttpURLConnection &&
+						((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+				if (notModified ||
+					snapshot.matches(lastModified, eTag, contentLength))
+				{
+					close(connection);
+					try {
+						final List<FileObject> result = snapshot.read(site.getName());
+						this.lastModified = snapshot.getLastModified();
+						return result;
+					}
+					catch (final IOException e) {
+						files.log.warn("Ignoring damaged snapshot of " + url + ": " + e);
+					}
+				}
+				else return parse(url, connection);
+			}
+			return parse(url, files.util.openConnection(new URL(url)));
+		}
+
+		private List<FileObject> parse(final String url,
+			final URLConnection connection) throws Exception
+		{
+			final long lastModified = connection.getLastModified();
+			final String eTag = connection.getHeaderField("ETag");
+			size = connection.getContentLength();
+			final InputStream in =
+				new GZIPInputStream(new FilterInputStream(connection.getInputStream()) {
+
+					@Override
+					public int read() throws IOException {
+						final int result = super.read();
+						if (result >= 0) count.incrementAndGet();
+						return result;
+					}
+
+					@Override
+					public int read(final byte[] b, final int off, final int len)
+						throws IOException
+					{
+						final int result = super.read(b, off, len);
+						if (result > 0) count.addAndGet(result);
+						return result;
+					}
+				});
+			final List<FileObject> result;
+			try {
+				result = new XMLFileReader(files).parse(site.getName(), in);
+			}
+			finally {
+				in.close();
+			}
+			try {
+				cache.write(url, lastModified, eTag, size, result);
+			}
+			catch (final IOException e) {
+				files.log.warn("Could not write snapshot of " + url + ": " + e);
+			}
+			this.lastModified = lastModified;
+			return result;
+		}
+
+		private void close(final URLConnection connection) {
+			if (connection instanceof HttpURLConnection) {
+				((HttpURLConnection) connection).disconnect();
+				return;
+			}
+			try {
+				connection.getInputStream().close();
+			}
+			catch (final IOException e) {
+				// ignore
+			}
+		}
+	}
 }
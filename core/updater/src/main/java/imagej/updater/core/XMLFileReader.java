@@ -86,6 +86,9 @@ public class XMLFileReader extends DefaultHandler {
 	private FileObject current;
 	private String currentTag, body;
 
+	// when non-null, the parsed files are collected here instead of being added
+	private List<FileObject> parsed;
+
 	public XMLFileReader(final FilesCollection files) {
 		this.files = files;
 	}
@@ -124,7 +127,61 @@ public void read(final String updateSite, final InputStream in,
 		this.updateSite = updateSite;
 		filesFromThisSite.clear();
 		newTimestamp = timestamp;
+		parse(in);
+	}
+
+	/**
+	 * Parses the index of an update site without adding the files to the
+	 * collection.
+	 * <p>
+	 * This does not touch the {@link FilesCollection}, so the indexes of several
+	 * update sites can be parsed concurrently, each by its own reader. The
+	 * result is passed to {@link #read(String, List, long)} afterwards.
+	 * </p>
+	 * 
+	 * @param updateSite the name of the update site
+	 * @param in the uncompressed index
+	 * @return the parsed files, in the order of the index
+	 */
+	public List<FileObject> parse(final String updateSite, final InputStream in)
+		throws ParserConfigurationException, IOException, SAXException
+	{
+		if (updateSite == null) throw new IllegalArgumentException(
+			"Need an update site");
+		this.updateSite = updateSite;
+		parsed = new ArrayList<FileObject>();
+		try {
+			parse(in);
+			return parsed;
+		}
+		finally {
+			parsed = null;
+		}
+	}
 
+	/**
+	 * Adds files parsed by {@link #parse(String, InputStream)} to the collection.
+	 * 
+	 * @param updateSite the name of the update site
+	 * @param parsedFiles the parsed files; they become part of the collection
+	 * @param timestamp the timestamp (not the Unix epoch) we last saw updates
+	 *          from this site
+	 */
+	public void read(final String updateSite, final List<FileObject> parsedFiles,
+		final long timestamp)
+	{
+		this.updateSite = updateSite;
+		filesFromThisSite.clear();
+		newTimestamp = timestamp;
+		for (final FileObject file : parsedFiles) {
+			current = file;
+			addCurrent();
+		}
+	}
+
+	private void parse(final InputStream in) throws ParserConfigurationException,
+		IOException, SAXException
+	{
 		final InputSource inputSource = new InputSource(in);
 		final SAXParserFactory factory = SAXParserFactory.newInstance();
 		factory.setNamespaceAware(true);
@@ -209,81 +266,92 @@ else if (updateSite == null &&
 		else if (tagName.equals("link")) current.addLink(body);
 		else if (tagName.equals("plugin")) {
 			fillPreviousFilenames(current);
-
-			if (current.current == null) current
-				.setStatus(Status.OBSOLETE_UNINSTALLED);
-			else if (current.isNewerThan(newTimestamp)) {
-				current.setStatus(Status.NEW);
-				current.setAction(files, current.isUpdateablePlatform(files)
-					? FileObject.Action.INSTALL : FileObject.Action.NEW);
+			if (parsed == null) addCurrent();
+			else {
+				parsed.add(current);
+				current = null;
 			}
-			FileObject file = files.get(current.filename);
-			if (updateSite == null && current.updateSite != null &&
-				files.getUpdateSite(current.updateSite, false) == null) ; // ignore file with invalid update site
-			else if (file == null) {
+		}
+		body = "";
+	}
+
+	/**
+	 * Adds the file that was just read to the collection, unless the collection
+	 * knows a better version already.
+	 */
+	private void addCurrent() {
+		if (current.current == null) current
+			.setStatus(Status.OBSOLETE_UNINSTALLED);
+		else if (current.isNewerThan(newTimestamp)) {
+			current.setStatus(Status.NEW);
+			current.setAction(files, current.isUpdateablePlatform(files)
+				? FileObject.Action.INSTALL : FileObject.Action.NEW);
+		}
+		FileObject file = files.get(current.filename);
+		if (updateSite == null && current.updateSite != null &&
+			files.getUpdateSite(current.updateSite, false) == null) ; // ignore file with invalid update site
+		else if (file == null) {
+			files.add(current);
+			filesFromThisSite.add(current);
+		}
+		else {
+			// Be nice to old-style update sites where Jama-1.0.2.jar and Jama.jar were different file objects
+			if (filesFromThisSite.contains(file)) {
+				if (file.isObsolete()) {
+					files.remove(file.filename);
+					final FileObject swap = file;
+					file = current;
+					current = swap;
+					files.add(file);
+					filesFromThisSite.add(file);
+				}
+				addPreviousVersions(current, file);
+			} else if (file.isObsolete()) {
+				if (file.updateSite != null) {
+					for (String site : file.overriddenUpdateSites.keySet())
+						current.overriddenUpdateSites.put(site,  file.overriddenUpdateSites.get(site));
+					file.overriddenUpdateSites.clear();
+					current.overriddenUpdateSites.put(file.updateSite, file);
+				}
 				files.add(current);
 				filesFromThisSite.add(current);
-			}
-			else {
-				// Be nice to old-style update sites where Jama-1.0.2.jar and Jama.jar were different file objects
-				if (filesFromThisSite.contains(file)) {
-					if (file.isObsolete()) {
-						files.remove(file.filename);
-						final FileObject swap = file;
-						file = current;
-						current = swap;
-						files.add(file);
-						filesFromThisSite.add(file);
-					}
-					addPreviousVersions(current, file);
-				} else if (file.isObsolete()) {
-					if (file.updateSite != null) {
-						for (String site : file.overriddenUpdateSites.keySet())
-							current.overriddenUpdateSites.put(site,  file.overriddenUpdateSites.get(site));
-						file.overriddenUpdateSites.clear();
+			} else if (current.isObsolete()) {
+				if (current.updateSite != null)
+					file.overriddenUpdateSites.put(current.updateSite, current);
+			} else if (getRank(files, updateSite) >= getRank(files, file.updateSite)) {
+				if ((updateSite != null && updateSite.equals(file.updateSite)) || (updateSite == null && file.updateSite == null)) {
+					; // simply update the object
+				} else {
+					for (String site : file.overriddenUpdateSites.keySet())
+						current.overriddenUpdateSites.put(site, file.overriddenUpdateSites.get(site));
+					file.overriddenUpdateSites.clear();
+					if (file.updateSite != null && !file.updateSite.equals(updateSite)) {
 						current.overriddenUpdateSites.put(file.updateSite, file);
 					}
-					files.add(current);
-					filesFromThisSite.add(current);
-				} else if (current.isObsolete()) {
-					if (current.updateSite != null)
-						file.overriddenUpdateSites.put(current.updateSite, current);
-				} else if (getRank(files, updateSite) >= getRank(files, file.updateSite)) {
-					if ((updateSite != null && updateSite.equals(file.updateSite)) || (updateSite == null && file.updateSite == null)) {
-						; // simply update the object
-					} else {
-						for (String site : file.overriddenUpdateSites.keySet())
-							current.overriddenUpdateSites.put(site, file.overriddenUpdateSites.get(site));
-						file.overriddenUpdateSites.clear();
-						if (file.updateSite != null && !file.updateSite.equals(updateSite)) {
-							current.overriddenUpdateSites.put(file.updateSite, file);
-						}
-					}
-					if (file.localFilename != null) {
-						current.localFilename = file.localFilename;
-					}
-					// do not forget metadata
-					current.completeMetadataFrom(file);
-					files.add(current);
-					filesFromThisSite.add(current);
-					if (this.updateSite != null && file.updateSite != null && getRank(files, this.updateSite) > getRank(files, file.updateSite))
-						files.log.debug("'" + current.filename
-								+ "' from update site '" + current.updateSite
-								+ "' shadows the one from update site '"
-								+ file.updateSite + "'");
 				}
-				else {
-					file.overriddenUpdateSites.put(updateSite, current);
-					if (this.updateSite != null && file.updateSite != null && getRank(files, file.updateSite) > getRank(files, this.updateSite))
-						files.log.debug("'" + file.filename
-								+ "' from update site '" + file.updateSite
-								+ "' shadows the one from update site '"
-								+ current.updateSite + "'");
+				if (file.localFilename != null) {
+					current.localFilename = file.localFilename;
 				}
+				// do not forget metadata
+				current.completeMetadataFrom(file);
+				files.add(current);
+				filesFromThisSite.add(current);
+				if (this.updateSite != null && file.updateSite != null && getRank(files, this.updateSite) > getRank(files, file.updateSite))
+					files.log.debug("'" + current.filename
+							+ "' from update site '" + current.updateSite
+							+ "' shadows the one from update site '"
+							+ file.updateSite + "'");
+			}
+			else {
+				file.overriddenUpdateSites.put(updateSite, current);
+				if (this.updateSite != null && file.updateSite != null && getRank(files, file.updateSite) > getRank(files, this.updateSite))
+					files.log.debug("'" + file.filename
+							+ "' from update site '" + file.updateSite
+							+ "' shadows the one from update site '"
+							+ current.updateSite + "'");
 			}
-			current = null;
 		}
-		body = "";
+		current = null;
 	}
 
 	/**
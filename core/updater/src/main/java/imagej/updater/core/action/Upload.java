@@ -156,7 +156,7 @@ public void setAction(FilesCollection files, FileObject file) {
 				file.originalUpdateSite == null) {
 			file.originalUpdateSite = file.updateSite;
 		}
-		file.updateSite = updateSite;
+		file.setUpdateSite(updateSite);
 		if (file.getStatus() == Status.INSTALLED) file.setStatus(Status.MODIFIED); // TODO: add to overriding
 		file.setAction(files, Action.UPLOAD);
 	}
@@ -38,27 +38,37 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.zip.ZipException;
 
 /**
  * Maps class names to the .jar files containing them.
  * 
  * The same class can be contained in multiple .jar files, of course.
  * 
+ * The class lists are taken from a {@link JarIndex}, so that only .jar files
+ * that changed since the index was written need to be opened.
+ * 
  * @author Johannes Schindelin
  */
 @SuppressWarnings("serial")
 public class Class2JarFilesMap extends HashMap<String, ArrayList<String>> {
 
 	protected final File imagejRoot;
+	protected final JarIndex index;
 
 	public Class2JarFilesMap(final File imagejRoot) {
+		this(imagejRoot, new JarIndex(imagejRoot));
+		index.write();
+	}
+
+	/**
+	 * Builds the map from the given index. Writing the index is left to the
+	 * caller.
+	 */
+	public Class2JarFilesMap(final File imagejRoot, final JarIndex index) {
 		this.imagejRoot = imagejRoot;
+		this.index = index;
 		addDirectory("plugins");
 		addDirectory("jars");
 	}
@@ -80,19 +90,8 @@ private void addDirectory(final String directory) {
 	}
 
 	private void addJar(final String jar) throws IOException {
-		try {
-			final JarFile file = new JarFile(new File(imagejRoot, jar));
-			final Enumeration<JarEntry> entries = file.entries();
-			while (entries.hasMoreElements()) {
-				final String name = (entries.nextElement()).getName();
-				if (name.endsWith(".class")) addClass(Util.stripSuffix(name, ".class")
-					.replace('/', '.'), jar);
-			}
-			file.close();
-		}
-		catch (final ZipException e) {
-			UpdaterUserInterface.get().log("Warning: could not open " + jar);
-		}
+		for (final String className : index.getClasses(jar))
+			addClass(className, jar);
 	}
 
 	/*
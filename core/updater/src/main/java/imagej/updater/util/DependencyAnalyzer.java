@@ -69,10 +69,12 @@
  */
 public class DependencyAnalyzer {
 
+	private final JarIndex index;
 	private final Class2JarFilesMap map;
 
 	public DependencyAnalyzer(final File imagejRoot) {
-		map = new Class2JarFilesMap(imagejRoot);
+		index = new JarIndex(imagejRoot);
+		map = new Class2JarFilesMap(imagejRoot, index);
 	}
 
 	public Iterable<String> getDependencies(final File imagejRoot,
@@ -93,18 +95,12 @@ public Iterable<String> getDependencies(final File imagejRoot,
 		final Set<String> result = new LinkedHashSet<String>();
 		final Set<String> handled = new HashSet<String>();
 
-		final JarFile jar = new JarFile(file);
-		for (final JarEntry entry : Collections.list(jar.entries())) {
-			if (!entry.getName().endsWith(".class")) continue;
-
-			final InputStream input = jar.getInputStream(entry);
-			final byte[] code = Util.readStreamAsBytes(input);
-			final ByteCodeAnalyzer analyzer = new ByteCodeAnalyzer(code, Mode.INTERFACES);
-
+		for (final List<String> references : getReferences(imagejRoot, path)) {
+			// NB: super classes and interfaces are looked up anew every time, as they
+			// depend on the class path and the other .jar files
 			final Set<String> allClassNames = new HashSet<String>();
-			for (final String name : analyzer)
+			for (final String name : references)
 				addClassAndInterfaces(allClassNames, handled, name);
-
 			classNameLoop:
 			for (final String name : allClassNames) {
 				UpdaterUserInterface.get().debug(
@@ -136,7 +132,54 @@ public Iterable<String> getDependencies(final File imagejRoot,
 				}
 			}
 		}
+		return result;
+	}
+
+	/**
+	 * Writes the analysis results cached since the last call to disk. Call this
+	 * once after analyzing a batch of files rather than after every file.
+	 */
+	public void flush() {
+		index.write();
+	}
+
+	/**
+	 * Gets the classes referenced by each class of a .jar file, as found by the
+	 * {@link ByteCodeAnalyzer}.
+	 * <p>
+	 * The references are cached in the {@link JarIndex} as long as the .jar file
+	 * does not change. They only depend on the .jar file itself.
+	 * </p>
+	 */
+	private List<List<String>> getReferences(final File imagejRoot,
+		final String path) throws IOException
+	{
+		final File indexRoot = index.getImageJRoot();
+		final boolean cached =
+			imagejRoot == null ? indexRoot == null : imagejRoot.equals(indexRoot);
+		if (cached) {
+			final List<List<String>> references = index.getReferences(path);
+			if (references != null) return references;
+		}
+
+		final List<List<String>> result = new ArrayList<List<String>>();
+
+		final JarFile jar = new JarFile(new File(imagejRoot, path));
+		for (final JarEntry entry : Collections.list(jar.entries())) {
+			if (!entry.getName().endsWith(".class")) continue;
+
+			final InputStream input = jar.getInputStream(entry);
+			final byte[] code = Util.readStreamAsBytes(input);
+			final ByteCodeAnalyzer analyzer = new ByteCodeAnalyzer(code, Mode.INTERFACES);
+
+			final Set<String> references = new LinkedHashSet<String>();
+			for (final String name : analyzer)
+				if (name != null) references.add(name);
+			result.add(new ArrayList<String>(references));
+		}
 		jar.close();
+
+		if (cached) index.setReferences(path, result);
 		return result;
 	}
 
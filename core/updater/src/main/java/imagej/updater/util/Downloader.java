@@ -36,31 +36,58 @@
 package imagej.updater.util;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Direct responsibility: Download a list of files given their respective URLs
  * to their respective destinations. Updates its download status to its
  * Observer as well.
+ * <p>
+ * Files are first written to a <i>.part</i> file next to their destination
+ * and only renamed once complete. An interrupted download is resumed from
+ * where it stopped, using an HTTP <i>Range</i> request. When a parallelism is
+ * set, the files of each update site are downloaded by that many concurrent
+ * connections, and all sites are served at the same time.
+ * </p>
  * 
  * @author Johannes Schindelin
  */
 public class Downloader extends AbstractProgressable {
 
 	protected int count, total, itemCount, itemTotal;
-	protected long lastModified;
+	protected volatile long lastModified;
 
 	protected String error;
-	protected boolean cancelled;
+	protected volatile boolean cancelled;
 
 	private final Util util;
 
+	// number of concurrent downloads per site; 0 means one file at a time
+	private int parallelism;
+
+	// guards the progress reporting and the counters
+	private final Object progressLock = new Object();
+	private Object latestItem;
+
 	@Deprecated
 	public Downloader() {
 		this(null, null);
@@ -80,6 +107,18 @@ public synchronized void cancel() {
 		cancelled = true;
 	}
 
+	/**
+	 * Sets how many files of the same site may be downloaded at the same time. A
+	 * value of 0 (the default) downloads all files one after another.
+	 */
+	public void setParallelism(final int downloadsPerSite) {
+		parallelism = Math.max(0, downloadsPerSite);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
 	public synchronized void start(final Downloadable justOne) throws IOException
 	{
 		start(Collections.singleton(justOne));
@@ -97,49 +136,272 @@ public void start(final Iterable<Downloadable> files) throws IOException {
 
 		setTitle("Downloading...");
 
-		for (final Downloadable current : files) {
+		if (parallelism > 0 && itemTotal > 1) startConcurrently(files);
+		else for (final Downloadable current : files) {
 			if (cancelled) break;
 			download(current);
 		}
 		done();
 	}
 
+	/**
+	 * Downloads the files with up to {@link #getParallelism()} connections per
+	 * site. The first failure cancels the remaining downloads and is rethrown.
+	 */
+	protected void startConcurrently(final Iterable<Downloadable> files)
+		throws IOException
+	{
+		final Map<String, Queue<Downloadable>> sites =
+			new LinkedHashMap<String, Queue<Downloadable>>();
+		for (final Downloadable file : files) {
+			final String site = getSite(file);
+			if (!sites.containsKey(site)) sites.put(site,
+				new ConcurrentLinkedQueue<Downloadable>());
+			sites.get(site).add(file);
+		}
+
+		final List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (final Queue<Downloadable> queue : sites.values()) {
+			final int count = Math.min(parallelism, queue.size());
+			for (int i = 0; i < count; i++) {
+				workers.add(new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						for (;;) {
+							if (cancelled) return null;
+							final Downloadable current = queue.poll();
+							if (current == null) return null;
+							transfer(current);
+						}
+					}
+				});
+			}
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+		try {
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (final Callable<Void> worker : workers)
+				futures.add(executor.submit(worker));
+			Throwable failure = null;
+			for (final Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (final InterruptedException e) {
+					cancelled = true;
+					if (failure == null) failure = e;
+				}
+				catch (final ExecutionException e) {
+					cancelled = true;
+					if (failure == null) failure = e.getCause();
+				}
+			}
+			if (failure instanceof IOException) throw (IOException) failure;
+			if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+			if (failure instanceof Error) throw (Error) failure;
+			if (failure != null) throw new IOException(failure);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	protected synchronized void download(final Downloadable current)
 		throws IOException
 	{
-		final URLConnection connection = util.openConnection(new URL(current.getURL()));
-		connection.setUseCaches(false);
-		lastModified = connection.getLastModified();
-		int currentTotal = connection.getContentLength();
-		if (currentTotal < 0) currentTotal = (int) current.getFilesize();
+		transfer(current);
+	}
 
-		final File destination = current.getDestination();
-		addItem(current);
+	/**
+	 * Downloads a single file, resuming a previous partial download if there is
+	 * one. Should the resumed file turn out invalid, it is downloaded again from
+	 * scratch.
+	 */
+	protected void transfer(final Downloadable current) throws IOException {
+		synchronized (progressLock) {
+			latestItem = current;
+			addItem(current);
+		}
+		final boolean resumed = fetch(current, true);
+		if (!cancelled && !isValid(current) && resumed) {
+			fetch(current, false);
+			if (!cancelled) isValid(current);
+		}
+		completed(current);
+		synchronized (progressLock) {
+			itemDone(current);
+		}
+	}
 
+	/**
+	 * Fetches the contents of a file into its <i>.part</i> file, and renames it
+	 * to its destination when complete.
+	 * 
+	 * @param current the file to download
+	 * @param resume whether to continue an existing <i>.part</i> file
+	 * @return whether a partial download was continued
+	 */
+	protected boolean fetch(final Downloadable current, final boolean resume)
+		throws IOException
+	{
+		final File destination = current.getDestination();
+		final File partial = getPartialFile(destination);
 		final File parentDirectory = destination.getParentFile();
 		if (parentDirectory != null) parentDirectory.mkdirs();
+
+		long offset = resume && partial.exists() ? partial.length() : 0;
+		URLConnection connection = openConnection(current, offset);
+		final boolean resumed = offset > 0 && isPartialContent(connection, offset);
+		if (offset > 0 && !resumed) {
+			// the server cannot resume; start over
+			if (connection instanceof HttpURLConnection) {
+				((HttpURLConnection) connection).disconnect();
+			}
+			offset = 0;
+			connection = openConnection(current, 0);
+		}
+		lastModified = connection.getLastModified();
+		long currentTotal = connection.getContentLength();
+		if (currentTotal < 0) currentTotal = current.getFilesize();
+		else currentTotal += offset;
+
+		final OutputStream verifier = createVerifier(current);
+		if (resumed && verifier != null) {
+			// the verifier needs to see the bytes of the earlier attempt, too
+			final InputStream previous = new FileInputStream(partial);
+			try {
+				final byte[] buffer = new byte[65536];
+				for (;;) {
+					final int count = previous.read(buffer);
+					if (count < 0) break;
+					verifier.write(buffer, 0, count);
+				}
+			}
+			finally {
+				previous.close();
+			}
+		}
+
 		final InputStream in = connection.getInputStream();
-		final OutputStream out = new FileOutputStream(destination);
+		final OutputStream out = new FileOutputStream(partial, resumed);
+		try {
+			copy(current, in, out, verifier, offset, currentTotal);
+		}
+		finally {
+			in.close();
+			out.close();
+			if (verifier != null) verifier.close();
+		}
+		if (!cancelled) {
+			if (destination.exists() && !destination.delete()) throw new IOException(
+				"Could not overwrite " + destination);
+			if (!partial.renameTo(destination)) throw new IOException(
+				"Could not rename " + partial + " to " + destination);
+		}
+		return resumed;
+	}
 
-		int currentCount = 0;
-		int total = this.total;
-		if (total == 0) total =
-			(count + currentTotal) * itemTotal / (itemCount + 1);
+	private URLConnection openConnection(final Downloadable current,
+		final long offset) throws IOException
+	{
+		final URLConnection connection =
+			util.openConnection(new URL(current.getURL()));
+		connection.setUseCaches(false);
+		if (offset > 0 && connection instanceof HttpURLConnection) {
+			connection.setRequestProperty("Range", "bytes=" + offset + "-");
+		}
+		return connection;
+	}
 
+	private void copy(final Downloadable current, final InputStream in,
+		final OutputStream out, final OutputStream verifier, final long offset,
+		final long currentTotal) throws IOException
+	{
 		final byte[] buffer = new byte[65536];
+		long currentCount = offset;
 		for (;;) {
 			if (cancelled) break;
 			final int count = in.read(buffer);
 			if (count < 0) break;
 			out.write(buffer, 0, count);
+			if (verifier != null) verifier.write(buffer, 0, count);
 			currentCount += count;
-			this.count += count;
+			reportProgress(current, count, currentCount, currentTotal);
+		}
+	}
+
+	private void reportProgress(final Downloadable current, final int delta,
+		final long currentCount, final long currentTotal)
+	{
+		synchronized (progressLock) {
+			this.count += delta;
+			int total = this.total;
+			if (total == 0) total =
+				(int) ((count + currentTotal) * itemTotal / (itemCount + 1));
 			setCount(this.count, total);
-			setItemCount(currentCount, currentTotal);
+			// only the latest item can show its own progress
+			if (latestItem == current) setItemCount((int) currentCount,
+				(int) currentTotal);
 		}
-		in.close();
-		out.close();
-		itemDone(current);
+	}
+
+	/** Returns whether the server answered a Range request as such. */
+	private static boolean isPartialContent(final URLConnection connection,
+		final long offset) throws IOException
+	{
+		if (!(connection instanceof HttpURLConnection)) return false;
+		if (((HttpURLConnection) connection).getResponseCode() != 206) return false;
+		final String range = connection.getHeaderField("Content-Range");
+		return range != null && range.startsWith("bytes " + offset + "-");
+	}
+
+	/**
+	 * Returns the file a download is written to before it is complete.
+	 */
+	protected File getPartialFile(final File destination) {
+		return new File(destination.getParentFile(), destination.getName() +
+			".part");
+	}
+
+	/**
+	 * Returns the name of the site a file is downloaded from. At most
+	 * {@link #getParallelism()} files of the same site are downloaded at the
+	 * same time.
+	 */
+	protected String getSite(final Downloadable current) {
+		try {
+			return new URL(current.getURL()).getHost();
+		}
+		catch (final IOException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * Returns a stream that is fed all the bytes of the given download while
+	 * they arrive, for example to checksum them, or null.
+	 */
+	protected OutputStream createVerifier(final Downloadable current) {
+		return null;
+	}
+
+	/**
+	 * Checks a completed download, outside of any progress reporting. A resumed
+	 * download failing the check is downloaded again from scratch.
+	 */
+	protected boolean isValid(final Downloadable current) {
+		return true;
+	}
+
+	/**
+	 * Finishes a download before it is reported as done, e.g. by verifying the
+	 * file. This runs outside of the progress reporting, so that concurrent
+	 * downloads need not wait for it.
+	 */
+	protected void completed(final Downloadable current) {
+		// do nothing by default
 	}
 
 	public long getLastModified() {
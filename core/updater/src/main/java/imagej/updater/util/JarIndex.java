@@ -0,0 +1,287 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * An on-disk cache of the classes contained in, and referenced by, the .jar
+ * files of an ImageJ directory.
+ * <p>
+ * Each .jar file is keyed by its path, size and modification time; only the
+ * .jar files that changed since the index was last written need to be
+ * re-read. The index is stored in the file {@value #INDEX_FILE} at the top of
+ * the ImageJ directory, next to the cached checksums.
+ * </p>
+ */
+public class JarIndex {
+
+	public final static String INDEX_FILE = ".jar-index";
+
+	// bump when the format or the meaning of the references changes
+	private final static String HEADER = "# jar index 2";
+
+	private final File imagejRoot;
+	private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+	private boolean dirty;
+
+	/**
+	 * Reads the index of the given ImageJ directory, if there is one.
+	 * 
+	 * @param imagejRoot the ImageJ directory, or null for an index that is only
+	 *          held in memory
+	 */
+	public JarIndex(final File imagejRoot) {
+		this.imagejRoot = imagejRoot;
+		read();
+	}
+
+	public File getImageJRoot() {
+		return imagejRoot;
+	}
+
+	/**
+	 * Gets the names of the classes contained in a .jar file.
+	 * 
+	 * @param path the path of the .jar file, relative to the ImageJ directory
+	 * @return the fully qualified class names
+	 * @throws IOException if the .jar file could not be read
+	 */
+	public synchronized List<String> getClasses(final String path)
+		throws IOException
+	{
+		return getEntry(path).classes;
+	}
+
+	/**
+	 * Gets the class references of a .jar file, as recorded by
+	 * {@link #setReferences(String, List)}. Only references that depend on
+	 * nothing but the .jar file itself belong here, since the entry is keyed on
+	 * that file alone.
+	 * 
+	 * @param path the path of the .jar file, relative to the ImageJ directory
+	 * @return one list of referenced class names per class in the .jar file, or
+	 *         null if the .jar file has not been analyzed since it last changed
+	 * @throws IOException if the .jar file could not be read
+	 */
+	public synchronized List<List<String>> getReferences(final String path)
+		throws IOException
+	{
+		return getEntry(path).references;
+	}
+
+	/**
+	 * Records the class references of a .jar file.
+	 * 
+	 * @param path the path of the .jar file, relative to the ImageJ directory
+	 * @param references one list of referenced class names per class
+	 * @throws IOException if the .jar file could not be read
+	 */
+	public synchronized void setReferences(final String path,
+		final List<List<String>> references) throws IOException
+	{
+		getEntry(path).references = references;
+		dirty = true;
+	}
+
+	/**
+	 * Writes the index if it changed, dropping the .jar files that vanished. The
+	 * index is written to a temporary file first, so that an interrupted write
+	 * cannot leave a truncated index behind.
+	 */
+	public synchronized void write() {
+		if (!dirty || imagejRoot == null) return;
+		final File file = new File(imagejRoot, INDEX_FILE);
+		final File tmp = new File(file.getPath() + ".tmp");
+		// file.canWrite() not applicable, as the file need not exist
+		try {
+			final Writer writer =
+				new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+			try {
+				writer.write(HEADER + "\n");
+				for (final Map.Entry<String, Entry> pair : entries.entrySet()) {
+					final String path = pair.getKey();
+					if (!new File(imagejRoot, path).exists()) continue;
+					final Entry entry = pair.getValue();
+					writer.write("J " + entry.size + " " + entry.lastModified + " " +
+						path + "\n");
+					for (final String className : entry.classes)
+						writer.write("C " + className + "\n");
+					if (entry.references == null) continue;
+					writer.write("A\n");
+					for (final List<String> references : entry.references)
+						writer.write(references.isEmpty() ? "R\n" : "R " +
+							Util.join(" ", references) + "\n");
+				}
+			}
+			finally {
+				writer.close();
+			}
+			if (file.exists() && !file.delete()) throw new IOException(
+				"Could not replace " + file);
+			if (!tmp.renameTo(file)) throw new IOException("Could not rename " +
+				tmp);
+			dirty = false;
+		}
+		catch (final IOException e) {
+			tmp.delete();
+			UpdaterUserInterface.get().log(
+				"Warning: could not write " + file + ": " + e.getMessage());
+		}
+	}
+
+	// -- Helper methods --
+
+	private Entry getEntry(final String path) throws IOException {
+		final File file = new File(imagejRoot, path);
+		final long size = file.length();
+		final long lastModified = file.lastModified();
+		Entry entry = entries.get(path);
+		if (entry == null || entry.size != size ||
+			entry.lastModified != lastModified)
+		{
+			entry = new Entry(size, lastModified, readClasses(file));
+			entries.put(path, entry);
+			dirty = true;
+		}
+		return entry;
+	}
+
+	private static List<String> readClasses(final File file) throws IOException {
+		final List<String> result = new ArrayList<String>();
+		final JarFile jar = new JarFile(file);
+		try {
+			final Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				final String name = entries.nextElement().getName();
+				if (name.endsWith(".class")) result.add(Util.stripSuffix(name,
+					".class").replace('/', '.'));
+			}
+		}
+		finally {
+			jar.close();
+		}
+		return result;
+	}
+
+	private void read() {
+		if (imagejRoot == null) return;
+		final File file = new File(imagejRoot, INDEX_FILE);
+		if (!file.exists()) return;
+		try {
+			final BufferedReader reader =
+				new BufferedReader(new InputStreamReader(new FileInputStream(file),
+					"UTF-8"));
+			try {
+				if (!HEADER.equals(reader.readLine())) return;
+				Entry entry = null;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("J ")) {
+						check(entry);
+						final int space = line.indexOf(' ', 2);
+						final int space2 = line.indexOf(' ', space + 1);
+						entry =
+							new Entry(Long.parseLong(line.substring(2, space)), Long
+								.parseLong(line.substring(space + 1, space2)),
+								new ArrayList<String>());
+						entries.put(line.substring(space2 + 1), entry);
+					}
+					else if (line.startsWith("C ")) entry.classes.add(line.substring(2));
+					else if (line.equals("A")) entry.references =
+						new ArrayList<List<String>>();
+					else if (line.equals("R")) entry.references.add(Collections
+						.<String> emptyList());
+					else if (line.startsWith("R ")) entry.references.add(Arrays
+						.asList(line.substring(2).split(" ")));
+					else throw new IOException("Unexpected line: " + line);
+				}
+				check(entry);
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (final Exception e) {
+			// start over rather than trusting a damaged index
+			UpdaterUserInterface.get().debug(
+				"Ignoring " + file + ": " + e.getMessage());
+			entries.clear();
+		}
+	}
+
+	/** Verifies that an entry read from disk has one reference list per class. */
+	private static void check(final Entry entry) throws IOException {
+		if (entry == null || entry.references == null) return;
+		if (entry.references.size() != entry.classes.size()) throw new IOException(
+			"Expected " + entry.classes.size() + " reference lists, got " +
+				entry.references.size());
+	}
+
+	// -- Helper classes --
+
+	private static class Entry {
+
+		private final long size, lastModified;
+		private final List<String> classes;
+		private List<List<String>> references;
+
+		private Entry(final long size, final long lastModified,
+			final List<String> classes)
+		{
+			this.size = size;
+			this.lastModified = lastModified;
+			this.classes = classes;
+		}
+	}
+
+}
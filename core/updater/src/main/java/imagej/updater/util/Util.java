@@ -37,6 +37,7 @@
 
 import java.awt.GraphicsEnvironment;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -49,6 +50,9 @@
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -62,11 +66,15 @@
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.scijava.log.LogService;
 import org.scijava.log.StderrLogService;
@@ -99,6 +107,19 @@ public class Util {
 
 	public final static String macPrefix = "Contents/MacOS/";
 
+	// Files smaller than this are read rather than memory-mapped for hashing
+	private final static long MAP_THRESHOLD = 256 * 1024;
+	private final static long MAP_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The {.properties, manifest, only Main-Class} flags of the .jar checksum
+	 * variants: the current one first, then the obsolete ones.
+	 */
+	private final static boolean[][] JAR_DIGEST_FLAGS = {
+		{ true, true, true }, { true, true, false }, { true, false, false },
+		{ false, false, false }
+	};
+
 	public final String platform;
 	public final String[] platforms, launchers;
 	protected final Set<String> updateablePlatforms;
@@ -173,10 +194,39 @@ public static String getDigest(final String path, final File file)
 		if (path.endsWith(".jar")) return getJarDigest(file);
 		final MessageDigest digest = getDigest();
 		digest.update(path.getBytes("ASCII"));
-		if (file != null) updateDigest(new FileInputStream(file), digest);
+		if (file != null) updateDigest(file, digest);
 		return toHex(digest.digest());
 	}
 
+	/**
+	 * Feeds the contents of a file into a digest. Larger files are mapped into
+	 * memory rather than copied through a stream buffer, except on Windows,
+	 * where a mapped file cannot be deleted or replaced until the mapping is
+	 * garbage collected.
+	 */
+	private static void updateDigest(final File file, final MessageDigest digest)
+		throws IOException
+	{
+		final FileInputStream in = new FileInputStream(file);
+		try {
+			final FileChannel channel = in.getChannel();
+			final long size = channel.size();
+			if (size < MAP_THRESHOLD || getPlatform().startsWith("win")) {
+				updateDigest(in, digest);
+				return;
+			}
+			for (long offset = 0; offset < size; offset += MAP_CHUNK_SIZE) {
+				final MappedByteBuffer buffer =
+					channel.map(MapMode.READ_ONLY, offset, Math.min(MAP_CHUNK_SIZE,
+						size - offset));
+				digest.update(buffer);
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
 	public static MessageDigest getDigest() throws NoSuchAlgorithmException {
 		return MessageDigest.getInstance("SHA-1");
 	}
@@ -197,11 +247,9 @@ public static List<String> getObsoleteDigests(final String path,
 		final File file) throws FileNotFoundException, IOException
 	{
 		if (!path.endsWith(".jar")) return null;
-		final List<String> result = new ArrayList<String>();
-		result.add(getJarDigest(file, true, true, false));
-		result.add(getJarDigest(file, true, false, false));
-		result.add(getJarDigest(file, false, false, false));
-		return result;
+		final String[] digests = getJarDigests(file);
+		return new ArrayList<String>(Arrays.asList(digests).subList(1,
+			digests.length));
 	}
 
 	public static void updateDigest(final InputStream input,
@@ -249,16 +297,10 @@ public static String getJarDigest(final File file, boolean treatPropertiesSpecia
 
 			for (final JarEntry entry : list) {
 				digest.update(entry.getName().getBytes("ASCII"));
-				InputStream inputStream = jar.getInputStream(entry);
-				// .properties files have a date in a comment; let's ignore this for the checksum
-				// For backwards-compatibility, activate the .properties mangling only from June 15th, 2012
-				if (treatPropertiesSpecially && entry.getName().endsWith(".properties")) {
-					inputStream = new SkipHashedLines(inputStream);
-				}
-				// same for manifests, but with July 6th, 2012
-				if (treatManifestsSpecially && entry.getName().equals("META-INF/MANIFEST.MF")) {
-					inputStream = new FilterManifest(inputStream, keepOnlyMainClassInManifest);
-				}
+				final InputStream inputStream =
+					filterJarEntry(entry.getName(), jar.getInputStream(entry),
+						treatPropertiesSpecially, treatManifestsSpecially,
+						keepOnlyMainClassInManifest);
 				updateDigest(inputStream, digest);
 			}
 			jar.close();
@@ -266,6 +308,138 @@ public static String getJarDigest(final File file, boolean treatPropertiesSpecia
 		return toHex(digest.digest());
 	}
 
+	/**
+	 * Calculates the current and all obsolete checksums of a .jar file in a
+	 * single pass over its entries. The first element is the checksum
+	 * {@link #getJarDigest(File)} returns; the remaining ones are those
+	 * {@link #getObsoleteDigests(String, File)} returns, in the same order.
+	 * 
+	 * @param file the .jar file
+	 * @return the checksums
+	 * @throws IOException
+	 */
+	public static String[] getJarDigests(final File file) throws IOException {
+		final MessageDigest[] digests = newJarDigests();
+		final JarFile jar = new JarFile(file);
+		try {
+			final List<JarEntry> list = Collections.list(jar.entries());
+			Collections.sort(list, new JarEntryComparator());
+
+			final byte[] buffer = new byte[65536];
+			for (final JarEntry entry : list) {
+				updateJarDigests(digests, entry.getName(), jar.getInputStream(entry),
+					buffer);
+			}
+		}
+		finally {
+			jar.close();
+		}
+		return toHex(digests);
+	}
+
+	/**
+	 * Calculates the same checksums as {@link #getJarDigests(File)} from the
+	 * contents of a .jar file held in memory.
+	 * 
+	 * @param jar the contents of the .jar file
+	 * @return the checksums
+	 * @throws IOException
+	 */
+	public static String[] getJarDigests(final byte[] jar) throws IOException {
+		// the entries are checksummed in sorted order
+		final Map<String, byte[]> entries = new TreeMap<String, byte[]>();
+		final ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(jar));
+		try {
+			for (;;) {
+				final ZipEntry entry = in.getNextEntry();
+				if (entry == null) break;
+				entries.put(entry.getName(), readStreamAsBytes(in));
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		final MessageDigest[] digests = newJarDigests();
+		final byte[] buffer = new byte[65536];
+		for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			updateJarDigests(digests, entry.getKey(), new ByteArrayInputStream(entry
+				.getValue()), buffer);
+		}
+		return toHex(digests);
+	}
+
+	private static MessageDigest[] newJarDigests() {
+		final MessageDigest[] digests = new MessageDigest[JAR_DIGEST_FLAGS.length];
+		try {
+			for (int i = 0; i < digests.length; i++)
+				digests[i] = getDigest();
+		}
+		catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		return digests;
+	}
+
+	/** Feeds one .jar entry into the digests of all checksum variants. */
+	private static void updateJarDigests(final MessageDigest[] digests,
+		final String name, final InputStream in, final byte[] buffer)
+		throws IOException
+	{
+		final byte[] nameBytes = name.getBytes("ASCII");
+		for (final MessageDigest digest : digests)
+			digest.update(nameBytes);
+		try {
+			if (name.endsWith(".properties") || name.equals("META-INF/MANIFEST.MF")) {
+				// the variants see different contents; these entries are small
+				final byte[] contents = readStreamAsBytes(in);
+				for (int i = 0; i < digests.length; i++) {
+					final boolean[] flags = JAR_DIGEST_FLAGS[i];
+					updateDigest(filterJarEntry(name, new ByteArrayInputStream(contents),
+						flags[0], flags[1], flags[2]), digests[i]);
+				}
+				return;
+			}
+			for (;;) {
+				final int count = in.read(buffer);
+				if (count < 0) break;
+				for (final MessageDigest digest : digests)
+					digest.update(buffer, 0, count);
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static String[] toHex(final MessageDigest[] digests) {
+		final String[] result = new String[digests.length];
+		for (int i = 0; i < digests.length; i++)
+			result[i] = toHex(digests[i].digest());
+		return result;
+	}
+
+	/**
+	 * Wraps the contents of a .jar entry so that the parts which change with
+	 * every build do not affect the checksum.
+	 */
+	private static InputStream filterJarEntry(final String name,
+		final InputStream inputStream, final boolean treatPropertiesSpecially,
+		final boolean treatManifestsSpecially,
+		final boolean keepOnlyMainClassInManifest) throws IOException
+	{
+		// .properties files have a date in a comment; let's ignore this for the checksum
+		// For backwards-compatibility, activate the .properties mangling only from June 15th, 2012
+		if (treatPropertiesSpecially && name.endsWith(".properties")) {
+			return new SkipHashedLines(inputStream);
+		}
+		// same for manifests, but with July 6th, 2012
+		if (treatManifestsSpecially && name.equals("META-INF/MANIFEST.MF")) {
+			return new FilterManifest(inputStream, keepOnlyMainClassInManifest);
+		}
+		return inputStream;
+	}
+
 	private static class JarEntryComparator implements Comparator<JarEntry> {
 
 		@Override
@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.core;
+
+import static imagej.updater.core.UpdaterTestUtils.readStream;
+import static imagej.updater.core.UpdaterTestUtils.touch;
+import static imagej.updater.core.UpdaterTestUtils.writeFile;
+import static imagej.updater.core.UpdaterTestUtils.writeJar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.updater.core.Conflicts.Conflict;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verifies that hashing the files on several threads yields the same checksums
+ * and the same <i>.checksums</i> cache as hashing them one after another.
+ */
+public class ChecksummerTest {
+
+	private final static long CACHED_TIMESTAMP = 20130101000000l;
+
+	private final static String CACHE = "cached " + CACHED_TIMESTAMP
+		+ " macros/cached.ijm\n" + "stale 20000101000000 jars/a.jar\n"
+		+ "gone 20000101000000 jars/gone.jar\n";
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("checksummer", "");
+		assertTrue(root.delete() && root.mkdir());
+		writeJar(new File(root, "jars/a.jar"), "a.txt", "a");
+		writeJar(new File(root, "jars/b.jar"), "b/B.class", "b", "b.txt", "b");
+		writeJar(new File(root, "jars/c-1.0.jar"), "c.txt", "1.0");
+		writeJar(new File(root, "jars/c-2.0.jar"), "c.txt", "2.0");
+		writeJar(new File(root, "plugins/d.jar"), "d.txt", "d");
+		writeFile(new File(root, "plugins/e.txt"), "e");
+		writeFile(new File(root, "macros/f.ijm"), "f");
+		writeFile(new File(root, "scripts/g.py"), "g");
+		touch(writeFile(new File(root, "macros/cached.ijm"), "cached"),
+			CACHED_TIMESTAMP);
+	}
+
+	@After
+	public void tearDown() {
+		delete(root);
+	}
+
+	@Test
+	public void testThreadsMatchSingleThread() throws Exception {
+		final List<String> single = checksum(1);
+		final String singleCache = readCache();
+		final List<String> threaded = checksum(4);
+		assertEquals(single, threaded);
+		assertEquals(singleCache, readCache());
+
+		// the up-to-date cache entry was used, the stale and the gone ones not
+		assertTrue(single.contains("macros/cached.ijm cached@" +
+			CACHED_TIMESTAMP + " LOCAL_ONLY"));
+		assertTrue(singleCache.contains("cached " + CACHED_TIMESTAMP +
+			" macros/cached.ijm\n"));
+		assertFalse(singleCache.contains("stale"));
+		assertFalse(singleCache.contains("jars/gone.jar"));
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checksums the files, starting from the same <i>.checksums</i> cache each
+	 * time, and describes the resulting local versions and conflicts.
+	 */
+	private List<String> checksum(final int threads) throws IOException {
+		writeFile(new File(root, ".checksums"), CACHE);
+		final FilesCollection files = new FilesCollection(root);
+		final Checksummer checksummer = new Checksummer(files, null);
+		checksummer.setThreads(threads);
+		checksummer.updateFromLocal();
+
+		final List<String> result = new ArrayList<String>();
+		for (final FileObject file : files)
+			result.add(file.localFilename + " " + file.localChecksum + "@" +
+				file.localTimestamp + " " + file.getStatus());
+		Collections.sort(result);
+		for (final Conflict conflict : files.getConflicts())
+			result.add(conflict.toString());
+		return result;
+	}
+
+	private String readCache() throws IOException {
+		return readStream(new FileInputStream(new File(root, ".checksums")));
+	}
+
+	private static void delete(final File file) {
+		final File[] list = file.listFiles();
+		if (list != null) for (final File child : list)
+			delete(child);
+		file.delete();
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import imagej.updater.core.FileObject.Action;
+import imagej.updater.core.FileObject.Status;
+import imagej.updater.core.FilesCollection.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verifies that the indexed queries of {@link FilesCollection} agree with the
+ * equivalent {@link Filter}s while the files change.
+ */
+public class FilesCollectionTest {
+
+	private FilesCollection files;
+
+	@Before
+	public void setUp() {
+		files = new FilesCollection(null);
+		files.addUpdateSite("Second", "http://second.example/", null, null, 0);
+		files.util.setUpdateablePlatforms("linux64");
+		add(FilesCollection.DEFAULT_UPDATE_SITE, "jars/a.jar", "a", Status.INSTALLED);
+		add(FilesCollection.DEFAULT_UPDATE_SITE, "jars/b.jar", "b", Status.UPDATEABLE);
+		add(FilesCollection.DEFAULT_UPDATE_SITE, "jars/c.jar", "c", Status.NEW);
+		add("Second", "jars/d.jar", "d", Status.MODIFIED);
+		add("Second", "jars/e.jar", "e", Status.OBSOLETE_UNINSTALLED);
+		add(null, "plugins/f.jar", "f", Status.LOCAL_ONLY);
+		add(FilesCollection.DEFAULT_UPDATE_SITE, "lib/win64/g.dll", "g",
+			Status.NOT_INSTALLED).addPlatform("win64");
+		add(FilesCollection.DEFAULT_UPDATE_SITE, "lib/linux64/h.so", "h",
+			Status.NOT_INSTALLED).addPlatform("linux64");
+	}
+
+	@Test
+	public void testQueries() {
+		assertQueries();
+	}
+
+	@Test
+	public void testMutations() {
+		files.get("jars/b.jar").setAction(files, Action.UPDATE);
+		files.get("jars/c.jar").setAction(files, Action.INSTALL);
+		assertQueries();
+		assertEquals(names("jars/b.jar", "jars/c.jar"), names(files.changes()));
+
+		files.get("jars/d.jar").setStatus(Status.INSTALLED);
+		assertQueries();
+		files.get("jars/a.jar").setUpdateSite("Second");
+		assertQueries();
+		assertEquals(names("jars/a.jar", "jars/d.jar"), names(files
+			.forUpdateSite("Second")));
+		files.get("lib/win64/g.dll").addPlatform("linux64");
+		assertQueries();
+
+		files.remove("jars/b.jar");
+		files.add(new FileObject("Second", "jars/i.jar", 0, "i", 0, Status.NEW));
+		assertQueries();
+		assertEquals(names("jars/c.jar", "jars/i.jar"), names(files.shownByDefault()));
+
+		files.util.setUpdateablePlatforms("win64");
+		assertQueries();
+	}
+
+	@Test
+	public void testLiveResults() {
+		final Iterable<FileObject> toUpdate = files.toUpdate();
+		assertFalse(toUpdate.iterator().hasNext());
+		files.get("jars/b.jar").setAction(files, Action.UPDATE);
+		assertEquals(names("jars/b.jar"), names(toUpdate));
+		assertTrue(files.hasChanges());
+		files.get("jars/b.jar").setNoAction();
+		assertFalse(toUpdate.iterator().hasNext());
+		assertFalse(files.hasChanges());
+	}
+
+	@Test
+	public void testGetFileFromDigest() {
+		final FileObject d = files.get("jars/d.jar");
+		assertSame(d, files.getFileFromDigest("jars/d.jar", "d"));
+		assertNull(files.getFileFromDigest("jars/d.jar", "a"));
+		assertNull(files.getFileFromDigest("jars/a.jar", "d"));
+		d.setVersion("d2", 1);
+		assertNull(files.getFileFromDigest("jars/d.jar", "d"));
+		assertSame(d, files.getFileFromDigest("jars/d.jar", "d2"));
+	}
+
+	// -- Helper methods --
+
+	private FileObject add(final String updateSite, final String filename,
+		final String checksum, final Status status)
+	{
+		final FileObject file =
+			new FileObject(updateSite, filename, 0, checksum, 0, status);
+		files.add(file);
+		return file;
+	}
+
+	private void assertQueries() {
+		assertQuery(files.or(files.is(Action.UPLOAD), files.is(Action.REMOVE)),
+			files.toUploadOrRemove());
+		assertQuery(files.is(Action.UNINSTALL), files.toUninstall());
+		assertQuery(files.is(Action.UPDATE), files.toUpdate());
+		assertQuery(files.is(Action.INSTALLED), files.upToDate());
+		assertQuery(files.is(Action.INSTALL), files.toInstall());
+		assertQuery(files.oneOf(Action.INSTALL, Action.UPDATE), files
+			.toInstallOrUpdate());
+		assertQuery(files.and(files.not(files.is(Status.OBSOLETE_UNINSTALLED)),
+			files.doesPlatformMatch()), files.notHidden());
+		assertQuery(files.is(Status.NOT_INSTALLED), files.uninstalled());
+		assertQuery(files.not(files.oneOf(Status.LOCAL_ONLY, Status.NOT_INSTALLED)),
+			files.installed());
+		assertQuery(files.oneOf(Status.MODIFIED, Status.OBSOLETE_MODIFIED), files
+			.locallyModified());
+		assertQuery(files.not(files.is(Status.LOCAL_ONLY)), files.managedFiles());
+		assertQuery(files.is(Status.LOCAL_ONLY), files.localOnly());
+		assertQuery(files.or(files.oneOf(Status.UPDATEABLE, Status.NEW,
+			Status.OBSOLETE, Status.OBSOLETE_MODIFIED), files.is(Action.INSTALL)),
+			files.shownByDefault());
+		assertQuery(files.not(files.isNoAction()), files.changes());
+		for (final String site : new String[] {
+			FilesCollection.DEFAULT_UPDATE_SITE, "Second" })
+		{
+			assertQuery(files.and(files.not(files.is(Status.OBSOLETE_UNINSTALLED)),
+				files.and(files.doesPlatformMatch(), files.isUpdateSite(site))), files
+				.forUpdateSite(site));
+		}
+		for (final boolean evenForcedOnes : new boolean[] { false, true }) {
+			final boolean even = evenForcedOnes;
+			assertQuery(new Filter() {
+
+				@Override
+				public boolean matches(final FileObject file) {
+					return file.isUpdateable(even) && file.isUpdateablePlatform(files);
+				}
+			}, files.updateable(evenForcedOnes));
+		}
+		assertEquals(files.has(files.not(files.isNoAction())), files.hasChanges());
+	}
+
+	private void assertQuery(final Filter filter,
+		final Iterable<FileObject> actual)
+	{
+		assertEquals(names(files.filter(filter)), names(actual));
+	}
+
+	private List<String> names(final Iterable<FileObject> iterable) {
+		final List<String> result = new ArrayList<String>();
+		for (final FileObject file : iterable)
+			result.add(file.getFilename());
+		return result;
+	}
+
+	private List<String> names(final String... filenames) {
+		final List<String> result = new ArrayList<String>();
+		for (final String filename : filenames)
+			result.add(filename);
+		return result;
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import imagej.updater.core.FileObject.Version;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verifies that the {@link XMLFileCache} snapshot of an update site's index
+ * yields the same files as parsing the index, and is only used while the
+ * index is unchanged.
+ */
+public class XMLFileCacheTest {
+
+	private final static String URL = "http://update.example/db.xml.gz";
+
+	private final static String INDEX = "<pluginRecords>"
+		+ "<plugin filename=\"jars/a.jar\">"
+		+ "<platform>linux64</platform>"
+		+ "<category>Test</category>"
+		+ "<version checksum=\"aaa\" timestamp=\"20130101000000\" filesize=\"123\">"
+		+ "<description>An \u00e9xample</description>"
+		+ "<dependency filename=\"jars/b.jar\" timestamp=\"20120101000000\" overrides=\"true\" />"
+		+ "<link>http://a.example/</link>"
+		+ "<author>Somebody</author>"
+		+ "</version>"
+		+ "<previous-version checksum=\"old\" timestamp=\"20110101000000\" filename=\"jars/a-0.9.jar\" />"
+		+ "</plugin>"
+		+ "<plugin filename=\"macros/obsolete.ijm\" executable=\"true\">"
+		+ "<previous-version checksum=\"gone\" timestamp=\"20100101000000\" />"
+		+ "</plugin>"
+		+ "</pluginRecords>";
+
+	private File root;
+	private FilesCollection files;
+
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("xml-file-cache", "");
+		assertTrue(root.delete() && root.mkdir());
+		files = new FilesCollection(root);
+	}
+
+	@After
+	public void tearDown() {
+		delete(root);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final List<FileObject> parsed = parse();
+		final XMLFileCache cache = new XMLFileCache(files);
+		assertNull(cache.getSnapshot(URL));
+		cache.write(URL, 12345, "\"etag\"", 1000, parsed);
+
+		final XMLFileCache.Snapshot snapshot = cache.getSnapshot(URL);
+		assertNotNull(snapshot);
+		assertEquals(12345, snapshot.getLastModified());
+		assertEquals("\"etag\"", snapshot.getETag());
+		assertEquals(1000, snapshot.getContentLength());
+		assertTrue(snapshot.matches(0, "\"etag\"", -1));
+		assertFalse(snapshot.matches(12345, "\"other\"", 1000));
+		assertTrue(snapshot.matches(12345, null, 1000));
+		assertNull(cache.getSnapshot("http://other.example/db.xml.gz"));
+
+		final List<FileObject> read = snapshot.read("Test");
+		assertEquals(describe(parsed), describe(read));
+	}
+
+	@Test
+	public void testUnverifiable() throws Exception {
+		final XMLFileCache cache = new XMLFileCache(files);
+		cache.write(URL, 12345, null, 1000, parse());
+		assertNotNull(cache.getSnapshot(URL));
+		cache.write(URL, 0, null, 1000, parse());
+		assertNull(cache.getSnapshot(URL));
+	}
+
+	@Test
+	public void testContentLength() throws Exception {
+		final XMLFileCache cache = new XMLFileCache(files);
+		cache.write(URL, 12345, null, 1000, parse());
+		final XMLFileCache.Snapshot snapshot = cache.getSnapshot(URL);
+		assertTrue(snapshot.matches(12345, null, 1000));
+		// rewritten within the same second
+		assertFalse(snapshot.matches(12345, null, 1001));
+		assertFalse(snapshot.matches(12345, null, -1));
+		assertFalse(snapshot.matches(12346, null, 1000));
+
+		// without a known length, only Last-Modified is left to compare
+		cache.write(URL, 12345, null, -1, parse());
+		assertTrue(cache.getSnapshot(URL).matches(12345, null, -1));
+		assertFalse(cache.getSnapshot(URL).matches(12345, null, 1000));
+	}
+
+	@Test
+	public void testMerge() throws Exception {
+		final FilesCollection direct = new FilesCollection(root);
+		new XMLFileReader(direct).read("Test", new ByteArrayInputStream(INDEX
+			.getBytes("UTF-8")), 0);
+
+		final XMLFileCache cache = new XMLFileCache(files);
+		cache.write(URL, 12345, null, 1000, parse());
+		new XMLFileReader(files).read("Test", cache.getSnapshot(URL).read("Test"),
+			0);
+
+		assertEquals(describe(direct), describe(files));
+	}
+
+	// -- Helper methods --
+
+	private List<FileObject> parse() throws Exception {
+		return new XMLFileReader(files).parse("Test", new ByteArrayInputStream(
+			INDEX.getBytes("UTF-8")));
+	}
+
+	private static List<String> describe(final Iterable<FileObject> files) {
+		final List<String> result = new ArrayList<String>();
+		for (final FileObject file : files) {
+			final StringBuilder builder = new StringBuilder();
+			builder.append(file.updateSite).append(' ').append(file.filename)
+				.append(' ').append(file.executable).append(' ').append(file.filesize)
+				.append(' ').append(file.getStatus()).append(' ')
+				.append(file.getAction()).append(' ').append(file.description);
+			if (file.current != null) builder.append(" current ").append(
+				file.current.checksum).append('@').append(file.current.timestamp);
+			for (final Version version : file.previous)
+				builder.append(" previous ").append(version.checksum).append('@')
+					.append(version.timestamp).append(':').append(version.filename);
+			for (final Dependency dependency : file.getDependencies())
+				builder.append(" dependency ").append(dependency.filename).append('@')
+					.append(dependency.timestamp).append(':').append(dependency.overrides);
+			builder.append(" authors ").append(list(file.getAuthors()));
+			builder.append(" platforms ").append(list(file.getPlatforms()));
+			builder.append(" categories ").append(list(file.getCategories()));
+			builder.append(" links ").append(list(file.getLinks()));
+			result.add(builder.toString());
+		}
+		return result;
+	}
+
+	private static List<String> list(final Iterable<String> strings) {
+		final List<String> result = new ArrayList<String>();
+		for (final String string : strings)
+			result.add(string);
+		return result;
+	}
+
+	private static void delete(final File file) {
+		final File[] list = file.listFiles();
+		if (list != null) for (final File child : list)
+			delete(child);
+		file.delete();
+	}
+
+}
@@ -0,0 +1,253 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link Downloader} against an embedded HTTP server.
+ */
+public class DownloaderTest {
+
+	private HttpServer server;
+	private File directory;
+	private final Map<String, byte[]> contents =
+		new ConcurrentHashMap<String, byte[]>();
+	private final List<String> ranges =
+		Collections.synchronizedList(new ArrayList<String>());
+	private volatile boolean supportRanges = true;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+		server.start();
+		directory = File.createTempFile("downloader-", "");
+		assertTrue(directory.delete());
+		assertTrue(directory.mkdir());
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		delete(directory);
+	}
+
+	@Test
+	public void testConcurrentDownloads() throws IOException {
+		final List<Downloadable> list = new ArrayList<Downloadable>();
+		for (int i = 0; i < 7; i++) {
+			list.add(downloadable("file" + i, 100000 + 4321 * i));
+		}
+		final Downloader downloader = new Downloader(null, null);
+		downloader.setParallelism(3);
+		downloader.start(list);
+		for (final Downloadable download : list) {
+			assertContents(download);
+			assertFalse(new File(download.getDestination() + ".part").exists());
+		}
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		final Downloadable download = downloadable("resumed", 200000);
+		writePartial(download, 123456);
+		new Downloader(null, null).start(download);
+		assertContents(download);
+		assertEquals(Collections.singletonList("bytes=123456-"), ranges);
+	}
+
+	@Test
+	public void testRestartWithoutRangeSupport() throws IOException {
+		supportRanges = false;
+		final Downloadable download = downloadable("restarted", 50000);
+		writePartial(download, 1000);
+		new Downloader(null, null).start(download);
+		assertContents(download);
+	}
+
+	@Test
+	public void testInvalidResumeStartsOver() throws IOException {
+		final Downloadable download = downloadable("stale", 30000);
+		// a partial file that does not match the current contents
+		final File partial = new File(download.getDestination() + ".part");
+		final OutputStream out = new FileOutputStream(partial);
+		out.write(new byte[10000]);
+		out.close();
+		final Downloader downloader = new Downloader(null, null) {
+
+			@Override
+			protected boolean isValid(final Downloadable current) {
+				try {
+					return sameContents(current);
+				}
+				catch (final IOException e) {
+					return false;
+				}
+			}
+		};
+		downloader.start(download);
+		assertContents(download);
+		assertEquals(Collections.singletonList("bytes=10000-"), ranges);
+	}
+
+	// -- Helper methods --
+
+	private Downloadable downloadable(final String name, final int size) {
+		final byte[] bytes = new byte[size];
+		for (int i = 0; i < size; i++)
+			bytes[i] = (byte) (i * 7 + name.hashCode());
+		contents.put("/" + name, bytes);
+		final String url =
+			"http://127.0.0.1:" + server.getAddress().getPort() + "/" + name;
+		final File destination = new File(directory, name);
+		return new Downloadable() {
+
+			@Override
+			public File getDestination() {
+				return destination;
+			}
+
+			@Override
+			public String getURL() {
+				return url;
+			}
+
+			@Override
+			public long getFilesize() {
+				return size;
+			}
+
+			@Override
+			public String toString() {
+				return name;
+			}
+		};
+	}
+
+	private void writePartial(final Downloadable download, final int length)
+		throws IOException
+	{
+		final byte[] bytes = contents.get("/" + download.toString());
+		final OutputStream out =
+			new FileOutputStream(download.getDestination() + ".part");
+		out.write(bytes, 0, length);
+		out.close();
+	}
+
+	private void assertContents(final Downloadable download) throws IOException {
+		assertArrayEquals(contents.get("/" + download.toString()),
+			read(download.getDestination()));
+	}
+
+	private boolean sameContents(final Downloadable download) throws IOException {
+		return Arrays.equals(contents.get("/" + download.toString()),
+			read(download.getDestination()));
+	}
+
+	private static byte[] read(final File file) throws IOException {
+		final FileInputStream in = new FileInputStream(file);
+		try {
+			return Util.readStreamAsBytes(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private void serve(final HttpExchange exchange) throws IOException {
+		final byte[] bytes = contents.get(exchange.getRequestURI().getPath());
+		if (bytes == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		int offset = 0;
+		final String range = exchange.getRequestHeaders().getFirst("Range");
+		if (range != null) ranges.add(range);
+		if (range != null && supportRanges && range.startsWith("bytes=") &&
+			range.endsWith("-"))
+		{
+			offset = Integer.parseInt(range.substring(6, range.length() - 1));
+			exchange.getResponseHeaders().add("Content-Range",
+				"bytes " + offset + "-" + (bytes.length - 1) + "/" + bytes.length);
+			exchange.sendResponseHeaders(206, bytes.length - offset);
+		}
+		else {
+			exchange.sendResponseHeaders(200, bytes.length);
+		}
+		final OutputStream out = exchange.getResponseBody();
+		out.write(bytes, offset, bytes.length - offset);
+		out.close();
+	}
+
+	private static void delete(final File file) {
+		final File[] list = file.listFiles();
+		if (list != null) for (final File child : list)
+			delete(child);
+		file.delete();
+	}
+}
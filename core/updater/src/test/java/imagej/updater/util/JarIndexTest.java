@@ -0,0 +1,175 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the persistent {@link JarIndex}.
+ */
+public class JarIndexTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("jar-index-", "");
+		assertTrue(directory.delete());
+		assertTrue(directory.mkdir());
+	}
+
+	@After
+	public void tearDown() {
+		delete(directory);
+	}
+
+	@Test
+	public void testUnchangedJarsAreNotReread() throws IOException {
+		final File jar = writeJar("jars/a.jar", "a/A.class", "a/B.class");
+		final long lastModified = jar.lastModified();
+		JarIndex index = new JarIndex(directory);
+		assertEquals(Arrays.asList("a.A", "a.B"), index.getClasses("jars/a.jar"));
+		index.write();
+
+		// same size and modification time: the index is trusted
+		final long length = jar.length();
+		writeJar("jars/a.jar", "a/C.class", "a/D.class");
+		assertEquals(length, jar.length());
+		assertTrue(jar.setLastModified(lastModified));
+		index = new JarIndex(directory);
+		assertEquals(Arrays.asList("a.A", "a.B"), index.getClasses("jars/a.jar"));
+
+		// a different modification time invalidates the entry
+		assertTrue(jar.setLastModified(lastModified - 2000));
+		assertEquals(Arrays.asList("a.C", "a.D"), index.getClasses("jars/a.jar"));
+	}
+
+	@Test
+	public void testReferences() throws IOException {
+		final File jar = writeJar("jars/b.jar", "b/A.class", "b/B.class");
+		JarIndex index = new JarIndex(directory);
+		assertNull(index.getReferences("jars/b.jar"));
+		final List<List<String>> references = new ArrayList<List<String>>();
+		references.add(Arrays.asList("c.C", "d.D"));
+		references.add(Collections.<String> emptyList());
+		index.setReferences("jars/b.jar", references);
+		index.write();
+		assertFalse(new File(directory, JarIndex.INDEX_FILE + ".tmp").exists());
+
+		index = new JarIndex(directory);
+		assertEquals(references, index.getReferences("jars/b.jar"));
+
+		assertTrue(jar.setLastModified(jar.lastModified() - 2000));
+		assertNull(index.getReferences("jars/b.jar"));
+	}
+
+	@Test
+	public void testDamagedIndex() throws IOException {
+		writeJar("jars/c.jar", "c/A.class");
+		final File file = new File(directory, JarIndex.INDEX_FILE);
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write("# jar index 2\nC orphan.Class\n".getBytes());
+		out.close();
+		final JarIndex index = new JarIndex(directory);
+		assertEquals(Arrays.asList("c.A"), index.getClasses("jars/c.jar"));
+	}
+
+	@Test
+	public void testMissingReferencesAreNotTrusted() throws IOException {
+		final File jar = writeJar("jars/e.jar", "e/A.class", "e/B.class");
+		final File file = new File(directory, JarIndex.INDEX_FILE);
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(("# jar index 2\nJ " + jar.length() + " " + jar.lastModified() +
+			" jars/e.jar\nC e.A\nC e.B\nA\nR f.F\n").getBytes());
+		out.close();
+		final JarIndex index = new JarIndex(directory);
+		assertNull(index.getReferences("jars/e.jar"));
+		assertEquals(Arrays.asList("e.A", "e.B"), index.getClasses("jars/e.jar"));
+	}
+
+	@Test
+	public void testOldIndexIsIgnored() throws IOException {
+		// version 1 recorded references expanded by super classes and interfaces
+		final File jar = writeJar("jars/d.jar", "d/A.class");
+		final File file = new File(directory, JarIndex.INDEX_FILE);
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(("# jar index 1\nJ " + jar.length() + " " + jar.lastModified() +
+			" jars/d.jar\nC d.A\nA\nR e.E\n").getBytes());
+		out.close();
+		final JarIndex index = new JarIndex(directory);
+		assertNull(index.getReferences("jars/d.jar"));
+	}
+
+	// -- Helper methods --
+
+	private File writeJar(final String path, final String... entries)
+		throws IOException
+	{
+		final File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		final JarOutputStream jar = new JarOutputStream(new FileOutputStream(file));
+		for (final String entry : entries) {
+			jar.putNextEntry(new JarEntry(entry));
+			jar.closeEntry();
+		}
+		jar.close();
+		return file;
+	}
+
+	private static void delete(final File file) {
+		final File[] list = file.listFiles();
+		if (list != null) for (final File child : list)
+			delete(child);
+		file.delete();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.updater.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests the checksumming helpers in {@link Util}.
+ */
+public class UtilTest {
+
+	@Test
+	public void testJarDigests() throws Exception {
+		final File jar = File.createTempFile("digests-", ".jar");
+		try {
+			writeJar(jar, "a.properties", "#Sat Jun 15 12:00:00 CEST 2013\nkey=value\n",
+				"META-INF/MANIFEST.MF",
+				"Manifest-Version: 1.0\nBuilt-By: nobody\nMain-Class: Foo\n",
+				"b.txt", "Hello, World!\n");
+			final String[] digests = Util.getJarDigests(jar);
+			assertEquals(4, digests.length);
+			assertEquals(Util.getJarDigest(jar), digests[0]);
+			assertEquals(Util.getJarDigest(jar, true, true, false), digests[1]);
+			assertEquals(Util.getJarDigest(jar, true, false, false), digests[2]);
+			assertEquals(Util.getJarDigest(jar, false, false, false), digests[3]);
+			final List<String> obsoletes =
+				Util.getObsoleteDigests("jars/digests.jar", jar);
+			assertEquals(Arrays.asList(digests).subList(1, 4), obsoletes);
+
+			final FileInputStream in = new FileInputStream(jar);
+			final byte[] bytes = Util.readStreamAsBytes(in);
+			in.close();
+			assertEquals(Arrays.asList(digests), Arrays.asList(Util
+				.getJarDigests(bytes)));
+		}
+		finally {
+			jar.delete();
+		}
+	}
+
+	@Test
+	public void testLargeFileDigest() throws Exception {
+		final File file = File.createTempFile("digest-", ".bin");
+		try {
+			final byte[] contents = new byte[3 * 1024 * 1024 + 17];
+			for (int i = 0; i < contents.length; i++)
+				contents[i] = (byte) (i * 31 + (i >> 12));
+			final FileOutputStream out = new FileOutputStream(file);
+			out.write(contents);
+			out.close();
+
+			final String path = "misc/large.bin";
+			final MessageDigest digest = Util.getDigest();
+			digest.update(path.getBytes("ASCII"));
+			digest.update(contents);
+			assertEquals(Util.toHex(digest.digest()), Util.getDigest(path, file));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private static void writeJar(final File file, final String... args)
+		throws IOException
+	{
+		final JarOutputStream jar = new JarOutputStream(new FileOutputStream(file));
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			jar.putNextEntry(new JarEntry(args[i]));
+			jar.write(args[i + 1].getBytes("UTF-8"));
+			jar.closeEntry();
+		}
+		jar.close();
+	}
+}
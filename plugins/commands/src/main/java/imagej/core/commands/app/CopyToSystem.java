@@ -45,6 +45,7 @@
 import imagej.menu.MenuConstants;
 import imagej.ui.UserInterface;
 import imagej.util.ARGBPlane;
+import net.imglib2.FinalInterval;
 
 import org.scijava.app.StatusService;
 import org.scijava.plugin.Menu;
@@ -101,7 +102,6 @@ private ARGBPlane getARGBPixels() {
 		final Overlay overlay = overlayService.getActiveOverlay(display);
 		final int imageWidth = (int) display.dimension(0);
 		final int imageHeight = (int) display.dimension(1);
-		final int[] argbPixels = view.getScreenImage().getData();
 		final int x, y, w, h;
 		if (overlay == null) { // no active overlay
 			x = 0;
@@ -120,10 +120,15 @@ private ARGBPlane getARGBPixels() {
 			w = Math.min(imageWidth, ovrMaxX) - x + 1;
 			h = Math.min(imageHeight, ovrMaxY) - y + 1;
 		}
+		// NB: a tiled view has no full plane screen image, so render the region
+		final FinalInterval region =
+				new FinalInterval(new long[] { x, y },
+					new long[] { x + w - 1, y + h - 1 });
+		final int[] argbPixels = view.renderScreenImage(region).getData();
 		final ARGBPlane plane = new ARGBPlane(w, h);
 		for (int u = 0; u < w; u++) {
 			for (int v = 0; v < h; v++) {
-				final int argbLoc = (y+v)*imageWidth + (x+u);
+				final int argbLoc = v*w + u;
 				final int argb = argbPixels[argbLoc];
 				plane.setARGB(u, v, argb);
 			}
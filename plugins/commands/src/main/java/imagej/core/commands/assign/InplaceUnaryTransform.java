@@ -39,6 +39,13 @@
 import imagej.data.Position;
 import imagej.data.display.ImageDisplay;
 import imagej.data.overlay.Overlay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
 import net.imglib2.img.Img;
 import net.imglib2.meta.Axes;
 import net.imglib2.ops.condition.Condition;
@@ -50,6 +57,12 @@
 import net.imglib2.ops.input.PointInputIteratorFactory;
 import net.imglib2.ops.operation.complex.unary.ComplexUnaryOperation;
 import net.imglib2.type.numeric.ComplexType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+import org.scijava.Context;
+import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
 
 /**
  * Helper class for use by many plugins that apply a {@link
@@ -57,13 +70,35 @@
  * current selection of the active {@link Dataset} of the given {@link
  * ImageDisplay}. The given {@link ComplexUnaryOperation} is applied on a pixel
  * by pixel basis.
+ * <p>
+ * When there is no overlay the region is a plain box. Then, for stateless
+ * operations, the pixels are transformed in place with typed cursors, split
+ * across threads. For integer data of 16 bits or less the operation is
+ * evaluated once per possible value into a lookup table.
+ * </p>
  * 
  * @author Barry DeZonia
  */
 public class InplaceUnaryTransform<I extends ComplexType<I>, O extends ComplexType<O>> {
 
+	// -- constants --
+
+	/** The smallest number of pixels worth handing to a separate thread. */
+	private static final long MIN_PIXELS_PER_TASK = 64 * 1024;
+
+	/** The largest integer type range that is mapped through a lookup table. */
+	private static final long MAX_LUT_SIZE = 1 << 16;
+
 	// -- instance variables --
 
+	private final ComplexUnaryOperation<O,O> operation;
+	private final O outType;
+	private final List<long[]> regionOrigins = new ArrayList<long[]>();
+	private boolean stateless = true;
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	private final ImageAssignment<I,O,long[]> assigner1;
 	private final ImageAssignment<I,O,long[]> assigner2;
 	private final ImageAssignment<I,O,long[]> assigner3;
@@ -82,7 +117,11 @@ public InplaceUnaryTransform(
 			Overlay overlay)
 	{
 		this.dataset = dataset;
+		this.operation = operation;
+		this.outType = outType;
+		inject(dataset);
 		setRegion(dataset, overlay);
+		regionOrigins.add(origin.clone());
 		@SuppressWarnings("unchecked")
 		final Img<I> img = (Img<I>)dataset.getImgPlus();
 		final ComplexImageFunction<I,O> f1 =
@@ -108,6 +147,9 @@ public InplaceUnaryTransform(
 			Position planePos)
 	{
 		this.dataset = dataset;
+		this.operation = operation;
+		this.outType = outType;
+		inject(dataset);
 		setRegion(dataset, overlay, planePos);
 		@SuppressWarnings("unchecked")
 		final Img<I> img = (Img<I>)dataset.getImgPlus();
@@ -123,15 +165,18 @@ public InplaceUnaryTransform(
 		if (rgb) {
 			origin[chIndex] = 0;
 		}
+		regionOrigins.add(origin.clone());
 		assigner1 =
 			new ImageAssignment<I,O, long[]>(img, origin, span, function,
 					condition, factory);
 		if (rgb) {
 			origin[chIndex] = 1;
+			regionOrigins.add(origin.clone());
 			assigner2 =
 				new ImageAssignment<I,O, long[]>(img, origin, span, function,
 					condition, factory);
 			origin[chIndex] = 2;
+			regionOrigins.add(origin.clone());
 			assigner3 =
 				new ImageAssignment<I,O, long[]>(img, origin, span, function,
 					condition, factory);
@@ -146,18 +191,123 @@ public InplaceUnaryTransform(
 	// -- public interface --
 
 	public void run() {
-		if (assigner1 != null) assigner1.assign();
-		if (assigner2 != null) assigner2.assign();
-		if (assigner3 != null) assigner3.assign();
+		if (condition == null && stateless) {
+			final double[] lut = lookupTable();
+			for (final long[] regionOrigin : regionOrigins) {
+				transformRegion(regionOrigin, lut);
+			}
+		}
+		else {
+			if (assigner1 != null) assigner1.assign();
+			if (assigner2 != null) assigner2.assign();
+			if (assigner3 != null) assigner3.assign();
+		}
 		dataset.update();
 	}
 
+	/**
+	 * Tells the transform whether its operation is stateless, i.e. whether its
+	 * output depends only on its input value. Stateless operations can be run
+	 * in parallel and through a lookup table. Operations are assumed to be
+	 * stateless unless told otherwise.
+	 */
+	public void setStateless(final boolean stateless) {
+		this.stateless = stateless;
+	}
+
 	public long[] getRegionOrigin() { return origin; }
 	
 	public long[] getRegionSpan() { return span; }
 
 	// -- private helpers --
 
+	private void inject(final Dataset ds) {
+		final Context context = ds.getContext();
+		if (context != null) context.inject(this);
+	}
+
+	/**
+	 * Returns the operation's output for every value of an integer type of 16
+	 * bits or less, indexed from the type's minimum value. Returns null when the
+	 * type is not suitable or the region has fewer pixels than the table.
+	 */
+	private double[] lookupTable() {
+		if (!dataset.isInteger()) return null;
+		final RealType<?> type = dataset.getType();
+		if (type.getBitsPerPixel() > 16) return null;
+		final long min = (long) type.getMinValue();
+		final long size = (long) type.getMaxValue() - min + 1;
+		if (size > MAX_LUT_SIZE) return null;
+		if (regionOrigins.size() * regionSize() < size) return null;
+		final double[] lut = new double[(int) size];
+		final O in = outType.createVariable();
+		final O out = outType.createVariable();
+		for (int i = 0; i < lut.length; i++) {
+			in.setComplexNumber(min + i, 0);
+			operation.compute(in, out);
+			lut[i] = out.getRealDouble();
+		}
+		return lut;
+	}
+
+	/** Returns true if pixels of the dataset do not fill whole bytes. */
+	private boolean isPacked() {
+		return dataset.getType().getBitsPerPixel() % 8 != 0;
+	}
+
+	private long regionSize() {
+		long size = 1;
+		for (final long s : span)
+			size *= s;
+		return size;
+	}
+
+	/**
+	 * Transforms the box starting at the given origin, splitting it into slabs
+	 * along its outermost nontrivial dimension for parallel processing. Types
+	 * that pack several pixels into one word (such as BitType or
+	 * Unsigned12BitType) are processed by a single thread, since slabs of them
+	 * can share a word.
+	 */
+	private void transformRegion(final long[] regionOrigin, final double[] lut)
+	{
+		final long[] min = regionOrigin.clone();
+		final long[] max = new long[min.length];
+		for (int i = 0; i < max.length; i++)
+			max[i] = min[i] + span[i] - 1;
+		int d = span.length - 1;
+		while (d > 0 && span[d] == 1)
+			d--;
+		final long cpus = Runtime.getRuntime().availableProcessors();
+		final long tasks =
+			threadService == null ? 1 : Math.max(1, Math.min(Math.min(cpus,
+				span[d]), regionSize() / MIN_PIXELS_PER_TASK));
+		if (tasks == 1 || isPacked()) {
+			new Transformer(min, max, lut).run();
+			return;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		final long slab = (span[d] + tasks - 1) / tasks;
+		for (long start = 0; start < span[d]; start += slab) {
+			final long[] slabMin = min.clone();
+			final long[] slabMax = max.clone();
+			slabMin[d] = min[d] + start;
+			slabMax[d] = Math.min(max[d], slabMin[d] + slab - 1);
+			futures.add(threadService.run(new Transformer(slabMin, slabMax, lut)));
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
 	/** All planes version */
 	private void setRegion(Dataset ds, Overlay overlay) {
 
@@ -248,6 +398,57 @@ private LongRect findXYRegion(Dataset ds, Overlay overlay, int xIndex, int yInde
 		return rect;
 	}
 	
+	/**
+	 * Applies the operation in place to one box of the image, either through a
+	 * lookup table or with its own copy of the operation.
+	 */
+	private class Transformer implements Runnable {
+
+		private final long[] min;
+		private final long[] max;
+		private final double[] lut;
+		private final ComplexUnaryOperation<O,O> op;
+		private final O in;
+		private final O out;
+
+		public Transformer(final long[] min, final long[] max, final double[] lut)
+		{
+			this.min = min;
+			this.max = max;
+			this.lut = lut;
+			op = (lut == null) ? operation.copy() : null;
+			in = outType.createVariable();
+			out = outType.createVariable();
+		}
+
+		@Override
+		public void run() {
+			transform();
+		}
+
+		private <T extends RealType<T>> void transform() {
+			@SuppressWarnings("unchecked")
+			final Img<T> img = (Img<T>) dataset.getImgPlus();
+			final Cursor<T> cursor =
+				Views.flatIterable(Views.interval(img, min, max)).cursor();
+			if (lut != null) {
+				final long lutMin = (long) dataset.getType().getMinValue();
+				while (cursor.hasNext()) {
+					final T value = cursor.next();
+					value.setReal(lut[(int) ((long) value.getRealDouble() - lutMin)]);
+				}
+			}
+			else {
+				while (cursor.hasNext()) {
+					final T value = cursor.next();
+					in.setComplexNumber(value.getRealDouble(), 0);
+					op.compute(in, out);
+					value.setReal(out.getRealDouble());
+				}
+			}
+		}
+	}
+
 	private class LongRect {
 		public long x, y, w, h;
 	}
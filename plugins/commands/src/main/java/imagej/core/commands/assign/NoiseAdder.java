@@ -112,6 +112,8 @@ public void run() {
 			transform =
 				new InplaceUnaryTransform<T, DoubleType>(op, new DoubleType(), dataset, overlay, planePos);
 
+		// NB - noise depends on more than the input value
+		transform.setStateless(false);
 		transform.run();
 	}
 
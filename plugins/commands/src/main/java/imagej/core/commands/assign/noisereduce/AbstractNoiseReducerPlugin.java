@@ -101,17 +101,33 @@ public enum NeighborhoodType {RADIAL, RECTANGULAR}
 	public abstract Function<PointSet,DoubleType> getFunction(
 		Function<long[],DoubleType> otherFunc);
 
+	/**
+	 * Returns the rank statistic calculated by {@link #getFunction}, or null if
+	 * it is not a plain rank. Plugins that return a rank are run through a
+	 * {@link RankFilter} whenever it supports the input data.
+	 */
+	public RankFilter.Rank getRank() {
+		return null;
+	}
+
 	@Override
 	public void run() {
 		Neighborhood neighborhood = determineNeighborhood(input.numDimensions());
 		if (neighborhood == null) return;
 		@SuppressWarnings("unchecked")
 		ImgPlus<U> inputImg = (ImgPlus<U>) input.getImgPlus();
+		PointSet ps = neighborhood.getPoints();
+		RankFilter.Rank rank = getRank();
+		if (rank != null && RankFilter.isSupported(inputImg, ps)) {
+			RankFilter<U> filter =
+				new RankFilter<U>(getContext(), inputImg, ps, rank);
+			output = filter.filter(neighborhood.getDescription());
+			return;
+		}
 		OutOfBoundsMirrorFactory<U, RandomAccessibleInterval<U>> oobFactory =
 				new OutOfBoundsMirrorFactory<U,RandomAccessibleInterval<U>>(Boundary.DOUBLE);
 		Function<long[],DoubleType> otherFunc =
 				new RealImageFunction<U,DoubleType>(inputImg, oobFactory, new DoubleType());
-		PointSet ps = neighborhood.getPoints();
 		Reducer<U,DoubleType> reducer =
 			new Reducer<U, DoubleType>(getContext(), inputImg,
 				getFunction(otherFunc), ps);
@@ -69,4 +69,9 @@ public Function<PointSet, DoubleType> getFunction(
 		return new RealMinFunction<DoubleType>(otherFunc);
 	}
 
+	@Override
+	public RankFilter.Rank getRank() {
+		return RankFilter.Rank.MIN;
+	}
+
 }
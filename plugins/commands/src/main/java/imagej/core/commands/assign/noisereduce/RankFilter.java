@@ -0,0 +1,412 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.assign.noisereduce;
+
+import imagej.data.Dataset;
+import imagej.data.DefaultDataset;
+import imagej.data.PrimitiveStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.ops.pointset.PointSetIterator;
+import net.imglib2.type.numeric.RealType;
+
+import org.scijava.Context;
+import org.scijava.app.StatusService;
+import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Replaces each pixel of an {@link ImgPlus} with a rank statistic (min, median
+ * or max) of a neighborhood, using a sliding window histogram in the manner of
+ * Huang. Moving one pixel along a row only removes the values leaving the
+ * neighborhood and adds the values entering it, so the cost per pixel depends
+ * on the height of the neighborhood rather than its size. Rows are spread
+ * across threads.
+ * <p>
+ * Only 8 and 16 bit integer data held in primitive arrays is supported; see
+ * {@link #isSupported}. The neighborhood may have any shape, as long as each of
+ * its rows is a contiguous run of points. Pixels beyond the image edges are
+ * mirrored as by an {@code OutOfBoundsMirrorFactory} with a double boundary,
+ * matching {@link Reducer}.
+ * </p>
+ */
+public class RankFilter<U extends RealType<U>> {
+
+	/** The rank statistics a RankFilter can calculate. */
+	public enum Rank {
+		MIN, MEDIAN, MAX
+	}
+
+	private final Context context;
+
+	private final ImgPlus<U> input;
+
+	private final Rank rank;
+
+	/** The neighborhood as runs of points along the first dimension. */
+	private final List<Segment> segments;
+
+	/** The number of points in the neighborhood. */
+	private final int count;
+
+	@Parameter(required = false)
+	private StatusService statusService;
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
+	// -- public interface --
+
+	public RankFilter(final Context context, final ImgPlus<U> input,
+		final PointSet neighborhood, final Rank rank)
+	{
+		if (!isSupported(input, neighborhood)) {
+			throw new IllegalArgumentException(
+				"Unsupported image or neighborhood for rank filtering");
+		}
+		this.context = context;
+		context.inject(this);
+		this.input = input;
+		this.rank = rank;
+		this.segments = segments(neighborhood);
+		this.count = (int) neighborhood.size();
+	}
+
+	/**
+	 * Returns true if a RankFilter can process the given image using the given
+	 * neighborhood.
+	 */
+	public static boolean isSupported(final ImgPlus<?> img,
+		final PointSet neighborhood)
+	{
+		if (img.numDimensions() != neighborhood.numDimensions()) return false;
+		final Object[] planes = PrimitiveStorage.getPlanes(img);
+		if (planes == null) return false;
+		if (!(planes[0] instanceof byte[]) && !(planes[0] instanceof short[])) {
+			return false;
+		}
+		return segments(neighborhood) != null;
+	}
+
+	public Dataset filter(final String neighDescrip) {
+		notifyUserAtStart(neighDescrip);
+		final ImgPlus<U> newImg = input.copy();
+		final long lines = input.size() / input.dimension(0);
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		final int tasks =
+			threadService == null ? 1 : (int) Math.max(1, Math.min(cpus, lines));
+		if (tasks == 1) {
+			new LineFilter(newImg, 0, lines).run();
+		}
+		else {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			final long linesPerTask = (lines + tasks - 1) / tasks;
+			for (long l = 0; l < lines; l += linesPerTask) {
+				futures.add(threadService.run(new LineFilter(newImg, l, Math.min(lines,
+					l + linesPerTask))));
+			}
+			for (final Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (final InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				catch (final ExecutionException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		notifyUserAtEnd(neighDescrip);
+		return new DefaultDataset(context, newImg);
+	}
+
+	// -- private interface --
+
+	private void notifyUserAtStart(final String neighDescrip) {
+		if (statusService != null) statusService.showStatus(neighDescrip +
+			" ... beginning processing");
+	}
+
+	private void notifyUserAtEnd(final String neighDescrip) {
+		if (statusService != null) statusService.showStatus(neighDescrip +
+			" ... completed processing");
+	}
+
+	/**
+	 * Splits a neighborhood into runs of points along the first dimension,
+	 * relative to its origin. Returns null if a run has gaps.
+	 */
+	private static List<Segment> segments(final PointSet neighborhood) {
+		final long[] origin = neighborhood.getOrigin();
+		final Map<List<Long>, Segment> runs = new HashMap<List<Long>, Segment>();
+		final List<Segment> segments = new ArrayList<Segment>();
+		final PointSetIterator iter = neighborhood.iterator();
+		while (iter.hasNext()) {
+			final long[] point = iter.next();
+			final List<Long> key = new ArrayList<Long>();
+			for (int d = 1; d < point.length; d++) {
+				key.add(point[d] - origin[d]);
+			}
+			Segment segment = runs.get(key);
+			if (segment == null) {
+				final long[] offsets = new long[point.length];
+				for (int d = 1; d < point.length; d++) {
+					offsets[d] = point[d] - origin[d];
+				}
+				segment = new Segment(offsets);
+				runs.put(key, segment);
+				segments.add(segment);
+			}
+			segment.include(point[0] - origin[0]);
+		}
+		for (final Segment segment : segments) {
+			if (segment.points != segment.maxX - segment.minX + 1) return null;
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns the index that a position maps to when mirrored at the image edges,
+	 * repeating the edge pixels (-1 maps to 0, size maps to size - 1) like the
+	 * {@link net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary#DOUBLE}
+	 * boundary used by {@link Reducer}.
+	 */
+	private static long mirror(final long i, final long size) {
+		if (i >= 0 && i < size) return i;
+		final long period = 2 * size;
+		long m = i % period;
+		if (m < 0) m += period;
+		return m < size ? m : period - 1 - m;
+	}
+
+	/** A run of neighborhood points along the first dimension. */
+	private static class Segment {
+
+		/** Offsets of the run in all but the first dimension. */
+		private final long[] offsets;
+		private long minX = Long.MAX_VALUE;
+		private long maxX = Long.MIN_VALUE;
+		private long points;
+
+		public Segment(final long[] offsets) {
+			this.offsets = offsets;
+		}
+
+		public void include(final long x) {
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			points++;
+		}
+	}
+
+	/**
+	 * Filters a range of lines, a line being a row of pixels along the first
+	 * dimension at one position in all other dimensions.
+	 */
+	private class LineFilter implements Runnable {
+
+		private final ImgPlus<U> output;
+		private final long line0, line1;
+
+		private final Object[] planes;
+		private final boolean unsigned;
+		private final int bias;
+		private final int width;
+		private final int planeSize;
+		private final int[] histogram;
+
+		/** Arrays and row starts of each segment on the current line. */
+		private final Object[] arrays;
+		private final int[] starts;
+
+		/** The rank being tracked and the number of values below it. */
+		private int value, below;
+
+		public LineFilter(final ImgPlus<U> output, final long line0,
+			final long line1)
+		{
+			this.output = output;
+			this.line0 = line0;
+			this.line1 = line1;
+			planes = PrimitiveStorage.getPlanes(input);
+			unsigned = PrimitiveStorage.isUnsigned(input.firstElement());
+			final int bins = planes[0] instanceof byte[] ? 1 << 8 : 1 << 16;
+			bias = unsigned ? 0 : bins / 2;
+			histogram = new int[bins];
+			width = (int) input.dimension(0);
+			planeSize = (int) PrimitiveStorage.planeSize(input);
+			arrays = new Object[segments.size()];
+			starts = new int[segments.size()];
+		}
+
+		@Override
+		public void run() {
+			final int n = input.numDimensions();
+			final long[] pos = new long[n];
+			final long[] neighbor = new long[n];
+			final RandomAccess<U> access = output.randomAccess();
+			for (long line = line0; line < line1; line++) {
+				long index = line;
+				for (int d = 1; d < n; d++) {
+					pos[d] = index % input.dimension(d);
+					index /= input.dimension(d);
+				}
+				pos[0] = 0;
+				locateSegments(pos, neighbor);
+
+				// fill the histogram with the neighborhood of the first pixel
+				for (int s = 0; s < arrays.length; s++) {
+					final Segment segment = segments.get(s);
+					for (long x = segment.minX; x <= segment.maxX; x++) {
+						add(bin(s, x));
+					}
+				}
+				value = 0;
+				below = 0;
+
+				access.setPosition(pos);
+				for (int x = 0; x < width; x++) {
+					if (x > 0) {
+						// slide the window one pixel along
+						for (int s = 0; s < arrays.length; s++) {
+							final Segment segment = segments.get(s);
+							remove(bin(s, x - 1 + segment.minX));
+							add(bin(s, x + segment.maxX));
+						}
+					}
+					access.get().setReal(result());
+					access.fwd(0);
+				}
+
+				// empty the histogram for the next line
+				for (int s = 0; s < arrays.length; s++) {
+					final Segment segment = segments.get(s);
+					for (long x = segment.minX; x <= segment.maxX; x++) {
+						remove(bin(s, width - 1 + x));
+					}
+				}
+			}
+		}
+
+		/** Finds the storage of each segment's row for the line at pos. */
+		private void locateSegments(final long[] pos, final long[] neighbor) {
+			for (int s = 0; s < arrays.length; s++) {
+				final long[] offsets = segments.get(s).offsets;
+				for (int d = 1; d < pos.length; d++) {
+					neighbor[d] = mirror(pos[d] + offsets[d], input.dimension(d));
+				}
+				final int planeIndex = PrimitiveStorage.planeIndex(input, neighbor);
+				final int row = pos.length > 1 ? (int) neighbor[1] * width : 0;
+				if (planes.length == 1) {
+					// array image: all planes share one array
+					arrays[s] = planes[0];
+					starts[s] = planeIndex * planeSize + row;
+				}
+				else {
+					arrays[s] = planes[planeIndex];
+					starts[s] = row;
+				}
+			}
+		}
+
+		/** Returns the histogram bin of the value x pixels along a segment. */
+		private int bin(final int s, final long x) {
+			final int i = starts[s] + (int) mirror(x, width);
+			if (arrays[s] instanceof byte[]) {
+				final byte v = ((byte[]) arrays[s])[i];
+				return unsigned ? v & 0xff : v + bias;
+			}
+			final short v = ((short[]) arrays[s])[i];
+			return unsigned ? v & 0xffff : v + bias;
+		}
+
+		private void add(final int bin) {
+			histogram[bin]++;
+			if (bin < value) below++;
+		}
+
+		private void remove(final int bin) {
+			histogram[bin]--;
+			if (bin < value) below--;
+		}
+
+		/** Moves the tracked bin to the k-th smallest value and returns it. */
+		private int find(final int k) {
+			while (below > k) {
+				value--;
+				below -= histogram[value];
+			}
+			while (below + histogram[value] <= k) {
+				below += histogram[value];
+				value++;
+			}
+			return value;
+		}
+
+		private double result() {
+			switch (rank) {
+				case MIN:
+					return find(0) - bias;
+				case MAX:
+					return find(count - 1) - bias;
+				default:
+					final int k = (count - 1) / 2;
+					final int lower = find(k);
+					if (count % 2 == 1) return lower - bias;
+					// even count: average the two middle values
+					int upper = lower;
+					if (below + histogram[lower] <= k + 1) {
+						upper++;
+						while (histogram[upper] == 0) {
+							upper++;
+						}
+					}
+					return (lower + upper) / 2.0 - bias;
+			}
+		}
+	}
+
+}
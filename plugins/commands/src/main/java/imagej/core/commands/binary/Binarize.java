@@ -39,6 +39,7 @@
 import imagej.command.ContextCommand;
 import imagej.data.Dataset;
 import imagej.data.DatasetService;
+import imagej.data.PrimitiveStorage;
 import imagej.data.autoscale.AutoscaleService;
 import imagej.data.autoscale.DataRange;
 import imagej.data.display.ImageDisplayService;
@@ -46,8 +47,16 @@
 import imagej.data.threshold.ThresholdService;
 import imagej.menu.MenuConstants;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.display.ColorTable8;
@@ -60,7 +69,6 @@
 import net.imglib2.meta.CalibratedAxis;
 import net.imglib2.meta.IntervalUtils;
 import net.imglib2.ops.pointset.HyperVolumePointSet;
-import net.imglib2.ops.pointset.PointSet;
 import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.RealType;
@@ -72,6 +80,7 @@
 import org.scijava.plugin.Menu;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
 
 /**
  * Creates or updates a mask {@link Dataset} of type {@link BitType}. Uses an
@@ -147,6 +156,9 @@
 	@Parameter
 	private AutoscaleService autoscaleSrv;
 
+	@Parameter
+	private ThreadService threadSrv;
+
 	// -- accessors --
 
 	/**
@@ -320,7 +332,6 @@ public void setDefaultThresholdMethod() {
 	// -- Command methods --
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public void run() {
 		long[] dims = IntervalUtils.getDims(inputData);
 		String err = checkInputMask(inputMask, dims);
@@ -338,41 +349,33 @@ public void run() {
 			inputMask != null ? inputMask : datasetSrv.create(new BitType(), dims,
 				"Mask", types, isVirtual(inputData));
 		mask.setAxes(axes);
-		RandomAccess<BitType> maskAccessor =
-			(RandomAccess<BitType>) mask.getImgPlus().randomAccess();
-		RandomAccess<? extends RealType<?>> dataAccessor =
-			inputData.getImgPlus().randomAccess();
-		DataRange minMax = calcDataRange(inputData);
-		Histogram1d<T> histogram = null;
-		boolean testLess = maskPixels.equals(INSIDE);
-		DoubleType val = new DoubleType();
-		// TODO - use Views and Cursors instead of PointSets and RandomAccess?
-		// Better performance? Especially for CellImgs?
-		if (thresholdEachPlane && planeCount(inputData) > 1) {
-			// threshold each plane separately
-			long[] planeSpace = planeSpace(inputData);
-			PointSetIterator pIter = new HyperVolumePointSet(planeSpace).iterator();
-			while (pIter.hasNext()) {
-				long[] planePos = pIter.next();
-				histogram = buildHistogram(inputData, planePos, minMax, histogram);
-				double cutoffVal = cutoff(histogram, method, testLess, val);
-				PointSet planeData = planeData(inputData, planePos);
-				PointSetIterator iter = planeData.iterator();
-				while (iter.hasNext()) {
-					updateMask(iter.next(), testLess, cutoffVal, dataAccessor,
-						maskAccessor);
+		final DataRange minMax = calcDataRange(inputData);
+		final boolean testLess = maskPixels.equals(INSIDE);
+		final List<long[]> planes = planePositions(inputData);
+		final double[] cutoffs = new double[planes.size()];
+		if (thresholdEachPlane && planes.size() > 1) {
+			// threshold each plane separately: the histograms of a batch of planes
+			// are built concurrently, then the threshold method is consulted one
+			// plane at a time
+			final int batchSize = Runtime.getRuntime().availableProcessors();
+			List<Histogram1d<T>> histograms = new ArrayList<Histogram1d<T>>();
+			DoubleType val = new DoubleType();
+			for (int start = 0; start < planes.size(); start += batchSize) {
+				int end = Math.min(planes.size(), start + batchSize);
+				histograms =
+					buildPlaneHistograms(planes.subList(start, end), minMax, histograms);
+				for (int p = start; p < end; p++) {
+					cutoffs[p] =
+						cutoff(histograms.get(p - start), method, testLess, val);
 				}
 			}
 		}
 		else { // threshold entire dataset once
-			histogram = buildHistogram(inputData, null, minMax, null);
-			double cutoffVal = cutoff(histogram, method, testLess, val);
-			PointSet fullData = fullData(dims);
-			PointSetIterator iter = fullData.iterator();
-			while (iter.hasNext()) {
-				updateMask(iter.next(), testLess, cutoffVal, dataAccessor, maskAccessor);
-			}
+			Histogram1d<T> histogram = buildHistogram(inputData, null, minMax, null);
+			Arrays.fill(cutoffs, cutoff(histogram, method, testLess,
+				new DoubleType()));
 		}
+		updateMask(mask, planes, cutoffs, testLess);
 		assignColorTables(mask);
 		if (changeInput) {
 			// TODO - should inputData be ItemIO.BOTH????
@@ -509,38 +512,219 @@ private double cutoff(Histogram1d<T> hist, ThresholdMethod thresholdMethod,
 		return val.getRealDouble();
 	}
 
+	// returns the position of every plane of a dataset within its plane space
+
+	private List<long[]> planePositions(Dataset ds) {
+		List<long[]> positions = new ArrayList<long[]>();
+		if (ds.numDimensions() < 3) {
+			positions.add(new long[0]);
+			return positions;
+		}
+		PointSetIterator iter = new HyperVolumePointSet(planeSpace(ds)).iterator();
+		while (iter.hasNext()) {
+			positions.add(iter.next().clone());
+		}
+		return positions;
+	}
+
+	// builds the histograms of some planes of the input data in parallel,
+	// reusing previously allocated histograms where available
+
+	private List<Histogram1d<T>> buildPlaneHistograms(List<long[]> planes,
+		final DataRange minMax, final List<Histogram1d<T>> existingHists)
+	{
+		List<Callable<Histogram1d<T>>> tasks =
+			new ArrayList<Callable<Histogram1d<T>>>();
+		for (int i = 0; i < planes.size(); i++) {
+			final long[] planePos = planes.get(i);
+			final Histogram1d<T> existingHist =
+				i < existingHists.size() ? existingHists.get(i) : null;
+			tasks.add(new Callable<Histogram1d<T>>() {
+
+				@Override
+				public Histogram1d<T> call() {
+					return buildHistogram(inputData, planePos, minMax, existingHist);
+				}
+			});
+		}
+		return runAll(tasks);
+	}
+
 	// updates the mask pixel values for which the data values are on the correct
-	// side of the cutoff value.
+	// side of the cutoff value. planes are updated in parallel when no two planes
+	// share storage. Array and planar masks are filled 64 pixels at a time.
 
-	private void updateMask(long[] pos, boolean testLess, double cutoffVal,
-		RandomAccess<? extends RealType<?>> dataAccessor,
-		RandomAccess<BitType> maskAccessor)
+	private void updateMask(Dataset mask, List<long[]> planes,
+		final double[] cutoffs, final boolean testLess)
 	{
-		dataAccessor.setPosition(pos);
-		boolean partOfMask;
-		if (testLess) {
-			partOfMask = dataAccessor.get().getRealDouble() <= cutoffVal;
+		@SuppressWarnings("unchecked")
+		final Img<BitType> maskImg = (Img<BitType>) mask.getImgPlus();
+		final long[][] words = bitWords(maskImg);
+		final boolean parallel = words != null &&
+			(words.length > 1 || planeSize(inputData) % 64 == 0);
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int p = 0; p < planes.size(); p++) {
+			final int planeNum = p;
+			final Interval plane = planeInterval(inputData, planes.get(p));
+			tasks.add(new Callable<Object>() {
+
+				@Override
+				public Object call() {
+					if (words == null) {
+						updateMaskPlane(plane, cutoffs[planeNum], testLess, maskImg);
+					}
+					else {
+						packMaskPlane(plane, cutoffs[planeNum], testLess, maskImg, words);
+					}
+					return null;
+				}
+			});
 		}
-		else { // test greater
-			partOfMask = dataAccessor.get().getRealDouble() >= cutoffVal;
+		if (parallel) runAll(tasks);
+		else {
+			for (Callable<Object> task : tasks) {
+				try {
+					task.call();
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
 		}
-		if (partOfMask) {
-			if (fillFg) {
-				maskAccessor.setPosition(pos);
-				maskAccessor.get().set(true);
+	}
+
+	// updates one plane of the mask through a cursor on the plane's data. when
+	// the mask iterates in the same order as the data its cursor just follows
+	// along, otherwise it is positioned from the data cursor.
+
+	private void updateMaskPlane(Interval plane, double cutoffVal,
+		boolean testLess, Img<BitType> maskImg)
+	{
+		IterableInterval<? extends RealType<?>> data =
+			Views.iterable(Views.interval(inputData.getImgPlus(), plane));
+		IterableInterval<BitType> maskData =
+			Views.iterable(Views.interval(maskImg, plane));
+		if (data.equalIterationOrder(maskData)) {
+			Cursor<? extends RealType<?>> dataCursor = data.cursor();
+			Cursor<BitType> maskCursor = maskData.cursor();
+			while (dataCursor.hasNext()) {
+				double value = dataCursor.next().getRealDouble();
+				maskCursor.fwd();
+				updateMaskValue(value, cutoffVal, testLess, maskCursor.get());
+			}
+		}
+		else {
+			Cursor<? extends RealType<?>> dataCursor = data.localizingCursor();
+			RandomAccess<BitType> maskAccessor = maskImg.randomAccess();
+			while (dataCursor.hasNext()) {
+				double value = dataCursor.next().getRealDouble();
+				maskAccessor.setPosition(dataCursor);
+				updateMaskValue(value, cutoffVal, testLess, maskAccessor.get());
 			}
 		}
+	}
+
+	// sets or clears one mask value given the data value at the same point
+
+	private void updateMaskValue(double value, double cutoffVal,
+		boolean testLess, BitType maskValue)
+	{
+		boolean partOfMask = testLess ? value <= cutoffVal : value >= cutoffVal;
+		if (partOfMask) {
+			if (fillFg) maskValue.set(true);
+		}
 		else { // not part of mask
-			if (fillBg) {
-				maskAccessor.setPosition(pos);
-				maskAccessor.get().set(false);
+			if (fillBg) maskValue.set(false);
+		}
+	}
+
+	// updates one plane of an array or planar mask a word at a time. the data of
+	// the plane is visited in flat order (x fastest), the order of mask bits.
+
+	private void packMaskPlane(Interval plane, double cutoffVal,
+		boolean testLess, Img<BitType> maskImg, long[][] words)
+	{
+		long[] pos = new long[plane.numDimensions()];
+		plane.min(pos);
+		int planeIndex = PrimitiveStorage.planeIndex(maskImg, pos);
+		long planeSize = planeSize(inputData);
+		long[] planeWords;
+		long bit, end;
+		if (words.length == 1) {
+			// array image: all planes share one array
+			planeWords = words[0];
+			bit = planeIndex * planeSize;
+		}
+		else {
+			planeWords = words[planeIndex];
+			bit = 0;
+		}
+		end = bit + planeSize;
+		Cursor<? extends RealType<?>> cursor =
+			Views.flatIterable(Views.interval(inputData.getImgPlus(), plane))
+				.cursor();
+		while (bit < end) {
+			int w = (int) (bit >>> 6);
+			int first = (int) (bit & 63);
+			int last = (int) Math.min(64, first + end - bit); // exclusive
+			long in = 0;
+			for (int b = first; b < last; b++) {
+				double value = cursor.next().getRealDouble();
+				if (testLess ? value <= cutoffVal : value >= cutoffVal) {
+					in |= 1L << b;
+				}
 			}
+			long covered = (-1L << first) & (last == 64 ? -1L : (1L << last) - 1);
+			long word = planeWords[w];
+			if (fillFg) word |= in;
+			if (fillBg) word &= ~(covered & ~in);
+			planeWords[w] = word;
+			bit += last - first;
 		}
 	}
 
-	// returns a PointSet that represents the points in a plane of a dataset
+	// returns the words backing an array or planar BitType mask whose planes are
+	// made of its first two dimensions, or null for any other mask
 
-	private PointSet planeData(Dataset ds, long[] planePos) {
+	private long[][] bitWords(Img<BitType> maskImg) {
+		if (inputData.dimensionIndex(Axes.X) != 0) return null;
+		if (inputData.dimensionIndex(Axes.Y) != 1) return null;
+		return PrimitiveStorage.getBitPlanes(maskImg);
+	}
+
+	// returns the number of points in an XY plane of a dataset
+
+	private long planeSize(Dataset ds) {
+		int xIndex = ds.dimensionIndex(Axes.X);
+		int yIndex = ds.dimensionIndex(Axes.Y);
+		return ds.dimension(xIndex) * ds.dimension(yIndex);
+	}
+
+	// runs a set of tasks concurrently and returns their results in order
+
+	private <R> List<R> runAll(List<? extends Callable<R>> tasks) {
+		List<Future<R>> futures = new ArrayList<Future<R>>();
+		for (Callable<R> task : tasks) {
+			futures.add(threadSrv.run(task));
+		}
+		List<R> results = new ArrayList<R>();
+		for (Future<R> future : futures) {
+			try {
+				results.add(future.get());
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return results;
+	}
+
+	// returns an Interval that represents the points in a plane of a dataset
+
+	private Interval planeInterval(Dataset ds, long[] planePos) {
 		long[] pt1 = new long[ds.numDimensions()];
 		long[] pt2 = new long[ds.numDimensions()];
 		int i = 0;
@@ -556,13 +740,7 @@ private PointSet planeData(Dataset ds, long[] planePos) {
 				i++;
 			}
 		}
-		return new HyperVolumePointSet(pt1, pt2);
-	}
-
-	// returns a PointSet that represents all the points in a dataset
-
-	private PointSet fullData(long[] dims) {
-		return new HyperVolumePointSet(dims);
+		return new FinalInterval(pt1, pt2);
 	}
 
 	// sets each dataset plane's color table
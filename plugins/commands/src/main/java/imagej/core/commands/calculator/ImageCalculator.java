@@ -42,13 +42,9 @@
 import imagej.data.operator.CalculatorOp;
 import imagej.data.operator.CalculatorService;
 import imagej.menu.MenuConstants;
-import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.meta.SpaceUtils;
-import net.imglib2.ops.pointset.HyperVolumePointSet;
-import net.imglib2.ops.pointset.PointSetIterator;
 import net.imglib2.type.numeric.RealType;
-import net.imglib2.type.numeric.real.DoubleType;
 
 import org.scijava.ItemIO;
 import org.scijava.plugin.Menu;
@@ -107,23 +103,21 @@
 	@Override
 	@SuppressWarnings("unchecked")
 	public void run() {
-		Img<DoubleType> img = null;
+		final Img<U> img1 = (Img<U>) input1.getImgPlus();
+		final Img<V> img2 = (Img<V>) input2.getImgPlus();
+		final long[] span;
 		try {
-			final Img<U> img1 = (Img<U>) input1.getImgPlus();
-			final Img<V> img2 = (Img<V>) input2.getImgPlus();
-			img = calculatorService.combine(img1, img2, op);
+			span = calculatorService.overlap(img1, img2);
 		}
 		catch (final IllegalArgumentException e) {
 			cancel(e.toString());
 			return;
 		}
-		final long[] span = new long[img.numDimensions()];
-		img.dimensions(span);
 
 		// replace original data if desired by user
 		if (!wantDoubles && !newWindow) {
 			output = null;
-			copyDataInto(input1.getImgPlus(), img, span);
+			calculatorService.combine(img1, img2, op, input1.getImgPlus());
 			input1.update();
 		}
 		else { // write into output
@@ -139,7 +133,7 @@ public void run() {
 			output =
 				datasetService.create(span, "Result of operation", SpaceUtils
 					.getAxisTypes(input1), bits, signed, floating);
-			copyDataInto(output.getImgPlus(), img, span);
+			calculatorService.combine(img1, img2, op, output.getImgPlus());
 			output.update(); // TODO - probably unnecessary
 		}
 	}
@@ -227,24 +221,4 @@ public void setDoubleOutput(final boolean wantDoubles) {
 		this.wantDoubles = wantDoubles;
 	}
 
-
-	// -- private helpers --
-
-	private void copyDataInto(final Img<? extends RealType<?>> out,
-		final Img<? extends RealType<?>> in, final long[] span)
-	{
-		final RandomAccess<? extends RealType<?>> src = in.randomAccess();
-		final RandomAccess<? extends RealType<?>> dst = out.randomAccess();
-		final HyperVolumePointSet ps = new HyperVolumePointSet(span);
-		final PointSetIterator iter = ps.iterator();
-		long[] pos = null;
-		while (iter.hasNext()) {
-			pos = iter.next();
-			src.setPosition(pos);
-			dst.setPosition(pos);
-			final double value = src.get().getRealDouble();
-			dst.get().setReal(value);
-		}
-	}
-
 }
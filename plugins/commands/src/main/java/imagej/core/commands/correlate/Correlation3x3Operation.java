@@ -36,7 +36,7 @@
 package imagej.core.commands.correlate;
 
 import imagej.core.commands.neigh.Neighborhood3x3Operation;
-import imagej.core.commands.neigh.Neighborhood3x3Watcher;
+import imagej.core.commands.neigh.Neighborhood3x3Kernel;
 import imagej.data.Dataset;
 import imagej.util.RealRect;
 
@@ -74,12 +74,13 @@ public Correlation3x3Operation(final Dataset input, final RealRect selection,
 		final double[] kernel)
 	{
 		this.kernel = kernel;
-		this.neighOperation =
-			new Neighborhood3x3Operation(input, selection,
-				new CorrelateWatcher(input));
 
 		if (kernel.length != 9) throw new IllegalArgumentException(
 			"kernel must contain nine elements (shaped 3x3)");
+
+		this.neighOperation =
+			new Neighborhood3x3Operation(input, selection,
+				new CorrelateKernel(input));
 	}
 
 	// -- public interface --
@@ -94,57 +95,39 @@ public void run() {
 	// -- private interface --
 
 	/**
-	 * CorrelateWatcher is where the actual correlation value of one output pixel
-	 * is calculated. The watcher is called from Neighborhood3x3Operation visiting
-	 * each pixel in the input image (and all its immediate neighbors) once.
-	 * CorrelateWatcher tallies that information and returns appropriate values as
-	 * necessary.
+	 * CorrelateKernel is where the actual correlation value of one output pixel
+	 * is calculated. Neighborhood3x3Operation hands it the values of each pixel
+	 * in the input image and its immediate neighbors, possibly from several
+	 * threads at once, so it keeps no per neighborhood state.
 	 */
-	private class CorrelateWatcher implements Neighborhood3x3Watcher {
+	private class CorrelateKernel implements Neighborhood3x3Kernel {
 
-		private double scale;
-		private double sum;
+		private final double scale;
 		private final boolean integerDataset;
 		private final double typeMinValue;
 		private final double typeMaxValue;
 
-		public CorrelateWatcher(final Dataset ds) {
+		/** Precalculates the kernel scale for use later. */
+		public CorrelateKernel(final Dataset ds) {
 			integerDataset = ds.isInteger();
 			typeMinValue = ds.getType().getMinValue();
 			typeMaxValue = ds.getType().getMaxValue();
-		}
-
-		/** Precalculates the kernel scale for use later. */
-		@Override
-		public void setup() {
-			scale = 0;
+			double sum = 0;
 			for (int i = 0; i < kernel.length; i++)
-				scale += kernel[i];
-			if (scale == 0) scale = 1;
-		}
-
-		/** At each new neighborhood reset its value sum to 0. */
-		@Override
-		public void initializeNeighborhood(final long[] position) {
-			sum = 0;
+				sum += kernel[i];
+			scale = sum == 0 ? 1 : sum;
 		}
 
 		/**
-		 * For each pixel visited in the 3x3 neighborhood add the kernel scaled
-		 * value.
-		 */
-		@Override
-		public void visitLocation(final int dx, final int dy, final double value) {
-			final int index = (dy + 1) * (3) + (dx + 1);
-			sum += value * kernel[index];
-		}
-
-		/**
-		 * Called after all pixels in neighborhood visited - divide the sum by the
+		 * Adds up the kernel scaled neighborhood values and divides the sum by the
 		 * kernel scale.
 		 */
 		@Override
-		public double calcOutputValue() {
+		public double calcOutputValue(final double[] neighborhood) {
+			double sum = 0;
+			for (int i = 0; i < 9; i++)
+				sum += neighborhood[i] * kernel[i];
+
 			double value;
 
 			if (integerDataset) {
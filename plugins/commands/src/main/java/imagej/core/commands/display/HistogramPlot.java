@@ -43,6 +43,8 @@
 import imagej.data.display.OverlayService;
 import imagej.data.event.DatasetRestructuredEvent;
 import imagej.data.event.DatasetUpdatedEvent;
+import imagej.data.measure.PlaneStatistics;
+import imagej.data.measure.PlaneStatisticsService;
 import imagej.data.widget.HistogramBundle;
 import imagej.module.MutableModuleItem;
 import imagej.ui.UIService;
@@ -100,6 +102,9 @@
 	@Parameter
 	private OverlayService overlayService;
 
+	@Parameter
+	private PlaneStatisticsService planeStatisticsService;
+
 	@Parameter
 	private ImageDisplay display;
 
@@ -349,16 +354,12 @@ private void setTitle(int histNum) {
 	}
 
 	private void calcBinInfo() {
-		// calc the data ranges - 1st pass thru data
-		dataMin = Double.POSITIVE_INFINITY;
-		dataMax = Double.NEGATIVE_INFINITY;
-		Cursor<? extends RealType<?>> cursor = dataset.getImgPlus().cursor();
-		while (cursor.hasNext()) {
-			double val = cursor.next().getRealDouble();
-			if (val < dataMin) dataMin = val;
-			if (val > dataMax) dataMax = val;
-		}
-		if (dataMin > dataMax) {
+		// calc the data ranges - from the cached plane ranges when possible
+		PlaneStatistics stats =
+			planeStatisticsService.getStatistics(dataset, false);
+		dataMin = stats.getMin();
+		dataMax = stats.getMax();
+		if (stats.getCount() == 0 || dataMin > dataMax) {
 			dataMin = 0;
 			dataMax = 0;
 		}
@@ -38,10 +38,20 @@
 import imagej.command.Command;
 import imagej.command.ContextCommand;
 import imagej.data.Dataset;
+import imagej.data.PrimitiveStorage;
 import imagej.menu.MenuConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.imglib2.ExtendedRandomAccessibleInterval;
+import net.imglib2.RandomAccess;
 import net.imglib2.algorithm.gauss3.Gauss3;
 import net.imglib2.img.Img;
+import net.imglib2.meta.Axes;
 import net.imglib2.meta.CalibratedAxis;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.view.Views;
@@ -50,10 +60,14 @@
 import org.scijava.plugin.Menu;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
 
 /**
  * Does an in place Gaussian blur noise reduction operation on a {@link Dataset}
- * .
+ * . By default the blur extends across all dimensions. Alternatively each XY
+ * plane can be blurred on its own; planes are then streamed through a pool of
+ * workers that each hold a single plane, so memory use stays small even for
+ * huge cell backed images.
  * 
  * @author Barry DeZonia
  * @param <T>
@@ -81,10 +95,20 @@
 	@Parameter(label = "Use units")
 	private boolean useUnits = false;
 
+	@Parameter(label = "Blur each XY plane separately")
+	private boolean xyPlanes = false;
+
+	@Parameter(required = false)
+	private ThreadService threadService;
+
 	// -- Command methods --
 
 	@Override
 	public void run() {
+		if (xyPlanes) {
+			blurPlanes();
+			return;
+		}
 		double[] sigmas = sigmas();
 		Img<T> target = (Img<T>) (Img) dataset.getImgPlus();
 		Img<T> input = target.copy();
@@ -98,6 +122,40 @@ public void run() {
 		}
 	}
 
+	// -- accessors --
+
+	public void setDataset(Dataset ds) {
+		dataset = ds;
+	}
+
+	public Dataset getDataset() {
+		return dataset;
+	}
+
+	public void setSigma(double sigma) {
+		this.sigma = sigma;
+	}
+
+	public double getSigma() {
+		return sigma;
+	}
+
+	public void setUseUnits(boolean useUnits) {
+		this.useUnits = useUnits;
+	}
+
+	public boolean getUseUnits() {
+		return useUnits;
+	}
+
+	public void setXYPlanes(boolean xyPlanes) {
+		this.xyPlanes = xyPlanes;
+	}
+
+	public boolean getXYPlanes() {
+		return xyPlanes;
+	}
+
 	// -- helpers --
 
 	private double[] sigmas() {
@@ -114,4 +172,199 @@ private double[] sigmas() {
 		return sigmas;
 	}
 
+	/**
+	 * Blurs every XY plane independently. Each worker claims planes one at a
+	 * time and writes the blurred values straight back into the Dataset.
+	 */
+	private void blurPlanes() {
+		if (dataset.dimensionIndex(Axes.X) != 0 ||
+			dataset.dimensionIndex(Axes.Y) != 1)
+		{
+			cancel("Blurring XY planes separately requires X and Y to be the " +
+				"first two axes");
+			return;
+		}
+		final double[] sigmas = sigmas();
+		final double[] xKernel = halfKernel(sigmas[0]);
+		final double[] yKernel = halfKernel(sigmas[1]);
+		final Img<? extends RealType<?>> img = dataset.getImgPlus();
+		final int planeCount = PrimitiveStorage.planeCount(img);
+		final AtomicInteger nextPlane = new AtomicInteger();
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		// NB: packed pixels (e.g. 1 or 12 bit) of neighboring planes can share a
+		// storage word
+		final boolean packed = dataset.getType().getBitsPerPixel() % 8 != 0;
+		final int workers =
+			threadService == null || packed ? 1 : Math.max(1, Math.min(cpus,
+				planeCount));
+		if (workers == 1) {
+			new PlaneBlurrer(img, xKernel, yKernel, nextPlane, planeCount).run();
+		}
+		else {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < workers; i++) {
+				futures.add(threadService.run(new PlaneBlurrer(img, xKernel, yKernel,
+					nextPlane, planeCount)));
+			}
+			for (final Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (final InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				catch (final ExecutionException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		dataset.update();
+	}
+
+	/**
+	 * Returns the normalized right half of a Gaussian kernel, sized the same way
+	 * {@link Gauss3} sizes its kernels.
+	 */
+	private static double[] halfKernel(final double s) {
+		final int size = Math.max(2, (int) (3 * s + 0.5) + 1);
+		final double[] kernel = new double[size];
+		kernel[0] = 1;
+		double sum = 1;
+		for (int x = 1; x < size; x++) {
+			kernel[x] = Math.exp(-(x * x) / (2 * s * s));
+			sum += 2 * kernel[x];
+		}
+		for (int x = 0; x < size; x++) {
+			kernel[x] /= sum;
+		}
+		return kernel;
+	}
+
+	/** Returns the mirrored (edge pixel not repeated) index of a position. */
+	private static int mirror(final int i, final int size) {
+		if (size == 1) return 0;
+		final int period = 2 * size - 2;
+		int m = i % period;
+		if (m < 0) m += period;
+		return m < size ? m : period - m;
+	}
+
+	/**
+	 * Blurs whole planes, one at a time, until none are left. The plane and line
+	 * buffers are allocated once per worker and reused for every plane.
+	 */
+	private class PlaneBlurrer implements Runnable {
+
+		private final Img<? extends RealType<?>> img;
+		private final double[] xKernel, yKernel;
+		private final AtomicInteger nextPlane;
+		private final int planeCount;
+		private final int width, height;
+		private final double[] plane;
+		private final double[] line;
+		private final double[] row;
+		private final long[] position;
+		private final RandomAccess<? extends RealType<?>> access;
+		private final boolean integer;
+		private final double typeMin, typeMax;
+
+		public PlaneBlurrer(final Img<? extends RealType<?>> img,
+			final double[] xKernel, final double[] yKernel,
+			final AtomicInteger nextPlane, final int planeCount)
+		{
+			this.img = img;
+			this.xKernel = xKernel;
+			this.yKernel = yKernel;
+			this.nextPlane = nextPlane;
+			this.planeCount = planeCount;
+			width = (int) img.dimension(0);
+			height = (int) img.dimension(1);
+			plane = new double[width * height];
+			line = new double[width + 2 * (xKernel.length - 1)];
+			row = new double[width];
+			position = new long[img.numDimensions()];
+			access = img.randomAccess();
+			integer = dataset.isInteger();
+			typeMin = dataset.getType().getMinValue();
+			typeMax = dataset.getType().getMaxValue();
+		}
+
+		@Override
+		public void run() {
+			int p;
+			while ((p = nextPlane.getAndIncrement()) < planeCount) {
+				PrimitiveStorage.planePosition(img, p, position);
+				readPlane();
+				for (int y = 0; y < height; y++) {
+					blurRow(y * width);
+				}
+				for (int y = 0; y < height; y++) {
+					blurColumns(y);
+					writeRow(y);
+				}
+			}
+		}
+
+		private void readPlane() {
+			int i = 0;
+			for (int y = 0; y < height; y++) {
+				position[0] = 0;
+				position[1] = y;
+				access.setPosition(position);
+				for (int x = 0; x < width; x++) {
+					if (x > 0) access.fwd(0);
+					plane[i++] = access.get().getRealDouble();
+				}
+			}
+		}
+
+		/** Blurs one row of the plane in place along X. */
+		private void blurRow(final int offset) {
+			final int pad = xKernel.length - 1;
+			for (int x = -pad; x < width + pad; x++) {
+				line[x + pad] = plane[offset + mirror(x, width)];
+			}
+			for (int x = 0; x < width; x++) {
+				final int c = x + pad;
+				double sum = xKernel[0] * line[c];
+				for (int k = 1; k <= pad; k++) {
+					sum += xKernel[k] * (line[c - k] + line[c + k]);
+				}
+				plane[offset + x] = sum;
+			}
+		}
+
+		/** Computes output row y of the Y pass from the X blurred plane. */
+		private void blurColumns(final int y) {
+			final int offset = y * width;
+			for (int x = 0; x < width; x++) {
+				row[x] = yKernel[0] * plane[offset + x];
+			}
+			for (int k = 1; k < yKernel.length; k++) {
+				final int above = mirror(y - k, height) * width;
+				final int below = mirror(y + k, height) * width;
+				final double weight = yKernel[k];
+				for (int x = 0; x < width; x++) {
+					row[x] += weight * (plane[above + x] + plane[below + x]);
+				}
+			}
+		}
+
+		private void writeRow(final int y) {
+			position[0] = 0;
+			position[1] = y;
+			access.setPosition(position);
+			for (int x = 0; x < width; x++) {
+				if (x > 0) access.fwd(0);
+				double value = row[x];
+				if (integer) {
+					value = Math.round(value);
+					if (value < typeMin) value = typeMin;
+					else if (value > typeMax) value = typeMax;
+				}
+				access.get().setReal(value);
+			}
+		}
+	}
+
 }
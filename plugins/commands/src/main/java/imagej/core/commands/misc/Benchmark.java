@@ -36,22 +36,68 @@
 package imagej.core.commands.misc;
 
 import imagej.command.Command;
-import imagej.command.UnimplementedCommand;
+import imagej.command.ContextCommand;
+import imagej.core.commands.binary.Binarize;
+import imagej.core.commands.correlate.Correlation3x3Operation;
+import imagej.core.commands.imglib.GaussianBlur;
+import imagej.core.commands.typechange.TypeChanger;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.ImgCopier;
+import imagej.data.autoscale.AutoscaleService;
+import imagej.data.display.DatasetView;
 import imagej.data.display.ImageDisplay;
+import imagej.data.display.ImageDisplayService;
+import imagej.data.measure.StatisticsService;
+import imagej.data.table.DefaultResultsTable;
+import imagej.data.table.ResultsTable;
 import imagej.menu.MenuConstants;
+import imagej.util.MersenneTwisterFast;
+import imagej.util.RealRect;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.scijava.ItemIO;
+import org.scijava.app.StatusService;
+import org.scijava.log.LogService;
 import org.scijava.plugin.Menu;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
-
-// TODO - replace the kind of functionality that IJ1's Benchmark command has.
-// It needs to display changes as they happen (something the legacy plugin can't
-// do inside modern ImageJ).
+import org.scijava.thread.ThreadService;
 
 /**
- * This is a placeholder command for as yet unfinished Benchmark command. The
- * associated legacy command does not work in ImageJ2 and will need to be
- * rewritten.
+ * Times a fixed battery of core image operations so that hardware, JVM
+ * settings and releases can be compared. The operations run on the active
+ * {@link Dataset} or, when there is none, on a synthetic one built from a fixed
+ * seed. Each operation gets some untimed warm-up runs and then a number of
+ * timed runs. Before every run its working copy of the data is restored from
+ * the source, outside the timing.
+ * <p>
+ * Every operation is repeated with 1, 2, 4, ... copies of the data processed
+ * concurrently, up to the requested number of copies. Counts whose copies
+ * would not fit in the available memory are skipped. The results are returned
+ * as a {@link ResultsTable} with one row per operation and copy count, giving
+ * the multi-copy throughput (copies processed per second) and its ratio to
+ * the throughput of a single copy.
+ * </p>
+ * <p>
+ * The copy count is not a thread count: many of the operations spread their
+ * own work across the threads of the {@link ThreadService}, so even a single
+ * copy may keep several processors busy.
+ * </p>
  * 
  * @author Barry DeZonia
  */
@@ -60,14 +106,133 @@
 		@Menu(label = MenuConstants.PLUGINS_LABEL,
 			weight = MenuConstants.PLUGINS_WEIGHT,
 			mnemonic = MenuConstants.PLUGINS_MNEMONIC), @Menu(label = "Utilities"),
-		@Menu(label = "Benchmark") })
-public class Benchmark extends UnimplementedCommand {
+		@Menu(label = "Benchmark") }, headless = true)
+public class Benchmark extends ContextCommand {
+
+	// -- constants --
+
+	public static final String BYTE_DATA = "8-bit unsigned";
+	public static final String SHORT_DATA = "16-bit unsigned";
+	public static final String FLOAT_DATA = "32-bit float";
+
+	private static final String OPEN = "Open";
+	private static final String DUPLICATE = "Duplicate";
+	private static final String AUTOSCALE = "Autoscale";
+	private static final String SMOOTH = "Smooth 3x3";
+	private static final String SHARPEN = "Sharpen 3x3";
+	private static final String GAUSSIAN = "Gaussian blur";
+	private static final String TYPE_CHANGE = "Type change";
+	private static final String BINARIZE = "Binarize";
+	private static final String RENDER = "Projector render";
+	private static final String STATISTICS = "Statistics";
+
+	private static final String[] OPERATIONS = { OPEN, DUPLICATE, AUTOSCALE,
+		SMOOTH, SHARPEN, GAUSSIAN, TYPE_CHANGE, BINARIZE, RENDER, STATISTICS };
+
+	private static final String[] COLUMNS = { "Concurrent copies", "Mean (ms)",
+		"Min (ms)", "Max (ms)", "Std dev (ms)", "Copies per second",
+		"Relative to one copy" };
+
+	private static final long SEED = 1234567890L;
 
 	// -- Parameters --
 
-	@Parameter
+	@Parameter(required = false)
 	private ImageDisplay display;
 
+	@Parameter(label = "Synthetic width", min = "16")
+	private int width = 1024;
+
+	@Parameter(label = "Synthetic height", min = "16")
+	private int height = 1024;
+
+	@Parameter(label = "Synthetic planes", min = "1")
+	private int planes = 4;
+
+	@Parameter(label = "Synthetic type", choices = { BYTE_DATA, SHORT_DATA,
+		FLOAT_DATA })
+	private String dataType = SHORT_DATA;
+
+	@Parameter(label = "Warm-up iterations", min = "0")
+	private int warmups = 2;
+
+	@Parameter(label = "Timed iterations", min = "1")
+	private int iterations = 5;
+
+	@Parameter(label = "Maximum concurrent copies (0 = one per processor)",
+		min = "0")
+	private int maxCopies = 0;
+
+	@Parameter(type = ItemIO.OUTPUT, label = "Benchmark Results")
+	private ResultsTable results;
+
+	@Parameter
+	private ImageDisplayService imageDisplayService;
+
+	@Parameter
+	private DatasetService datasetService;
+
+	@Parameter
+	private AutoscaleService autoscaleService;
+
+	@Parameter
+	private StatisticsService statisticsService;
+
+	@Parameter
+	private ThreadService threadService;
+
+	@Parameter(required = false)
+	private StatusService statusService;
+
+	@Parameter
+	private LogService log;
+
+	// -- instance variables --
+
+	private File savedFile;
+
+	// -- Command methods --
+
+	@Override
+	public void run() {
+		final Dataset source = sourceDataset();
+		final int[] copyCounts = copyCounts(source);
+		savedFile = saveForOpening(source);
+		results =
+			new DefaultResultsTable(COLUMNS.length, OPERATIONS.length *
+				copyCounts.length);
+		for (int c = 0; c < COLUMNS.length; c++) {
+			results.setColumnHeader(c, COLUMNS[c]);
+		}
+		try {
+			int row = 0;
+			for (final String operation : OPERATIONS) {
+				double baseThroughput = Double.NaN;
+				for (final int copies : copyCounts) {
+					status(operation + " (" + copies + " copies)", row,
+						results.getRowCount());
+					final double[] times = measure(operation, copies, source);
+					final double mean = mean(times);
+					final double throughput = 1000 * copies / mean;
+					if (copies == 1) baseThroughput = throughput;
+					results.setRowHeader(row, operation);
+					results.setValue(0, row, copies);
+					results.setValue(1, row, mean);
+					results.setValue(2, row, min(times));
+					results.setValue(3, row, max(times));
+					results.setValue(4, row, stdDev(times, mean));
+					results.setValue(5, row, throughput);
+					results.setValue(6, row, throughput / baseThroughput);
+					row++;
+				}
+			}
+		}
+		finally {
+			if (savedFile != null) savedFile.delete();
+			if (statusService != null) statusService.clearStatus();
+		}
+	}
+
 	// -- accessors --
 
 	public void setImageDisplay(final ImageDisplay disp) {
@@ -78,4 +243,398 @@ public ImageDisplay getImageDisplay() {
 		return display;
 	}
 
+	public void setSyntheticSize(final int w, final int h, final int p) {
+		width = w;
+		height = h;
+		planes = p;
+	}
+
+	public void setSyntheticType(final String type) {
+		dataType = type;
+	}
+
+	public void setIterations(final int warmupCount, final int timedCount) {
+		warmups = warmupCount;
+		iterations = timedCount;
+	}
+
+	public void setMaxCopies(final int copies) {
+		maxCopies = copies;
+	}
+
+	public ResultsTable getResults() {
+		return results;
+	}
+
+	// -- helpers --
+
+	/**
+	 * Times one operation on the given number of concurrent copies. Each copy is
+	 * made once and restored from the source before every iteration. Returns
+	 * the wall clock time of each timed iteration in milliseconds, or NaNs if
+	 * the operation failed.
+	 */
+	private double[] measure(final String operation, final int copies,
+		final Dataset source)
+	{
+		final double[] times = new double[iterations];
+		final List<Trial> trials = new ArrayList<Trial>();
+		try {
+			for (int c = 0; c < copies; c++) {
+				final Trial trial = createTrial(operation);
+				trial.setup(source.duplicate());
+				trials.add(trial);
+			}
+			for (int i = -warmups; i < iterations; i++) {
+				for (final Trial trial : trials) {
+					trial.reset(source);
+				}
+				final long start = System.nanoTime();
+				runAll(trials);
+				final long elapsed = System.nanoTime() - start;
+				if (i >= 0) times[i] = elapsed / 1e6;
+			}
+		}
+		catch (final Exception e) {
+			log.error("Benchmark: " + operation + " failed", e);
+			for (int j = 0; j < times.length; j++)
+				times[j] = Double.NaN;
+		}
+		finally {
+			for (final Trial trial : trials) {
+				trial.teardown();
+			}
+		}
+		return times;
+	}
+
+	private void runAll(final List<Trial> trials) throws Exception {
+		if (trials.size() == 1) {
+			trials.get(0).call();
+			return;
+		}
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (final Trial trial : trials) {
+			futures.add(threadService.run(trial));
+		}
+		for (final Future<Void> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Exception) throw (Exception) cause;
+				throw e;
+			}
+		}
+	}
+
+	private Dataset sourceDataset() {
+		if (display != null) {
+			final Dataset ds = imageDisplayService.getActiveDataset(display);
+			if (ds != null) return ds;
+		}
+		final int bits;
+		final boolean floating;
+		if (BYTE_DATA.equals(dataType)) {
+			bits = 8;
+			floating = false;
+		}
+		else if (FLOAT_DATA.equals(dataType)) {
+			bits = 32;
+			floating = true;
+		}
+		else {
+			bits = 16;
+			floating = false;
+		}
+		final Dataset ds =
+			datasetService.create(new long[] { width, height, planes },
+				"Benchmark", new AxisType[] { Axes.X, Axes.Y, Axes.Z }, bits, floating,
+				floating);
+		fill(ds);
+		return ds;
+	}
+
+	/** Fills a Dataset with a noisy ramp from a fixed seed. */
+	private void fill(final Dataset ds) {
+		final MersenneTwisterFast rng = new MersenneTwisterFast(SEED);
+		final boolean integer = ds.isInteger();
+		final double typeMin = integer ? ds.getType().getMinValue() : 0;
+		final double range =
+			integer ? Math.min(ds.getType().getMaxValue() - typeMin, 65535) : 1;
+		final double w = ds.dimension(0);
+		final Cursor<? extends RealType<?>> cursor = ds.getImgPlus().cursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			final double ramp = cursor.getDoublePosition(0) / w;
+			double value = typeMin + range * (0.8 * ramp + 0.2 * rng.nextDouble());
+			if (integer) value = Math.floor(value);
+			cursor.get().setReal(value);
+		}
+	}
+
+	/**
+	 * Saves a copy of the source so that opening it can be timed. Saving the
+	 * source itself would rename it and mark it clean.
+	 */
+	private File saveForOpening(final Dataset source) {
+		try {
+			final File file = File.createTempFile("benchmark", ".tif");
+			file.deleteOnExit();
+			datasetService.save(source.duplicate(), file.getAbsolutePath());
+			return file;
+		}
+		catch (final IOException e) {
+			log.warn("Benchmark: cannot save a temporary image to time opening", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns 1, 2, 4, ... up to and including the maximum number of concurrent
+	 * copies, lowered so that the copies and the data the operations create
+	 * from them fit in the available memory.
+	 */
+	private int[] copyCounts(final Dataset source) {
+		int max =
+			maxCopies > 0 ? maxCopies : Runtime.getRuntime().availableProcessors();
+		final Runtime runtime = Runtime.getRuntime();
+		final long available =
+			runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+		// NB: Leave room for one output per copy, such as a blurred image.
+		final double perCopy = 2 * Math.max(1, source.getBytesOfInfo());
+		final long fit = Math.max(1, (long) (available / perCopy));
+		if (fit < max) {
+			log.warn("Benchmark: only " + fit + " concurrent copies fit in memory");
+			max = (int) fit;
+		}
+		final List<Integer> counts = new ArrayList<Integer>();
+		for (int t = 1; t < max; t *= 2) {
+			counts.add(t);
+		}
+		counts.add(max);
+		final int[] result = new int[counts.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = counts.get(i);
+		}
+		return result;
+	}
+
+	private void status(final String message, final int done, final int total) {
+		if (statusService == null) return;
+		statusService.showStatus("Benchmark: " + message);
+		statusService.showProgress(done, total);
+	}
+
+	private Trial createTrial(final String operation) {
+		if (OPEN.equals(operation)) return new OpenTrial();
+		if (DUPLICATE.equals(operation)) return new DuplicateTrial();
+		if (AUTOSCALE.equals(operation)) return new AutoscaleTrial();
+		if (SMOOTH.equals(operation)) {
+			return new CorrelationTrial(new double[] { 1, 1, 1, 1, 1, 1, 1, 1, 1 });
+		}
+		if (SHARPEN.equals(operation)) {
+			return new CorrelationTrial(new double[] { -1, -1, -1, -1, 12, -1, -1,
+				-1, -1 });
+		}
+		if (GAUSSIAN.equals(operation)) return new GaussianTrial<FloatType>();
+		if (TYPE_CHANGE.equals(operation)) return new TypeChangeTrial<FloatType>();
+		if (BINARIZE.equals(operation)) return new BinarizeTrial<FloatType>();
+		if (RENDER.equals(operation)) return new RenderTrial();
+		if (STATISTICS.equals(operation)) return new StatisticsTrial();
+		throw new IllegalArgumentException("Unknown operation: " + operation);
+	}
+
+	private double mean(final double[] values) {
+		double sum = 0;
+		for (final double v : values)
+			sum += v;
+		return sum / values.length;
+	}
+
+	private double min(final double[] values) {
+		double min = Double.POSITIVE_INFINITY;
+		for (final double v : values)
+			min = Math.min(min, v);
+		return min;
+	}
+
+	private double max(final double[] values) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (final double v : values)
+			max = Math.max(max, v);
+		return max;
+	}
+
+	private double stdDev(final double[] values, final double mean) {
+		if (values.length < 2) return 0;
+		double sum = 0;
+		for (final double v : values)
+			sum += (v - mean) * (v - mean);
+		return Math.sqrt(sum / (values.length - 1));
+	}
+
+	// -- helper classes --
+
+	/**
+	 * One timed run of an operation on its own copy of the data. Setup and
+	 * teardown are not timed.
+	 */
+	private abstract class Trial implements Callable<Void> {
+
+		protected Dataset data;
+
+		public void setup(final Dataset work) {
+			data = work;
+		}
+
+		/** Restores the working copy to the values of the source. */
+		public void reset(final Dataset source) {
+			final Class<?> sourceType = source.getType().getClass();
+			if (data.getType().getClass() == sourceType) {
+				ImgCopier.copy(source.getImgPlus(), data.getImgPlus());
+			}
+			else {
+				// the operation replaced the data, e.g. by changing its type
+				data.setImgPlus(source.getImgPlus().copy());
+			}
+		}
+
+		public void teardown() {
+			data = null;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			run();
+			return null;
+		}
+
+		protected abstract void run() throws Exception;
+	}
+
+	private class OpenTrial extends Trial {
+
+		@Override
+		protected void run() throws IOException {
+			if (savedFile == null) {
+				throw new IOException("No saved image to open");
+			}
+			datasetService.open(savedFile.getAbsolutePath());
+		}
+	}
+
+	private class DuplicateTrial extends Trial {
+
+		@Override
+		protected void run() {
+			data.duplicate();
+		}
+	}
+
+	private class AutoscaleTrial extends Trial {
+
+		@Override
+		protected void run() {
+			autoscaleService.getDefaultRandomAccessRange(data.getImgPlus());
+		}
+	}
+
+	private class CorrelationTrial extends Trial {
+
+		private final double[] kernel;
+
+		public CorrelationTrial(final double[] kernel) {
+			this.kernel = kernel;
+		}
+
+		@Override
+		protected void run() {
+			new Correlation3x3Operation(data, new RealRect(), kernel).run();
+		}
+	}
+
+	private class GaussianTrial<T extends RealType<T>> extends Trial {
+
+		@Override
+		protected void run() {
+			final GaussianBlur<T> blur = new GaussianBlur<T>();
+			blur.setContext(getContext());
+			blur.setDataset(data);
+			blur.setSigma(2);
+			blur.setUseUnits(false);
+			blur.run();
+		}
+	}
+
+	private class TypeChangeTrial<V extends RealType<V> & NativeType<V>> extends
+		Trial
+	{
+
+		@Override
+		protected void run() {
+			final TypeChanger<FloatType, V> changer = new TypeChanger<FloatType, V>();
+			changer.setContext(getContext());
+			changer.setInput("data", data);
+			changer.setInput("typeName", "32-bit signed float");
+			changer.setInput("combineChannels", false);
+			changer.run();
+		}
+	}
+
+	private class BinarizeTrial<T extends RealType<T>> extends Trial {
+
+		@Override
+		protected void run() {
+			final Binarize<T> binarize = new Binarize<T>();
+			binarize.setContext(getContext());
+			binarize.setInputData(data);
+			binarize.setInputMask(null);
+			binarize.setChangeInput(false);
+			binarize.setFillMaskBackground(true);
+			binarize.setFillMaskForeground(true);
+			binarize.setMaskColor(Binarize.WHITE);
+			binarize.setMaskPixels(Binarize.INSIDE);
+			binarize.setThresholdEachPlane(false);
+			binarize.setDefaultThresholdMethod();
+			binarize.run();
+		}
+	}
+
+	private class RenderTrial extends Trial {
+
+		private DatasetView view;
+
+		@Override
+		public void setup(final Dataset work) {
+			super.setup(work);
+			view = (DatasetView) imageDisplayService.createDataView(work);
+			view.rebuild();
+		}
+
+		@Override
+		public void teardown() {
+			if (view != null) view.dispose();
+			view = null;
+			super.teardown();
+		}
+
+		@Override
+		protected void run() {
+			view.getProjector().map();
+		}
+	}
+
+	private class StatisticsTrial extends Trial {
+
+		@Override
+		protected void run() {
+			statisticsService.arithmeticMean(data);
+			statisticsService.populationStdDev(data);
+			statisticsService.minimum(data);
+			statisticsService.maximum(data);
+		}
+	}
+
 }
@@ -83,7 +83,7 @@ public void run() {
 		final RealRect selection = overlayService.getSelectionBounds(display);
 		final Neighborhood3x3Operation operation =
 			new Neighborhood3x3Operation(input, selection,
-				new FindEdgesWatcher(input));
+				new FindEdgesKernel(input));
 		operation.run();
 	}
 
@@ -95,56 +95,27 @@ public ImageDisplay getDisplay() {
 		return display;
 	}
 
-	// -- private interface --
+	// -- Helper classes --
 
-	private class FindEdgesWatcher implements Neighborhood3x3Watcher {
+	/** Computes the Sobel edge magnitude of a neighborhood. */
+	static class FindEdgesKernel implements Neighborhood3x3Kernel {
 
-		/**
-		 * n - contains a local copy of the 9 values of a 3x3 neighborhood
-		 */
-		private double[] n;
 		private final boolean integerDataset;
 		private final double typeMinValue;
 		private final double typeMaxValue;
 
-		public FindEdgesWatcher(final Dataset input) {
+		public FindEdgesKernel(final Dataset input) {
 			integerDataset = input.isInteger();
 			typeMinValue = input.getType().getMinValue();
 			typeMaxValue = input.getType().getMaxValue();
 		}
 
-		/**
-		 * Create the local neighborhood variables
-		 */
-		@Override
-		public void setup() {
-			n = new double[9];
-		}
-
-		/**
-		 * At each new neighborhood start tracking neighbor 0
-		 */
-		@Override
-		public void initializeNeighborhood(final long[] position) {
-			// nothing to do
-		}
-
-		/**
-		 * Every time we visit a location within the neighborhood we update our
-		 * local copy
-		 */
-		@Override
-		public void visitLocation(final int dx, final int dy, final double value) {
-			final int index = (dy + 1) * (3) + (dx + 1);
-			n[index] = value;
-		}
-
 		/**
 		 * Calculates the value of a pixel from the input neighborhood. Algorithm
 		 * taken from legacy ImageJ.
 		 */
 		@Override
-		public double calcOutputValue() {
+		public double calcOutputValue(final double[] n) {
 
 			final double sum1 = n[0] + 2 * n[1] + n[2] - n[6] - 2 * n[7] - n[8];
 
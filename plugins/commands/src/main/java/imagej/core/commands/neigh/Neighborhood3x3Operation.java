@@ -36,52 +36,94 @@
 package imagej.core.commands.neigh;
 
 import imagej.data.Dataset;
-import imagej.data.Extents;
-import imagej.data.Position;
+import imagej.data.PrimitiveStorage;
 import imagej.util.RealRect;
-import net.imglib2.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import net.imglib2.RandomAccess;
-import net.imglib2.RandomAccessible;
 import net.imglib2.img.Img;
 import net.imglib2.type.numeric.RealType;
-import net.imglib2.view.Views;
+
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
 
 /**
  * Neighborhood3x3Operation - a helper class for 3x3 neighborhood operation
  * plugins such as SmoothDataValues, SharpenDataValues, and FindEdges. Does the
- * work of communicating with a Neighborhood3x3Watcher.
+ * work of communicating with a Neighborhood3x3Kernel or a
+ * Neighborhood3x3Watcher.
+ * <p>
+ * Each XY plane is processed row by row, keeping the original values of the
+ * previous, current and next rows in a rolling buffer, so no copy of the image
+ * is needed even though the results are written in place. Rows are read
+ * straight from the primitive arrays of planar and array images. Kernels are
+ * stateless, so planes and bands of rows are spread across threads; watchers
+ * are visited one neighborhood at a time on the calling thread. Out of bounds
+ * neighbors are mirrored as with {@code Views.extendMirrorSingle}.
+ * </p>
  * 
  * @author Barry DeZonia
  */
 public class Neighborhood3x3Operation {
 
+	// -- constants --
+
+	/** Minimum number of pixels worth handing to a separate thread. */
+	private static final long MIN_PIXELS_PER_TASK = 64 * 1024;
+
 	// -- instance variables --
 
 	private final Dataset input;
-	private Img<? extends RealType<?>> inputImage;
-	private Img<? extends RealType<?>> inputImageCopy;
 	private final RealRect selection;
 	private final Neighborhood3x3Watcher watcher;
+	private final Neighborhood3x3Kernel kernel;
+
+	private Img<? extends RealType<?>> image;
+	private Object[] planes;
+	private boolean unsigned;
+	private int width, height;
+	private int minX, maxX, minY, maxY;
 
-	// -- constructor --
+	// -- constructors --
 
 	public Neighborhood3x3Operation(final Dataset input,
 		final RealRect selection, final Neighborhood3x3Watcher watcher)
 	{
 		this.input = input;
 		this.watcher = watcher;
+		this.kernel = null;
 		this.selection = selection;
 
 		if (watcher == null) throw new IllegalArgumentException(
 			"neighborhood watcher cannot be null!");
 	}
 
+	public Neighborhood3x3Operation(final Dataset input,
+		final RealRect selection, final Neighborhood3x3Kernel kernel)
+	{
+		this.input = input;
+		this.watcher = null;
+		this.kernel = kernel;
+		this.selection = selection;
+
+		if (kernel == null) throw new IllegalArgumentException(
+			"neighborhood kernel cannot be null!");
+	}
+
 	// -- public interface --
 
 	public void run() {
 		checkInput();
 		setupWorkingData();
-		runAssignment();
+		if (minX < maxX && minY < maxY) {
+			if (kernel == null) runWatcher();
+			else runKernel();
+		}
+		input.update();
 	}
 
 	// -- private interface --
@@ -96,119 +138,239 @@ private void checkInput() {
 		if (input.getImgPlus() == null) throw new IllegalArgumentException(
 			"input Img is null");
 
-		// if (input.getImage().numDimensions() != 2)
-		// throw new IllegalArgumentException("input image is not 2d but has " +
-		// input.getImage().numDimensions() + " dimensions");
+		if (input.numDimensions() < 2) throw new IllegalArgumentException(
+			"input image is not at least 2d but has " + input.numDimensions() +
+				" dimensions");
 	}
 
 	private void setupWorkingData() {
-		inputImage = input.getImgPlus();
-		inputImageCopy = cloneImage(inputImage);
+		image = input.getImgPlus();
+		planes = PrimitiveStorage.getPlanes(image);
+		unsigned = PrimitiveStorage.isUnsigned(image.firstElement());
+		width = (int) image.dimension(0);
+		height = (int) image.dimension(1);
+
+		if (selection.width == 0) selection.width = width;
+		if (selection.height == 0) selection.height = height;
+
+		minX = (int) Math.max(0, selection.x);
+		minY = (int) Math.max(0, selection.y);
+		maxX = (int) Math.min(width, selection.x + selection.width);
+		maxY = (int) Math.min(height, selection.y + selection.height);
+	}
+
+	/** Visits every plane in turn, feeding the watcher one neighbor at a time. */
+	private void runWatcher() {
+		final int planeCount = PrimitiveStorage.planeCount(image);
+		for (int p = 0; p < planeCount; p++) {
+			watcher.setup();
+			new Band(p, minY, maxY).run();
+		}
 	}
 
-	private void runAssignment() {
-		final long[] planeDims = new long[inputImage.numDimensions() - 2];
-		for (int i = 0; i < planeDims.length; i++)
-			planeDims[i] = inputImage.dimension(i + 2);
-		final Extents extents = new Extents(planeDims);
-		final Position planePos = extents.createPosition();
-		if (planeDims.length == 0) { // dataset is 2d only
-			applyOperationToPlane(planePos);
+	/** Splits the planes into bands of rows and processes them in parallel. */
+	private void runKernel() {
+		final int planeCount = PrimitiveStorage.planeCount(image);
+		final int rows = maxY - minY;
+		final ThreadService threadService = threadService();
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		int bandsPerPlane = 1;
+		if (threadService != null && planeCount < cpus) {
+			final long pixels = (long) rows * (maxX - minX);
+			bandsPerPlane =
+				(int) Math.max(1, Math.min(Math.min(rows, (cpus + planeCount - 1) /
+					planeCount), pixels / MIN_PIXELS_PER_TASK));
 		}
-		else { // 3 or more dimensions
-			while (planePos.hasNext()) {
-				planePos.fwd();
-				applyOperationToPlane(planePos);
+		final int rowsPerBand = (rows + bandsPerPlane - 1) / bandsPerPlane;
+
+		// NB: the bands are created, and so read their boundary rows, before any
+		// band starts writing
+		final List<Band> bands = new ArrayList<Band>();
+		for (int p = 0; p < planeCount; p++) {
+			for (int y = minY; y < maxY; y += rowsPerBand) {
+				bands.add(new Band(p, y, Math.min(maxY, y + rowsPerBand)));
+			}
+		}
+		if (threadService == null || bands.size() == 1) {
+			for (final Band band : bands) {
+				band.run();
+			}
+			return;
+		}
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (final Band band : bands) {
+			futures.add(threadService.run(band));
+		}
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			catch (final ExecutionException e) {
+				throw new IllegalStateException(e);
 			}
 		}
-		input.update();
 	}
 
-	private void applyOperationToPlane(final Position planePos) {
-
-		final long[] imageDims = new long[inputImage.numDimensions()];
-		inputImage.dimensions(imageDims);
-
-		if (selection.width == 0) selection.width = (int) imageDims[0];
-
-		if (selection.height == 0) selection.height = (int) imageDims[1];
-
-		// output is done by changin input image in place
-		final RandomAccess<? extends RealType<?>> outputAccessor =
-			inputImage.randomAccess();
-
-		// input is a copy of the original data with out of bounds access enabled
-		final RandomAccessible<? extends RealType<?>> inputInterval =
-			Views.extendMirrorSingle(inputImageCopy);
-
-		final RandomAccess<? extends RealType<?>> extendedInput =
-			inputInterval.randomAccess();
-
-		// initialize the watcher
-		watcher.setup();
+	private ThreadService threadService() {
+		final Context context = input.getContext();
+		return context == null ? null : context.getService(ThreadService.class);
+	}
 
-		final long[] inputPosition = new long[imageDims.length];
-		final long[] localInputPosition = new long[imageDims.length];
+	/** Returns the mirrored index of a position one step out of bounds. */
+	private static int mirror(final int i, final int size) {
+		if (i < 0) return size > 1 ? 1 : 0;
+		if (i >= size) return size > 1 ? size - 2 : 0;
+		return i;
+	}
 
-		for (int i = 2; i < inputPosition.length; i++) {
-			inputPosition[i] = planePos.getLongPosition(i - 2);
-			localInputPosition[i] = planePos.getLongPosition(i - 2);
+	/**
+	 * A run of rows within one plane. The original values of the rows bordering
+	 * the band are captured at construction, since neighboring bands may
+	 * overwrite them while this band is still working.
+	 */
+	private class Band implements Runnable {
+
+		private final long[] position;
+		private final int offset;
+		private final Object plane;
+		private final int y0, y1;
+		private final double[] rowAbove, rowBelow;
+		private final RandomAccess<? extends RealType<?>> access;
+
+		public Band(final int planeIndex, final int y0, final int y1) {
+			this.y0 = y0;
+			this.y1 = y1;
+			position = new long[image.numDimensions()];
+			PrimitiveStorage.planePosition(image, planeIndex, position);
+			if (planes == null) {
+				plane = null;
+				offset = 0;
+			}
+			else if (planes.length == 1) {
+				// array image: all planes share one array
+				plane = planes[0];
+				offset = planeIndex * width * height;
+			}
+			else {
+				plane = planes[planeIndex];
+				offset = 0;
+			}
+			access = image.randomAccess();
+			rowAbove = y0 > 0 ? readRow(y0 - 1, new double[width]) : null;
+			rowBelow = y1 < height ? readRow(y1, new double[width]) : null;
 		}
 
-		final long minX = (long) selection.x;
-		final long minY = (long) selection.y;
-		final long width = (long) selection.width;
-		final long height = (long) selection.height;
-		for (long y = minY; y < minY + height; y++) {
-			inputPosition[1] = y;
-			for (long x = minX; x < minX + width; x++) {
-				inputPosition[0] = x;
-				watcher.initializeNeighborhood(inputPosition);
-
-				for (int dy = -1; dy <= 1; dy++) {
-					localInputPosition[1] = inputPosition[1] + dy;
-					for (int dx = -1; dx <= 1; dx++) {
-						localInputPosition[0] = inputPosition[0] + dx;
-						extendedInput.setPosition(localInputPosition);
-						final double localValue = extendedInput.get().getRealDouble();
-						watcher.visitLocation(dx, dy, localValue);
-					}
+		@Override
+		public void run() {
+			final double[] n = new double[9];
+			final double[] output = new double[maxX - minX];
+			double[] prev = rowAbove;
+			double[] curr = readRow(y0, new double[width]);
+			double[] next = nextRow(y0 + 1, null);
+			for (int y = y0; y < y1; y++) {
+				// mirror rows beyond the plane edges
+				double[] above = prev, below = next;
+				if (above == null) above = below == null ? curr : below;
+				if (below == null) below = prev == null ? curr : prev;
+				for (int x = minX; x < maxX; x++) {
+					final int left = mirror(x - 1, width);
+					final int right = mirror(x + 1, width);
+					n[0] = above[left];
+					n[1] = above[x];
+					n[2] = above[right];
+					n[3] = curr[left];
+					n[4] = curr[x];
+					n[5] = curr[right];
+					n[6] = below[left];
+					n[7] = below[x];
+					n[8] = below[right];
+					if (kernel == null) output[x - minX] = visit(x, y, n);
+					else output[x - minX] = kernel.calcOutputValue(n);
 				}
-				// assign output
-				outputAccessor.setPosition(inputPosition);
-				outputAccessor.get().setReal(watcher.calcOutputValue());
+				writeRow(y, output);
+				final double[] spare = prev;
+				prev = curr;
+				curr = next;
+				next = nextRow(y + 2, spare);
 			}
 		}
-	}
-
-	// TODO - eliminate when ImgLib allows ability to duplicate/clone an Img
-	// TODO - find a way to eliminate use of raw types here
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private Img<? extends RealType<?>> cloneImage(final Img image) {
-		// TODO - used to be able to call Image::clone()
-		// For now copy data by hand
-
-		final long[] dimensions = new long[image.numDimensions()];
-		image.dimensions(dimensions);
-
-		final Img<? extends RealType<?>> copyOfImg =
-			image.factory().create(dimensions, image.firstElement());
 
-		final long[] position = new long[dimensions.length];
+		/**
+		 * Returns the original values of row y, or null if y is off the plane or
+		 * not needed by this band.
+		 */
+		private double[] nextRow(final int y, final double[] buffer) {
+			if (y >= height || y > y1) return null;
+			if (y == y1) return rowBelow;
+			return readRow(y, buffer == null ? new double[width] : buffer);
+		}
 
-		final Cursor<? extends RealType<?>> cursor = image.localizingCursor();
+		private double visit(final int x, final int y, final double[] n) {
+			position[0] = x;
+			position[1] = y;
+			watcher.initializeNeighborhood(position);
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					watcher.visitLocation(dx, dy, n[(dy + 1) * 3 + (dx + 1)]);
+				}
+			}
+			return watcher.calcOutputValue();
+		}
 
-		final RandomAccess<? extends RealType<?>> access =
-			copyOfImg.randomAccess();
+		private double[] readRow(final int y, final double[] row) {
+			final int start = offset + y * width;
+			if (plane instanceof byte[]) {
+				final byte[] data = (byte[]) plane;
+				for (int x = 0; x < width; x++) {
+					row[x] = unsigned ? data[start + x] & 0xff : data[start + x];
+				}
+			}
+			else if (plane instanceof short[]) {
+				final short[] data = (short[]) plane;
+				for (int x = 0; x < width; x++) {
+					row[x] = unsigned ? data[start + x] & 0xffff : data[start + x];
+				}
+			}
+			else if (plane instanceof int[]) {
+				final int[] data = (int[]) plane;
+				for (int x = 0; x < width; x++) {
+					row[x] = unsigned ? data[start + x] & 0xffffffffL : data[start + x];
+				}
+			}
+			else if (plane instanceof float[]) {
+				final float[] data = (float[]) plane;
+				for (int x = 0; x < width; x++) {
+					row[x] = data[start + x];
+				}
+			}
+			else if (plane instanceof double[]) {
+				System.arraycopy(plane, start, row, 0, width);
+			}
+			else {
+				// long data or non-primitive storage
+				position[0] = 0;
+				position[1] = y;
+				access.setPosition(position);
+				for (int x = 0; x < width; x++) {
+					row[x] = access.get().getRealDouble();
+					access.fwd(0);
+				}
+			}
+			return row;
+		}
 
-		while (cursor.hasNext()) {
-			cursor.next();
-			final double currValue = cursor.get().getRealDouble();
-			cursor.localize(position);
+		private void writeRow(final int y, final double[] row) {
+			position[0] = minX;
+			position[1] = y;
 			access.setPosition(position);
-			access.get().setReal(currValue);
+			for (int i = 0; i < row.length; i++) {
+				access.get().setReal(row[i]);
+				access.fwd(0);
+			}
 		}
-
-		return copyOfImg;
 	}
+
 }
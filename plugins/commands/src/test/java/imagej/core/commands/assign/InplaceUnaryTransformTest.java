@@ -0,0 +1,215 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.assign;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import net.imglib2.Cursor;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.ops.operation.complex.unary.ComplexUnaryOperation;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link InplaceUnaryTransform}.
+ */
+public class InplaceUnaryTransformTest {
+
+	private static final AxisType[] AXES = { Axes.X, Axes.Y };
+
+	/**
+	 * Large enough to be split across threads, with rows of packed types that
+	 * do not end on a word boundary.
+	 */
+	private static final long[] DIMS = { 509, 517 };
+
+	private final Context context =
+		new Context(DatasetService.class, ThreadService.class);
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testLookupTable() {
+		// 8-bit data is mapped through a lookup table
+		assertTransformed(8, false, new Affine(-1, 255));
+	}
+
+	@Test
+	public void testCursor() {
+		// floating point data is transformed pixel by pixel
+		assertTransformed(32, true, new Affine(2, 1));
+	}
+
+	@Test
+	public void testBitType() {
+		assertTransformed(1, false, new Affine(-1, 1));
+	}
+
+	@Test
+	public void testUnsigned12BitType() {
+		assertTransformed(12, false, new Affine(-1, 4095));
+	}
+
+	@Test
+	public void testSerialMatches() {
+		final Dataset parallel = dataset(16, false);
+		final Dataset serial = dataset(16, false);
+		final Affine op = new Affine(3, 7);
+		transform(parallel, op, true);
+		transform(serial, op, false);
+		final Cursor<? extends RealType<?>> p = parallel.getImgPlus().cursor();
+		final Cursor<? extends RealType<?>> s = serial.getImgPlus().cursor();
+		while (p.hasNext()) {
+			assertEquals(s.next().getRealDouble(), p.next().getRealDouble(), 0);
+		}
+	}
+
+	@Test
+	public void testStateful() {
+		// a stateful operation must see every pixel in turn, not a lookup table
+		final Dataset ds = dataset(32, false);
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal(0);
+		}
+		final Counter op = new Counter();
+		transform(ds, op, false);
+		final Set<Double> values = new HashSet<Double>();
+		for (final RealType<?> t : ds.getImgPlus()) {
+			values.add(t.getRealDouble());
+		}
+		assertEquals(ds.getImgPlus().size(), op.count);
+		assertEquals(ds.getImgPlus().size(), values.size());
+	}
+
+	// -- Helper methods --
+
+	private Dataset dataset(final int bitsPerPixel, final boolean floating) {
+		final Dataset ds =
+			context.getService(DatasetService.class).create(DIMS, "test", AXES,
+				bitsPerPixel, bitsPerPixel == 32, floating);
+		final double max = ds.getType().getMaxValue();
+		int i = 0;
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal((i++ * 31) % (long) Math.min(max + 1, 251));
+		}
+		return ds;
+	}
+
+	private void transform(final Dataset ds,
+		final ComplexUnaryOperation<DoubleType, DoubleType> op,
+		final boolean stateless)
+	{
+		final InplaceUnaryTransform<?, DoubleType> transform =
+			new InplaceUnaryTransform<DoubleType, DoubleType>(op, new DoubleType(),
+				ds, null);
+		transform.setStateless(stateless);
+		transform.run();
+	}
+
+	private void assertTransformed(final int bitsPerPixel,
+		final boolean floating, final Affine op)
+	{
+		final Dataset ds = dataset(bitsPerPixel, floating);
+		final Dataset original = ds.duplicate();
+		transform(ds, op, true);
+		final Cursor<? extends RealType<?>> in = original.getImgPlus().cursor();
+		final Cursor<? extends RealType<?>> out = ds.getImgPlus().cursor();
+		while (in.hasNext()) {
+			final double expected = op.a * in.next().getRealDouble() + op.b;
+			assertEquals(expected, out.next().getRealDouble(), 0);
+		}
+	}
+
+	/** Computes a * x + b. */
+	private static class Affine implements
+		ComplexUnaryOperation<DoubleType, DoubleType>
+	{
+
+		private final double a, b;
+
+		public Affine(final double a, final double b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		public DoubleType compute(final DoubleType input, final DoubleType output)
+		{
+			output.setReal(a * input.getRealDouble() + b);
+			return output;
+		}
+
+		@Override
+		public Affine copy() {
+			return new Affine(a, b);
+		}
+	}
+
+	/** Adds the number of pixels seen so far to each pixel. */
+	private static class Counter implements
+		ComplexUnaryOperation<DoubleType, DoubleType>
+	{
+
+		private long count;
+
+		@Override
+		public DoubleType compute(final DoubleType input, final DoubleType output)
+		{
+			output.setReal(input.getRealDouble() + count++);
+			return output;
+		}
+
+		@Override
+		public Counter copy() {
+			return this;
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.assign.noisereduce;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.ImgPlus;
+import net.imglib2.ops.function.Function;
+import net.imglib2.ops.function.real.RealImageFunction;
+import net.imglib2.ops.function.real.RealMaxFunction;
+import net.imglib2.ops.function.real.RealMedianFunction;
+import net.imglib2.ops.function.real.RealMinFunction;
+import net.imglib2.ops.pointset.PointSet;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory;
+import net.imglib2.outofbounds.OutOfBoundsMirrorFactory.Boundary;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests that {@link RankFilter} gives the same results as the {@link Reducer}
+ * it replaces, including at the image edges.
+ */
+public class RankFilterTest {
+
+	private final Context context = new Context(ThreadService.class);
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testUnsignedByte() {
+		final ImgPlus<UnsignedByteType> img =
+			image(new UnsignedByteType(), new long[] { 9, 6 });
+		final RectangularNeigh neigh =
+			new RectangularNeigh(new long[] { 1, 1 }, new long[] { 1, 1 });
+		assertAllRanksMatch(img, neigh);
+	}
+
+	@Test
+	public void testSignedShort() {
+		final ImgPlus<ShortType> img =
+			image(new ShortType(), new long[] { 9, 6 });
+		final RectangularNeigh neigh =
+			new RectangularNeigh(new long[] { 2, 1 }, new long[] { 2, 1 });
+		assertAllRanksMatch(img, neigh);
+	}
+
+	@Test
+	public void testNeighborhoodLargerThanImage() {
+		// the neighborhood reaches more than one image width beyond each edge
+		final ImgPlus<UnsignedByteType> img =
+			image(new UnsignedByteType(), new long[] { 5, 4 });
+		final RectangularNeigh neigh =
+			new RectangularNeigh(new long[] { 6, 5 }, new long[] { 6, 5 });
+		assertAllRanksMatch(img, neigh);
+	}
+
+	@Test
+	public void testAsymmetricNeighborhood() {
+		final ImgPlus<UnsignedByteType> img =
+			image(new UnsignedByteType(), new long[] { 9, 6 });
+		final RectangularNeigh neigh =
+			new RectangularNeigh(new long[] { 1, 0 }, new long[] { 2, 1 });
+		assertMatches(img, neigh, RankFilter.Rank.MIN);
+		assertMatches(img, neigh, RankFilter.Rank.MAX);
+	}
+
+	@Test
+	public void testPlanes() {
+		final ImgPlus<UnsignedByteType> img =
+			image(new UnsignedByteType(), new long[] { 7, 5, 3 });
+		final RectangularNeigh neigh =
+			new RectangularNeigh(new long[] { 1, 1, 1 }, new long[] { 1, 1, 1 });
+		assertAllRanksMatch(img, neigh);
+	}
+
+	// -- Helper methods --
+
+	private <T extends RealType<T> & NativeType<T>> ImgPlus<T> image(
+		final T type, final long[] dims)
+	{
+		final Img<T> img = new PlanarImgFactory<T>().create(dims, type);
+		int i = 0;
+		for (final T t : img) {
+			t.setReal(type.getMinValue() + (i++ * 73) % 251);
+		}
+		return new ImgPlus<T>(img);
+	}
+
+	private <T extends RealType<T>> void assertAllRanksMatch(
+		final ImgPlus<T> img, final Neighborhood neigh)
+	{
+		assertMatches(img, neigh, RankFilter.Rank.MIN);
+		assertMatches(img, neigh, RankFilter.Rank.MEDIAN);
+		assertMatches(img, neigh, RankFilter.Rank.MAX);
+	}
+
+	private <T extends RealType<T>> void assertMatches(final ImgPlus<T> img,
+		final Neighborhood neigh, final RankFilter.Rank rank)
+	{
+		final PointSet ps = neigh.getPoints();
+		final RankFilter<T> filter = new RankFilter<T>(context, img, ps, rank);
+		final Dataset actual = filter.filter(neigh.getDescription());
+
+		final OutOfBoundsMirrorFactory<T, RandomAccessibleInterval<T>> oobFactory =
+			new OutOfBoundsMirrorFactory<T, RandomAccessibleInterval<T>>(
+				Boundary.DOUBLE);
+		final Function<long[], DoubleType> otherFunc =
+			new RealImageFunction<T, DoubleType>(img, oobFactory, new DoubleType());
+		final Reducer<T, DoubleType> reducer =
+			new Reducer<T, DoubleType>(context, img, function(rank, otherFunc), ps);
+		final Dataset expected = reducer.reduceNoise(neigh.getDescription());
+
+		final Cursor<? extends RealType<?>> cursor =
+			expected.getImgPlus().localizingCursor();
+		final RandomAccess<? extends RealType<?>> access =
+			actual.getImgPlus().randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			assertEquals(rank + " at " + cursor.getLongPosition(0) + "," +
+				cursor.getLongPosition(1), cursor.get().getRealDouble(), access.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private Function<PointSet, DoubleType> function(final RankFilter.Rank rank,
+		final Function<long[], DoubleType> otherFunc)
+	{
+		switch (rank) {
+			case MIN:
+				return new RealMinFunction<DoubleType>(otherFunc);
+			case MAX:
+				return new RealMaxFunction<DoubleType>(otherFunc);
+			default:
+				return new RealMedianFunction<DoubleType>(otherFunc);
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.data.autoscale.AutoscaleService;
+import imagej.data.display.ImageDisplayService;
+import imagej.data.threshold.ThresholdService;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.meta.IntervalUtils;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests that {@link Binarize} fills array and planar masks a word at a time
+ * exactly as it fills cell masks, one pixel at a time through a cursor.
+ */
+public class BinarizeTest {
+
+	private static final AxisType[] AXES = { Axes.X, Axes.Y, Axes.Z,
+		Axes.TIME };
+
+	private final Context context = new Context(ThresholdService.class,
+		ImageDisplayService.class, DatasetService.class, AutoscaleService.class,
+		ThreadService.class);
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testPlaneSizeNotMultipleOf64() {
+		// NB: Planes of an array mask then share words, so are filled serially.
+		assertAllOptions(new long[] { 13, 7, 3, 2 });
+	}
+
+	@Test
+	public void testPlaneSizeMultipleOf64() {
+		// NB: Planes of an array mask then own their words, so are filled in
+		// parallel.
+		assertAllOptions(new long[] { 16, 8, 5 });
+	}
+
+	@Test
+	public void testSinglePlane() {
+		assertAllOptions(new long[] { 29, 11 });
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Binarizes the same data into array, planar and cell masks with every
+	 * combination of options, and compares the results.
+	 */
+	private void assertAllOptions(final long[] dims) {
+		final Dataset data = data(dims);
+		for (final String pixels : new String[] { Binarize.INSIDE,
+			Binarize.OUTSIDE })
+		{
+			for (final boolean fillFg : new boolean[] { true, false }) {
+				for (final boolean fillBg : new boolean[] { true, false }) {
+					for (final boolean eachPlane : new boolean[] { true, false }) {
+						final Dataset expected =
+							binarize(data, new CellImgFactory<BitType>(5), pixels, fillFg,
+								fillBg, eachPlane);
+						assertFills(mask(dims, new CellImgFactory<BitType>(5)), expected,
+							fillFg, fillBg);
+						final String options =
+							pixels + ", fillFg=" + fillFg + ", fillBg=" + fillBg +
+								", eachPlane=" + eachPlane;
+						assertSameBits(options + ", array", expected, binarize(data,
+							new ArrayImgFactory<BitType>(), pixels, fillFg, fillBg,
+							eachPlane));
+						assertSameBits(options + ", planar", expected, binarize(data,
+							new PlanarImgFactory<BitType>(), pixels, fillFg, fillBg,
+							eachPlane));
+					}
+				}
+			}
+		}
+	}
+
+	private Dataset data(final long[] dims) {
+		final Dataset ds =
+			context.getService(DatasetService.class).create(dims, "data",
+				axes(dims), 8, false, false);
+		long i = 0;
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal((i++ * 7919 / 3) % 256);
+		}
+		return ds;
+	}
+
+	/** Creates a mask with a fixed pattern of bits already set. */
+	private Dataset mask(final long[] dims, final ImgFactory<BitType> factory) {
+		final Dataset mask =
+			context.getService(DatasetService.class).create(factory, new BitType(),
+				dims, "mask", axes(dims));
+		final Cursor<? extends RealType<?>> cursor =
+			mask.getImgPlus().localizingCursor();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			final long x = cursor.getLongPosition(0);
+			final long y = cursor.getLongPosition(1);
+			cursor.get().setReal((x * 3 + y * 5) % 7 < 3 ? 1 : 0);
+		}
+		return mask;
+	}
+
+	private <T extends RealType<T>> Dataset binarize(final Dataset data,
+		final ImgFactory<BitType> factory, final String pixels,
+		final boolean fillFg, final boolean fillBg, final boolean eachPlane)
+	{
+		final Dataset mask = mask(IntervalUtils.getDims(data), factory);
+		final Binarize<T> binarize = new Binarize<T>();
+		binarize.setContext(context);
+		binarize.setDefaultThresholdMethod();
+		binarize.setInputData(data);
+		binarize.setInputMask(mask);
+		binarize.setMaskPixels(pixels);
+		binarize.setFillMaskForeground(fillFg);
+		binarize.setFillMaskBackground(fillBg);
+		binarize.setThresholdEachPlane(eachPlane);
+		binarize.run();
+		return binarize.outputMask();
+	}
+
+	/**
+	 * Checks the result of a run against the mask it started from: filling the
+	 * foreground may only set bits, filling the background may only clear them.
+	 */
+	private void assertFills(final Dataset before, final Dataset after,
+		final boolean fillFg, final boolean fillBg)
+	{
+		boolean set = false, cleared = false;
+		final Cursor<? extends RealType<?>> cursor =
+			before.getImgPlus().localizingCursor();
+		final RandomAccess<? extends RealType<?>> access =
+			after.getImgPlus().randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			final double b = cursor.get().getRealDouble();
+			final double a = access.get().getRealDouble();
+			if (a > b) set = true;
+			if (a < b) cleared = true;
+		}
+		if (!fillFg) assertFalse(set);
+		if (!fillBg) assertFalse(cleared);
+		if (fillFg || fillBg) assertTrue(set || cleared);
+	}
+
+	private void assertSameBits(final String message, final Dataset expected,
+		final Dataset actual)
+	{
+		final Cursor<? extends RealType<?>> cursor =
+			expected.getImgPlus().localizingCursor();
+		final RandomAccess<? extends RealType<?>> access =
+			actual.getImgPlus().randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			assertEquals(message, cursor.get().getRealDouble(), access.get()
+				.getRealDouble(), 0);
+		}
+	}
+
+	private AxisType[] axes(final long[] dims) {
+		final AxisType[] axes = new AxisType[dims.length];
+		System.arraycopy(AXES, 0, axes, 0, dims.length);
+		return axes;
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.imglib;
+
+import static org.junit.Assert.assertEquals;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.algorithm.gauss3.Gauss3;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link GaussianBlur}. The per plane blur is checked against the
+ * {@link Gauss3} path, with and without worker threads, and on packed pixel
+ * types, whose planes can share storage words, against the same data held in
+ * whole bytes.
+ */
+public class GaussianBlurTest {
+
+	private static final AxisType[] AXES = { Axes.X, Axes.Y, Axes.Z };
+
+	/** Odd sized planes, so that packed planes do not end on a word boundary. */
+	private static final long[] DIMS = { 37, 23, 9 };
+
+	private final Context context =
+		new Context(DatasetService.class, ThreadService.class);
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testSinglePlaneMatchesGauss3() {
+		final long[] dims = { DIMS[0], DIMS[1] };
+		final AxisType[] axes = { Axes.X, Axes.Y };
+		final Dataset planes = dataset(dims, axes, 32, 1000);
+		final Dataset whole = dataset(dims, axes, 32, 1000);
+		blur(planes, true, true);
+		blur(whole, false, true);
+		// NB: Gauss3 keeps the intermediate pass in the (float) image type
+		assertSameValues(whole, planes, 1e-3);
+	}
+
+	@Test
+	public void testThreadsMatchSingleThread() {
+		final Dataset threaded = dataset(16, 65536);
+		final Dataset single = dataset(16, 65536);
+		blur(threaded, true, true);
+		blur(single, true, false);
+		assertSameValues(single, threaded, 0);
+	}
+
+	@Test
+	public void testBitType() {
+		assertBlurMatches(1, 8, 2);
+	}
+
+	@Test
+	public void testUnsigned12BitType() {
+		assertBlurMatches(12, 16, 4096);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Blurs the XY planes of a packed image and of an image of a wider type
+	 * holding the same values, and checks that the results agree.
+	 */
+	private void assertBlurMatches(final int packedBits, final int referenceBits,
+		final int range)
+	{
+		final Dataset packed = dataset(packedBits, range);
+		final Dataset reference = dataset(referenceBits, range);
+		blur(packed, true, true);
+		blur(reference, true, true);
+		assertSameValues(reference, packed, 0);
+	}
+
+	private void assertSameValues(final Dataset expected, final Dataset actual,
+		final double delta)
+	{
+		final Cursor<? extends RealType<?>> cursor =
+			expected.getImgPlus().localizingCursor();
+		final RandomAccess<? extends RealType<?>> access =
+			actual.getImgPlus().randomAccess();
+		while (cursor.hasNext()) {
+			cursor.fwd();
+			access.setPosition(cursor);
+			assertEquals(cursor.get().getRealDouble(), access.get()
+				.getRealDouble(), delta);
+		}
+	}
+
+	private Dataset dataset(final int bitsPerPixel, final int range) {
+		return dataset(DIMS, AXES, bitsPerPixel, range);
+	}
+
+	private Dataset dataset(final long[] dims, final AxisType[] axes,
+		final int bitsPerPixel, final int range)
+	{
+		final boolean floating = bitsPerPixel == 32;
+		final Dataset ds =
+			context.getService(DatasetService.class).create(dims, "test", axes,
+				bitsPerPixel, floating, floating);
+		long i = 0;
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal((i++ * 7919 / 5) % range);
+		}
+		return ds;
+	}
+
+	/**
+	 * Blurs a dataset. Without a context the command has no
+	 * {@link ThreadService} and blurs every plane on the calling thread.
+	 */
+	private <T extends RealType<T>> void blur(final Dataset ds,
+		final boolean xyPlanes, final boolean withContext)
+	{
+		final GaussianBlur<T> blur = new GaussianBlur<T>();
+		if (withContext) blur.setContext(context);
+		blur.setDataset(ds);
+		blur.setSigma(1.5);
+		blur.setUseUnits(false);
+		blur.setXYPlanes(xyPlanes);
+		blur.run();
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import imagej.data.table.ResultsTable;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Runs the {@link Benchmark} command headlessly on tiny synthetic data.
+ */
+public class BenchmarkTest {
+
+	/** The number of timed operations. */
+	private static final int OPERATIONS = 10;
+
+	private final Context context = new Context();
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testUnsignedShort() {
+		assertResults(run(Benchmark.SHORT_DATA, 2), new int[] { 1, 2 });
+	}
+
+	@Test
+	public void testUnsignedByte() {
+		assertResults(run(Benchmark.BYTE_DATA, 1), new int[] { 1 });
+	}
+
+	@Test
+	public void testFloat() {
+		assertResults(run(Benchmark.FLOAT_DATA, 3), new int[] { 1, 2, 3 });
+	}
+
+	// -- Helper methods --
+
+	private ResultsTable run(final String type, final int maxCopies) {
+		final Benchmark benchmark = new Benchmark();
+		benchmark.setContext(context);
+		benchmark.setSyntheticSize(32, 24, 2);
+		benchmark.setSyntheticType(type);
+		benchmark.setIterations(1, 2);
+		benchmark.setMaxCopies(maxCopies);
+		benchmark.run();
+		return benchmark.getResults();
+	}
+
+	/**
+	 * Checks that every operation ran, with each copy count, without failing.
+	 */
+	private void assertResults(final ResultsTable results, final int[] copies) {
+		assertEquals(OPERATIONS * copies.length, results.getRowCount());
+		for (int row = 0; row < results.getRowCount(); row++) {
+			final String operation = results.getRowHeader(row);
+			assertEquals(operation, copies[row % copies.length], results.getValue(
+				0, row), 0);
+			for (int col = 1; col < results.getColumnCount(); col++) {
+				final double value = results.getValue(col, row);
+				assertFalse(operation, Double.isNaN(value));
+				assertFalse(operation, Double.isInfinite(value));
+				assertTrue(operation, value >= 0);
+			}
+			if (row % copies.length == 0) {
+				// a single copy is the baseline
+				assertEquals(operation, 1, results.getValue(6, row), 0);
+			}
+		}
+	}
+
+}
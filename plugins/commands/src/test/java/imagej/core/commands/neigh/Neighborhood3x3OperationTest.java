@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2009 - 2013 Board of Regents of the University of
+ * Wisconsin-Madison, Broad Institute of MIT and Harvard, and Max Planck
+ * Institute of Molecular Cell Biology and Genetics.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are
+ * those of the authors and should not be interpreted as representing official
+ * policies, either expressed or implied, of any organization.
+ * #L%
+ */
+
+package imagej.core.commands.neigh;
+
+import static org.junit.Assert.assertEquals;
+import imagej.core.commands.correlate.Correlation3x3Operation;
+import imagej.data.Dataset;
+import imagej.data.DatasetService;
+import imagej.util.RealRect;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.meta.Axes;
+import net.imglib2.meta.AxisType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Tests {@link Neighborhood3x3Operation} against the previous implementation,
+ * which evaluated each neighborhood through {@code Views.extendMirrorSingle}
+ * on a copy of the image.
+ */
+public class Neighborhood3x3OperationTest {
+
+	private static final AxisType[] AXES = { Axes.X, Axes.Y, Axes.CHANNEL,
+		Axes.Z };
+
+	private static final double[] SHARPEN = { -1, -1, -1, -1, 12, -1, -1, -1,
+		-1 };
+
+	private static final double[] SMOOTH = { 1, 2, 1, 2, 4, 2, 1, 2, 1 };
+
+	private final Context context = new Context(DatasetService.class,
+		ThreadService.class);
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	@Test
+	public void testFindEdgesMultiPlane() {
+		assertFindEdges(new long[] { 23, 17, 3, 2 }, 8, false, new RealRect());
+		assertFindEdges(new long[] { 23, 17, 3 }, 32, true, new RealRect());
+	}
+
+	@Test
+	public void testCorrelateMultiPlane() {
+		assertCorrelate(new long[] { 23, 17, 3, 2 }, 16, false, new RealRect(),
+			SHARPEN);
+		assertCorrelate(new long[] { 23, 17, 3 }, 32, true, new RealRect(),
+			SMOOTH);
+	}
+
+	@Test
+	public void testPartialSelection() {
+		final long[] dims = { 23, 17, 2 };
+		assertFindEdges(dims, 8, false, new RealRect(3, 4, 10, 6));
+		assertCorrelate(dims, 8, false, new RealRect(3, 4, 10, 6), SHARPEN);
+		// touching the right and bottom edges
+		assertCorrelate(dims, 32, true, new RealRect(15, 10, 8, 7), SMOOTH);
+	}
+
+	@Test
+	public void testSingleRow() {
+		final long[] dims = { 19, 1 };
+		assertFindEdges(dims, 8, false, new RealRect());
+		assertCorrelate(dims, 16, false, new RealRect(), SHARPEN);
+	}
+
+	@Test
+	public void testSingleColumn() {
+		final long[] dims = { 1, 19, 2 };
+		assertFindEdges(dims, 8, false, new RealRect());
+		assertCorrelate(dims, 32, true, new RealRect(), SMOOTH);
+	}
+
+	@Test
+	public void testBands() {
+		// a plane large enough to be split into bands of rows across threads
+		final long[] dims = { 300, 600 };
+		assertFindEdges(dims, 16, false, new RealRect());
+		assertCorrelate(dims, 32, true, new RealRect(), SHARPEN);
+	}
+
+	// -- Helper methods --
+
+	private void assertFindEdges(final long[] dims, final int bitsPerPixel,
+		final boolean floating, final RealRect selection)
+	{
+		final Dataset actual = dataset(dims, bitsPerPixel, floating);
+		final Dataset expected = actual.duplicate();
+		final FindEdges.FindEdgesKernel kernel =
+			new FindEdges.FindEdgesKernel(actual);
+		new Neighborhood3x3Operation(actual, copy(selection), kernel).run();
+		runOld(expected, copy(selection), kernel);
+		assertSameValues(expected, actual);
+	}
+
+	private void assertCorrelate(final long[] dims, final int bitsPerPixel,
+		final boolean floating, final RealRect selection, final double[] kernel)
+	{
+		final Dataset actual = dataset(dims, bitsPerPixel, floating);
+		final Dataset expected = actual.duplicate();
+		new Correlation3x3Operation(actual, copy(selection), kernel).run();
+		runOld(expected, copy(selection), new OldCorrelation(expected, kernel));
+		assertSameValues(expected, actual);
+	}
+
+	private Dataset dataset(final long[] dims, final int bitsPerPixel,
+		final boolean floating)
+	{
+		final AxisType[] axes = new AxisType[dims.length];
+		System.arraycopy(AXES, 0, axes, 0, dims.length);
+		final Dataset ds =
+			context.getService(DatasetService.class).create(dims, "test", axes,
+				bitsPerPixel, floating, floating);
+		final double max = Math.min(ds.getType().getMaxValue(), 1000);
+		long i = 0;
+		for (final RealType<?> t : ds.getImgPlus()) {
+			t.setReal((i++ * 7919) % (long) (max + 1));
+		}
+		return ds;
+	}
+
+	private RealRect copy(final RealRect rect) {
+		return new RealRect(rect.x, rect.y, rect.width, rect.height);
+	}
+
+	/**
+	 * Runs a kernel over the selected area of every plane the way the previous
+	 * implementation did.
+	 */
+	private void runOld(final Dataset ds, final RealRect selection,
+		final Neighborhood3x3Kernel kernel)
+	{
+		final Img<? extends RealType<?>> img = ds.getImgPlus();
+		final Img<? extends RealType<?>> copy = ds.duplicate().getImgPlus();
+		if (selection.width == 0) selection.width = img.dimension(0);
+		if (selection.height == 0) selection.height = img.dimension(1);
+		final RandomAccessible<? extends RealType<?>> extended =
+			Views.extendMirrorSingle(copy);
+		final RandomAccess<? extends RealType<?>> in = extended.randomAccess();
+		// NB: A single mirror of a one pixel wide axis repeats that pixel.
+		final boolean column = img.dimension(0) == 1;
+		final boolean row = img.dimension(1) == 1;
+		final RandomAccess<? extends RealType<?>> out = img.randomAccess();
+		final long[] pos = new long[img.numDimensions()];
+		final double[] n = new double[9];
+		final long planeCount = img.size() / img.dimension(0) / img.dimension(1);
+		for (long p = 0; p < planeCount; p++) {
+			long index = p;
+			for (int d = 2; d < pos.length; d++) {
+				pos[d] = index % img.dimension(d);
+				index /= img.dimension(d);
+			}
+			for (long y = (long) selection.y; y < selection.y + selection.height; y++)
+			{
+				for (long x = (long) selection.x; x < selection.x + selection.width; x++)
+				{
+					for (int dy = -1; dy <= 1; dy++) {
+						for (int dx = -1; dx <= 1; dx++) {
+							pos[0] = column ? 0 : x + dx;
+							pos[1] = row ? 0 : y + dy;
+							in.setPosition(pos);
+							n[(dy + 1) * 3 + (dx + 1)] = in.get().getRealDouble();
+						}
+					}
+					pos[0] = x;
+					pos[1] = y;
+					out.setPosition(pos);
+					out.get().setReal(kernel.calcOutputValue(n));
+				}
+			}
+		}
+	}
+
+	private void assertSameValues(final Dataset expected, final Dataset actual) {
+		final Cursor<? extends RealType<?>> e =
+			expected.getImgPlus().localizingCursor();
+		final RandomAccess<? extends RealType<?>> a =
+			actual.getImgPlus().randomAccess();
+		while (e.hasNext()) {
+			e.fwd();
+			a.setPosition(e);
+			assertEquals(e.get().getRealDouble(), a.get().getRealDouble(), 0);
+		}
+	}
+
+	// -- Helper classes --
+
+	/** The correlation formula of the previous Correlation3x3Operation. */
+	private static class OldCorrelation implements Neighborhood3x3Kernel {
+
+		private final double[] kernel;
+		private final boolean integerDataset;
+		private final double typeMinValue;
+		private final double typeMaxValue;
+
+		public OldCorrelation(final Dataset ds, final double[] kernel) {
+			this.kernel = kernel;
+			integerDataset = ds.isInteger();
+			typeMinValue = ds.getType().getMinValue();
+			typeMaxValue = ds.getType().getMaxValue();
+		}
+
+		@Override
+		public double calcOutputValue(final double[] n) {
+			double scale = 0;
+			for (int i = 0; i < kernel.length; i++)
+				scale += kernel[i];
+			if (scale == 0) scale = 1;
+			double sum = 0;
+			for (int i = 0; i < 9; i++)
+				sum += n[i] * kernel[i];
+			if (!integerDataset) return sum / scale;
+			double value = (sum + (scale / 2)) / scale;
+			if (value < typeMinValue) value = typeMinValue;
+			if (value > typeMaxValue) value = typeMaxValue;
+			return value;
+		}
+	}
+
+}
@@ -45,6 +45,7 @@
 import imagej.data.options.OptionsChannels;
 import imagej.display.event.input.MsButtonEvent;
 import imagej.display.event.input.MsDraggedEvent;
+import imagej.display.event.input.MsEvent;
 import imagej.display.event.input.MsPressedEvent;
 import imagej.display.event.input.MsReleasedEvent;
 import imagej.options.OptionsService;
@@ -53,6 +54,8 @@
 import imagej.util.IntCoords;
 import imagej.util.RealCoords;
 
+import net.imglib2.Interval;
+
 import org.scijava.event.EventService;
 import org.scijava.plugin.Parameter;
 
@@ -118,10 +121,7 @@ public void onMouseDown(final MsPressedEvent evt) {
 	public void onMouseUp(final MsReleasedEvent evt) {
 		if (evt.getButton() != MsButtonEvent.LEFT_BUTTON) return;
 		if (drawingTool != null) {
-			Dataset dataset = drawingTool.getDataset();
-			if (eventService != null) {
-				eventService.publish(new DatasetUpdatedEvent(dataset, false));
-			}
+			publishDirtyRegion(evt);
 			drawingTool = null;
 		}
 		evt.consume();
@@ -139,12 +139,27 @@ public void onMouseDrag(final MsDraggedEvent evt) {
 		long modelX = realCoords.getLongX();
 		long modelY = realCoords.getLongY();
 		drawingTool.lineTo(modelX, modelY);
-		evt.getDisplay().update();
+		publishDirtyRegion(evt);
 		evt.consume();
 	}
 
 	// -- private helpers --
 
+	/**
+	 * Publishes the region painted since the last call, so that views re-render
+	 * just that region.
+	 */
+	private void publishDirtyRegion(final MsEvent evt) {
+		final Interval region = drawingTool.getDirtyRegion();
+		if (region == null) return;
+		drawingTool.clearDirtyRegion();
+		if (eventService != null) {
+			eventService.publish(new DatasetUpdatedEvent(drawingTool.getDataset(),
+				region));
+		}
+		else evt.getDisplay().update();
+	}
+
 	/** Allocates and initializes a DrawingTool if possible. */
 	private void initDrawingTool(final MsPressedEvent evt) {
 
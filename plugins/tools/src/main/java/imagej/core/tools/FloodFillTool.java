@@ -50,6 +50,8 @@
 import imagej.tool.AbstractTool;
 import imagej.tool.Tool;
 
+import net.imglib2.Interval;
+
 import org.scijava.event.EventService;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
@@ -116,9 +118,10 @@ public void onMouseClick(final MsClickedEvent evt) {
 						initDrawingTool(recorder.wasAltKeyDown(), recorder.getDataset());
 					final long[] currPos = getCurrPosition(imageDisplay);
 					floodFill(recorder.getCX(), recorder.getCY(), currPos, connectivity, drawingTool);
-					Dataset dataset = drawingTool.getDataset();
-					if (eventService != null) {
-						eventService.publish(new DatasetUpdatedEvent(dataset, false));
+					final Dataset dataset = drawingTool.getDataset();
+					final Interval region = drawingTool.getDirtyRegion();
+					if (eventService != null && region != null) {
+						eventService.publish(new DatasetUpdatedEvent(dataset, region));
 					}
 				}
 				recorder.releaseDataset();
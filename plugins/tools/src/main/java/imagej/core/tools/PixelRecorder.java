@@ -153,9 +153,10 @@ public boolean record(final MsEvent evt) {
 		}
 		
 		// record color of displayed pixel
-		if (recordColor) {
-			final DatasetView view =
-					imageDisplayService.getActiveDatasetView(imageDisplay);
+		final DatasetView view =
+				imageDisplayService.getActiveDatasetView(imageDisplay);
+		// NB: a tiled view has no full plane screen image to sample from
+		if (recordColor && !view.isTiled()) {
 			ARGBScreenImage screenImage = view.getScreenImage();
 			int[] argbPixels = view.getScreenImage().getData();
 			int pixelIndex = (int) (cy*screenImage.dimension(0) + cx);
@@ -180,6 +181,8 @@ public boolean record(final MsEvent evt) {
 		}
 		
 		channels = new ChannelCollection(values);
+
+		if (recordColor && view.isTiled()) color = view.getColor(channels);
 		
 		return true;
 	}
@@ -58,6 +58,7 @@
 
 import java.util.Random;
 
+import net.imglib2.Interval;
 import net.imglib2.meta.Axes;
 
 import org.scijava.event.EventService;
@@ -114,10 +115,7 @@ public void onMouseDown(final MsPressedEvent evt) {
 	public void onMouseUp(final MsReleasedEvent evt) {
 		if (evt.getButton() != MsButtonEvent.LEFT_BUTTON) return;
 		if (drawingTool != null) {
-			Dataset dataset = drawingTool.getDataset();
-			if (eventService != null) {
-				eventService.publish(new DatasetUpdatedEvent(dataset, false));
-			}
+			publishDirtyRegion(evt);
 			drawingTool = null;
 		}
 		evt.consume();
@@ -146,6 +144,21 @@ public void configure() {
 
 	// -- private helpers --
 
+	/**
+	 * Publishes the region painted since the last call, so that views re-render
+	 * just that region.
+	 */
+	private void publishDirtyRegion(final MsEvent evt) {
+		final Interval region = drawingTool.getDirtyRegion();
+		if (region == null) return;
+		drawingTool.clearDirtyRegion();
+		if (eventService != null) {
+			eventService.publish(new DatasetUpdatedEvent(drawingTool.getDataset(),
+				region));
+		}
+		else evt.getDisplay().update();
+	}
+
 	private double calcFraction() {
 		// NB - formula arrived at by trying IJ1's version at each of the 10 rate
 		// settings and counting the pixels drawn in a radius 50 circle. Then used
@@ -169,7 +182,7 @@ private void doOneSpray(MsEvent evt) {
 		IntCoords panelCoords = new IntCoords(evt.getX(), evt.getY());
 		RealCoords realCoords = canv.panelToDataCoords(panelCoords);
 		drawPixels(realCoords.getLongX(), realCoords.getLongY());
-		evt.getDisplay().update();
+		publishDirtyRegion(evt);
 	}
 	
 	// NB: adapted from IJ1's SprayCanTool.txt macro courtesy Wayne Rasband
@@ -37,13 +37,20 @@
 
 import imagej.data.Dataset;
 import imagej.data.display.DatasetView;
+import imagej.data.display.ImageCanvas;
+import imagej.data.display.ScreenTile;
+import imagej.data.display.event.CanvasEvent;
 import imagej.data.display.event.DataViewUpdatedEvent;
+import imagej.data.display.event.PanZoomEvent;
+import imagej.data.display.event.ViewportResizeEvent;
 import imagej.util.awt.AWTImageTools;
 
+import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.ImageFigure;
@@ -62,6 +69,7 @@
 public class DatasetFigureView extends AbstractContextual implements FigureView
 {
 
+	private final SwingImageDisplayViewer displayViewer;
 	private final DatasetView datasetView;
 	private final ImageFigure figure;
 
@@ -72,6 +80,7 @@ public DatasetFigureView(final SwingImageDisplayViewer displayViewer,
 		final DatasetView datasetView)
 	{
 		setContext(datasetView.getContext());
+		this.displayViewer = displayViewer;
 		this.datasetView = datasetView;
 		final JHotDrawImageCanvas canvas = displayViewer.getCanvas();
 		final Drawing drawing = canvas.getDrawing();
@@ -93,9 +102,23 @@ protected void onDataViewUpdatedEvent(final DataViewUpdatedEvent event) {
 		if (event.getView() == datasetView) update();
 	}
 
+	@EventHandler
+	protected void onPanZoomEvent(final PanZoomEvent event) {
+		if (isTiledCanvas(event)) update();
+	}
+
+	@EventHandler
+	protected void onViewportResizeEvent(final ViewportResizeEvent event) {
+		if (isTiledCanvas(event)) update();
+	}
+
 	@Override
 	public void update() {
 		log.debug("Updating image figure: " + this);
+		if (datasetView.isTiled()) {
+			updateTiles();
+			return;
+		}
 		final Image image = datasetView.getScreenImage().image();
 		final BufferedImage bufImage = AWTImageTools.makeBuffered(image);
 		figure.setBounds(new Rectangle2D.Double(0, 0, bufImage.getWidth(),
@@ -103,6 +126,49 @@ public void update() {
 		figure.setBufferedImage(bufImage);
 	}
 
+	// -- Helper methods --
+
+	private boolean isTiledCanvas(final CanvasEvent event) {
+		return datasetView.isTiled() &&
+			event.getCanvas() == displayViewer.getDisplay().getCanvas();
+	}
+
+	/**
+	 * Stitches the visible tiles of the view into a single image, and stretches
+	 * the figure over the region of the plane they cover.
+	 */
+	private void updateTiles() {
+		final ImageCanvas canvas = displayViewer.getDisplay().getCanvas();
+		final List<ScreenTile> tiles = datasetView.getTiles(canvas);
+		if (tiles.isEmpty()) return;
+
+		long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+		long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+		for (final ScreenTile tile : tiles) {
+			minX = Math.min(minX, tile.getX());
+			minY = Math.min(minY, tile.getY());
+			maxX = Math.max(maxX, tile.getX() + tile.getDataWidth());
+			maxY = Math.max(maxY, tile.getY() + tile.getDataHeight());
+		}
+		final int step = tiles.get(0).getStep();
+		final int width = (int) ((maxX - minX + step - 1) / step);
+		final int height = (int) ((maxY - minY + step - 1) / step);
+
+		final BufferedImage bufImage =
+			new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		final Graphics g = bufImage.getGraphics();
+		for (final ScreenTile tile : tiles) {
+			final int x = (int) ((tile.getX() - minX) / step);
+			final int y = (int) ((tile.getY() - minY) / step);
+			g.drawImage(tile.getImage().image(), x, y, null);
+		}
+		g.dispose();
+
+		figure.setBounds(new Rectangle2D.Double(minX, minY, maxX - minX, maxY -
+			minY));
+		figure.setBufferedImage(bufImage);
+	}
+
 	// -- FigureView methods --
 
 	@Override
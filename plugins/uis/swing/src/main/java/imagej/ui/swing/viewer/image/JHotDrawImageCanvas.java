@@ -83,6 +83,7 @@
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 
+import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.display.screenimage.awt.ARGBScreenImage;
 import net.imglib2.meta.Axes;
@@ -234,7 +235,10 @@ public Dataset capture() {
 			imageDisplayService.getActiveDatasetView(display);
 		if (datasetView == null) return null;
 
-		final ARGBScreenImage screenImage = datasetView.getScreenImage();
+		// NB: a tiled view has no full plane screen image, so render the plane
+		final ARGBScreenImage screenImage =
+			datasetView.renderScreenImage(new FinalInterval(datasetView.getData()
+				.dimension(0), datasetView.getData().dimension(1)));
 		final Image pixels = screenImage.image();
 
 		final int w = pixels.getWidth(null);
@@ -248,6 +252,8 @@ public Dataset capture() {
 
 		// draw the overlay info
 		for (final FigureView view : figureViews) {
+			// NB: the figure of a tiled view holds only the visible tiles
+			if (datasetView.isTiled() && view.getDataView() == datasetView) continue;
 			view.getFigure().draw(outputGraphics);
 		}
 
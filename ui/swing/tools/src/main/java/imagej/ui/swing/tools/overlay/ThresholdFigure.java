@@ -43,15 +43,20 @@
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Point2D.Double;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
 
-import net.imglib2.Cursor;
 import net.imglib2.meta.AxisType;
-import net.imglib2.ops.pointset.HyperVolumePointSet;
-import net.imglib2.ops.pointset.PointSet;
 
 import org.jhotdraw.draw.AbstractAttributedFigure;
 import org.jhotdraw.draw.AttributeKeys;
@@ -67,11 +72,22 @@ public class ThresholdFigure extends AbstractAttributedFigure implements
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Planes up to this many pixels are classified as a whole, so panning does
+	 * not require any reclassification. Larger planes are only classified where
+	 * visible.
+	 */
+	private static final long MAX_WHOLE_PLANE = 4096L * 4096L;
+
 	private final ImageDisplay display;
 	private final Dataset dataset;
 	private final ThresholdOverlay overlay;
-	private final Rectangle2D.Double rect;
 	private double[] tmpPos;
+
+	// the image last drawn, and what it was made from
+	private BufferedImage image;
+	private byte[] imageClasses;
+	private Color[] imageColors;
 	
 	public ThresholdFigure(ImageDisplay display, Dataset dataset,
 		ThresholdOverlay overlay)
@@ -79,7 +95,6 @@ public ThresholdFigure(ImageDisplay display, Dataset dataset,
 		this.display = display;
 		this.dataset = dataset;
 		this.overlay = overlay;
-		this.rect = new Rectangle2D.Double();
 		setAttributeEnabled(AttributeKeys.FILL_COLOR, true);
 		setAttributeEnabled(AttributeKeys.STROKE_COLOR, false);
 		setAttributeEnabled(AttributeKeys.TEXT_COLOR, false);
@@ -147,47 +162,31 @@ public void setBounds(Double anchor, Double lead) {
 
 	// NB - not using a ConditionalPointSet directly. ConditionalPointSet may
 	// encompass a huge hypervolume and we are only interested in the points in
-	// the displayed plane. So we define a smaller hypervolume of just the viewed
-	// plane, iterate it and then classify the point directly. This is
-	// much faster for display purposes.
+	// the displayed plane. So the overlay classifies just the viewed plane into
+	// a raster, which is drawn as one indexed color image.
 
 	@Override
 	protected void drawFill(final Graphics2D g) {
-		final Color origC = g.getColor();
-		final Color withinColor = AWTColors.getColor(overlay.getColorWithin());
-		final Color lessColor = AWTColors.getColor(overlay.getColorLess());
-		final Color greaterColor = AWTColors.getColor(overlay.getColorGreater());
-		Color color = null;
-		Color lastColor = null;
-		rect.width = 1;
-		rect.height = 1;
-		// only iterate currently viewed plane
-		Cursor<long[]> cursor = getViewedPlane().cursor();
-		while (cursor.hasNext()) {
-			long[] pos = cursor.next();
-			// only draw points that satisfy the threshold conditions
-			int classification = overlay.classify(pos);
-			if (classification == Integer.MAX_VALUE) { // NaN data value
-				color = null;
-			}
-			else if (classification < 0) {
-				color = lessColor;
-			}
-			else if (classification > 0) {
-				color = greaterColor;
-			}
-			else color = withinColor;
-			if (color != null) {
-				if (color != lastColor) {
-					g.setColor(color);
-					lastColor = color;
-				}
-				rect.x = pos[0];
-				rect.y = pos[1];
-				g.fill(rect);
-			}
+		final int width = (int) dataset.dimension(0);
+		final int height = (int) dataset.dimension(1);
+		Rectangle region = new Rectangle(0, 0, width, height);
+		if ((long) width * height > MAX_WHOLE_PLANE) {
+			final Rectangle clip = g.getClipBounds();
+			if (clip != null) region = region.intersection(clip);
+		}
+		if (region.isEmpty()) return;
+		final byte[] classes =
+			overlay.classifyPlane(getPlanePosition(), region.x, region.y,
+				region.width, region.height);
+		final Object origHint =
+			g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+			RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g.drawImage(getImage(classes, region.width, region.height), region.x,
+			region.y, null);
+		if (origHint != null) {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, origHint);
 		}
-		g.setColor(origC);
 	}
 
 	// -- Displayable --
@@ -202,15 +201,52 @@ public void draw() {
 
 	// -- helpers --
 
-	private PointSet getViewedPlane() {
-		long[] pt1 = new long[dataset.numDimensions()];
-		long[] pt2 = pt1.clone();
-		pt2[0] = dataset.dimension(0) - 1;
-		pt2[1] = dataset.dimension(1) - 1;
-		for (int i = 2; i < pt1.length; i++) {
+	private long[] getPlanePosition() {
+		final long[] pos = new long[dataset.numDimensions()];
+		for (int i = 2; i < pos.length; i++) {
 			AxisType axisType = dataset.axis(i).type();
-			pt1[i] = pt2[i] = display.getLongPosition(axisType);
+			pos[i] = display.getLongPosition(axisType);
+		}
+		return pos;
+	}
+
+	// Wraps the classes in an image whose color model maps each class to its
+	// color. Classes without a color, and NaN values, are left transparent.
+
+	private BufferedImage getImage(final byte[] classes, final int width,
+		final int height)
+	{
+		final Color[] colors = new Color[4];
+		colors[ThresholdOverlay.CLASS_LESS] =
+			AWTColors.getColor(overlay.getColorLess());
+		colors[ThresholdOverlay.CLASS_WITHIN] =
+			AWTColors.getColor(overlay.getColorWithin());
+		colors[ThresholdOverlay.CLASS_GREATER] =
+			AWTColors.getColor(overlay.getColorGreater());
+		if (image != null && classes == imageClasses &&
+			Arrays.equals(colors, imageColors))
+		{
+			return image;
+		}
+		final byte[] r = new byte[colors.length];
+		final byte[] g = new byte[colors.length];
+		final byte[] b = new byte[colors.length];
+		final byte[] a = new byte[colors.length];
+		for (int i = 0; i < colors.length; i++) {
+			if (colors[i] == null) continue;
+			r[i] = (byte) colors[i].getRed();
+			g[i] = (byte) colors[i].getGreen();
+			b[i] = (byte) colors[i].getBlue();
+			a[i] = (byte) colors[i].getAlpha();
 		}
-		return new HyperVolumePointSet(pt1, pt2);
+		final IndexColorModel colorModel =
+			new IndexColorModel(8, colors.length, r, g, b, a);
+		final WritableRaster raster =
+			Raster.createInterleavedRaster(new DataBufferByte(classes,
+				classes.length), width, height, width, 1, new int[] { 0 }, null);
+		image = new BufferedImage(colorModel, raster, false, null);
+		imageClasses = classes;
+		imageColors = colors;
+		return image;
 	}
 }